@@ -199,14 +199,11 @@ public class BirthDeathIdentityLinkageRecipe extends LinkageRecipe {
 
     @Override
     public long getNumberOfGroundTruthTrueLinks() {
-        int count = 0;
-        for (LXP query_record : getQueryRecords()) {
-            count += countBirthDeathIdentityGTLinks(bridge, query_record);
-        }
-        return count;
+        return countGroundTruthLinks(BIRTH_DEATH_GT_IDENTITY_LINKS_COUNT_QUERY, Birth.STANDARDISED_ID);
     }
 
     private static final String BIRTH_DEATH_GT_IDENTITY_LINKS_QUERY = "MATCH (a:Birth)-[r:GT_ID, { actors: \"Child-Deceased\" } ]-(b:Death) WHERE b.STANDARDISED_ID = $standard_id_from RETURN r";
+    private static final String BIRTH_DEATH_GT_IDENTITY_LINKS_COUNT_QUERY = "UNWIND $ids AS id MATCH (a:Birth)-[r:GT_ID, { actors: \"Child-Deceased\" } ]-(b:Death) WHERE b.STANDARDISED_ID = id RETURN count(r) AS count";
     private static final String BIRTH_DEATH_ALL_GT_IDENTITY_LINKS_QUERY = "MATCH (a:Birth)-[r:GT_ID, { actors: \"Child-Deceased\" } ]-(b:Death) RETURN r";
 
     public static List<Relationship> getBirthDeathIdentityGTLinks(NeoDbCypherBridge bridge, LXP birth_record) {
@@ -143,14 +143,11 @@ public class BirthFatherIdentityLinkageRecipe extends LinkageRecipe {
 
     @Override
     public long getNumberOfGroundTruthTrueLinks() {
-        int count = 0;
-        for (LXP query_record : getQueryRecords()) {
-            count += countBirthFatherIdentityGTLinks(bridge, query_record);
-        }
-        return count;
+        return countGroundTruthLinks(BIRTH_FATHER_GT_IDENTITY_LINKS_COUNT_QUERY, Birth.STANDARDISED_ID);
     }
 
     private static final String BIRTH_FATHER_GT_IDENTITY_LINKS_QUERY = "MATCH (a:Birth)-[r:GT_ID { actors: \"Child-Father\" } ]-(b:Birth) WHERE b.STANDARDISED_ID = $standard_id_from RETURN r";
+    private static final String BIRTH_FATHER_GT_IDENTITY_LINKS_COUNT_QUERY = "UNWIND $ids AS id MATCH (a:Birth)-[r:GT_ID { actors: \"Child-Father\" } ]-(b:Birth) WHERE b.STANDARDISED_ID = id RETURN count(r) AS count";
 
     public static int countBirthFatherIdentityGTLinks(NeoDbCypherBridge bridge, LXP birth_record) {
         String standard_id_from = birth_record.getString(Birth.STANDARDISED_ID);
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.compositeMeasures;
+
+import uk.ac.standrews.cs.utilities.measures.JensenShannon;
+import uk.ac.standrews.cs.utilities.measures.SED;
+import uk.ac.standrews.cs.utilities.measures.coreConcepts.StringMeasure;
+
+import java.util.*;
+
+/**
+ * Precomputed character bigram distributions of field values, from which the Jensen-Shannon and SED distances
+ * between two values can be calculated without rebuilding either distribution.
+ * <p>
+ * Each value is represented by the probability distribution of its character bigrams, including a start and an end
+ * marker, held as a sparse vector sorted by bigram, so the two distributions can be compared in a single merge. The
+ * Jensen-Shannon divergence in bits is half the sum of p log2(2p / (p + q)) + q log2(2q / (p + q)) over the bigrams,
+ * where a bigram in only one value contributes its probability. Summing these terms, rather than subtracting the
+ * shared terms from one, keeps the divergence of identical values at exactly zero; the rounding error of the
+ * subtraction would otherwise be magnified by the square root below. Jensen-Shannon distance is the square root of
+ * the divergence, and SED is
+ * 2^divergence - 1, the ratio of the complexity of the mixed distribution to the geometric mean of the complexities
+ * of the two values, less one.
+ * <p>
+ * The distances must agree with the library implementations of the measures, which CharacterDistributionsTest checks.
+ * Distributions of values that were not precomputed, such as those of query records, are held in a bounded cache.
+ */
+public class CharacterDistributions {
+
+    private static final char START = '\u0002';
+    private static final char END = '\u0003';
+
+    private static final int NUMBER_OF_SEGMENTS = 64;
+    private static final double LOG_2 = Math.log(2);
+
+    private final boolean sed;
+    private final Map<String, Distribution> distributions = new HashMap<>(); // not modified once created
+    private final List<LeastRecentlyUsedMap<String, Distribution>> other_distributions = new ArrayList<>();
+
+    private CharacterDistributions(final boolean sed, final int max_other_values) {
+
+        this.sed = sed;
+
+        if (max_other_values > 0) {
+            final int segment_size = Math.max(1, max_other_values / NUMBER_OF_SEGMENTS);
+            for (int i = 0; i < Math.min(NUMBER_OF_SEGMENTS, max_other_values); i++) {
+                other_distributions.add(new LeastRecentlyUsedMap<>(segment_size));
+            }
+        }
+    }
+
+    /**
+     * Creates distributions for the given values, if the base measure is Jensen-Shannon or SED.
+     *
+     * @param max_other_values - the maximum number of distributions of other values to be cached; 0 to create them each time they are needed
+     * @return the distributions, or null if they cannot be used with the base measure
+     */
+    public static CharacterDistributions forMeasure(final StringMeasure base_measure, final Collection<String> values, final int max_other_values) {
+
+        if (!(base_measure instanceof JensenShannon) && !(base_measure instanceof SED)) return null;
+
+        final CharacterDistributions result = new CharacterDistributions(base_measure instanceof SED, max_other_values);
+        for (String value : values) {
+            if (value != null) result.distributions.put(value, new Distribution(value));
+        }
+        return result;
+    }
+
+    /**
+     * @return the distance between the two values, for which distributions are created if they were not precomputed
+     */
+    public double distance(final String value1, final String value2) {
+
+        final double divergence = divergence(getDistribution(value1), getDistribution(value2));
+        return sed ? Math.pow(2, divergence) - 1 : Math.sqrt(divergence);
+    }
+
+    public int size() {
+        return distributions.size();
+    }
+
+    /**
+     * @return the number of distributions of values that were not precomputed currently cached
+     */
+    public int getNumberOfOtherValues() {
+
+        int number = 0;
+        for (LeastRecentlyUsedMap<String, Distribution> segment : other_distributions) {
+            synchronized (segment) {
+                number += segment.size();
+            }
+        }
+        return number;
+    }
+
+    private Distribution getDistribution(final String value) {
+
+        Distribution distribution = distributions.get(value);
+        if (distribution != null) return distribution;
+
+        if (other_distributions.isEmpty()) return new Distribution(value);
+
+        final LeastRecentlyUsedMap<String, Distribution> segment = other_distributions.get((value.hashCode() & 0x7fffffff) % other_distributions.size());
+
+        synchronized (segment) {
+            distribution = segment.get(value);
+        }
+
+        if (distribution == null) {
+
+            // Created outside the lock; two threads may occasionally create the same distribution.
+            distribution = new Distribution(value);
+
+            synchronized (segment) {
+                segment.put(value, distribution);
+            }
+        }
+        return distribution;
+    }
+
+    private static double divergence(final Distribution d1, final Distribution d2) {
+
+        double unshared = 0.0;
+        double shared = 0.0;
+        int i = 0;
+        int j = 0;
+
+        while (i < d1.bigrams.length && j < d2.bigrams.length) {
+
+            if (d1.bigrams[i] < d2.bigrams[j]) {
+                unshared += d1.probabilities[i++];
+            } else if (d1.bigrams[i] > d2.bigrams[j]) {
+                unshared += d2.probabilities[j++];
+            } else {
+                final double p = d1.probabilities[i++];
+                final double q = d2.probabilities[j++];
+                shared += p * Math.log(2 * p / (p + q)) + q * Math.log(2 * q / (p + q));
+            }
+        }
+        while (i < d1.bigrams.length) unshared += d1.probabilities[i++];
+        while (j < d2.bigrams.length) unshared += d2.probabilities[j++];
+
+        // Guard against rounding taking the divergence slightly outside [0, 1].
+        return Math.min(1.0, Math.max(0.0, (unshared + shared / LOG_2) / 2));
+    }
+
+    private static class Distribution {
+
+        final int[] bigrams;
+        final double[] probabilities;
+
+        Distribution(final String value) {
+
+            final String padded = START + value + END;
+            final int number_of_bigrams = padded.length() - 1;
+
+            final int[] all_bigrams = new int[number_of_bigrams];
+            for (int i = 0; i < number_of_bigrams; i++) {
+                all_bigrams[i] = (padded.charAt(i) << 16) | padded.charAt(i + 1);
+            }
+            Arrays.sort(all_bigrams);
+
+            int distinct = 0;
+            for (int i = 0; i < number_of_bigrams; i++) {
+                if (i == 0 || all_bigrams[i] != all_bigrams[i - 1]) distinct++;
+            }
+
+            bigrams = new int[distinct];
+            probabilities = new double[distinct];
+
+            int index = -1;
+            for (int i = 0; i < number_of_bigrams; i++) {
+                if (i == 0 || all_bigrams[i] != all_bigrams[i - 1]) {
+                    bigrams[++index] = all_bigrams[i];
+                }
+                probabilities[index] += 1.0 / number_of_bigrams;
+            }
+        }
+    }
+}
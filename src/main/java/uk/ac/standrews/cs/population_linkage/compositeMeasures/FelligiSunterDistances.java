@@ -73,7 +73,7 @@ public class FelligiSunterDistances extends LXPMeasure {
                 double m_prior = m_priors.get(i);
                 double u_prior = u_priors.get(i);
 
-                double base_distance = base_measure.distance(field_value1, field_value2);
+                double base_distance = fieldDistance(field_value1, field_value2);
                 if( base_distance > 1 || base_distance < 0 ) {
                     throw new RuntimeException( "Base distance must be between zero and one - distance was " + base_distance + " for metric " + base_measure.getMeasureName() );
                 }
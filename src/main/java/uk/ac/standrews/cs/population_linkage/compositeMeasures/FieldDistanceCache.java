@@ -0,0 +1,137 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.compositeMeasures;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleBiFunction;
+
+/**
+ * A bounded cache of distances between field values calculated by a base measure, for use by composite measures in
+ * which the same pairs of common values are compared many times.
+ * <p>
+ * The cache is divided into segments, each a least-recently-used map guarded by its own lock, so that it can be shared
+ * between the threads of a search structure without them contending on a single lock. Each segment evicts its least
+ * recently used entry when it holds more than its share of the maximum size.
+ */
+public class FieldDistanceCache {
+
+    private static final int NUMBER_OF_SEGMENTS = 64;
+
+    private final String measure_name;
+    private final ToDoubleBiFunction<String, String> measure;
+    private final boolean symmetric;
+    private final List<LeastRecentlyUsedMap<Key, Double>> segments = new ArrayList<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param measure   - calculates the distances to be cached
+     * @param symmetric - whether the measure gives the same distance for (a, b) as for (b, a), in which case both orders share an entry
+     * @param max_size  - the maximum number of distances held
+     */
+    public FieldDistanceCache(final String measure_name, final ToDoubleBiFunction<String, String> measure, final boolean symmetric, final int max_size) {
+
+        this.measure_name = measure_name;
+        this.measure = measure;
+        this.symmetric = symmetric;
+
+        final int segment_size = Math.max(1, max_size / NUMBER_OF_SEGMENTS);
+        for (int i = 0; i < NUMBER_OF_SEGMENTS; i++) {
+            segments.add(new LeastRecentlyUsedMap<>(segment_size));
+        }
+    }
+
+    public double distance(final String value1, final String value2) {
+
+        final Key key = symmetric && value1 != null && value2 != null && value1.compareTo(value2) > 0 ? new Key(value2, value1) : new Key(value1, value2);
+        final LeastRecentlyUsedMap<Key, Double> segment = segments.get((key.hash_code & 0x7fffffff) % NUMBER_OF_SEGMENTS);
+
+        Double distance;
+        synchronized (segment) {
+            distance = segment.get(key);
+        }
+
+        if (distance != null) {
+            hits.increment();
+            return distance;
+        }
+
+        misses.increment();
+
+        // Calculated outside the lock; two threads may occasionally calculate the same distance.
+        distance = measure.applyAsDouble(value1, value2);
+
+        synchronized (segment) {
+            segment.put(key, distance);
+        }
+        return distance;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRate() {
+
+        final long lookups = getHits() + getMisses();
+        return lookups == 0 ? 0.0 : (double) getHits() / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Field distance cache for %s: %d hits, %d misses, hit rate %.2f", measure_name, getHits(), getMisses(), getHitRate());
+    }
+
+    private static class Key {
+
+        final String value1;
+        final String value2;
+        final int hash_code;
+
+        Key(final String value1, final String value2) {
+
+            this.value1 = value1;
+            this.value2 = value2;
+            hash_code = 31 * (value1 == null ? 0 : value1.hashCode()) + (value2 == null ? 0 : value2.hashCode());
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            final Key key = (Key) o;
+            return equal(value1, key.value1) && equal(value2, key.value2);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash_code;
+        }
+
+        private static boolean equal(final String s1, final String s2) {
+            return s1 == null ? s2 == null : s1.equals(s2);
+        }
+    }
+}
@@ -18,12 +18,19 @@ package uk.ac.standrews.cs.population_linkage.compositeMeasures;
 
 import uk.ac.standrews.cs.neoStorr.impl.LXP;
 import uk.ac.standrews.cs.population_linkage.helpers.RecordFiltering;
+import uk.ac.standrews.cs.population_linkage.supportClasses.Constants;
+import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageConfig;
+import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageFieldStore;
 import uk.ac.standrews.cs.population_records.record_types.Birth;
 import uk.ac.standrews.cs.population_records.record_types.Death;
 import uk.ac.standrews.cs.utilities.measures.coreConcepts.Measure;
 import uk.ac.standrews.cs.utilities.measures.coreConcepts.StringMeasure;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
 
 public abstract class LXPMeasure extends Measure<LXP> {
 
@@ -31,6 +38,16 @@ public abstract class LXPMeasure extends Measure<LXP> {
     protected List<Integer> field_list1;
     protected List<Integer> field_list2;
 
+    private LinkageFieldStore field_store = null;
+    private boolean field_store_holds_fields1 = false;
+    private boolean field_store_holds_fields2 = false;
+    private FieldDistanceCache field_distance_cache = null;
+    private CharacterDistributions character_distributions = null;
+    private int[] field_order = null;
+
+    private static final int FIELD_ORDER_SAMPLE_SIZE = 1000;
+    private static final double EARLY_ABANDON_TOLERANCE = 1E-9;
+
     public LXPMeasure(final StringMeasure base_measure, final List<Integer> field_list1, final List<Integer> field_list2) {
 
         if (field_list1.size() != field_list2.size()) {
@@ -44,19 +61,205 @@ public abstract class LXPMeasure extends Measure<LXP> {
     protected LXPMeasure() {
     }
 
+    /**
+     * Causes field values of records in the given store to be read from the store rather than from the records.
+     * Records not in the store, such as query records converted to the stored type, are read as before.
+     */
+    public void useFieldStore(final LinkageFieldStore field_store) {
+
+        this.field_store = field_store;
+        field_store_holds_fields1 = field_store != null && field_store.getFields().equals(field_list1);
+        field_store_holds_fields2 = field_store != null && field_store.getFields().equals(field_list2);
+    }
+
+    /**
+     * Causes distances between field values to be looked up in a bounded cache before being calculated by the base measure.
+     *
+     * @param max_size - the maximum number of distances cached, or zero for no cache
+     */
+    public void cacheFieldDistances(final int max_size) {
+
+        if (base_measure != null) {
+            field_distance_cache = max_size > 0 ? new FieldDistanceCache(base_measure.getMeasureName(), this::calculateFieldDistance, isSymmetric(base_measure), max_size) : null;
+        }
+    }
+
+    public FieldDistanceCache getFieldDistanceCache() {
+        return field_distance_cache;
+    }
+
+    /**
+     * Precomputes the character distributions of the values in the field store, if the base measure is one that
+     * can use them. See {@link CharacterDistributions}.
+     */
+    public void precomputeCharacterDistributions() {
+
+        if (base_measure != null && field_store != null) {
+            character_distributions = CharacterDistributions.forMeasure(base_measure, field_store.getDistinctValues(), LinkageConfig.FIELD_DISTANCE_CACHE_SIZE);
+        }
+    }
+
+    protected double fieldDistance(final String field_value1, final String field_value2) {
+        return field_distance_cache != null ? field_distance_cache.distance(field_value1, field_value2) : calculateFieldDistance(field_value1, field_value2);
+    }
+
+    private double calculateFieldDistance(final String field_value1, final String field_value2) {
+
+        if (character_distributions != null && field_value1 != null && field_value2 != null) {
+            return character_distributions.distance(field_value1, field_value2);
+        }
+        return base_measure.distance(field_value1, field_value2);
+    }
+
+    private static boolean isSymmetric(final StringMeasure measure) {
+        return Constants.TRUE_METRICS.stream().anyMatch(metric -> metric.getClass().equals(measure.getClass()));
+    }
+
+    /**
+     * Builds a field store holding field_list1 of the given records, which are normally the stored records of a linkage.
+     */
+    public void buildFieldStore(final Iterable<LXP> records) {
+
+        if (field_list1 != null) {
+            useFieldStore(new LinkageFieldStore(records, field_list1));
+        }
+    }
+
+    /**
+     * Returns the distance between x and y if it is no greater than the given bound, or otherwise some value greater
+     * than the bound, which may be returned without calculating all the field distances. This version always calculates
+     * the full distance; measures that accumulate field distances override it.
+     */
+    public double distanceIfWithin(final LXP x, final LXP y, final double bound) {
+        return distance(x, y);
+    }
+
+    /**
+     * As sumOfFieldDistances, but visiting the fields in decreasing order of their mean distance over a sample of the
+     * stored records, so that pairs that are not close are detected after as few fields as possible.
+     *
+     * @param bound - the sum of field distances above which the calculation can be abandoned
+     * @param substitute_for_missing_fields - whether to use distance_for_missing_fields where a value is missing, as calculateMeanDistance does
+     * @return the sum of the field distances if no greater than the bound, otherwise a value greater than the bound
+     */
+    protected double sumOfFieldDistancesIfWithin(final LXP x, final LXP y, final double bound, final boolean substitute_for_missing_fields, final double distance_for_missing_fields) {
+
+        final int ordinal1 = getOrdinal1(x);
+        final int ordinal2 = getOrdinal2(y);
+        final double[] field_distances = new double[field_list1.size()];
+        double partial_distance = 0.0d;
+
+        for (int i : getFieldOrder()) {
+            try {
+                final String field_value1 = getFieldValue(x, ordinal1, field_list1, i);
+                final String field_value2 = getFieldValue(y, ordinal2, field_list2, i);
+
+                field_distances[i] = substitute_for_missing_fields && (isMissing(ordinal1, i, field_value1) || isMissing(ordinal2, i, field_value2)) ?
+                        distance_for_missing_fields : fieldDistance(field_value1, field_value2);
+
+                partial_distance += field_distances[i];
+                if (partial_distance > bound + EARLY_ABANDON_TOLERANCE) return partial_distance;
+
+            } catch (Exception e) {
+                throwExceptionWithDebug(x, y, i, e);
+            }
+        }
+
+        // Sum in field order so that the result is identical to that from the full calculation.
+        double total_distance = 0.0d;
+        for (double field_distance : field_distances) {
+            total_distance += field_distance;
+        }
+        return total_distance;
+    }
+
+    protected int[] getFieldOrder() {
+
+        if (field_order == null) {
+            field_order = IntStream.range(0, field_list1.size()).toArray();
+        }
+        return field_order;
+    }
+
+    /**
+     * Sets the order in which distanceIfWithin visits the fields to decreasing order of their mean distance over
+     * pairs sampled from the given records, which are normally the stored records of a linkage. Until this is
+     * called, fields are visited in field list order.
+     */
+    public void orderFieldsByMeanDistance(final Iterable<LXP> records) {
+
+        if (field_list1 == null || base_measure == null) return;
+
+        // Reservoir sample, so that the records are read in a single pass without being held.
+        final Random random = new Random(FIELD_ORDER_SAMPLE_SIZE);
+        final List<LXP> sample = new ArrayList<>();
+        int number_of_records = 0;
+
+        for (LXP record : records) {
+
+            if (sample.size() < FIELD_ORDER_SAMPLE_SIZE * 2) {
+                sample.add(record);
+            } else {
+                final int position = random.nextInt(number_of_records + 1);
+                if (position < sample.size()) sample.set(position, record);
+            }
+            number_of_records++;
+        }
+
+        if (sample.size() < 2) return;
+
+        final int number_of_pairs = sample.size() / 2;
+        final double[] mean_distances = new double[field_list1.size()];
+
+        for (int pair = 0; pair < number_of_pairs; pair++) {
+
+            final LXP record1 = sample.get(pair * 2);
+            final LXP record2 = sample.get(pair * 2 + 1);
+
+            for (int i = 0; i < mean_distances.length; i++) {
+                mean_distances[i] += base_measure.distance(record1.getString(field_list1.get(i)), record2.getString(field_list1.get(i))) / number_of_pairs;
+            }
+        }
+
+        field_order = IntStream.range(0, mean_distances.length).boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> mean_distances[i]).reversed())
+                .mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * @return the ordinal of x in the field store, or -1 if its values for field_list1 must be read from the record
+     */
+    protected int getOrdinal1(final LXP x) {
+        return field_store_holds_fields1 ? field_store.getOrdinal(x) : -1;
+    }
+
+    /**
+     * @return the ordinal of y in the field store, or -1 if its values for field_list2 must be read from the record
+     */
+    protected int getOrdinal2(final LXP y) {
+        return field_store_holds_fields2 ? field_store.getOrdinal(y) : -1;
+    }
+
+    protected String getFieldValue(final LXP record, final int ordinal, final List<Integer> field_list, final int i) {
+        return ordinal >= 0 ? field_store.getValue(ordinal, i) : record.getString(field_list.get(i));
+    }
+
+    protected boolean isMissing(final int ordinal, final int i, final String field_value) {
+        return ordinal >= 0 ? field_store.isMissing(ordinal, i) : RecordFiltering.isMissing(field_value);
+    }
+
     protected double sumOfFieldDistances(LXP x, LXP y) {
 
         double total_distance = 0.0d;
+        final int ordinal1 = getOrdinal1(x);
+        final int ordinal2 = getOrdinal2(y);
 
         for (int i = 0; i < field_list1.size(); i++) {
             try {
-                final int field_index1 = field_list1.get(i);
-                final int field_index2 = field_list2.get(i);
-
-                final String field_value1 = x.getString(field_index1);
-                final String field_value2 = y.getString(field_index2);
+                final String field_value1 = getFieldValue(x, ordinal1, field_list1, i);
+                final String field_value2 = getFieldValue(y, ordinal2, field_list2, i);
 
-                total_distance += base_measure.distance(field_value1, field_value2);
+                total_distance += fieldDistance(field_value1, field_value2);
 
             } catch (Exception e) {
                 throwExceptionWithDebug(x, y, i, e);
@@ -68,18 +271,17 @@ public abstract class LXPMeasure extends Measure<LXP> {
     protected double calculateMeanDistance(LXP x, LXP y, double distance_for_missing_fields) {
 
         double total_distance = 0.0d;
+        final int ordinal1 = getOrdinal1(x);
+        final int ordinal2 = getOrdinal2(y);
 
         for (int i = 0; i < field_list1.size(); i++) {
             try {
-                final int field_index1 = field_list1.get(i);
-                final int field_index2 = field_list2.get(i);
+                final String field_value1 = getFieldValue(x, ordinal1, field_list1, i);
+                final String field_value2 = getFieldValue(y, ordinal2, field_list2, i);
 
-                final String field_value1 = x.getString(field_index1);
-                final String field_value2 = y.getString(field_index2);
+                if (!isMissing(ordinal1, i, field_value1) && !isMissing(ordinal2, i, field_value2)) {
 
-                if (!RecordFiltering.isMissing(field_value1) && !RecordFiltering.isMissing(field_value2)) {
-
-                    total_distance += base_measure.distance(field_value1, field_value2);
+                    total_distance += fieldDistance(field_value1, field_value2);
                 }
                 else {
                     total_distance += distance_for_missing_fields;
@@ -93,6 +295,16 @@ public abstract class LXPMeasure extends Measure<LXP> {
         return total_distance / field_list1.size();
     }
 
+    /**
+     * As calculateMeanDistance, but abandoning the calculation once the mean can no longer be within the bound.
+     *
+     * @return the mean distance if no greater than the bound, otherwise a value greater than the bound
+     */
+    protected double calculateMeanDistanceIfWithin(LXP x, LXP y, double distance_for_missing_fields, double bound) {
+
+        return sumOfFieldDistancesIfWithin(x, y, bound * field_list1.size(), true, distance_for_missing_fields) / field_list1.size();
+    }
+
     protected void throwExceptionWithDebug(LXP x, LXP y, int field_index, Exception e) {
         throw new RuntimeException("exception comparing fields " + x.getMetaData().getFieldName(field_list1.get(field_index)) + " and " + y.getMetaData().getFieldName(field_list2.get(field_index)) + " in records \n" + x + "\n and \n" + y, e);
     }
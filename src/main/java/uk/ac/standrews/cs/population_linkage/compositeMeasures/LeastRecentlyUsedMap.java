@@ -0,0 +1,41 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.compositeMeasures;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A map that evicts its least recently used entry when it holds more than a given number of entries. It is not
+ * thread-safe; the bounded caches that use it divide their entries between several such maps, each guarded by its
+ * own lock.
+ */
+class LeastRecentlyUsedMap<K, V> extends LinkedHashMap<K, V> {
+
+    private final int max_size;
+
+    LeastRecentlyUsedMap(final int max_size) {
+
+        super(16, 0.75f, true);
+        this.max_size = max_size;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+        return size() > max_size;
+    }
+}
@@ -53,16 +53,15 @@ public class MaximumOfFieldDistances extends LXPMeasure {
     public double calculateDistance(final LXP x, final LXP y) {
         
         double max = 0.0d;
+        final int ordinal1 = getOrdinal1(x);
+        final int ordinal2 = getOrdinal2(y);
 
         for (int i = 0; i < field_list1.size(); i++) {
             try {
-                final int field_index1 = field_list1.get(i);
-                final int field_index2 = field_list2.get(i);
+                final String field_value1 = getFieldValue(x, ordinal1, field_list1, i);
+                final String field_value2 = getFieldValue(y, ordinal2, field_list2, i);
 
-                final String field_value1 = x.getString(field_index1);
-                final String field_value2 = y.getString(field_index2);
-
-                max = Math.max(max, base_measure.distance(field_value1, field_value2));
+                max = Math.max(max, fieldDistance(field_value1, field_value2));
 
             } catch (Exception e) {
                 throw new RuntimeException("exception comparing fields " + x.getMetaData().getFieldName(field_list1.get(i)) + " and " + y.getMetaData().getFieldName(field_list2.get(i)) + " in records \n" + x + "\n and \n" + y, e);
@@ -72,6 +71,29 @@ public class MaximumOfFieldDistances extends LXPMeasure {
         return max;
     }
 
+    @Override
+    public double distanceIfWithin(final LXP x, final LXP y, final double bound) {
+
+        double max = 0.0d;
+        final int ordinal1 = getOrdinal1(x);
+        final int ordinal2 = getOrdinal2(y);
+
+        for (int i : getFieldOrder()) {
+            try {
+                final String field_value1 = getFieldValue(x, ordinal1, field_list1, i);
+                final String field_value2 = getFieldValue(y, ordinal2, field_list2, i);
+
+                max = Math.max(max, fieldDistance(field_value1, field_value2));
+                if (max > bound) return max;
+
+            } catch (Exception e) {
+                throwExceptionWithDebug(x, y, i, e);
+            }
+        }
+
+        return max;
+    }
+
     public static void main(String[] args) {
 
         final MaximumOfFieldDistances birth_birth_measure1 = new MaximumOfFieldDistances(Constants.LEVENSHTEIN, BirthSiblingLinkageRecipe.LINKAGE_FIELDS);
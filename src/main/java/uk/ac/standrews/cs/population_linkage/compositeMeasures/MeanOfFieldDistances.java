@@ -55,6 +55,12 @@ public class MeanOfFieldDistances extends LXPMeasure {
         return sumOfFieldDistances(x, y) / field_list1.size();
     }
 
+    @Override
+    public double distanceIfWithin(final LXP x, final LXP y, final double bound) {
+
+        return sumOfFieldDistancesIfWithin(x, y, bound * field_list1.size(), false, 0d) / field_list1.size();
+    }
+
     public static void main(String[] args) {
 
         final MeanOfFieldDistances birth_birth_measure1 = new MeanOfFieldDistances(Constants.LEVENSHTEIN, BirthSiblingLinkageRecipe.LINKAGE_FIELDS);
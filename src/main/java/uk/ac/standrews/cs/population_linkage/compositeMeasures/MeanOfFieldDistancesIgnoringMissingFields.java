@@ -17,7 +17,6 @@
 package uk.ac.standrews.cs.population_linkage.compositeMeasures;
 
 import uk.ac.standrews.cs.neoStorr.impl.LXP;
-import uk.ac.standrews.cs.population_linkage.helpers.RecordFiltering;
 import uk.ac.standrews.cs.population_linkage.linkageRecipes.BirthDeathIdentityLinkageRecipe;
 import uk.ac.standrews.cs.population_linkage.linkageRecipes.BirthSiblingLinkageRecipe;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Constants;
@@ -82,19 +81,18 @@ public class MeanOfFieldDistancesIgnoringMissingFields extends LXPMeasure {
 
         double total_distance = 0.0d;
         int present_count = 0;
+        final int ordinal1 = getOrdinal1(x);
+        final int ordinal2 = getOrdinal2(y);
 
         for (int i = 0; i < field_list1.size(); i++) {
             try {
-                final int field_index1 = field_list1.get(i);
-                final int field_index2 = field_list2.get(i);
+                final String field_value1 = getFieldValue(x, ordinal1, field_list1, i);
+                final String field_value2 = getFieldValue(y, ordinal2, field_list2, i);
 
-                final String field_value1 = x.getString(field_index1);
-                final String field_value2 = y.getString(field_index2);
-
-                if (!RecordFiltering.isMissing(field_value1) && !RecordFiltering.isMissing(field_value2)) {
+                if (!isMissing(ordinal1, i, field_value1) && !isMissing(ordinal2, i, field_value2)) {
 
                     present_count++;
-                    total_distance += base_measure.distance(field_value1, field_value2);
+                    total_distance += fieldDistance(field_value1, field_value2);
                 }
 
             } catch (Exception e) {
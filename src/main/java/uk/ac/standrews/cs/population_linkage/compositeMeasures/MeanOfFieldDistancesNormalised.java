@@ -74,6 +74,22 @@ public class MeanOfFieldDistancesNormalised extends LXPMeasure {
         return base_measure.maxDistanceIsOne() ? mean : normalise(mean);
     }
 
+    /**
+     * Abandons the calculation early where the normalisation is linear; the non-linear normalisation always
+     * calculates the full distance.
+     */
+    @Override
+    public double distanceIfWithin(final LXP x, final LXP y, final double bound) {
+
+        if (base_measure.maxDistanceIsOne()) {
+            return sumOfFieldDistancesIfWithin(x, y, bound * field_list1.size(), false, 0d) / field_list1.size();
+        }
+        if (normalisation_cutoff > 0d) {
+            return normalise(sumOfFieldDistancesIfWithin(x, y, bound * normalisation_cutoff * field_list1.size(), false, 0d) / field_list1.size());
+        }
+        return distance(x, y);
+    }
+
     private double normalise(final double d) {
 
         return normalisation_cutoff > 0d ? Math.min(d, normalisation_cutoff) / normalisation_cutoff : normaliseArbitraryPositiveDistance(d);
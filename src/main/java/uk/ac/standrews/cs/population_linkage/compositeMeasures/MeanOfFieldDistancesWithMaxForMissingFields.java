@@ -63,6 +63,12 @@ public class MeanOfFieldDistancesWithMaxForMissingFields extends LXPMeasure {
         return calculateMeanDistance(x, y, max_field_distance);
     }
 
+    @Override
+    public double distanceIfWithin(final LXP x, final LXP y, final double bound) {
+
+        return calculateMeanDistanceIfWithin(x, y, max_field_distance, bound);
+    }
+
     public static void main(String[] args) {
 
         final MeanOfFieldDistancesWithMaxForMissingFields birth_birth_measure1 = new MeanOfFieldDistancesWithMaxForMissingFields(Constants.LEVENSHTEIN, BirthSiblingLinkageRecipe.LINKAGE_FIELDS, 100d);
@@ -62,6 +62,12 @@ public class MeanOfFieldDistancesWithMeanForMissingFields extends LXPMeasure {
         return calculateMeanDistance(x, y, mean_field_distance);
     }
 
+    @Override
+    public double distanceIfWithin(final LXP x, final LXP y, final double bound) {
+
+        return calculateMeanDistanceIfWithin(x, y, mean_field_distance, bound);
+    }
+
     public static void main(String[] args) {
 
         final var birth_birth_measure1 = new MeanOfFieldDistancesWithMeanForMissingFields(Constants.LEVENSHTEIN, BirthSiblingLinkageRecipe.LINKAGE_FIELDS, 50d);
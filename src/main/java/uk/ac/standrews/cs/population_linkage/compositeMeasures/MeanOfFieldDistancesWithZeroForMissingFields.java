@@ -56,6 +56,12 @@ public class MeanOfFieldDistancesWithZeroForMissingFields extends LXPMeasure {
         return calculateMeanDistance(x, y, 0d);
     }
 
+    @Override
+    public double distanceIfWithin(final LXP x, final LXP y, final double bound) {
+
+        return calculateMeanDistanceIfWithin(x, y, 0d, bound);
+    }
+
     public static void main(String[] args) {
 
         final var birth_birth_measure1 = new MeanOfFieldDistancesWithZeroForMissingFields(Constants.LEVENSHTEIN, BirthSiblingLinkageRecipe.LINKAGE_FIELDS);
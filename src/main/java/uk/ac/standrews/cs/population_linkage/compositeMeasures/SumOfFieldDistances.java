@@ -55,6 +55,12 @@ public class SumOfFieldDistances extends LXPMeasure {
         return sumOfFieldDistances(x, y);
     }
 
+    @Override
+    public double distanceIfWithin(final LXP x, final LXP y, final double bound) {
+
+        return sumOfFieldDistancesIfWithin(x, y, bound, false, 0d);
+    }
+
     public static void main(String[] args) {
 
         final SumOfFieldDistances birth_birth_measure1 = new SumOfFieldDistances(Constants.LEVENSHTEIN, BirthSiblingLinkageRecipe.LINKAGE_FIELDS);
@@ -22,11 +22,10 @@ import uk.ac.standrews.cs.population_linkage.graph.Query;
 import uk.ac.standrews.cs.population_linkage.linkageRecipes.BirthBrideIdentityLinkageRecipe;
 import uk.ac.standrews.cs.population_linkage.linkageRecipes.BirthBrideSiblingLinkageRecipe;
 import uk.ac.standrews.cs.population_linkage.linkageRecipes.LinkageRecipe;
+import uk.ac.standrews.cs.population_linkage.linkageRunners.BatchedLinkPersister;
 import uk.ac.standrews.cs.population_linkage.linkageRunners.BitBlasterLinkageRunner;
 import uk.ac.standrews.cs.population_linkage.linkageRunners.MakePersistent;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Link;
-import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageQuality;
-import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageResult;
 import uk.ac.standrews.cs.population_records.record_types.Birth;
 import uk.ac.standrews.cs.population_records.record_types.Marriage;
 
@@ -36,6 +35,8 @@ import uk.ac.standrews.cs.population_records.record_types.Marriage;
  */
 public class BirthBrideOwnMarriageBuilder implements MakePersistent {
 
+    private final BatchedLinkPersister persister = new BatchedLinkPersister();
+
     public static void main(String[] args) throws Exception {
 
         String sourceRepo = args[0];  // e.g. umea
@@ -54,34 +55,28 @@ public class BirthBrideOwnMarriageBuilder implements MakePersistent {
         int linkage_fields = linkageRecipe.ALL_LINKAGE_FIELDS;
         int half_fields = linkage_fields - (linkage_fields / 2);
 
-        while (linkage_fields >= half_fields) {
-            linkageRecipe.setNumberLinkageFieldsRequired(linkage_fields);
-            LinkageResult lr = runner.run(linkageRecipe, new BirthBrideOwnMarriageBuilder(), false, true);
-            LinkageQuality quality = lr.getLinkageQuality();
-            quality.print(System.out);
-
-            linkage_fields--;
-        }
+        runner.runOverLinkageFields(linkageRecipe, BirthBrideOwnMarriageBuilder::new, linkage_fields, half_fields);
     }
 
     @Override
     public void makePersistent(LinkageRecipe linkage_recipe, Link link) {
+        makePersistent(linkage_recipe, link, linkage_recipe.getNumberOfLinkageFieldsRequired());
+    }
+
+    @Override
+    public void makePersistent(LinkageRecipe linkage_recipe, Link link, int fields_required) {
         try {
             final String std_id1 = link.getRecord1().getReferend(Birth.class).getString(Birth.STANDARDISED_ID);
             final String std_id2 = link.getRecord2().getReferend(Marriage.class).getString(Marriage.STANDARDISED_ID);
 
-            if (!Query.BMBirthBrideReferenceExists(linkage_recipe.getBridge(), std_id1, std_id2, linkage_recipe.getLinksPersistentName())) {
-
-                Query.createBirthBrideOwnMarriageReference(
-                        linkage_recipe.getBridge(),
-                        std_id1,
-                        std_id2,
-                        linkage_recipe.getLinksPersistentName(),
-                        linkage_recipe.getNumberOfLinkageFieldsRequired(),
-                        link.getDistance());
-            }
+            persister.add(linkage_recipe, fields_required, Query.BM_BIRTH_BRIDE_BATCH_QUERY, std_id1, std_id2, link.getDistance());
         } catch (BucketException | RepositoryException e) {
             throw new RuntimeException(e);
         }
     }
+
+    @Override
+    public void flush() {
+        persister.close();
+    }
 }
@@ -21,11 +21,10 @@ import uk.ac.standrews.cs.neoStorr.impl.exceptions.RepositoryException;
 import uk.ac.standrews.cs.population_linkage.graph.Query;
 import uk.ac.standrews.cs.population_linkage.linkageRecipes.BirthDeathSiblingLinkageRecipe;
 import uk.ac.standrews.cs.population_linkage.linkageRecipes.LinkageRecipe;
+import uk.ac.standrews.cs.population_linkage.linkageRunners.BatchedLinkPersister;
 import uk.ac.standrews.cs.population_linkage.linkageRunners.BitBlasterLinkageRunner;
 import uk.ac.standrews.cs.population_linkage.linkageRunners.MakePersistent;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Link;
-import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageQuality;
-import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageResult;
 import uk.ac.standrews.cs.population_records.record_types.Birth;
 import uk.ac.standrews.cs.population_records.record_types.Death;
 
@@ -34,6 +33,8 @@ import uk.ac.standrews.cs.population_records.record_types.Death;
  */
 public class BirthDeathSiblingBundleBuilder implements MakePersistent {
 
+    private final BatchedLinkPersister persister = new BatchedLinkPersister();
+
     public static void main(String[] args) throws Exception {
 
         String sourceRepo = args[0];  // e.g. umea
@@ -52,16 +53,14 @@ public class BirthDeathSiblingBundleBuilder implements MakePersistent {
         int linkage_fields = linkageRecipe.ALL_LINKAGE_FIELDS;
         int half_fields = linkage_fields - (linkage_fields / 2 );
 
-        while( linkage_fields >= half_fields) {
-            linkageRecipe.setNumberLinkageFieldsRequired(linkage_fields);
-            LinkageResult lr = runner.run(linkageRecipe, new BirthDeathSiblingBundleBuilder(), false, true);
-            LinkageQuality quality = lr.getLinkageQuality();
-            quality.print(System.out);
-            linkage_fields--;
-        }
+        runner.runOverLinkageFields(linkageRecipe, BirthDeathSiblingBundleBuilder::new, linkage_fields, half_fields);
     }
 
     public void makePersistent(LinkageRecipe recipe, Link link) {
+        makePersistent(recipe, link, recipe.getNumberOfLinkageFieldsRequired());
+    }
+
+    public void makePersistent(LinkageRecipe recipe, Link link, int fields_required) {
         try {
 
             // role/record 1 is stored role
@@ -73,17 +72,14 @@ public class BirthDeathSiblingBundleBuilder implements MakePersistent {
 
             // if( !std_id1.equals(std_id2 ) ) { // DELETE IN NON homogeneous linkages
 
-                if (!Query.DBSiblingReferenceExists(recipe.getBridge(), std_id2, std_id1, recipe.getLinksPersistentName())) {
-                    Query.createDBSiblingReference(
-                            recipe.getBridge(),
-                            std_id2,
-                            std_id1,
-                            recipe.getLinksPersistentName(),
-                            recipe.getNumberOfLinkageFieldsRequired(),
-                            link.getDistance());
-                }
+                persister.add(recipe, fields_required, Query.DB_SIBLING_BATCH_QUERY, std_id2, std_id1, link.getDistance());
         } catch (BucketException | RepositoryException e) {
             throw new RuntimeException(e);
         }
     }
+
+    @Override
+    public void flush() {
+        persister.close();
+    }
 }
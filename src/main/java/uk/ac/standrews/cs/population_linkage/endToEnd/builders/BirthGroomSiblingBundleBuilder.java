@@ -21,11 +21,10 @@ import uk.ac.standrews.cs.neoStorr.impl.exceptions.RepositoryException;
 import uk.ac.standrews.cs.population_linkage.graph.Query;
 import uk.ac.standrews.cs.population_linkage.linkageRecipes.BirthGroomSiblingLinkageRecipe;
 import uk.ac.standrews.cs.population_linkage.linkageRecipes.LinkageRecipe;
+import uk.ac.standrews.cs.population_linkage.linkageRunners.BatchedLinkPersister;
 import uk.ac.standrews.cs.population_linkage.linkageRunners.BitBlasterLinkageRunner;
 import uk.ac.standrews.cs.population_linkage.linkageRunners.MakePersistent;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Link;
-import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageQuality;
-import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageResult;
 import uk.ac.standrews.cs.population_records.record_types.Birth;
 import uk.ac.standrews.cs.population_records.record_types.Death;
 import uk.ac.standrews.cs.population_records.record_types.Marriage;
@@ -35,6 +34,8 @@ import uk.ac.standrews.cs.population_records.record_types.Marriage;
  */
 public class BirthGroomSiblingBundleBuilder implements MakePersistent {
 
+    private final BatchedLinkPersister persister = new BatchedLinkPersister();
+
     public static void main(String[] args) throws Exception {
 
         String sourceRepo = args[0];  // e.g. umea
@@ -47,34 +48,28 @@ public class BirthGroomSiblingBundleBuilder implements MakePersistent {
             int linkage_fields = linkageRecipe.ALL_LINKAGE_FIELDS;
             int half_fields = linkage_fields - (linkage_fields / 2 );
 
-            while( linkage_fields >= half_fields ) {
-                linkageRecipe.setNumberLinkageFieldsRequired(linkage_fields);
-                LinkageResult lr = runner.run(linkageRecipe, new BirthGroomSiblingBundleBuilder(), false, true);
-                LinkageQuality quality = lr.getLinkageQuality();
-                quality.print(System.out);
-                linkage_fields--;
-            }
+            runner.runOverLinkageFields(linkageRecipe, BirthGroomSiblingBundleBuilder::new, linkage_fields, half_fields);
         }
     }
 
     public void makePersistent(LinkageRecipe recipe, Link link) {
+        makePersistent(recipe, link, recipe.getNumberOfLinkageFieldsRequired());
+    }
+
+    public void makePersistent(LinkageRecipe recipe, Link link, int fields_required) {
         try {
 
             String std_id1 = link.getRecord1().getReferend(Birth.class).getString(Birth.STANDARDISED_ID);
             String std_id2 = link.getRecord2().getReferend(Marriage.class).getString(Marriage.STANDARDISED_ID );
 
-                if (!Query.BMGroomSiblingReferenceExists(recipe.getBridge(), std_id1, std_id2, recipe.getLinksPersistentName())) {
-                    Query.createBMGroomSiblingReference(
-                            recipe.getBridge(),
-                            std_id1,
-                            std_id2,
-                            recipe.getLinksPersistentName(),
-                            recipe.getNumberOfLinkageFieldsRequired(),
-                            link.getDistance());
-                }
+                persister.add(recipe, fields_required, Query.BM_GROOM_SIBLING_BATCH_QUERY, std_id1, std_id2, link.getDistance());
         } catch (BucketException | RepositoryException e) {
             throw new RuntimeException(e);
         }
     }
 
+    @Override
+    public void flush() {
+        persister.close();
+    }
 }
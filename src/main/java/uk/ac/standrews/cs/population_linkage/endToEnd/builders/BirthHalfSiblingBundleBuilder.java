@@ -21,6 +21,7 @@ import uk.ac.standrews.cs.neoStorr.impl.exceptions.RepositoryException;
 import uk.ac.standrews.cs.population_linkage.graph.Query;
 import uk.ac.standrews.cs.population_linkage.linkageRecipes.BirthHalfSiblingLinkageRecipe;
 import uk.ac.standrews.cs.population_linkage.linkageRecipes.LinkageRecipe;
+import uk.ac.standrews.cs.population_linkage.linkageRunners.BatchedLinkPersister;
 import uk.ac.standrews.cs.population_linkage.linkageRunners.BitBlasterLinkageRunner;
 import uk.ac.standrews.cs.population_linkage.linkageRunners.MakePersistent;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Link;
@@ -29,6 +30,8 @@ import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageResult;
 import uk.ac.standrews.cs.population_records.record_types.Birth;
 
 public class BirthHalfSiblingBundleBuilder implements MakePersistent {
+
+    private final BatchedLinkPersister persister = new BatchedLinkPersister();
     public static void main(String[] args) throws Exception {
 
         String sourceRepo = args[0];  // e.g. umea
@@ -58,18 +61,15 @@ public class BirthHalfSiblingBundleBuilder implements MakePersistent {
 
             if( !std_id1.equals(std_id2 ) ) {
 
-                if (!Query.BBBirthHalfSiblingReferenceExists(recipe.getBridge(), std_id1, std_id2, recipe.getLinksPersistentName())) {
-                    Query.createBBHalfSiblingReference(
-                            recipe.getBridge(),
-                            std_id1,
-                            std_id2,
-                            recipe.getLinksPersistentName(),
-                            recipe.getNumberOfLinkageFieldsRequired(),
-                            link.getDistance());
-                }
+                persister.add(recipe, Query.BB_HALF_SIBLING_BATCH_QUERY, std_id1, std_id2, link.getDistance());
             }
         } catch (BucketException | RepositoryException e) {
             throw new RuntimeException(e);
         }
     }
+
+    @Override
+    public void flush() {
+        persister.close();
+    }
 }
@@ -20,11 +20,10 @@ import uk.ac.standrews.cs.neoStorr.impl.exceptions.RepositoryException;
 import uk.ac.standrews.cs.population_linkage.graph.Query;
 import uk.ac.standrews.cs.population_linkage.linkageRecipes.BrideBrideIdentityLinkageRecipe;
 import uk.ac.standrews.cs.population_linkage.linkageRecipes.LinkageRecipe;
+import uk.ac.standrews.cs.population_linkage.linkageRunners.BatchedLinkPersister;
 import uk.ac.standrews.cs.population_linkage.linkageRunners.BitBlasterLinkageRunner;
 import uk.ac.standrews.cs.population_linkage.linkageRunners.MakePersistent;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Link;
-import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageQuality;
-import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageResult;
 import uk.ac.standrews.cs.population_records.record_types.Marriage;
 
 /**
@@ -34,6 +33,8 @@ import uk.ac.standrews.cs.population_records.record_types.Marriage;
  */
 public class BrideBrideIdentityBuilder implements MakePersistent {
 
+    private final BatchedLinkPersister persister = new BatchedLinkPersister();
+
     public static void main(String[] args) throws Exception {
 
         String sourceRepo = args[0];  // e.g. umea
@@ -47,33 +48,27 @@ public class BrideBrideIdentityBuilder implements MakePersistent {
             int linkage_fields = linkageRecipe.ALL_LINKAGE_FIELDS;
             int half_fields = linkage_fields - (linkage_fields / 2 );
 
-            while( linkage_fields >= half_fields ) {
-                linkageRecipe.setNumberLinkageFieldsRequired(linkage_fields);
-                LinkageResult lr = runner.run(linkageRecipe, new BrideBrideIdentityBuilder(), false, true);
-                LinkageQuality quality = lr.getLinkageQuality();
-                quality.print(System.out);
-                linkage_fields--;
-            }
+            runner.runOverLinkageFields(linkageRecipe, BrideBrideIdentityBuilder::new, linkage_fields, half_fields);
         }
     }
 
     public void makePersistent(LinkageRecipe recipe, Link link) {
+        makePersistent(recipe, link, recipe.getNumberOfLinkageFieldsRequired());
+    }
+
+    public void makePersistent(LinkageRecipe recipe, Link link, int fields_required) {
         try {
             final String std_id1 = link.getRecord1().getReferend(Marriage.class).getString(Marriage.STANDARDISED_ID);
             final String std_id2 = link.getRecord2().getReferend(Marriage.class).getString(Marriage.STANDARDISED_ID);
 
-            if( ! Query.MMBrideBrideIdReferenceExists(recipe.getBridge(), std_id1, std_id2, recipe.getLinksPersistentName())) {
-
-                Query.createMMBrideBrideIdReference(
-                        recipe.getBridge(),
-                        std_id1,
-                        std_id2,
-                        recipe.getLinksPersistentName(),
-                        recipe.getNumberOfLinkageFieldsRequired(),
-                        link.getDistance());
-            }
+            persister.add(recipe, fields_required, Query.MM_BRIDE_BRIDE_BATCH_QUERY, std_id1, std_id2, link.getDistance());
         } catch (uk.ac.standrews.cs.neoStorr.impl.exceptions.BucketException | RepositoryException e) {
             throw new RuntimeException(e);
         }
     }
+
+    @Override
+    public void flush() {
+        persister.close();
+    }
 }
@@ -0,0 +1,318 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.endToEnd.builders;
+
+import uk.ac.standrews.cs.neoStorr.impl.Store;
+import uk.ac.standrews.cs.population_linkage.groundTruth.groundTruthNeoLinks.CreateGTIndices;
+import uk.ac.standrews.cs.population_linkage.helpers.MemoryLogger;
+import uk.ac.standrews.cs.population_linkage.linkageRunners.BatchedLinkPersister;
+import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageConfig;
+import uk.ac.standrews.cs.population_linkage.supportClasses.RecordSnapshot;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Runs the end-to-end linkage builders as stages within a single JVM, rather than one JVM per builder.
+ * The records of the source repository are loaded once into a shared RecordSnapshot which all the recipes read.
+ * Each stage runs once all the stages it depends on have finished, and up to NUMBER_OF_CONCURRENT_LINKAGE_STAGES
+ * independent stages run at once.
+ * Builders that create relationships between the same types of record are chained, so that concurrent stages
+ * do not contend for the same relationships in the database.
+ * A summary of the time, peak heap and relationships created by each stage is printed at the end.
+ */
+public class LinkageOrchestrator {
+
+    private static final long MEMORY_SAMPLE_INTERVAL_MILLIS = 200;
+    private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+    private final Set<Stage> running = ConcurrentHashMap.newKeySet();
+    private final BiFunction<String, StageAction, StageAction> actions;
+
+    public LinkageOrchestrator() {
+        this((name, action) -> action);
+    }
+
+    /**
+     * @param actions - gives the action to be run for each stage from its name and the action it was added with, so that tests can replace the builders
+     */
+    LinkageOrchestrator(BiFunction<String, StageAction, StageAction> actions) {
+        this.actions = actions;
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        String sourceRepo = args[0];  // e.g. umea
+        String number_of_records = args[1]; // e.g. EVERYTHING or 10000 etc.
+
+        String[] builder_args = {sourceRepo, number_of_records};
+
+        try (RecordSnapshot ignored = RecordSnapshot.share(sourceRepo)) {
+
+            new LinkageOrchestrator().addEndToEndStages(builder_args).run(LinkageConfig.NUMBER_OF_CONCURRENT_LINKAGE_STAGES);
+
+        } finally {
+            Store.getInstance().getBridge().close(); // left open by the recipes while the snapshot was shared
+        }
+    }
+
+    /**
+     * Adds the stages of the end-to-end linkage: the index stages, then chains of builders that create relationships
+     * between the same types of record.
+     */
+    LinkageOrchestrator addEndToEndStages(String[] builder_args) {
+
+        return this
+                .addOptionalStage("Relationship indices", IndexRelationships::main, builder_args) // may fail if already in Db
+                .addOptionalStage("GT indices", CreateGTIndices::main, builder_args, "Relationship indices")
+
+                .addStage(BirthSiblingBundleBuilder.class, BirthSiblingBundleBuilder::main, builder_args, "GT indices")
+
+                .addStage(BirthOwnDeathBuilder.class, BirthOwnDeathBuilder::main, builder_args, "GT indices")
+                .addStage(BirthDeathSiblingBundleBuilder.class, BirthDeathSiblingBundleBuilder::main, builder_args, BirthOwnDeathBuilder.class.getName())
+
+                .addStage(BirthBrideOwnMarriageBuilder.class, BirthBrideOwnMarriageBuilder::main, builder_args, "GT indices")
+                .addStage(BirthGroomOwnMarriageBuilder.class, BirthGroomOwnMarriageBuilder::main, builder_args, BirthBrideOwnMarriageBuilder.class.getName())
+                .addStage(BirthParentsMarriageBuilder.class, BirthParentsMarriageBuilder::main, builder_args, BirthGroomOwnMarriageBuilder.class.getName())
+                .addStage(BirthBrideSiblingBundleBuilder.class, BirthBrideSiblingBundleBuilder::main, builder_args, BirthParentsMarriageBuilder.class.getName())
+                .addStage(BirthGroomSiblingBundleBuilder.class, BirthGroomSiblingBundleBuilder::main, builder_args, BirthBrideSiblingBundleBuilder.class.getName())
+
+                .addStage(DeathGroomOwnMarriageBuilder.class, DeathGroomOwnMarriageBuilder::main, builder_args, "GT indices")
+                .addStage(DeathBrideOwnMarriageBuilder.class, DeathBrideOwnMarriageBuilder::main, builder_args, DeathGroomOwnMarriageBuilder.class.getName())
+                .addStage(DeathBrideSiblingBundleBuilder.class, DeathBrideSiblingBundleBuilder::main, builder_args, DeathBrideOwnMarriageBuilder.class.getName())
+                .addStage(DeathGroomSiblingBundleBuilder.class, DeathGroomSiblingBundleBuilder::main, builder_args, DeathBrideSiblingBundleBuilder.class.getName())
+
+                .addStage(GroomGroomSiblingBuilder.class, GroomGroomSiblingBuilder::main, builder_args, "GT indices")
+                .addStage(BrideBrideSiblingBuilder.class, BrideBrideSiblingBuilder::main, builder_args, GroomGroomSiblingBuilder.class.getName())
+                .addStage(BrideGroomSiblingBuilder.class, BrideGroomSiblingBuilder::main, builder_args, BrideBrideSiblingBuilder.class.getName())
+                .addStage(BrideBrideIdentityBuilder.class, BrideBrideIdentityBuilder::main, builder_args, BrideGroomSiblingBuilder.class.getName())
+                .addStage(GroomGroomIdentityBuilder.class, GroomGroomIdentityBuilder::main, builder_args, BrideBrideIdentityBuilder.class.getName())
+                .addStage(BrideMarriageParentsMarriageBuilder.class, BrideMarriageParentsMarriageBuilder::main, builder_args, GroomGroomIdentityBuilder.class.getName())
+                .addStage(GroomMarriageParentsMarriageBuilder.class, GroomMarriageParentsMarriageBuilder::main, builder_args, BrideMarriageParentsMarriageBuilder.class.getName())
+
+                .addStage(DeathSiblingBundleBuilder.class, DeathSiblingBundleBuilder::main, builder_args, "GT indices");
+    }
+
+    /**
+     * Adds a stage running a builder; the links made by the builder are counted against its class name,
+     * which the builders use as the links persistent name of their recipes.
+     * @param dependencies - the names of stages which must finish first; these must already have been added
+     */
+    public LinkageOrchestrator addStage(Class<?> builder_class, StageAction action, String[] args, String... dependencies) {
+        return addStage(new Stage(builder_class.getName(), actions.apply(builder_class.getName(), action), args, true, dependencies));
+    }
+
+    /**
+     * Adds a stage which, if it fails, does not prevent the stages that depend on it from running.
+     */
+    public LinkageOrchestrator addOptionalStage(String name, StageAction action, String[] args, String... dependencies) {
+        return addStage(new Stage(name, actions.apply(name, action), args, false, dependencies));
+    }
+
+    /**
+     * Runs all the stages, returning once every stage has either finished or been skipped because a stage it depends on failed.
+     */
+    public void run(int number_of_concurrent_stages) throws InterruptedException {
+
+        long start_time = System.currentTimeMillis();
+
+        ExecutorService executor = Executors.newFixedThreadPool(number_of_concurrent_stages);
+        ScheduledExecutorService memory_sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "memory-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        memory_sampler.scheduleAtFixedRate(this::sampleMemory, 0, MEMORY_SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+        try {
+            CompletionService<Stage> completion = new ExecutorCompletionService<>(executor);
+            List<Stage> waiting = new ArrayList<>(stages.values());
+            int number_running = 0;
+
+            while (!waiting.isEmpty() || number_running > 0) {
+
+                // stages were added after their dependencies, so one pass in order propagates skips down the chains
+                for (Iterator<Stage> iterator = waiting.iterator(); iterator.hasNext(); ) {
+
+                    Stage stage = iterator.next();
+                    if (stage.hasBlockedDependency()) {
+                        stage.status = Status.SKIPPED;
+                        iterator.remove();
+
+                    } else if (stage.dependenciesFinished()) {
+                        iterator.remove();
+                        completion.submit(stage::run, stage);
+                        number_running++;
+                    }
+                }
+
+                if (number_running > 0) {
+                    completion.take();
+                    number_running--;
+                }
+            }
+
+        } finally {
+            executor.shutdownNow();
+            memory_sampler.shutdownNow();
+        }
+
+        printSummary(System.currentTimeMillis() - start_time);
+    }
+
+    /**
+     * @return the status of the named stage: WAITING before it has been run, then RUNNING, FINISHED, FAILED or SKIPPED
+     */
+    Status getStatus(String name) {
+        return stages.get(name).status;
+    }
+
+    /**
+     * @return the names of the stages the named stage depends on directly
+     */
+    List<String> getDependencies(String name) {
+        return Arrays.asList(stages.get(name).dependency_names);
+    }
+
+    /**
+     * @return the names of all the stages, in the order they were added
+     */
+    List<String> getStageNames() {
+        return new ArrayList<>(stages.keySet());
+    }
+
+    private LinkageOrchestrator addStage(Stage stage) {
+
+        if (stages.containsKey(stage.name)) {
+            throw new RuntimeException("Duplicate stage: " + stage.name);
+        }
+        for (String dependency : stage.dependency_names) {
+            Stage dependency_stage = stages.get(dependency);
+            if (dependency_stage == null) {
+                throw new RuntimeException("Stage " + stage.name + " depends on " + dependency + " which has not been added");
+            }
+            stage.dependencies.add(dependency_stage);
+        }
+        stages.put(stage.name, stage);
+        return this;
+    }
+
+    private void sampleMemory() {
+
+        long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        for (Stage stage : running) {
+            stage.peak_heap.accumulateAndGet(used, Math::max);
+        }
+        MemoryLogger.update();
+    }
+
+    private void printSummary(long elapsed_millis) {
+
+        System.out.println("---------------------------------------------------------------------------------------------------------------");
+        System.out.printf("%-80s %-9s %10s %14s %14s\n", "Stage", "Status", "Time (s)", "Peak heap (MB)", "Links created");
+
+        long total_links = 0;
+        for (Stage stage : stages.values()) {
+
+            long links = BatchedLinkPersister.getRelationshipsCreated(stage.name);
+            total_links += links;
+            System.out.printf("%-80s %-9s %10.1f %14d %14d\n", stage.name, stage.status, stage.elapsed_millis / 1000.0, stage.peak_heap.get() / BYTES_PER_MEGABYTE, links);
+
+            if (stage.failure != null) {
+                System.out.println("    " + stage.failure);
+            }
+        }
+
+        System.out.printf("%-80s %-9s %10.1f %14d %14d\n", "Total", "", elapsed_millis / 1000.0, MemoryLogger.getMax() / BYTES_PER_MEGABYTE, total_links);
+        System.out.println("---------------------------------------------------------------------------------------------------------------");
+    }
+
+    public interface StageAction {
+        void run(String[] args) throws Exception;
+    }
+
+    enum Status {WAITING, RUNNING, FINISHED, FAILED, SKIPPED}
+
+    private class Stage {
+
+        final String name;
+        final StageAction action;
+        final String[] args;
+        final boolean required;
+        final String[] dependency_names;
+        final List<Stage> dependencies = new ArrayList<>();
+
+        final AtomicLong peak_heap = new AtomicLong();
+        volatile Status status = Status.WAITING;
+        volatile long elapsed_millis = 0;
+        volatile Throwable failure = null;
+
+        Stage(String name, StageAction action, String[] args, boolean required, String[] dependency_names) {
+
+            this.name = name;
+            this.action = action;
+            this.args = args;
+            this.required = required;
+            this.dependency_names = dependency_names;
+        }
+
+        boolean dependenciesFinished() {
+
+            for (Stage dependency : dependencies) {
+                if (dependency.status != Status.FINISHED && dependency.status != Status.FAILED) return false;
+            }
+            return true;
+        }
+
+        boolean hasBlockedDependency() {
+
+            for (Stage dependency : dependencies) {
+                if (dependency.status == Status.SKIPPED || (dependency.status == Status.FAILED && dependency.required)) return true;
+            }
+            return false;
+        }
+
+        void run() {
+
+            System.out.println("Starting stage: " + name);
+            long start_time = System.currentTimeMillis();
+            status = Status.RUNNING;
+            running.add(this);
+            sampleMemory();
+
+            try {
+                action.run(args);
+                status = Status.FINISHED;
+
+            } catch (Throwable e) {
+                failure = e;
+                status = Status.FAILED;
+                e.printStackTrace();
+
+            } finally {
+                sampleMemory();
+                running.remove(this);
+                elapsed_millis = System.currentTimeMillis() - start_time;
+                System.out.printf("Stage %s %s in %.1fs\n", name, status.toString().toLowerCase(), elapsed_millis / 1000.0);
+            }
+        }
+    }
+}
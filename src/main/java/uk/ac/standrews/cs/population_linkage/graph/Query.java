@@ -21,6 +21,7 @@ import org.neo4j.driver.Result;
 import org.neo4j.driver.Session;
 import org.neo4j.driver.Transaction;
 import org.neo4j.driver.Value;
+import org.neo4j.driver.exceptions.TransientException;
 import org.neo4j.driver.types.Relationship;
 import uk.ac.standrews.cs.neoStorr.util.NeoDbCypherBridge;
 
@@ -28,6 +29,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.IntSupplier;
 
 /**
  *  Neo4J Cypher queries for use elsewhere.
@@ -43,6 +45,9 @@ import java.util.Map;
  */
 public class Query {
 
+    private static final int MAX_WRITE_ATTEMPTS = 5;
+    private static final long RETRY_DELAY_MILLIS = 200;
+
     // Standard creation queries
     // BB,
     // etc. refer to Births Deaths and Marriages NOT babies, mothers etc.
@@ -141,6 +146,43 @@ public class Query {
     private static final String DM_DECEASED_BRIDE_EXISTS_QUERY = "MATCH (a:Death)-[r:SIBLING { actors: \"Deceased-Bride\" }]-(b:Marriage) WHERE a.STANDARDISED_ID = $standard_id_from AND b.STANDARDISED_ID = $standard_id_to AND r.provenance = $prov  RETURN r";
     private static final String DM_DECEASED_GROOM_EXISTS_QUERY = "MATCH (a:Death)-[r:SIBLING { actors: \"Deceased-Groom\" }]-(b:Marriage) WHERE a.STANDARDISED_ID = $standard_id_from AND b.STANDARDISED_ID = $standard_id_to AND r.provenance = $prov  RETURN r";
 
+    // Batched creation queries - one per relationship type, each takes a list of rows as created by getBatchCreationRow.
+    // The NOT clause mirrors the undirected *_EXISTS_QUERY checks above so that a link is not created if it exists in either direction.
+
+    public static final String BB_SIBLING_BATCH_QUERY = batchCreationQuery("Birth", "Birth", "SIBLING", "Child-Child", true);
+    public static final String BB_HALF_SIBLING_BATCH_QUERY = batchCreationQuery("Birth", "Birth", "HALF_SIBLING", "Child-Child", true);
+
+    public static final String BM_FATHER_BATCH_QUERY = batchCreationQuery("Birth", "Marriage", "ID", "Child-Father", true);
+    public static final String BM_MOTHER_BATCH_QUERY = batchCreationQuery("Birth", "Marriage", "ID", "Child-Mother", true);
+
+    public static final String BM_BIRTH_GROOM_BATCH_QUERY = batchCreationQuery("Birth", "Marriage", "ID", "Child-Groom", true);
+    public static final String BM_BIRTH_BRIDE_BATCH_QUERY = batchCreationQuery("Birth", "Marriage", "ID", "Child-Bride", true);
+
+    public static final String DD_SIBLING_BATCH_QUERY = batchCreationQuery("Death", "Death", "SIBLING", "Deceased-Deceased", true);
+
+    public static final String BD_DEATH_BATCH_QUERY = batchCreationQuery("Birth", "Death", "ID", "Child-Deceased", false);
+
+    public static final String DM_DEATH_GROOM_BATCH_QUERY = batchCreationQuery("Death", "Marriage", "ID", "Deceased-Groom", true);
+    public static final String DM_DEATH_BRIDE_BATCH_QUERY = batchCreationQuery("Death", "Marriage", "ID", "Deceased-Bride", true);
+
+    public static final String MM_BB_SIBLING_BATCH_QUERY = batchCreationQuery("Marriage", "Marriage", "SIBLING", "Bride-Bride", true);
+    public static final String MM_GG_SIBLING_BATCH_QUERY = batchCreationQuery("Marriage", "Marriage", "SIBLING", "Groom-Groom", true);
+    public static final String MM_GB_SIBLING_BATCH_QUERY = batchCreationQuery("Marriage", "Marriage", "SIBLING", "Groom-Bride", true);
+
+    public static final String DB_SIBLING_BATCH_QUERY = batchCreationQuery("Death", "Birth", "SIBLING", "Deceased-Child", true);
+
+    public static final String MM_GROOM_MARRIAGE_BATCH_QUERY = batchCreationQuery("Marriage", "Marriage", "ID", "Groom-Couple", true);
+    public static final String MM_BRIDE_MARRIAGE_BATCH_QUERY = batchCreationQuery("Marriage", "Marriage", "ID", "Bride-Couple", true);
+
+    public static final String BM_GROOM_SIBLING_BATCH_QUERY = batchCreationQuery("Birth", "Marriage", "SIBLING", "Child-Groom", true);
+    public static final String BM_BRIDE_SIBLING_BATCH_QUERY = batchCreationQuery("Birth", "Marriage", "SIBLING", "Child-Bride", true);
+
+    public static final String MM_BRIDE_BRIDE_BATCH_QUERY = batchCreationQuery("Marriage", "Marriage", "ID", "Bride-Bride", true);
+    public static final String MM_GROOM_GROOM_BATCH_QUERY = batchCreationQuery("Marriage", "Marriage", "ID", "Groom-Groom", true);
+
+    public static final String DM_DECEASED_BRIDE_BATCH_QUERY = batchCreationQuery("Death", "Marriage", "SIBLING", "Deceased-Bride", true);
+    public static final String DM_DECEASED_GROOM_BATCH_QUERY = batchCreationQuery("Death", "Marriage", "SIBLING", "Deceased-Groom", true);
+
     // Create Operations
 
     /**
@@ -326,6 +368,51 @@ public class Query {
         createReference(bridge, DM_DECEASED_GROOM_QUERY, standard_id_from, standard_id_to, provenance, fields_populated, distance);
     }
 
+    /**
+     * Creates references for all of the rows in a single transaction and returns the number of relationships created.
+     * @param bridge      - a db bridge object
+     * @param batch_query - one of the *_BATCH_QUERY queries
+     * @param rows        - the rows to be created, each made by getBatchCreationRow
+     */
+    public static int createReferences(NeoDbCypherBridge bridge, String batch_query, List<Map<String, Object>> rows) {
+        try (Session session = bridge.getNewSession(); Transaction tx = session.beginTransaction();) {
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put("rows", rows);
+            int created = tx.run(batch_query, parameters).consume().counters().relationshipsCreated();
+            tx.commit();
+            return created;
+        }
+    }
+
+    /**
+     * Runs a write made in a single transaction, such as createReferences, retrying it with increasing delays if it is
+     * rolled back with a transient error, e.g. on deadlock with a concurrent writer.
+     * @param write - makes the write and returns the number of relationships created
+     * @return the number of relationships created
+     */
+    public static int writeWithRetry(IntSupplier write) throws InterruptedException {
+        return writeWithRetry(write, MAX_WRITE_ATTEMPTS, RETRY_DELAY_MILLIS);
+    }
+
+    static int writeWithRetry(IntSupplier write, int max_attempts, long retry_delay_millis) throws InterruptedException {
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return write.getAsInt();
+            } catch (TransientException e) {
+                if (attempt >= max_attempts) throw e;
+                Thread.sleep(attempt * retry_delay_millis);
+            }
+        }
+    }
+
+    /**
+     * @return a row for use with createReferences - see createReference for param details
+     */
+    public static Map<String, Object> getBatchCreationRow(String standard_id_from, String standard_id_to, String provenance, int fields_populated, double distance) {
+        return getCreationParameterMap(standard_id_from, standard_id_to, provenance, fields_populated, distance);
+    }
+
     // predicates
 
     public static boolean BBBirthSiblingReferenceExists(NeoDbCypherBridge bridge, String standard_id_from, String standard_id_to, String provenance) {
@@ -531,6 +618,22 @@ public class Query {
         }
     }
 
+    /**
+     * Builds an UNWIND query that creates a directed relationship for each row unless one with the same actors
+     * (and provenance if match_provenance is set) already exists between the nodes in either direction.
+     */
+    private static String batchCreationQuery(String label_from, String label_to, String relationship, String actors, boolean match_provenance) {
+
+        String identity = match_provenance ? "actors: \"" + actors + "\", provenance: row.prov" : "actors: \"" + actors + "\"";
+        String on_create = match_provenance ? "r.fields_populated = row.fields, r.distance = row.distance" : "r.provenance = row.prov, r.fields_populated = row.fields, r.distance = row.distance";
+
+        return "UNWIND $rows AS row " +
+                "MATCH (a:" + label_from + "), (b:" + label_to + ") WHERE a.STANDARDISED_ID = row.standard_id_from AND b.STANDARDISED_ID = row.standard_id_to " +
+                "AND NOT (b)-[:" + relationship + " { " + identity + " }]->(a) " +
+                "MERGE (a)-[r:" + relationship + " { " + identity + " }]->(b) " +
+                "ON CREATE SET " + on_create;
+    }
+
     private static boolean linkExists(NeoDbCypherBridge bridge, String query_string, String standard_id_from, String standard_id_to, String provenance) {
         Map<String, Object> parameters = getCreationParameterMap(standard_id_from, standard_id_to, provenance);
         Result result = bridge.getNewSession().run(query_string,parameters);
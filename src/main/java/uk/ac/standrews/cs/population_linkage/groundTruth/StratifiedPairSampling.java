@@ -0,0 +1,129 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.groundTruth;
+
+import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageConfig;
+
+import java.util.Random;
+
+/**
+ * Sampling of record pairs for ground truth threshold analysis. All pairs that ground truth says match are compared,
+ * together with a random sample of the non-matching pairs. Counts derived from the sampled non-matching pairs are
+ * weighted back up to estimate the counts over all pairs.
+ *
+ * Analysis may also stop early once the 95% confidence intervals for precision and recall at every threshold are
+ * narrower than a given width.
+ */
+public class StratifiedPairSampling {
+
+    private static final double Z_95 = 1.96;
+
+    private final double negative_sampling_rate;
+    private final double confidence_interval_width;
+
+    public StratifiedPairSampling() {
+
+        this(LinkageConfig.GROUND_TRUTH_NEGATIVE_SAMPLING_RATE, LinkageConfig.GROUND_TRUTH_CONFIDENCE_INTERVAL_WIDTH);
+    }
+
+    public StratifiedPairSampling(final double negative_sampling_rate, final double confidence_interval_width) {
+
+        if (negative_sampling_rate <= 0d || negative_sampling_rate > 1d) {
+            throw new RuntimeException("negative sampling rate must be in (0, 1]: " + negative_sampling_rate);
+        }
+
+        this.negative_sampling_rate = negative_sampling_rate;
+        this.confidence_interval_width = confidence_interval_width;
+    }
+
+    public double getNegativeSamplingRate() {
+        return negative_sampling_rate;
+    }
+
+    public double getConfidenceIntervalWidth() {
+        return confidence_interval_width;
+    }
+
+    public boolean samplesNegatives() {
+        return negative_sampling_rate < 1d;
+    }
+
+    public boolean stopsEarly() {
+        return confidence_interval_width > 0d;
+    }
+
+    /**
+     * @return sampling that stops early in the same way but compares every non-matching pair, so that counts are not weighted
+     */
+    public StratifiedPairSampling withoutNegativeSampling() {
+
+        return samplesNegatives() ? new StratifiedPairSampling(1d, confidence_interval_width) : this;
+    }
+
+    /**
+     * @return a source of sampling decisions for the pairs involving one record, independent of the order in which records are processed
+     */
+    public static Random getRandom(final long seed, final int run_number, final int record_index) {
+
+        return new Random(seed + 1000003L * run_number + record_index);
+    }
+
+    /**
+     * @return whether a pair that ground truth says does not match should be compared
+     */
+    public boolean includeNegative(final Random random) {
+
+        return !samplesNegatives() || random.nextDouble() < negative_sampling_rate;
+    }
+
+    /**
+     * @return the estimated number of non-matching pairs over all pairs, given the number counted over the sampled pairs
+     */
+    public long weightNegatives(final long sampled_count) {
+
+        return Math.round(sampled_count / negative_sampling_rate);
+    }
+
+    /**
+     * Tests whether the estimates of precision and recall derived from the given counts are sufficiently precise.
+     * Counts of false positives are those over the sampled pairs, before weighting.
+     *
+     * @return true if the estimates are within the configured confidence interval width
+     */
+    public boolean isConverged(final long tp, final long sampled_fp, final long fn) {
+
+        if (!stopsEarly()) return false;
+
+        // Thresholds at which no links are made give no evidence about precision, so cannot prevent convergence.
+        final boolean precision_converged = tp + sampled_fp == 0 || getIntervalWidth(tp, tp + weightNegatives(sampled_fp), tp + sampled_fp) <= confidence_interval_width;
+        final boolean recall_converged = tp + fn > 0 && getIntervalWidth(tp, tp + fn, tp + fn) <= confidence_interval_width;
+
+        return precision_converged && recall_converged;
+    }
+
+    /**
+     * @return the width of the Wilson score interval for the proportion successes / trials, with the given number of actual observations
+     */
+    private static double getIntervalWidth(final long successes, final long trials, final long observations) {
+
+        final double p = (double) successes / trials;
+        final double n = observations;
+        final double z2 = Z_95 * Z_95;
+
+        return 2 * Z_95 * Math.sqrt(p * (1 - p) / n + z2 / (4 * n * n)) / (1 + z2 / n);
+    }
+}
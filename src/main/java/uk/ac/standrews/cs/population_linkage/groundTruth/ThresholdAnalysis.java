@@ -19,6 +19,7 @@ package uk.ac.standrews.cs.population_linkage.groundTruth;
 import uk.ac.standrews.cs.neoStorr.impl.LXP;
 import uk.ac.standrews.cs.population_linkage.characterisation.LinkStatus;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
+import uk.ac.standrews.cs.population_linkage.linkageRecipes.TemporalColumns;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Utilities;
 import uk.ac.standrews.cs.population_records.RecordRepository;
 import uk.ac.standrews.cs.utilities.ClassificationMetrics;
@@ -29,9 +30,13 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Base class for performing linkage analysis from ground truth.
@@ -47,6 +52,7 @@ public abstract class ThresholdAnalysis {
     private static final int NUMBER_OF_THRESHOLDS_SAMPLED = 101; // 0.01 granularity including 0.0 and 1.0.
     private static final double EPSILON = 0.00001;
     private static final int BLOCK_SIZE = 100;
+    private static final int TILE_SIZE = 5; // Records from the first source processed by a single work-stealing task.
     private static final String DELIMIT = ",";
     protected boolean allow_multiple_links;
 
@@ -64,6 +70,8 @@ public abstract class ThresholdAnalysis {
 
     protected boolean verbose = false;
 
+    protected StratifiedPairSampling sampling = new StratifiedPairSampling();
+
     /**
      * @return list of comparison fields that will be used for comparing records
      */
@@ -107,6 +115,18 @@ public abstract class ThresholdAnalysis {
         init(repo_name, linkage_results_file_root, distance_results_file_root, number_of_records_to_be_checked, number_of_runs, output_file_parent_path, allow_multiple_links);
     }
 
+    /**
+     * Creates an analysis with no repository or results files, whose runs are given their records directly.
+     */
+    ThresholdAnalysis(final int number_of_records_to_be_checked, final boolean allow_multiple_links) {
+
+        this.number_of_records_to_be_checked = number_of_records_to_be_checked;
+        this.number_of_runs = 1;
+        this.allow_multiple_links = allow_multiple_links || !MULTIPLE_LINKS_CAN_BE_DISABLED_FOR_IDENTITY_LINKAGE;
+
+        composite_measures = getCombinedMeasures();
+    }
+
     private void init(final String repo_name, final String linkage_results_file_root, final String distance_results_file_root, final int number_of_records_to_be_checked, final int number_of_runs, final String output_file_parent_path, final boolean allow_multiple_links) throws IOException {
 
         this.number_of_records_to_be_checked = number_of_records_to_be_checked;
@@ -144,6 +164,23 @@ public abstract class ThresholdAnalysis {
         return (int) (distance * (NUMBER_OF_DISTANCES_SAMPLED - 1) + EPSILON);
     }
 
+    /**
+     * @return the index of the lowest sampled threshold that the given distance does not exceed, or the number of
+     * thresholds sampled if it exceeds all of them
+     */
+    private static int lowestThresholdIndexNotExceeded(final double distance) {
+
+        if (!(distance <= indexToThreshold(NUMBER_OF_THRESHOLDS_SAMPLED - 1))) return NUMBER_OF_THRESHOLDS_SAMPLED;
+
+        int index = Math.max(0, (int) Math.ceil(distance * (NUMBER_OF_THRESHOLDS_SAMPLED - 1)));
+
+        // Correct for rounding, so that the result agrees exactly with comparisons against indexToThreshold.
+        while (index > 0 && distance <= indexToThreshold(index - 1)) index--;
+        while (distance > indexToThreshold(index)) index++;
+
+        return index;
+    }
+
     private static double indexToThreshold(final int index) {
 
         return (double) index / ( (NUMBER_OF_THRESHOLDS_SAMPLED - 1) /* * 100 */ );  //  (0000)  HACKED BY AL *************** The commented but adjusts range - could be as high as 100000
@@ -169,6 +206,10 @@ public abstract class ThresholdAnalysis {
         this.verbose = verbose;
     }
 
+    public void setSampling(final StratifiedPairSampling sampling) {
+        this.sampling = sampling;
+    }
+
     private double getMaxHeapInGB() {
 
         return (double) Runtime.getRuntime().maxMemory() / 1000000000;
@@ -176,15 +217,14 @@ public abstract class ThresholdAnalysis {
 
     public void run() throws Exception {
 
+        // Skipping non-matching pairs would change which record is closest, so single links are decided over all pairs.
+        if (!allow_multiple_links) sampling = sampling.withoutNegativeSampling();
+
         recordHeaders();
         recordMetaData();
 
         final Random random = new Random(SEED);
-
-        final int number_of_threads = number_of_runs * composite_measures.size();
-
-        final CountDownLatch start_gate = new CountDownLatch(1);
-        final CountDownLatch end_gate = new CountDownLatch(number_of_threads);
+        final List<Run> runs = new ArrayList<>();
 
         for (int i = 0; i < number_of_runs; i++) {
 
@@ -197,19 +237,31 @@ public abstract class ThresholdAnalysis {
                 number_of_records_to_be_checked = source_record_list1.size();
             }
 
-            for (final var measure : composite_measures) {
+            runs.add(new Run(i, source_record_list1, source_record_list2));
+        }
 
-                final int run_number = i;
-                new Thread(() -> new Run(run_number, measure, source_record_list1, source_record_list2, start_gate, end_gate).run()).start();
-            }
+        if (runs.isEmpty()) {
+            record_repository.close();
+            return;
         }
 
+        for (LXPMeasure measure : composite_measures) {
+            measure.orderFieldsByMeanDistance(runs.get(0).source_record_list1);
+        }
+
+        // Each run holds the same records in a different order, so the dates for the viability checks are derived once.
+        final TemporalColumns temporal_columns = TemporalColumns.register(new TemporalColumns(runs.get(0).source_record_list1, runs.get(0).source_record_list2));
+
+        // Runs are submitted together so that idle workers can steal tiles from whichever run has most work remaining.
+        final ForkJoinPool pool = new ForkJoinPool();
+
         try {
-            start_gate.countDown();
-            end_gate.await();
+            for (final Run run : runs) pool.execute(run);
+            for (final Run run : runs) run.join();
 
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdown();
+            TemporalColumns.deregister(temporal_columns);
         }
 
         record_repository.close();
@@ -237,6 +289,8 @@ public abstract class ThresholdAnalysis {
         writer.println("Linkage type: " + getLinkageType());
         writer.println("Number of records considered from first set: " + number_of_records_to_be_checked);
         writer.println("Number of runs: " + number_of_runs);
+        if (sampling.samplesNegatives()) writer.println("Proportion of non-matching pairs sampled: " + sampling.getNegativeSamplingRate());
+        if (sampling.stopsEarly()) writer.println("Confidence interval width for early stopping: " + sampling.getConfidenceIntervalWidth());
         writer.println();
         writer.flush();
     }
@@ -373,73 +427,112 @@ public abstract class ThresholdAnalysis {
         long tn = 0;
     }
 
-    protected class Run {
-
-        final int run_number;
-        final LXPMeasure measure;
-
-        final List<LXP> source_record_list1;
-        final List<LXP> source_record_list2;
-
-        final CountDownLatch start_gate;
-        final CountDownLatch end_gate;
+    /**
+     * Counts accumulated over some set of record pairs, for every composite measure.
+     *
+     * Rather than updating the TP, FP etc counts at every threshold for each pair, each link decision is recorded once
+     * against the lowest threshold at which the link would be made. The counts at each threshold are then derived by
+     * prefix sums when samples are recorded: a link made at one threshold is also made at all higher thresholds, and
+     * every evaluated pair not linked at a threshold is a FN or TN at that threshold.
+     */
+    class Tally {
 
-        int records_processed = 0;
         long pairs_evaluated = 0L;
         long pairs_ignored = 0L;
+        long true_links_evaluated = 0L;
 
-        long[] non_link_distance_counts;
-        long[] link_distance_counts;
+        final long[][] link_decision_counts;     // Links made for true links, by lowest threshold index, indexed by measure then threshold.
+        final long[][] non_link_decision_counts; // Links made for non-links, by lowest threshold index, indexed by measure then threshold.
 
-        Sample[] samples; // Counts of TP, FP etc at each threshold.
+        final long[][] non_link_distance_counts;
+        final long[][] link_distance_counts;
 
-        Run(final int run_number, final LXPMeasure measure, final List<LXP> source_record_list1, final List<LXP> source_record_list2, final CountDownLatch start_gate, final CountDownLatch end_gate) {
+        Tally() {
 
-            this.run_number = run_number;
-            this.measure = measure;
-            this.source_record_list1 = source_record_list1;
-            this.source_record_list2 = source_record_list2;
-            this.start_gate = start_gate;
-            this.end_gate = end_gate;
+            final int number_of_measures = composite_measures.size();
 
-            samples = new Sample[NUMBER_OF_THRESHOLDS_SAMPLED];
-            for (int i = 0; i < NUMBER_OF_THRESHOLDS_SAMPLED; i++) {
-                samples[i] = new Sample();
-            }
+            link_decision_counts = new long[number_of_measures][NUMBER_OF_THRESHOLDS_SAMPLED];
+            non_link_decision_counts = new long[number_of_measures][NUMBER_OF_THRESHOLDS_SAMPLED];
 
             if (recordLinkDistances()) {
-                non_link_distance_counts = new long[NUMBER_OF_THRESHOLDS_SAMPLED];
-                link_distance_counts = new long[NUMBER_OF_THRESHOLDS_SAMPLED];
+                non_link_distance_counts = new long[number_of_measures][NUMBER_OF_THRESHOLDS_SAMPLED];
+                link_distance_counts = new long[number_of_measures][NUMBER_OF_THRESHOLDS_SAMPLED];
+            } else {
+                non_link_distance_counts = null;
+                link_distance_counts = null;
             }
         }
 
-        public void run() {
+        void add(final Tally other) {
 
-            try {
-                start_gate.await();
+            pairs_evaluated += other.pairs_evaluated;
+            pairs_ignored += other.pairs_ignored;
+            true_links_evaluated += other.true_links_evaluated;
 
-                final long number_of_blocks_to_be_checked = number_of_records_to_be_checked / BLOCK_SIZE;
+            for (int m = 0; m < link_decision_counts.length; m++) {
+                for (int i = 0; i < NUMBER_OF_THRESHOLDS_SAMPLED; i++) {
 
-                for (int block_index = 0; block_index < number_of_blocks_to_be_checked; block_index++) {
+                    link_decision_counts[m][i] += other.link_decision_counts[m][i];
+                    non_link_decision_counts[m][i] += other.non_link_decision_counts[m][i];
 
-                    processBlock(block_index);
-                    recordSamples();
-
-                    if (verbose) {
-                        System.out.println("finished block: checked " + (block_index + 1) * BLOCK_SIZE + " records");
-                        System.out.flush();
+                    if (recordLinkDistances()) {
+                        non_link_distance_counts[m][i] += other.non_link_distance_counts[m][i];
+                        link_distance_counts[m][i] += other.link_distance_counts[m][i];
                     }
                 }
+            }
+        }
+    }
+
+    /**
+     * Processes one randomised ordering of the records, for all composite measures. Each block of records is split
+     * into tiles that are processed in parallel, each with its own tally; the tallies are merged at the end of the block
+     * before the results for the block are recorded.
+     */
+    protected class Run extends RecursiveAction {
+
+        final int run_number;
+
+        final List<LXP> source_record_list1;
+        final List<LXP> source_record_list2;
+
+        int records_processed = 0;
+
+        final Tally totals;
+
+        Run(final int run_number, final List<LXP> source_record_list1, final List<LXP> source_record_list2) {
+
+            this.run_number = run_number;
+            this.source_record_list1 = source_record_list1;
+            this.source_record_list2 = source_record_list2;
+
+            totals = new Tally();
+        }
+
+        @Override
+        protected void compute() {
+
+            final long number_of_blocks_to_be_checked = number_of_records_to_be_checked / BLOCK_SIZE;
+
+            for (int block_index = 0; block_index < number_of_blocks_to_be_checked; block_index++) {
+
+                processBlock(block_index);
+                recordSamples();
 
                 if (verbose) {
-                    System.out.println("Run completed");
+                    System.out.println("run " + (run_number + 1) + " finished block: checked " + (block_index + 1) * BLOCK_SIZE + " records");
                     System.out.flush();
                 }
 
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            } finally {
-                end_gate.countDown();
+                if (isConverged()) {
+                    if (verbose) System.out.println("run " + (run_number + 1) + " converged");
+                    break;
+                }
+            }
+
+            if (verbose) {
+                System.out.println("Run completed");
+                System.out.flush();
             }
         }
 
@@ -448,21 +541,27 @@ public abstract class ThresholdAnalysis {
             final int start_index = block_index * BLOCK_SIZE;
             final int end_index = start_index + BLOCK_SIZE;
 
-            for (int i = start_index; i < end_index; i++) {
-                processRecordFromFirstSource(i, number_of_records_to_be_checked);
-            }
+            totals.add(new Tile(start_index, end_index).invoke());
 
             records_processed += BLOCK_SIZE;
         }
 
-        private void processRecordFromFirstSource(final int record_index, final int last_record_index) {
+        private void processRecordFromFirstSource(final int record_index, final int last_record_index, final Tally tally) {
 
             final LXP record1 = source_record_list1.get(record_index);
+            final int number_of_measures = composite_measures.size();
 
-            double min_distance = 1.01;
+            final boolean sample_negatives = sampling.samplesNegatives();
+            final Random random = StratifiedPairSampling.getRandom(SEED, run_number, record_index);
 
-            boolean made_tentative_link = false;
-            boolean tentative_link_is_true_link = false;
+            final double[] min_distances = new double[number_of_measures];
+            Arrays.fill(min_distances, 1.01);
+
+            final boolean[] made_tentative_links = new boolean[number_of_measures];
+            final boolean[] tentative_links_are_true_links = new boolean[number_of_measures];
+
+            // The closest distance may since have been lowered by pairs that were not linked, so each tentative link's own distance is kept.
+            final double[] tentative_link_distances = new double[number_of_measures];
 
             for (int j = 0; j < last_record_index; j++) {
 
@@ -470,121 +569,217 @@ public abstract class ThresholdAnalysis {
 
                     final LXP record2 = source_record_list2.get(j);
 
-                    final double distance = measure.distance(record1, record2);
+                    // Ground truth and viability are independent of the measure, so are only evaluated once per pair.
                     final LinkStatus link_status = isTrueMatch(record1, record2);
+                    if (sample_negatives && link_status == LinkStatus.NOT_TRUE_MATCH && !sampling.includeNegative(random)) continue;
+
                     final boolean link_is_viable = isViableLink(record1, record2);
-                    final boolean distance_is_closest_encountered = distance < min_distance;
+                    final boolean is_true_link = link_status == LinkStatus.TRUE_MATCH;
 
                     if (link_status == LinkStatus.UNKNOWN) {
-                        pairs_ignored++;
-
+                        tally.pairs_ignored++;
                     } else {
+                        tally.pairs_evaluated++;
+                        if (is_true_link) tally.true_links_evaluated++;
+                    }
 
-                        final boolean is_true_link = link_status == LinkStatus.TRUE_MATCH;
+                    for (int m = 0; m < number_of_measures; m++) {
 
-                        if (allow_multiple_links) {
-                            recordLinkDecisions(distance, link_is_viable, is_true_link);
-                        } else {
+                        final double min_distance = min_distances[m];
 
-                            if (distance_is_closest_encountered && link_is_viable) {
+                        // A distance greater than the bound cannot affect any of the decisions below, so need not be calculated in full.
+                        final double bound = recordLinkDistances() ? Double.POSITIVE_INFINITY : allow_multiple_links ? indexToThreshold(NUMBER_OF_THRESHOLDS_SAMPLED - 1) : min_distance;
+                        final double distance = composite_measures.get(m).distanceIfWithin(record1, record2, bound);
+                        final boolean distance_is_closest_encountered = distance < min_distance;
 
-                                // Undo any previous tentative link decision.
-                                if (made_tentative_link) {
-                                    undoTentativeLinkDecision(min_distance, tentative_link_is_true_link);
-                                }
+                        if (link_status != LinkStatus.UNKNOWN) {
 
-                                recordLinkDecisions(distance, link_is_viable, is_true_link);
+                            if (allow_multiple_links) {
+                                recordLinkDecisions(tally, m, distance, link_is_viable, is_true_link);
+                            } else {
 
-                                // Record these as tentative in case another closer record is found.
-                                made_tentative_link = true;
-                                tentative_link_is_true_link = is_true_link;
+                                if (distance_is_closest_encountered && link_is_viable) {
 
-                            } else {
-                                recordNegativeLinkDecisions(is_true_link);
+                                    // Undo any previous tentative link decision.
+                                    if (made_tentative_links[m]) {
+                                        undoTentativeLinkDecision(tally, m, tentative_link_distances[m], tentative_links_are_true_links[m]);
+                                    }
+
+                                    recordLinkDecisions(tally, m, distance, link_is_viable, is_true_link);
+
+                                    // Record these as tentative in case another closer record is found.
+                                    made_tentative_links[m] = true;
+                                    tentative_links_are_true_links[m] = is_true_link;
+                                    tentative_link_distances[m] = distance;
+
+                                }
                             }
+
+                            if (recordLinkDistances()) updateTrueLinkCounts(tally, m, distance, is_true_link);
                         }
 
-                        if (recordLinkDistances()) updateTrueLinkCounts(distance, is_true_link);
-                        pairs_evaluated++;
+                        if (distance_is_closest_encountered) min_distances[m] = distance;
                     }
-
-                    if (distance_is_closest_encountered) min_distance = distance;
                 }
             }
         }
 
         private void recordSamples() {
 
-            for (int threshold_index = 0; threshold_index < NUMBER_OF_THRESHOLDS_SAMPLED; threshold_index++) {
-                recordSample(run_number, measure.getMeasureName(), records_processed, pairs_evaluated, pairs_ignored, indexToThreshold(threshold_index), samples[threshold_index]);
+            for (int m = 0; m < composite_measures.size(); m++) {
+
+                final String measure_name = composite_measures.get(m).getMeasureName();
+                final Sample[] samples = getSamples(m);
+
+                for (int threshold_index = 0; threshold_index < NUMBER_OF_THRESHOLDS_SAMPLED; threshold_index++) {
+                    recordSample(run_number, measure_name, records_processed, getPairsEvaluated(), totals.pairs_ignored, indexToThreshold(threshold_index), samples[threshold_index]);
+                }
+
+                if (recordLinkDistances()) {
+
+                    final long[] non_link_distance_counts = new long[NUMBER_OF_THRESHOLDS_SAMPLED];
+                    for (int i = 0; i < NUMBER_OF_THRESHOLDS_SAMPLED; i++) {
+                        non_link_distance_counts[i] = sampling.weightNegatives(totals.non_link_distance_counts[m][i]);
+                    }
+
+                    recordDistances(run_number, measure_name, records_processed, getPairsEvaluated(), totals.pairs_ignored, non_link_distance_counts, totals.link_distance_counts[m]);
+                }
+            }
+        }
+
+        /**
+         * @return the number of pairs evaluated, estimated over all pairs if non-matching pairs are sampled
+         */
+        private long getPairsEvaluated() {
+
+            return totals.true_links_evaluated + sampling.weightNegatives(totals.pairs_evaluated - totals.true_links_evaluated);
+        }
+
+        /**
+         * @return true if precision and recall at every threshold, for every measure, have been estimated sufficiently precisely
+         */
+        private boolean isConverged() {
+
+            if (!sampling.stopsEarly()) return false;
+
+            for (int m = 0; m < composite_measures.size(); m++) {
+
+                long tp = 0L;
+                long fp = 0L;
+
+                for (int threshold_index = 0; threshold_index < NUMBER_OF_THRESHOLDS_SAMPLED; threshold_index++) {
+
+                    tp += totals.link_decision_counts[m][threshold_index];
+                    fp += totals.non_link_decision_counts[m][threshold_index];
+
+                    if (!sampling.isConverged(tp, fp, totals.true_links_evaluated - tp)) return false;
+                }
             }
 
-            if (recordLinkDistances()) recordDistances(run_number, measure.getMeasureName(), records_processed, pairs_evaluated, pairs_ignored, non_link_distance_counts, link_distance_counts);
+            return true;
         }
 
-        private void updateTrueLinkCounts(final double distance, final boolean is_true_link) {
+        private void updateTrueLinkCounts(final Tally tally, final int measure_index, final double distance, final boolean is_true_link) {
 
             final int index = distanceToIndex(distance);
 
             if (is_true_link) {
-                link_distance_counts[index]++;
+                tally.link_distance_counts[measure_index][index]++;
             } else {
-                non_link_distance_counts[index]++;
+                tally.non_link_distance_counts[measure_index][index]++;
             }
         }
 
-        private void recordNegativeLinkDecisions(final boolean is_true_link) {
+        /**
+         * @return the counts of TP, FP etc at each threshold for the given measure, derived from the accumulated link decisions
+         */
+        private Sample[] getSamples(final int measure_index) {
+
+            final Sample[] samples = new Sample[NUMBER_OF_THRESHOLDS_SAMPLED];
+            final long non_links_evaluated = totals.pairs_evaluated - totals.true_links_evaluated;
+
+            long tp = 0L;
+            long fp = 0L;
 
             for (int threshold_index = 0; threshold_index < NUMBER_OF_THRESHOLDS_SAMPLED; threshold_index++) {
 
-                if (is_true_link) {
-                    samples[threshold_index].fn++;
-                } else {
-                    samples[threshold_index].tn++;
-                }
+                tp += totals.link_decision_counts[measure_index][threshold_index];
+                fp += totals.non_link_decision_counts[measure_index][threshold_index];
+
+                final Sample sample = new Sample();
+
+                sample.tp = tp;
+                sample.fp = sampling.weightNegatives(fp);
+                sample.fn = totals.true_links_evaluated - tp;
+                sample.tn = sampling.weightNegatives(non_links_evaluated) - sample.fp;
+
+                samples[threshold_index] = sample;
             }
+
+            return samples;
         }
 
-        private void recordLinkDecisions(final double link_distance, final boolean link_is_viable, final boolean is_true_link) {
+        private void recordLinkDecisions(final Tally tally, final int measure_index, final double link_distance, final boolean link_is_viable, final boolean is_true_link) {
 
-            for (int threshold_index = 0; threshold_index < NUMBER_OF_THRESHOLDS_SAMPLED; threshold_index++) {
+            // A pair that is not linked at any threshold needs no record, since it is counted as a FN or TN from the pair totals.
+            if (link_is_viable) {
 
-                final double threshold = indexToThreshold(threshold_index);
+                final int threshold_index = lowestThresholdIndexNotExceeded(link_distance);
+
+                if (threshold_index < NUMBER_OF_THRESHOLDS_SAMPLED) {
+                    (is_true_link ? tally.link_decision_counts : tally.non_link_decision_counts)[measure_index][threshold_index]++;
+                }
+            }
+        }
 
-                if (link_distance <= threshold && link_is_viable) {
+        private void undoTentativeLinkDecision(final Tally tally, final int measure_index, final double tentative_link_distance, final boolean tentative_link_is_true_link) {
 
-                    if (is_true_link) {
-                        samples[threshold_index].tp++;
-                    } else {
-                        samples[threshold_index].fp++;
-                    }
+            // Tentative links are only made for viable pairs, so this exactly reverses the corresponding call to recordLinkDecisions.
+            final int threshold_index = lowestThresholdIndexNotExceeded(tentative_link_distance);
 
-                } else {
-                    if (is_true_link) {
-                        samples[threshold_index].fn++;
-                    } else {
-                        samples[threshold_index].tn++;
-                    }
-                }
+            if (threshold_index < NUMBER_OF_THRESHOLDS_SAMPLED) {
+                (tentative_link_is_true_link ? tally.link_decision_counts : tally.non_link_decision_counts)[measure_index][threshold_index]--;
             }
         }
 
-        private void undoTentativeLinkDecision(final double tentative_link_distance, final boolean tentative_link_is_true_link) {
+        /**
+         * A contiguous range of records from the first source, each compared with all records from the second source.
+         * Ranges larger than the tile size are split in two, so that idle workers can steal the halves.
+         */
+        private class Tile extends RecursiveTask<Tally> {
 
-            for (int threshold_index = 0; threshold_index < NUMBER_OF_THRESHOLDS_SAMPLED; threshold_index++) {
+            final int start_index;
+            final int end_index;
 
-                final double threshold = indexToThreshold(threshold_index);
+            Tile(final int start_index, final int end_index) {
 
-                if (tentative_link_distance <= threshold) {
+                this.start_index = start_index;
+                this.end_index = end_index;
+            }
 
-                    if (tentative_link_is_true_link) {
-                        samples[threshold_index].tp--;
-                        samples[threshold_index].fn++;
-                    } else {
-                        samples[threshold_index].fp--;
-                        samples[threshold_index].tn++;
+            @Override
+            protected Tally compute() {
+
+                if (end_index - start_index <= TILE_SIZE) {
+
+                    final Tally tally = new Tally();
+
+                    for (int i = start_index; i < end_index; i++) {
+                        processRecordFromFirstSource(i, number_of_records_to_be_checked, tally);
                     }
+                    return tally;
                 }
+
+                final int mid_index = (start_index + end_index) / 2;
+
+                final Tile left = new Tile(start_index, mid_index);
+                final Tile right = new Tile(mid_index, end_index);
+
+                left.fork();
+                final Tally tally = right.compute();
+                tally.add(left.join());
+
+                return tally;
             }
         }
     }
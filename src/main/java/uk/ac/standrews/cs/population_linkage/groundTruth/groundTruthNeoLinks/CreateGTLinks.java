@@ -16,10 +16,22 @@
  */
 package uk.ac.standrews.cs.population_linkage.groundTruth.groundTruthNeoLinks;
 
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
 import org.neo4j.driver.Session;
+import org.neo4j.driver.Value;
 import uk.ac.standrews.cs.neoStorr.util.NeoDbCypherBridge;
+import uk.ac.standrews.cs.population_linkage.resolvers.ResolverLinkWriter;
 
 import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.stream.Collectors;
 
 /*
  * Establishes ground truth links in Neo4J for Umea data set
@@ -33,344 +45,307 @@ import java.time.LocalDateTime;
  * Each relationship has an attribute 'actors' which indicates the actors on the linked certificates.
  * The actors are hyphen separated e.g. [:GT_ID { actors: "Child-Father" } ]
  * The strings used to identify the actors are: Child, Deceased, Father, Mother, Couple, Bride, Groom
+ *
+ * The identity fields of all the records are read once, and the linked pairs for each relationship are found by
+ * grouping records on the fields that must match, rather than by comparing every pair of records in Neo4J.
+ * The links are then merged into Neo4J in UNWIND batches, with several relationships being processed at once.
  */
 public class CreateGTLinks {
 
-    private static final String FATHER_OWN_BIRTH_IDENTITY = "MATCH (b1:Birth),(b2:Birth) WHERE " +
-            "b1.CHILD_IDENTITY <> \"\" AND " +
-            "b2.FATHER_IDENTITY <> \"\" AND " +
-            "b1.CHILD_IDENTITY = b2.FATHER_IDENTITY " +
-            "MERGE (b1)-[:GT_ID { actors: \"Child-Father\" } ]->(b2)";
-
-    private static final String MOTHER_OWN_BIRTH_IDENTITY = "MATCH (b1:Birth),(b2:Birth) WHERE " +
-            "b1.CHILD_IDENTITY <> \"\" AND " +
-            "b2.MOTHER_IDENTITY <> \"\" AND " +
-            "b1.CHILD_IDENTITY = b2.MOTHER_IDENTITY " +
-            "MERGE (b1)-[:GT_ID { actors: \"Child-Mother\" } ]->(b2)";
-
-    private static final String BIRTH_BIRTH_SIBLING = "MATCH (b1:Birth),(b2:Birth) WHERE " +
-            "NOT (b1)-[:GT_SIBLING { actors: \"Child-Child\" } ]-(b2) AND " +
-            "b1.MOTHER_IDENTITY <> \"\" AND " +
-            "b1.FATHER_IDENTITY <> \"\" AND " +
-            "b2.MOTHER_IDENTITY <> \"\" AND " +
-            "b2.FATHER_IDENTITY <> \"\" AND " +
-            "b1 <> b2 AND " +
-            "b1.MOTHER_IDENTITY = b2.MOTHER_IDENTITY AND " +
-            "b1.FATHER_IDENTITY = b2.FATHER_IDENTITY " +
-            "MERGE (b1)-[:GT_SIBLING { actors: \"Child-Child\" } ]-(b2) ";
-
-    private static final String BIRTH_BIRTH_HALF_SIBLING = "MATCH (b1:Birth),(b2:Birth) WHERE " +
-            "NOT (b1)-[:GT_HALF_SIBLING { actors: \"Child-Child\" } ]-(b2) AND " +
-            "b1.MOTHER_IDENTITY <> \"\" AND " +
-            "b2.MOTHER_IDENTITY <> \"\" AND " +
-            "b1.FATHER_IDENTITY <> \"\" AND " +
-            "b2.FATHER_IDENTITY <> \"\" AND " +
-            "b1 <> b2 AND " +
-            "(b1.MOTHER_IDENTITY = b2.MOTHER_IDENTITY OR b1.FATHER_IDENTITY = b2.FATHER_IDENTITY) AND " +
-            "NOT (b1.MOTHER_IDENTITY = b2.MOTHER_IDENTITY AND b1.FATHER_IDENTITY = b2.FATHER_IDENTITY) " +
-            "MERGE (b1)-[:GT_HALF_SIBLING { actors: \"Child-Child\" } ]-(b2)";
-
-    private static final String BIRTH_BIRTH_HALF_SIBLING_DAD = "MATCH (b1:Birth),(b2:Birth)\n" +
-            "WHERE NOT (b1)-[:GT_HALF_SIBLING { actors: \"Child-Child\" } ]-(b2)\n" +
-            "and b1.FATHER_IDENTITY = b2.FATHER_IDENTITY and b1.MOTHER_IDENTITY = \"\" and b2.MOTHER_IDENTITY = \"\" and b1.FATHER_IDENTITY <> \"\" and b2.FATHER_IDENTITY <> \"\" and b1 <> b2\n" +
-            "MERGE (b1)-[:GT_HALF_SIBLING { actors: \"Child-Child\" } ]-(b2)";
-
-    private static final String BIRTH_BIRTH_HALF_SIBLING_MUM = "MATCH (b1:Birth),(b2:Birth)\n" +
-            "WHERE NOT (b1)-[:GT_HALF_SIBLING { actors: \"Child-Child\" } ]-(b2)\n" +
-            "and b1.MOTHER_IDENTITY = b2.MOTHER_IDENTITY and b1.FATHER_IDENTITY = \"\" and b2.FATHER_IDENTITY = \"\" and b1.MOTHER_IDENTITY <> \"\" and b2.MOTHER_IDENTITY <> \"\" and b1 <> b2\n" +
-            "MERGE (b1)-[:GT_HALF_SIBLING { actors: \"Child-Child\" } ]-(b2)";
-
-    private static final String BIRTH_DEATH_IDENTITY = "MATCH (b:Birth),(d:Death) WHERE " + "" +
-            "b.CHILD_IDENTITY <> \"\" AND " +
-            "d.DECEASED_IDENTITY <> \"\" AND " +
-            "b.CHILD_IDENTITY = d.DECEASED_IDENTITY " +
-            "MERGE (b)-[:GT_ID { actors: \"Child-Deceased\" } ]-(d)";
-
-    private static final String BIRTH_DEATH_SIBLING = "MATCH (b:Birth),(d:Death) WHERE " +
-            "b.MOTHER_IDENTITY <> \"\" AND " +
-            "b.FATHER_IDENTITY <> \"\" AND " +
-            "d.MOTHER_IDENTITY <> \"\" AND " +
-            "d.FATHER_IDENTITY <> \"\" AND " +
-            "b.MOTHER_IDENTITY = d.MOTHER_IDENTITY AND " +
-            "b.FATHER_IDENTITY = d.FATHER_IDENTITY AND " +
-            "b.CHILD_IDENTITY <> d.DECEASED_IDENTITY " +
-            "MERGE (b)-[:GT_SIBLING { actors: \"Child-Deceased\" } ]-(d)";
-
-    private static final String BIRTH_DEATH_HALF_SIBLING = "MATCH (b:Birth),(d:Death) WHERE " +
-            "b.MOTHER_IDENTITY <> \"\" AND " +
-            "d.MOTHER_IDENTITY <> \"\" AND " +
-            "b.FATHER_IDENTITY <> \"\" AND " +
-            "d.FATHER_IDENTITY <> \"\" AND " +
-            "(b.MOTHER_IDENTITY = d.MOTHER_IDENTITY OR b.FATHER_IDENTITY = d.FATHER_IDENTITY) AND " +
-            "NOT (b.MOTHER_IDENTITY = d.MOTHER_IDENTITY AND b.FATHER_IDENTITY = d.FATHER_IDENTITY) " +
-            "MERGE (b)-[:GT_HALF_SIBLING { actors: \"Child-Deceased\" } ]-(d)";
-
-    private static final String BIRTH_GROOM_IDENTITY = "MATCH (b:Birth),(m:Marriage) WHERE " +
-            "b.CHILD_IDENTITY <> \"\" AND " +
-            "m.GROOM_IDENTITY <> \"\" AND " +
-            "b.CHILD_IDENTITY = m.GROOM_IDENTITY " +
-            "MERGE (b)-[:GT_ID { actors: \"Child-Groom\" } ]-(m)";
-
-    private static final String BIRTH_BRIDE_IDENTITY = "MATCH (b:Birth),(m:Marriage) WHERE " +
-            "b.CHILD_IDENTITY <> \"\" AND " +
-            "m.BRIDE_IDENTITY <> \"\" AND " +
-            "b.CHILD_IDENTITY = m.BRIDE_IDENTITY " +
-            "MERGE (b)-[:GT_ID { actors: \"Child-Bride\" } ]-(m)";
-
-    private static final String FATHER_GROOM_IDENTITY = "MATCH (b:Birth),(m:Marriage) WHERE " +
-            "b.FATHER_IDENTITY <> \"\" AND " +
-            "m.GROOM_IDENTITY <> \"\" AND " +
-            "b.FATHER_IDENTITY = m.GROOM_IDENTITY " +
-            "MERGE (b)-[:GT_ID { actors: \"Father-Groom\" } ]-(m)";
-
-    private static final String MOTHER_BRIDE_IDENTITY = "MATCH (b:Birth),(m:Marriage) WHERE " +
-            "b.MOTHER_IDENTITY <> \"\" AND " +
-            "m.BRIDE_IDENTITY <> \"\" AND " +
-            "b.MOTHER_IDENTITY = m.BRIDE_IDENTITY " +
-            "MERGE (b)-[:GT_ID { actors: \"Mother-Bride\" } ]-(m)";
-
-    private static final String BIRTH_PARENTS_MARRIAGE_IDENTITY = "MATCH (b:Birth),(m:Marriage) WHERE " +
-            "b.MOTHER_IDENTITY <> \"\" AND " +
-            "b.FATHER_IDENTITY <> \"\" AND " +
-            "m.BRIDE_IDENTITY <> \"\" AND " +
-            "m.GROOM_IDENTITY <> \"\" AND " +
-            "b.MOTHER_IDENTITY = m.BRIDE_IDENTITY AND " +
-            "b.FATHER_IDENTITY = m.GROOM_IDENTITY " +
-            "MERGE (b)-[:GT_ID { actors: \"Child-Couple\" } ]-(m)";
-
-    private static final String DEATH_PARENTS_MARRIAGE_IDENTITY = "MATCH (d:Death),(m:Marriage) WHERE " +
-            "d.MOTHER_IDENTITY <> \"\" AND " +
-            "d.FATHER_IDENTITY <> \"\" AND " +
-            "m.BRIDE_IDENTITY <> \"\" AND " +
-            "m.GROOM_IDENTITY <> \"\" AND " +
-            "d.MOTHER_IDENTITY = m.BRIDE_IDENTITY AND " +
-            "d.FATHER_IDENTITY = m.GROOM_IDENTITY " +
-            "MERGE (b)-[:GT_ID { actors: \"Deceased-Couple\" } ]-(m)";
-
-    private static final String BIRTH_GROOM_SIBLING = "MATCH (b:Birth),(m:Marriage) WHERE " +
-            "b.MOTHER_IDENTITY <> \"\" AND " +
-            "b.FATHER_IDENTITY <> \"\" AND " +
-            "m.GROOM_MOTHER_IDENTITY <> \"\" AND " +
-            "m.GROOM_FATHER_IDENTITY <> \"\" AND " +
-            "b.MOTHER_IDENTITY = m.GROOM_MOTHER_IDENTITY AND " +
-            "b.FATHER_IDENTITY = m.GROOM_FATHER_IDENTITY AND " +
-            "b.CHILD_IDENTITY <> m.GROOM_IDENTITY " +
-            "MERGE (b)-[:GT_SIBLING { actors: \"Child-Groom\" } ]-(m)";
-
-    private static final String BIRTH_BRIDE_SIBLING = "MATCH (b:Birth),(m:Marriage) WHERE " +
-            "b.MOTHER_IDENTITY <> \"\" AND " +
-            "b.FATHER_IDENTITY <> \"\" AND " +
-            "m.BRIDE_MOTHER_IDENTITY <> \"\" AND " +
-            "m.BRIDE_FATHER_IDENTITY <> \"\" AND " +
-            "b.MOTHER_IDENTITY = m.BRIDE_MOTHER_IDENTITY AND " +
-            "b.FATHER_IDENTITY = m.BRIDE_FATHER_IDENTITY AND " +
-            "b.CHILD_IDENTITY <> m.BRIDE_IDENTITY " +
-            "MERGE (b)-[:GT_SIBLING { actors: \"Child-Bride\" } ]-(m)";
-
-    private static final String DEATH_GROOM_IDENTITY = "MATCH (d:Death),(m:Marriage) WHERE " +
-            "d.DECEASED_IDENTITY <> \"\" AND " +
-            "m.GROOM_IDENTITY <> \"\" AND " +
-            "d.DECEASED_IDENTITY = m.GROOM_IDENTITY " +
-            "MERGE (d)-[:GT_ID { actors: \"Deceased-Groom\" } ]-(m)";
-
-    private static final String DEATH_BRIDE_IDENTITY = "MATCH (d:Death),(m:Marriage) WHERE " +
-            "d.DECEASED_IDENTITY <> \"\" AND " +
-            "m.BRIDE_IDENTITY <> \"\" AND " +
-            "d.DECEASED_IDENTITY = m.BRIDE_IDENTITY " +
-            "MERGE (d)-[:GT_ID { actors: \"Deceased-Bride\" } ]-(m)";
-
-    private static final String DEATH_GROOM_SIBLING = "MATCH (d:Death),(m:Marriage) WHERE " +
-            "d.MOTHER_IDENTITY <> \"\" AND " +
-            "d.FATHER_IDENTITY <> \"\" AND " +
-            "m.GROOM_MOTHER_IDENTITY <> \"\" AND " +
-            "m.GROOM_FATHER_IDENTITY <> \"\" AND " +
-            "d.MOTHER_IDENTITY = m.GROOM_MOTHER_IDENTITY AND " +
-            "d.FATHER_IDENTITY = m.GROOM_FATHER_IDENTITY AND " +
-            "d.DECEASED_IDENTITY <> m.GROOM_IDENTITY " +
-            "MERGE (d)-[:GT_SIBLING { actors: \"Deceased-Groom\" } ]-(m)";
-
-    private static final String DEATH_BRIDE_SIBLING = "MATCH (d:Death),(m:Marriage) WHERE " +
-            "d.MOTHER_IDENTITY <> \"\" AND " +
-            "d.FATHER_IDENTITY <> \"\" AND " +
-            "m.BRIDE_MOTHER_IDENTITY <> \"\" AND " +
-            "m.BRIDE_FATHER_IDENTITY <> \"\" AND " +
-            "d.MOTHER_IDENTITY = m.BRIDE_MOTHER_IDENTITY AND " +
-            "d.FATHER_IDENTITY = m.BRIDE_FATHER_IDENTITY AND " +
-            "d.DECEASED_IDENTITY <> m.BRIDE_IDENTITY " +
-            "MERGE (d)-[:GT_SIBLING { actors: \"Deceased-Bride\" } ]-(m)";
-
-    private static final String GROOM_GROOM_IDENTITY = "MATCH (m1:Marriage),(m2:Marriage) WHERE " +
-            "NOT (m1)-[:GT_ID { actors: \"Groom-Groom\" } ]-(m2) AND " +
-            "m1.GROOM_IDENTITY <> \"\" AND " +
-            "m2.GROOM_IDENTITY <> \"\" AND " +
-            "m1 <> m2 AND " +
-            "m1.GROOM_IDENTITY = m2.GROOM_IDENTITY " +
-            "MERGE (m1)-[:GT_ID { actors: \"Groom-Groom\" } ]-(m2)";
-
-    private static final String BRIDE_BRIDE_IDENTITY = "MATCH (m1:Marriage),(m2:Marriage) WHERE " +
-            "NOT (m1)-[:GT_ID { actors: \"Bride-Bride\" }]-(m2) AND " +
-            "m1.BRIDE_IDENTITY <> \"\" AND " +
-            "m2.BRIDE_IDENTITY <> \"\" AND " +
-            "m1 <> m2 AND " +
-            "m1.BRIDE_IDENTITY = m2.BRIDE_IDENTITY " +
-            "MERGE (m1)-[:GT_ID { actors: \"Bride-Bride\" } ]-(m2)";
-
-    private static final String GROOM_PARENTS_MARRIAGE_IDENTITY = "MATCH (m1:Marriage),(m2:Marriage) WHERE " +
-            "m1.GROOM_FATHER_IDENTITY <> \"\" AND " +
-            "m1.GROOM_MOTHER_IDENTITY <> \"\" AND " +
-            "m2.GROOM_IDENTITY <> \"\" AND " +
-            "m2.BRIDE_IDENTITY <> \"\" AND " +
-            "m1 <> m2 AND " +
-            "m1.GROOM_MOTHER_IDENTITY = m2.BRIDE_IDENTITY AND " +
-            "m1.GROOM_FATHER_IDENTITY = m2.GROOM_IDENTITY " +
-            "MERGE (m1)-[:GT_ID { actors: \"Groom-Couple\" } ]-(m2)";
-
-    private static final String BRIDE_PARENTS_MARRIAGE_IDENTITY = "MATCH (m1:Marriage),(m2:Marriage) WHERE " +
-            "m1.BRIDE_FATHER_IDENTITY <> \"\" AND " +
-            "m1.BRIDE_MOTHER_IDENTITY <> \"\" AND " +
-            "m2.GROOM_IDENTITY <> \"\" AND " +
-            "m2.BRIDE_IDENTITY <> \"\" AND " +
-            "m1 <> m2 AND " +
-            "m1.BRIDE_MOTHER_IDENTITY = m2.BRIDE_IDENTITY AND " +
-            "m1.BRIDE_FATHER_IDENTITY = m2.GROOM_IDENTITY " +
-            "MERGE (m1)-[:GT_ID { actors: \"Bride-Couple\" } ]-(m2)";
-
-    private static final String GROOM_GROOM_SIBLING = "MATCH (m1:Marriage),(m2:Marriage) WHERE " +
-            "NOT (m1)-[:GT_SIBLING { actors: \"Groom-Groom\" } ]-(m2) AND " +
-            "m1.GROOM_MOTHER_IDENTITY <> \"\" AND " +
-            "m1.GROOM_FATHER_IDENTITY <> \"\" AND " +
-            "m2.GROOM_MOTHER_IDENTITY <> \"\" AND " +
-            "m2.GROOM_FATHER_IDENTITY <> \"\" AND " +
-            "m1.GROOM_MOTHER_IDENTITY = m2.GROOM_MOTHER_IDENTITY AND " +
-            "m1.GROOM_FATHER_IDENTITY = m2.GROOM_FATHER_IDENTITY AND " +
-            "m1.GROOM_IDENTITY <> m2.GROOM_IDENTITY " +
-            "MERGE (m1)-[:GT_SIBLING { actors: \"Groom-Groom\" } ]-(m2)";
-
-    private static final String BRIDE_BRIDE_SIBLING = "MATCH (m1:Marriage),(m2:Marriage) WHERE " +
-            "NOT (m1)-[:GT_SIBLING { actors: \"Bride-Bride\" } ]-(m2) AND " +
-            "m1.BRIDE_MOTHER_IDENTITY <> \"\" AND " +
-            "m1.BRIDE_FATHER_IDENTITY <> \"\" AND " +
-            "m2.BRIDE_MOTHER_IDENTITY <> \"\" AND " +
-            "m2.BRIDE_FATHER_IDENTITY <> \"\" AND " +
-            "m1.BRIDE_MOTHER_IDENTITY = m2.BRIDE_MOTHER_IDENTITY AND " +
-            "m1.BRIDE_FATHER_IDENTITY = m2.BRIDE_FATHER_IDENTITY AND " +
-            "m1.BRIDE_IDENTITY <> m2.BRIDE_IDENTITY " +
-            "MERGE (m1)-[:GT_SIBLING { actors: \"Bride-Bride\" } ]-(m2)";
-
-    private static final String BRIDE_GROOM_SIBLING = "MATCH (m1:Marriage),(m2:Marriage) WHERE " +
-            "NOT (m1)-[:GT_SIBLING { actors: \"Bride-Groom\" } ]-(m2) AND " +
-            "m1.BRIDE_MOTHER_IDENTITY <> \"\" AND " +
-            "m1.BRIDE_FATHER_IDENTITY <> \"\" AND " +
-            "m2.GROOM_MOTHER_IDENTITY <> \"\" AND " +
-            "m2.GROOM_FATHER_IDENTITY <> \"\" AND " +
-            "m1.BRIDE_MOTHER_IDENTITY = m2.GROOM_MOTHER_IDENTITY AND " +
-            "m1.BRIDE_FATHER_IDENTITY = m2.GROOM_FATHER_IDENTITY " +
-            "MERGE (m1)-[:GT_SIBLING { actors: \"Bride-Groom\" } ]-(m2)";
-
-    private static final String GROOM_GROOM_HALF_SIBLING = "MATCH (m1:Marriage),(m2:Marriage) WHERE " +
-            "NOT (m1)-[:GT_HALF_SIBLING { actors: \"Groom-Groom\" } ]-(m2) AND " +
-            "m1.GROOM_MOTHER_IDENTITY <> \"\" AND " +
-            "m1.GROOM_FATHER_IDENTITY <> \"\" AND " +
-            "m2.GROOM_MOTHER_IDENTITY <> \"\" AND " +
-            "m2.GROOM_FATHER_IDENTITY <> \"\" AND " +
-            "m1 <> m2 AND " +
-            "(m1.GROOM_MOTHER_IDENTITY = m2.GROOM_MOTHER_IDENTITY OR m1.GROOM_FATHER_IDENTITY = m2.GROOM_FATHER_IDENTITY ) AND " +
-            "NOT (m1.GROOM_MOTHER_IDENTITY = m2.GROOM_MOTHER_IDENTITY AND m1.GROOM_FATHER_IDENTITY = m2.GROOM_FATHER_IDENTITY ) " +
-            "MERGE (m1)-[:GT_HALF_SIBLING { actors: \"Groom-Groom\" } ]-(m2)";
-
-    private static final String BRIDE_BRIDE_HALF_SIBLING = "MATCH (m1:Marriage),(m2:Marriage) WHERE " +
-            "NOT (m1)-[:GT_HALF_SIBLING { actors: \"Bride-Bride\" } ]-(m2) AND " +
-            "m1.BRIDE_MOTHER_IDENTITY <> \"\" AND " +
-            "m1.BRIDE_FATHER_IDENTITY <> \"\" AND " +
-            "m2.BRIDE_MOTHER_IDENTITY <> \"\" AND " +
-            "m2.BRIDE_FATHER_IDENTITY <> \"\" AND " +
-            "m1 <> m2 AND " +
-            "(m1.BRIDE_MOTHER_IDENTITY = m2.BRIDE_MOTHER_IDENTITY OR m1.BRIDE_FATHER_IDENTITY = m2.BRIDE_FATHER_IDENTITY) AND " +
-            "NOT (m1.BRIDE_MOTHER_IDENTITY = m2.BRIDE_MOTHER_IDENTITY AND m1.BRIDE_FATHER_IDENTITY = m2.BRIDE_FATHER_IDENTITY) " +
-            "MERGE (m1)-[:GT_HALF_SIBLING { actors: \"Bride-Bride\" } ]-(m2)";
-
-    private static final String BRIDE_GROOM_HALF_SIBLING = "MATCH (m1:Marriage),(m2:Marriage) WHERE " +
-            "NOT (m1)-[:GT_HALF_SIBLING { actors: \"Bride-Groom\" } ]->(m2) AND " +
-            "m1.BRIDE_MOTHER_IDENTITY <> \"\" AND " +
-            "m1.BRIDE_FATHER_IDENTITY <> \"\" AND " +
-            "m2.GROOM_MOTHER_IDENTITY <> \"\" AND " +
-            "m2.GROOM_FATHER_IDENTITY <> \"\" AND " +
-            "m1 <> m2 AND " +
-            "(m1.BRIDE_MOTHER_IDENTITY = m2.GROOM_MOTHER_IDENTITY OR m1.BRIDE_FATHER_IDENTITY = m2.GROOM_FATHER_IDENTITY ) AND " +
-            "NOT (m1.BRIDE_MOTHER_IDENTITY = m2.GROOM_MOTHER_IDENTITY AND m1.BRIDE_FATHER_IDENTITY = m2.GROOM_FATHER_IDENTITY) " +
-            "MERGE (m1)-[:GT_HALF_SIBLING { actors: \"Bride-Groom\" } ]-(m2)";
-
-    private static final String DEATH_DEATH_SIBLING = "MATCH (d1:Death),(d2:Death) WHERE " +
-            "NOT (d1)-[:GT_SIBLING { actors: \"Deceased-Deceased\" } ]-(d2) AND " +
-            "d1.MOTHER_IDENTITY <> \"\" AND " +
-            "d1.FATHER_IDENTITY <> \"\" AND " +
-            "d2.MOTHER_IDENTITY <> \"\" AND " +
-            "d2.FATHER_IDENTITY <> \"\" AND " +
-            "d1 <> d2 AND " +
-            "d1.MOTHER_IDENTITY = d2.MOTHER_IDENTITY AND " +
-            "d1.FATHER_IDENTITY = d2.FATHER_IDENTITY " +
-            "MERGE (d1)-[:GT_SIBLING { actors: \"Deceased-Deceased\" } ]-(d2)";
-
-    private static final String DEATH_DEATH_HALF_SIBLING = "MATCH (d1:Death),(d2:Death) WHERE " +
-            "NOT (d1)-[:GT_HALF_SIBLING { actors: \"Deceased-Deceased\" } ]-(d2) AND " +
-            "d1.MOTHER_IDENTITY <> \"\" AND " +
-            "d2.MOTHER_IDENTITY <> \"\" AND " +
-            "d1.FATHER_IDENTITY <> \"\" AND " +
-            "d2.FATHER_IDENTITY <> \"\" AND " +
-            "d1 <> d2 AND " +
-            "(d1.MOTHER_IDENTITY = d2.MOTHER_IDENTITY OR d1.FATHER_IDENTITY = d2.FATHER_IDENTITY) AND " +
-            "NOT (d1.MOTHER_IDENTITY = d2.MOTHER_IDENTITY AND d1.FATHER_IDENTITY = d2.FATHER_IDENTITY) " +
-            "MERGE (d1)-[:GT_HALF_SIBLING { actors: \"Deceased-Deceased\" } ]-(d2)";
-
-    private static void doQueries(String... queries) {
-
-        try (NeoDbCypherBridge bridge = new NeoDbCypherBridge(); Session session = bridge.getNewSession()) {
+    private static final int NUMBER_OF_THREADS = 4;
+
+    private static final Map<String, List<String>> IDENTITY_FIELDS = Map.of(
+            "Birth", List.of("CHILD_IDENTITY", "MOTHER_IDENTITY", "FATHER_IDENTITY"),
+            "Death", List.of("DECEASED_IDENTITY", "MOTHER_IDENTITY", "FATHER_IDENTITY"),
+            "Marriage", List.of("BRIDE_IDENTITY", "GROOM_IDENTITY", "BRIDE_MOTHER_IDENTITY", "BRIDE_FATHER_IDENTITY", "GROOM_MOTHER_IDENTITY", "GROOM_FATHER_IDENTITY"));
+
+    private static final String NODES_QUERY = "MATCH (n:%s) RETURN id(n) AS id, %s";
+    private static final String MERGE_QUERY = "MATCH (a) WHERE id(a) = $from MATCH (b) WHERE id(b) = $to MERGE (a)-[:%s { actors: \"%s\" } ]-%s(b)";
+
+    private static final List<String> PARENTS = List.of("MOTHER_IDENTITY", "FATHER_IDENTITY");
+    private static final List<String> MOTHER = List.of("MOTHER_IDENTITY");
+    private static final List<String> FATHER = List.of("FATHER_IDENTITY");
+    private static final List<String> BRIDE_PARENTS = List.of("BRIDE_MOTHER_IDENTITY", "BRIDE_FATHER_IDENTITY");
+    private static final List<String> GROOM_PARENTS = List.of("GROOM_MOTHER_IDENTITY", "GROOM_FATHER_IDENTITY");
+    private static final List<String> COUPLE = List.of("BRIDE_IDENTITY", "GROOM_IDENTITY");
+
+    private static final BiPredicate<Node, Node> DISTINCT = (a, b) -> a.id != b.id;
+
+    static final List<GTRelationship> RELATIONSHIPS = List.of(
+
+            // Birth - Birth
+            link("GT_ID", "Child-Father", "Birth", List.of("CHILD_IDENTITY"), "Birth", FATHER).directed(),
+            link("GT_ID", "Child-Mother", "Birth", List.of("CHILD_IDENTITY"), "Birth", MOTHER).directed(),
+            link("GT_SIBLING", "Child-Child", "Birth", PARENTS, "Birth", PARENTS).where(DISTINCT),
+            link("GT_HALF_SIBLING", "Child-Child", "Birth", MOTHER, "Birth", MOTHER).where(differ("FATHER_IDENTITY", "FATHER_IDENTITY")),
+            link("GT_HALF_SIBLING", "Child-Child", "Birth", FATHER, "Birth", FATHER).where(differ("MOTHER_IDENTITY", "MOTHER_IDENTITY")),
+            link("GT_HALF_SIBLING", "Child-Child", "Birth", FATHER, "Birth", FATHER).where(DISTINCT.and(missing("MOTHER_IDENTITY", "MOTHER_IDENTITY"))),
+            link("GT_HALF_SIBLING", "Child-Child", "Birth", MOTHER, "Birth", MOTHER).where(DISTINCT.and(missing("FATHER_IDENTITY", "FATHER_IDENTITY"))),
+
+            // Birth - Death
+            link("GT_ID", "Child-Deceased", "Birth", List.of("CHILD_IDENTITY"), "Death", List.of("DECEASED_IDENTITY")),
+            link("GT_SIBLING", "Child-Deceased", "Birth", PARENTS, "Death", PARENTS).where(notSame("CHILD_IDENTITY", "DECEASED_IDENTITY")),
+            link("GT_HALF_SIBLING", "Child-Deceased", "Birth", MOTHER, "Death", MOTHER).where(differ("FATHER_IDENTITY", "FATHER_IDENTITY")),
+            link("GT_HALF_SIBLING", "Child-Deceased", "Birth", FATHER, "Death", FATHER).where(differ("MOTHER_IDENTITY", "MOTHER_IDENTITY")),
+
+            // Birth - Marriage
+            link("GT_ID", "Child-Groom", "Birth", List.of("CHILD_IDENTITY"), "Marriage", List.of("GROOM_IDENTITY")),
+            link("GT_ID", "Child-Bride", "Birth", List.of("CHILD_IDENTITY"), "Marriage", List.of("BRIDE_IDENTITY")),
+            link("GT_ID", "Father-Groom", "Birth", FATHER, "Marriage", List.of("GROOM_IDENTITY")),
+            link("GT_ID", "Mother-Bride", "Birth", MOTHER, "Marriage", List.of("BRIDE_IDENTITY")),
+            link("GT_ID", "Child-Couple", "Birth", PARENTS, "Marriage", COUPLE),
+            link("GT_ID", "Deceased-Couple", "Death", PARENTS, "Marriage", COUPLE),
+            link("GT_SIBLING", "Child-Groom", "Birth", PARENTS, "Marriage", GROOM_PARENTS).where(notSame("CHILD_IDENTITY", "GROOM_IDENTITY")),
+            link("GT_SIBLING", "Child-Bride", "Birth", PARENTS, "Marriage", BRIDE_PARENTS).where(notSame("CHILD_IDENTITY", "BRIDE_IDENTITY")),
+
+            // Death - Marriage
+            link("GT_ID", "Deceased-Groom", "Death", List.of("DECEASED_IDENTITY"), "Marriage", List.of("GROOM_IDENTITY")),
+            link("GT_ID", "Deceased-Bride", "Death", List.of("DECEASED_IDENTITY"), "Marriage", List.of("BRIDE_IDENTITY")),
+            link("GT_SIBLING", "Deceased-Groom", "Death", PARENTS, "Marriage", GROOM_PARENTS).where(notSame("DECEASED_IDENTITY", "GROOM_IDENTITY")),
+            link("GT_SIBLING", "Deceased-Bride", "Death", PARENTS, "Marriage", BRIDE_PARENTS).where(notSame("DECEASED_IDENTITY", "BRIDE_IDENTITY")),
+
+            // Marriage - Marriage
+            link("GT_ID", "Groom-Groom", "Marriage", List.of("GROOM_IDENTITY"), "Marriage", List.of("GROOM_IDENTITY")).where(DISTINCT),
+            link("GT_ID", "Bride-Bride", "Marriage", List.of("BRIDE_IDENTITY"), "Marriage", List.of("BRIDE_IDENTITY")).where(DISTINCT),
+            link("GT_ID", "Groom-Couple", "Marriage", GROOM_PARENTS, "Marriage", COUPLE).where(DISTINCT),
+            link("GT_ID", "Bride-Couple", "Marriage", BRIDE_PARENTS, "Marriage", COUPLE).where(DISTINCT),
+            link("GT_SIBLING", "Groom-Groom", "Marriage", GROOM_PARENTS, "Marriage", GROOM_PARENTS).where(notSame("GROOM_IDENTITY", "GROOM_IDENTITY")),
+            link("GT_SIBLING", "Bride-Bride", "Marriage", BRIDE_PARENTS, "Marriage", BRIDE_PARENTS).where(notSame("BRIDE_IDENTITY", "BRIDE_IDENTITY")),
+            link("GT_SIBLING", "Bride-Groom", "Marriage", BRIDE_PARENTS, "Marriage", GROOM_PARENTS),
+            link("GT_HALF_SIBLING", "Groom-Groom", "Marriage", List.of("GROOM_MOTHER_IDENTITY"), "Marriage", List.of("GROOM_MOTHER_IDENTITY")).where(differ("GROOM_FATHER_IDENTITY", "GROOM_FATHER_IDENTITY")),
+            link("GT_HALF_SIBLING", "Groom-Groom", "Marriage", List.of("GROOM_FATHER_IDENTITY"), "Marriage", List.of("GROOM_FATHER_IDENTITY")).where(differ("GROOM_MOTHER_IDENTITY", "GROOM_MOTHER_IDENTITY")),
+            link("GT_HALF_SIBLING", "Bride-Bride", "Marriage", List.of("BRIDE_MOTHER_IDENTITY"), "Marriage", List.of("BRIDE_MOTHER_IDENTITY")).where(differ("BRIDE_FATHER_IDENTITY", "BRIDE_FATHER_IDENTITY")),
+            link("GT_HALF_SIBLING", "Bride-Bride", "Marriage", List.of("BRIDE_FATHER_IDENTITY"), "Marriage", List.of("BRIDE_FATHER_IDENTITY")).where(differ("BRIDE_MOTHER_IDENTITY", "BRIDE_MOTHER_IDENTITY")),
+            link("GT_HALF_SIBLING", "Bride-Groom", "Marriage", List.of("BRIDE_MOTHER_IDENTITY"), "Marriage", List.of("GROOM_MOTHER_IDENTITY")).where(DISTINCT.and(differ("BRIDE_FATHER_IDENTITY", "GROOM_FATHER_IDENTITY"))),
+            link("GT_HALF_SIBLING", "Bride-Groom", "Marriage", List.of("BRIDE_FATHER_IDENTITY"), "Marriage", List.of("GROOM_FATHER_IDENTITY")).where(DISTINCT.and(differ("BRIDE_MOTHER_IDENTITY", "GROOM_MOTHER_IDENTITY"))),
+
+            // Death - Death
+            link("GT_SIBLING", "Deceased-Deceased", "Death", PARENTS, "Death", PARENTS).where(DISTINCT),
+            link("GT_HALF_SIBLING", "Deceased-Deceased", "Death", MOTHER, "Death", MOTHER).where(differ("FATHER_IDENTITY", "FATHER_IDENTITY")),
+            link("GT_HALF_SIBLING", "Deceased-Deceased", "Death", FATHER, "Death", FATHER).where(differ("MOTHER_IDENTITY", "MOTHER_IDENTITY"))
+    );
+
+    public static void main(String[] args) throws InterruptedException {
+
+        try (NeoDbCypherBridge bridge = new NeoDbCypherBridge()) {
+
+            System.out.println("Reading identities @ " + LocalDateTime.now());
+
+            final Map<String, List<Node>> nodes = new HashMap<>();
+            try (Session session = bridge.getNewSession()) {
+                for (String type : IDENTITY_FIELDS.keySet()) {
+                    nodes.put(type, readNodes(session, type));
+                    System.out.println("Read " + nodes.get(type).size() + " " + type + " records");
+                }
+            }
 
             System.out.println("Creating GT links @ " + LocalDateTime.now());
 
-            for (String query : queries) {
-                System.out.println( "Running: " + query );
-                session.run(query);
-                System.out.println("Finished query @ " + LocalDateTime.now());
+            final ResolverLinkWriter link_writer = new ResolverLinkWriter(bridge);
+            final ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+            try {
+                final List<Future<?>> results = new ArrayList<>();
+                for (GTRelationship relationship : RELATIONSHIPS) {
+                    results.add(executor.submit(() -> createLinks(relationship, nodes, link_writer)));
+                }
+                for (Future<?> result : results) {
+                    result.get();
+                }
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            } finally {
+                executor.shutdownNow();
             }
+            link_writer.flush();
 
+            System.out.println("Created " + link_writer.getRelationshipsCreated() + " GT links");
             System.out.println("Complete @ " + LocalDateTime.now());
         }
     }
 
-    public static void main(String[] args) {
-        doQueries(
-                // Birth - Birth
-                FATHER_OWN_BIRTH_IDENTITY, MOTHER_OWN_BIRTH_IDENTITY,
-                BIRTH_BIRTH_SIBLING,
-                BIRTH_BIRTH_HALF_SIBLING,
-                BIRTH_BIRTH_HALF_SIBLING_DAD,
-                BIRTH_BIRTH_HALF_SIBLING_MUM,
-
-                // Birth - Death
-                BIRTH_DEATH_IDENTITY,
-                BIRTH_DEATH_SIBLING,
-                BIRTH_DEATH_HALF_SIBLING,
-
-                // Birth - Marriage
-                BIRTH_GROOM_IDENTITY, BIRTH_BRIDE_IDENTITY,
-                FATHER_GROOM_IDENTITY, MOTHER_BRIDE_IDENTITY,
-                BIRTH_PARENTS_MARRIAGE_IDENTITY, DEATH_PARENTS_MARRIAGE_IDENTITY,
-                BIRTH_GROOM_SIBLING, BIRTH_BRIDE_SIBLING,
-
-                // Death - Marriage
-                DEATH_GROOM_IDENTITY, DEATH_BRIDE_IDENTITY,
-                DEATH_GROOM_SIBLING, DEATH_BRIDE_SIBLING,
-
-                // Marriage - Marriage
-                GROOM_GROOM_IDENTITY, BRIDE_BRIDE_IDENTITY,
-                GROOM_PARENTS_MARRIAGE_IDENTITY, BRIDE_PARENTS_MARRIAGE_IDENTITY,
-                GROOM_GROOM_SIBLING, BRIDE_BRIDE_SIBLING, BRIDE_GROOM_SIBLING,
-                GROOM_GROOM_HALF_SIBLING, BRIDE_BRIDE_HALF_SIBLING, BRIDE_GROOM_HALF_SIBLING,
-
-                // Death - Death
-                DEATH_DEATH_SIBLING,
-                DEATH_DEATH_HALF_SIBLING
-        );
+    private static List<Node> readNodes(final Session session, final String type) {
+
+        final List<String> fields = IDENTITY_FIELDS.get(type);
+        final String columns = fields.stream().map(field -> "n." + field + " AS " + field).collect(Collectors.joining(", "));
+
+        final List<Node> nodes = new ArrayList<>();
+        final Result result = session.run(String.format(NODES_QUERY, type, columns));
+
+        while (result.hasNext()) {
+
+            final Record record = result.next();
+            final String[] values = new String[fields.size()];
+            for (int i = 0; i < values.length; i++) {
+                final Value value = record.get(fields.get(i));
+                values[i] = value.isNull() ? null : value.asString();
+            }
+            nodes.add(Node.of(type, record.get("id").asLong(), values));
+        }
+        return nodes;
+    }
+
+    private static void createLinks(final GTRelationship relationship, final Map<String, List<Node>> nodes, final ResolverLinkWriter link_writer) {
+
+        final String query = String.format(MERGE_QUERY, relationship.relationship_type, relationship.actors, relationship.directed ? ">" : "");
+        final long links = findLinks(relationship, nodes, (node1, node2) -> link_writer.add(query, Map.of("from", node1.id, "to", node2.id)));
+
+        System.out.println("Found " + links + " " + relationship + " links @ " + LocalDateTime.now());
+    }
+
+    /**
+     * Passes each pair of records linked by the given relationship to the consumer.
+     *
+     * @param relationship - the relationship
+     * @param nodes - the records of each type
+     * @param consumer - called with the two records of each link
+     * @return the number of links found
+     */
+    static long findLinks(final GTRelationship relationship, final Map<String, List<Node>> nodes, final BiConsumer<Node, Node> consumer) {
+
+        // Group the second records on the fields that must match, omitting any with those fields null or "", as the queries' <> "" tests did.
+        final Map<List<String>, List<Node>> groups = new HashMap<>();
+        for (Node node : nodes.get(relationship.type2)) {
+            final List<String> key = node.getKey(relationship.key2);
+            if (key != null) groups.computeIfAbsent(key, k -> new ArrayList<>()).add(node);
+        }
+
+        long links = 0;
+
+        for (Node node1 : nodes.get(relationship.type1)) {
+
+            final List<String> key = node1.getKey(relationship.key1);
+            if (key == null) continue;
+
+            for (Node node2 : groups.getOrDefault(key, Collections.emptyList())) {
+
+                // Undirected links between records of the same type matched on the same fields would otherwise be found from both ends.
+                if (relationship.isSymmetric() && node1.id >= node2.id) continue;
+
+                if (relationship.condition.test(node1, node2)) {
+                    consumer.accept(node1, node2);
+                    links++;
+                }
+            }
+        }
+        return links;
+    }
+
+    private static GTRelationship link(final String relationship_type, final String actors, final String type1, final List<String> key1, final String type2, final List<String> key2) {
+        return new GTRelationship(relationship_type, actors, type1, key1, type2, key2);
+    }
+
+    /**
+     * @return a condition that the given fields of the two records are both present and different
+     */
+    private static BiPredicate<Node, Node> differ(final String field1, final String field2) {
+        return (a, b) -> isPresent(a.get(field1)) && isPresent(b.get(field2)) && !a.get(field1).equals(b.get(field2));
+    }
+
+    /**
+     * @return a condition that the given fields of the two records are both "", as in Neo4J's {@code a.field1 = ""}, which is not true of null
+     */
+    private static BiPredicate<Node, Node> missing(final String field1, final String field2) {
+        return (a, b) -> "".equals(a.get(field1)) && "".equals(b.get(field2));
+    }
+
+    /**
+     * @return a condition that the given fields of the two records are not equal, as in Neo4J's {@code a.field1 <> b.field2}, which is not true if either is null
+     */
+    private static BiPredicate<Node, Node> notSame(final String field1, final String field2) {
+        return (a, b) -> a.get(field1) != null && b.get(field2) != null && !a.get(field1).equals(b.get(field2));
+    }
+
+    private static boolean isPresent(final String value) {
+        return value != null && !value.isEmpty();
+    }
+
+    /**
+     * The identity fields of a record, any of which may be null if the record has no such property.
+     */
+    static class Node {
+
+        final long id;
+        final List<String> fields;
+        final String[] values;
+
+        Node(final long id, final List<String> fields, final String[] values) {
+            this.id = id;
+            this.fields = fields;
+            this.values = values;
+        }
+
+        /**
+         * @param type - the record type
+         * @param id - the Neo4J id of the record
+         * @param values - the values of the identity fields of the record type, in the order given in IDENTITY_FIELDS
+         * @return the record
+         */
+        static Node of(final String type, final long id, final String... values) {
+            return new Node(id, IDENTITY_FIELDS.get(type), values);
+        }
+
+        String get(final String field) {
+            return values[fields.indexOf(field)];
+        }
+
+        /**
+         * @return the values of the given fields, or null if any of them is null or ""
+         */
+        List<String> getKey(final List<String> key_fields) {
+
+            final List<String> key = new ArrayList<>(key_fields.size());
+            for (String field : key_fields) {
+                final String value = get(field);
+                if (!isPresent(value)) return null;
+                key.add(value);
+            }
+            return key;
+        }
+    }
+
+    /**
+     * A ground truth relationship between records of type1 and type2 whose key fields match, and which satisfy the condition.
+     * Conditions of relationships between records of the same type matched on the same fields must be symmetric.
+     */
+    static class GTRelationship {
+
+        final String relationship_type;
+        final String actors;
+        final String type1;
+        final List<String> key1;
+        final String type2;
+        final List<String> key2;
+
+        BiPredicate<Node, Node> condition = (a, b) -> true;
+        boolean directed = false;
+
+        GTRelationship(final String relationship_type, final String actors, final String type1, final List<String> key1, final String type2, final List<String> key2) {
+
+            this.relationship_type = relationship_type;
+            this.actors = actors;
+            this.type1 = type1;
+            this.key1 = key1;
+            this.type2 = type2;
+            this.key2 = key2;
+        }
+
+        GTRelationship where(final BiPredicate<Node, Node> condition) {
+            this.condition = condition;
+            return this;
+        }
+
+        GTRelationship directed() {
+            directed = true;
+            return this;
+        }
+
+        boolean isSymmetric() {
+            return !directed && type1.equals(type2) && key1.equals(key2);
+        }
+
+        @Override
+        public String toString() {
+            return relationship_type + " " + actors;
+        }
     }
-}
\ No newline at end of file
+}
@@ -39,8 +39,6 @@ import java.util.List;
  */
 public class NNs {
 
-    public static final double DISTANCE_THRESHOLD = 0.45;
-    public static final double THRESHOLD_DELTA = 0.05;
     private final BitBlasterSearchStructure<Birth> birth_bb;
     private final BitBlasterSearchStructure<Death> death_bb;
 
@@ -62,18 +60,11 @@ public class NNs {
 
     private <T extends LXP> List<T> getNNs(BitBlasterSearchStructure<T> bb, T search_record, int number_nns) {
 
-        List<DataDistance<T>> nns = new ArrayList<>();
-        double distance = DISTANCE_THRESHOLD;
-        int tries = 0;
-        while (nns.size() < number_nns + 1 && tries < 5) { // +1 is because the search record is returned too
-            nns = bb.findWithinThreshold(search_record, distance); // Finds matching births
-            distance += THRESHOLD_DELTA;
-            tries++;
-        }
+        List<DataDistance<T>> nns = bb.findNearest(search_record, number_nns + 1); // +1 is because the search record is returned too
         List<T> result = new ArrayList<>();
         // filter out the search record
         for (DataDistance<T> dd : nns) {
-            if (dd.value.getId() != search_record.getId()) {
+            if (!dd.value.getId().equals(search_record.getId())) {
                 result.add(dd.value);
             }
             if (result.size() == number_nns) {
@@ -19,6 +19,7 @@ package uk.ac.standrews.cs.population_linkage.groundTruthML;
 import uk.ac.standrews.cs.neoStorr.impl.LXP;
 import uk.ac.standrews.cs.population_linkage.characterisation.LinkStatus;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
+import uk.ac.standrews.cs.population_linkage.groundTruth.StratifiedPairSampling;
 import uk.ac.standrews.cs.population_records.RecordRepository;
 import uk.ac.standrews.cs.utilities.ClassificationMetrics;
 
@@ -28,6 +29,7 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Random;
 import java.util.concurrent.CountDownLatch;
 
 /**
@@ -52,16 +54,18 @@ public abstract class WeightedThresholdAnalysis {
     final PrintWriter distance_results_metadata_writer;
     private final Sample sample;                           // counts of TPFP etc.
     private final long[] pairs_evaluated;
+    private final long[] true_links_evaluated;
     private final long[] pairs_ignored;
     private final PrintWriter linkage_results_writer;
     private final PrintWriter distance_results_writer;
-    private int non_link_distance_counts;
-    private int link_distance_counts;
+    private long non_link_distance_counts;
+    private long link_distance_counts;
     private final double threshold;
     private int run_number;
     List<LXP> source_records;
     int number_of_records;
     boolean verbose = true;
+    StratifiedPairSampling sampling = new StratifiedPairSampling();
     private int records_processed = 0;
 
     WeightedThresholdAnalysis(final String repo_name, final String linkage_results_filename, final String distance_results_filename, final int number_of_records_to_be_checked, final int number_of_runs, final boolean allow_multiple_links, double threshold) throws IOException {
@@ -75,6 +79,7 @@ public abstract class WeightedThresholdAnalysis {
         this.threshold = threshold;
 
         pairs_evaluated = new long[number_of_runs];
+        true_links_evaluated = new long[number_of_runs];
         pairs_ignored = new long[number_of_runs];
         sample = new Sample();
 
@@ -112,6 +117,10 @@ public abstract class WeightedThresholdAnalysis {
         this.verbose = verbose;
     }
 
+    public void setSampling(final StratifiedPairSampling sampling) {
+        this.sampling = sampling;
+    }
+
     private double getMaxHeapinGB() {
 
         return (double) Runtime.getRuntime().maxMemory() / 1000000000;
@@ -144,6 +153,9 @@ public abstract class WeightedThresholdAnalysis {
 
     public void run() throws Exception {
 
+        // Skipping non-matching pairs would change which record is closest, so single links are decided over all pairs.
+        if (!allow_multiple_links) sampling = sampling.withoutNegativeSampling();
+
         printHeaders();
         printMetaData();
 
@@ -157,6 +169,11 @@ public abstract class WeightedThresholdAnalysis {
                 System.out.println("finished block: checked " + (block_index + 1) * BLOCK_SIZE + " records");
                 System.out.flush();
             }
+
+            if (sampling.isConverged(sample.tp, sample.fp, sample.fn)) {
+                if (verbose) System.out.println("converged");
+                break;
+            }
         }
 
         printSamples();
@@ -210,8 +227,12 @@ public abstract class WeightedThresholdAnalysis {
 
         double min_distance = 1.01;
 
+        final boolean sample_negatives = sampling.samplesNegatives();
+        final Random random = StratifiedPairSampling.getRandom(SEED, 0, record_index);
+
         Sample tentative_samples = null;
         boolean tentative_link_is_true_link = false;
+        double tentative_link_distance = 1.01; // not necessarily min_distance, which is also lowered by pairs that are not linked
 
         for (int j = 0; j < last_record_index; j++) { //******* Process all the records in the second source for each in block
 
@@ -219,45 +240,50 @@ public abstract class WeightedThresholdAnalysis {
 
                 LXP record2 = records2.get(j);
 
-                final double distance = measure.distance(record1, record2);
                 final LinkStatus link_status = isTrueMatch(record1, record2);
 
-                final boolean distance_is_closest_encountered = distance < min_distance;
-                final boolean link_is_viable = isViableLink(record1, record2);
+                if (!sample_negatives || link_status != LinkStatus.NOT_TRUE_MATCH || sampling.includeNegative(random)) {
 
-                if (link_status == LinkStatus.UNKNOWN) {
-                    updatePairsIgnoredCounts(increment_counts, run_number);
+                    final double distance = measure.distance(record1, record2);
 
-                } else {
+                    final boolean distance_is_closest_encountered = distance < min_distance;
+                    final boolean link_is_viable = isViableLink(record1, record2);
 
-                    final boolean is_true_link = link_status == LinkStatus.TRUE_MATCH;
+                    if (link_status == LinkStatus.UNKNOWN) {
+                        updatePairsIgnoredCounts(increment_counts, run_number);
 
-                    if (allow_multiple_links) {
-                        recordLinkDecisions(sample, distance, link_is_viable, is_true_link);
                     } else {
 
-                        if (distance_is_closest_encountered && link_is_viable) {
-
-                            // Undo any previous tentative link decision.
-                            undoTentativeLinkDecision(tentative_samples, min_distance, tentative_link_is_true_link);
+                        final boolean is_true_link = link_status == LinkStatus.TRUE_MATCH;
 
+                        if (allow_multiple_links) {
                             recordLinkDecisions(sample, distance, link_is_viable, is_true_link);
+                        } else {
 
-                            // Record these as tentative in case another closer record is found.
-                            tentative_samples = sample;
-                            tentative_link_is_true_link = is_true_link;
+                            if (distance_is_closest_encountered && link_is_viable) {
 
-                        } else {
-                            recordNegativeLinkDecisions(sample, is_true_link);
+                                // Undo any previous tentative link decision.
+                                undoTentativeLinkDecision(tentative_samples, tentative_link_distance, tentative_link_is_true_link);
+
+                                recordLinkDecisions(sample, distance, link_is_viable, is_true_link);
+
+                                // Record these as tentative in case another closer record is found.
+                                tentative_samples = sample;
+                                tentative_link_is_true_link = is_true_link;
+                                tentative_link_distance = distance;
+
+                            } else {
+                                recordNegativeLinkDecisions(sample, is_true_link);
+                            }
                         }
+
+                        updateTrueLinkCounts(distance, is_true_link);
+                        updatePairsEvaluatedCounts(increment_counts, run_number, is_true_link);
                     }
 
-                    updateTrueLinkCounts(distance, is_true_link);
-                    updatePairsEvaluatedCounts(increment_counts, run_number);
+                    if (distance_is_closest_encountered) min_distance = distance;
                 }
 
-                if (distance_is_closest_encountered) min_distance = distance;
-
                 run_number++;
                 if (run_number == number_of_runs) run_number = 0;
             }
@@ -271,13 +297,22 @@ public abstract class WeightedThresholdAnalysis {
         }
     }
 
-    private void updatePairsEvaluatedCounts(final boolean increment_counts, final int run_number) {
+    private void updatePairsEvaluatedCounts(final boolean increment_counts, final int run_number, final boolean is_true_link) {
 
         if (increment_counts) {
             pairs_evaluated[run_number]++;
+            if (is_true_link) true_links_evaluated[run_number]++;
         }
     }
 
+    /**
+     * @return the number of pairs evaluated in the given run, estimated over all pairs if non-matching pairs are sampled
+     */
+    private long getPairsEvaluated(final int run_number) {
+
+        return true_links_evaluated[run_number] + sampling.weightNegatives(pairs_evaluated[run_number] - true_links_evaluated[run_number]);
+    }
+
     private void updateTrueLinkCounts(final double distance, final boolean is_true_link) {
 
         if (is_true_link) {
@@ -337,8 +372,16 @@ public abstract class WeightedThresholdAnalysis {
 
         String measure_name = getMeasure().getMeasureName();
 
+        // Counts of non-matching pairs are weighted up to estimate those over all pairs.
+        final Sample weighted_sample = new Sample();
+
+        weighted_sample.tp = sample.tp;
+        weighted_sample.fp = sampling.weightNegatives(sample.fp);
+        weighted_sample.fn = sample.fn;
+        weighted_sample.tn = sampling.weightNegatives(sample.tn);
+
         for (int run_number = 0; run_number < number_of_runs; run_number++) {
-            printSample(run_number, measure_name, threshold, sample);
+            printSample(run_number, measure_name, threshold, weighted_sample);
         }
 
         printDistances(run_number, measure_name);
@@ -347,7 +390,7 @@ public abstract class WeightedThresholdAnalysis {
 
     private void printDistances(final int run_number, final String measure_name) {
 
-        printDistances(run_number, measure_name, false, this.non_link_distance_counts);
+        printDistances(run_number, measure_name, false, sampling.weightNegatives(this.non_link_distance_counts));
         printDistances(run_number, measure_name, true, link_distance_counts);
     }
 
@@ -413,7 +456,7 @@ public abstract class WeightedThresholdAnalysis {
         linkage_results_writer.print(DELIMIT);
         linkage_results_writer.print(records_processed);
         linkage_results_writer.print(DELIMIT);
-        linkage_results_writer.print(pairs_evaluated[run_number]);
+        linkage_results_writer.print(getPairsEvaluated(run_number));
         linkage_results_writer.print(DELIMIT);
         linkage_results_writer.print(pairs_ignored[run_number]);
         linkage_results_writer.print(DELIMIT);
@@ -439,7 +482,7 @@ public abstract class WeightedThresholdAnalysis {
         linkage_results_writer.flush();
     }
 
-    private void printDistances(final int run_number, final String measure_name, boolean links, int distances) {
+    private void printDistances(final int run_number, final String measure_name, boolean links, long distances) {
 
         distance_results_writer.print(LocalDateTime.now());
         distance_results_writer.print(DELIMIT);
@@ -447,7 +490,7 @@ public abstract class WeightedThresholdAnalysis {
         distance_results_writer.print(DELIMIT);
         distance_results_writer.print(records_processed);
         distance_results_writer.print(DELIMIT);
-        distance_results_writer.print(pairs_evaluated[run_number]);
+        distance_results_writer.print(getPairsEvaluated(run_number));
         distance_results_writer.print(DELIMIT);
         distance_results_writer.print(pairs_ignored[run_number]);
         distance_results_writer.print(DELIMIT);
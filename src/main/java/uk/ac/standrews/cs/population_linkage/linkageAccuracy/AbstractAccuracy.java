@@ -44,8 +44,12 @@ public abstract class AbstractAccuracy {
     }
 
     protected void report(long fpc,long tpc,long fnc,long all_pair_count) {
+        report(this.getClass().getSimpleName(), fpc, tpc, fnc, all_pair_count);
+    }
+
+    protected void report(String table_name, long fpc,long tpc,long fnc,long all_pair_count) {
 
-        System.out.println( this.getClass().getSimpleName() );
+        System.out.println( table_name );
 
         long tnc = all_pair_count - fpc - tpc - fnc;
 
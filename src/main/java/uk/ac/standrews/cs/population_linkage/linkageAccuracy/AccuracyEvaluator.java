@@ -0,0 +1,418 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.linkageAccuracy;
+
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Value;
+import uk.ac.standrews.cs.neoStorr.util.NeoDbCypherBridge;
+
+import java.util.*;
+
+/**
+ * Reports the accuracy tables of the classes in this package from one streamed read of each relationship type
+ * involved, rather than from three pattern counts over the whole graph per table.
+ *
+ * Each relationship is held as the pair of its node ids packed into a long, so that the links, ground truth and
+ * deletions for a table can be compared as sorted arrays. Pairs of records of the same type are held with the lower
+ * id first, since the tests for the existence of a relationship in the original queries are undirected.
+ */
+public class AccuracyEvaluator extends AbstractAccuracy {
+
+    private static final String EDGES_QUERY = "MATCH (a)-[r:%s]->(b) RETURN id(a) AS a, head(labels(a)) AS a_label, id(b) AS b, head(labels(b)) AS b_label, r.actors AS actors";
+    private static final String DELETED = "DELETED";
+
+    private static final List<String> LABELS = List.of("Birth", "Death", "Marriage");
+    private static final Map<String, String> COUNT_QUERIES = Map.of("Birth", ALL_BIRTHS, "Death", ALL_DEATHS, "Marriage", ALL_MARRIAGES);
+
+    public static final List<Table> TABLES = List.of(
+
+            table(BirthBirthHalfSiblingAccuracy.class, "Birth", "Birth").links("HALF_SIBLING", "Child-Child").groundTruth("GT_HALF_SIBLING", "Child-Child"),
+            table(BirthBirthSiblingAccuracy.class, "Birth", "Birth").links("SIBLING", "Child-Child").groundTruth("GT_SIBLING", "Child-Child").excludingDeleted(),
+            table(BirthBrideOwnMarriageAccuracy.class, "Birth", "Marriage").links("ID", "Child-Bride").groundTruth("GT_ID", "Child-Bride").excludingDeleted(),
+            table(BirthBrideSiblingBundleAccuracy.class, "Birth", "Marriage").links("SIBLING", "Child-Bride").groundTruth("GT_SIBLING", "Child-Bride"),
+            table(BirthDeathSiblingAccuracy.class, "Birth", "Death").links("SIBLING", "Deceased-Child").groundTruth("GT_SIBLING", "Child-Deceased").excludingDeleted().undirected(),
+            table(BirthGroomOwnMarriageBundleAccuracy.class, "Birth", "Marriage").links("ID", "Child-Groom").groundTruth("GT_ID", "Child-Groom").excludingDeleted(),
+            table(BirthGroomSiblingBundleAccuracy.class, "Birth", "Marriage").links("SIBLING", "Child-Groom").groundTruth("GT_SIBLING", "Child-Groom"),
+            table(BirthOwnDeathAccuracy.class, "Birth", "Death").links("ID", "Child-Deceased").groundTruth("GT_ID", "Child-Deceased").excludingDeleted(),
+            table(BirthParentsMarriageAccuracy.class, "Birth", "Marriage").links("ID", "Child-Mother", "Child-Father").groundTruth("GT_ID", "Child-Couple").excludingDeleted().undirected(),
+            table(BrideBrideIdentityAccuracy.class, "Marriage", "Marriage").links("ID", "Bride-Bride").groundTruth("GT_ID", "Bride-Bride"),
+            table(BrideBrideSiblingBundleAccuracy.class, "Marriage", "Marriage").links("SIBLING", "Bride-Bride").groundTruth("GT_SIBLING", "Bride-Bride"),
+            table(BrideGroomSiblingBundleAccuracy.class, "Marriage", "Marriage").links("SIBLING", "Groom-Bride").groundTruth("GT_SIBLING", "Bride-Groom"),
+            table(BrideMarriageParentsMarriageAccuracy.class, "Marriage", "Marriage").links("ID", "Bride-Couple").groundTruth("GT_ID", "Bride-Couple").excludingDeleted(),
+            table(DeathBrideOwnMarriageAccuracy.class, "Death", "Marriage").links("ID", "Deceased-Bride").groundTruth("GT_ID", "Deceased-Bride"),
+            table(DeathBrideSiblingBundleAccuracy.class, "Death", "Marriage").links("SIBLING", "Deceased-Bride").groundTruth("GT_SIBLING", "Deceased-Bride"),
+            table(DeathDeathSiblingAccuracy.class, "Death", "Death").links("SIBLING", "Deceased-Deceased").groundTruth("GT_SIBLING", "Deceased-Deceased").excludingDeleted(),
+            table(DeathGroomOwnMarriageAccuracy.class, "Death", "Marriage").links("ID", "Deceased-Groom").groundTruth("GT_ID", "Deceased-Groom"),
+            table(DeathGroomSiblingBundleAccuracy.class, "Death", "Marriage").links("SIBLING", "Deceased-Groom").groundTruth("GT_SIBLING", "Deceased-Groom"),
+            table(GroomGroomIdentityAccuracy.class, "Marriage", "Marriage").links("ID", "Groom-Groom").groundTruth("GT_ID", "Groom-Groom"),
+            table(GroomGroomSiblingBundleAccuracy.class, "Marriage", "Marriage").links("SIBLING", "Groom-Groom").groundTruth("GT_SIBLING", "Groom-Groom"),
+            table(GroomMarriageParentsMarriageAccuracy.class, "Marriage", "Marriage").links("ID", "Groom-Couple").groundTruth("GT_ID", "Groom-Couple").excludingDeleted()
+    );
+
+    private final Map<String, Map<String, Edges>> edges = new HashMap<>();  // by relationship type then actors
+    private final Map<String, Long> record_counts = new HashMap<>();
+
+    public AccuracyEvaluator(NeoDbCypherBridge bridge) {
+        super(bridge);
+    }
+
+    /**
+     * Reports all the tables, reading each relationship type once.
+     */
+    public void reportAll() {
+        report(TABLES);
+    }
+
+    /**
+     * Reports the tables of the given accuracy classes, in the order given, reading each relationship type they involve once.
+     */
+    @SafeVarargs
+    public final void report(Class<? extends AbstractAccuracy>... accuracies) {
+
+        final List<Table> tables = new ArrayList<>();
+        for (Class<? extends AbstractAccuracy> accuracy : accuracies) {
+            tables.add(getTable(accuracy));
+        }
+        report(tables);
+    }
+
+    private void report(final List<Table> tables) {
+
+        // Each report reflects the graph as it is now, for example before and after resolution.
+        edges.clear();
+        record_counts.clear();
+
+        final Set<String> relationship_types = new LinkedHashSet<>();
+        for (Table table : tables) {
+            relationship_types.add(table.link_type);
+            relationship_types.add(table.gt_type);
+            if (table.excludes_deleted) relationship_types.add(DELETED);
+        }
+
+        try (Session session = bridge.getNewSession()) {
+            for (String relationship_type : relationship_types) {
+                readEdges(session, relationship_type);
+            }
+        }
+
+        for (Table table : tables) {
+            evaluate(table);
+        }
+    }
+
+    private void evaluate(final Table table) {
+
+        final long[] counts = count(table);
+        report(table.name, counts[1], counts[0], counts[2], getAllPairCount(table));
+    }
+
+    /**
+     * @return the true positive, false positive and false negative counts of the table, over the relationships read
+     */
+    long[] count(final Table table) {
+
+        final long[] ground_truth = getPairs(table, table.gt_type, table.gt_actors);
+        final long[] deleted = table.excludes_deleted ? getPairs(table, DELETED, null) : new long[0];
+
+        final long[][] links = new long[table.link_actors.size()][];
+        for (int i = 0; i < links.length; i++) {
+            links[i] = getPairs(table, table.link_type, table.link_actors.get(i));
+        }
+
+        long tpc = 0;
+        long fpc = 0;
+        long fnc = 0;
+
+        final long[] pairs = new long[2];
+
+        // Each link with the first actors is counted once for every combination of links with the other actors between the same records.
+        final Edges counted_links = getEdges(table.link_type, table.link_actors.get(0));
+        for (int i = 0; i < counted_links.size; i++) {
+            for (int j = 0, n = table.match(counted_links, i, pairs); j < n; j++) {
+
+                long matches = 1;
+                for (int k = 1; k < links.length; k++) {
+                    matches *= count(links[k], pairs[j]);
+                }
+
+                if (matches > 0 && !contains(deleted, pairs[j])) {
+                    if (contains(ground_truth, pairs[j])) tpc += matches;
+                    else fpc += matches;
+                }
+            }
+        }
+
+        final Edges counted_ground_truth = getEdges(table.gt_type, table.gt_actors);
+        for (int i = 0; i < counted_ground_truth.size; i++) {
+            for (int j = 0, n = table.match(counted_ground_truth, i, pairs); j < n; j++) {
+
+                if (!linkedByAny(links, pairs[j]) || contains(deleted, pairs[j])) fnc++;
+            }
+        }
+
+        return new long[]{tpc, fpc, fnc};
+    }
+
+    private long getAllPairCount(final Table table) {
+
+        final long count1 = getRecordCount(table.label1);
+        return table.label1.equals(table.label2) ? nChoose2(count1) : count1 * getRecordCount(table.label2);
+    }
+
+    private long getRecordCount(final String label) {
+        return record_counts.computeIfAbsent(label, l -> doQuery(COUNT_QUERIES.get(l)));
+    }
+
+    private void readEdges(final Session session, final String relationship_type) {
+
+        final Map<String, Edges> edges_by_actors = new HashMap<>();
+        final Result result = session.run(String.format(EDGES_QUERY, relationship_type));
+
+        while (result.hasNext()) {
+
+            final Record record = result.next();
+            final Value actors = record.get("actors");
+
+            addEdge(relationship_type, actors.isNull() ? null : actors.asString(),
+                    record.get("a").asLong(), getLabel(record.get("a_label")),
+                    record.get("b").asLong(), getLabel(record.get("b_label")));
+        }
+    }
+
+    /**
+     * Adds a relationship of the given type and actors, which may be null, from node id1 with label1 to node id2 with label2.
+     */
+    void addEdge(final String relationship_type, final String actors, final long id1, final String label1, final long id2, final String label2) {
+
+        edges.computeIfAbsent(relationship_type, t -> new HashMap<>())
+                .computeIfAbsent(actors == null ? "" : actors, a -> new Edges())
+                .add(id1, getLabelIndex(label1), id2, getLabelIndex(label2));
+    }
+
+    private Edges getEdges(final String relationship_type, final String actors) {
+        return edges.getOrDefault(relationship_type, Map.of()).getOrDefault(actors, new Edges());
+    }
+
+    /**
+     * @return the sorted pairs of records of the table's types related by the given relationship in either direction,
+     * with all actors if actors is null
+     */
+    private long[] getPairs(final Table table, final String relationship_type, final String actors) {
+
+        final Collection<Edges> selected = actors == null ? edges.getOrDefault(relationship_type, Map.of()).values() : List.of(getEdges(relationship_type, actors));
+
+        int size = 0;
+        for (Edges e : selected) size += e.size;
+
+        long[] pairs = new long[size];
+        int count = 0;
+
+        for (Edges e : selected) {
+            for (int i = 0; i < e.size; i++) {
+                final long pair = table.pair(e, i);
+                if (pair != -1) pairs[count++] = pair;
+            }
+        }
+
+        pairs = Arrays.copyOf(pairs, count);
+        Arrays.sort(pairs);
+        return pairs;
+    }
+
+    private static boolean linkedByAny(final long[][] links, final long pair) {
+
+        for (long[] pairs : links) {
+            if (contains(pairs, pair)) return true;
+        }
+        return false;
+    }
+
+    private static boolean contains(final long[] sorted_pairs, final long pair) {
+        return Arrays.binarySearch(sorted_pairs, pair) >= 0;
+    }
+
+    private static int count(final long[] sorted_pairs, final long pair) {
+
+        int index = Arrays.binarySearch(sorted_pairs, pair);
+        if (index < 0) return 0;
+
+        int first = index;
+        int last = index;
+        while (first > 0 && sorted_pairs[first - 1] == pair) first--;
+        while (last < sorted_pairs.length - 1 && sorted_pairs[last + 1] == pair) last++;
+
+        return last - first + 1;
+    }
+
+    private static String getLabel(final Value label) {
+        return label.isNull() ? null : label.asString();
+    }
+
+    private static byte getLabelIndex(final String label) {
+        return (byte) (label == null ? -1 : LABELS.indexOf(label));
+    }
+
+    private static long pack(final long id1, final long id2) {
+
+        if (id1 >>> 32 != 0 || id2 >>> 32 != 0) {
+            throw new RuntimeException("node ids too large to pack: " + id1 + ", " + id2);
+        }
+        return id1 << 32 | id2;
+    }
+
+    private static Table getTable(final Class<? extends AbstractAccuracy> accuracy) {
+
+        for (Table table : TABLES) {
+            if (table.name.equals(accuracy.getSimpleName())) return table;
+        }
+        throw new RuntimeException("no accuracy table for " + accuracy.getSimpleName());
+    }
+
+    private static Table table(final Class<? extends AbstractAccuracy> accuracy, final String label1, final String label2) {
+        return new Table(accuracy.getSimpleName(), label1, label2);
+    }
+
+    public static void main(String[] args) {
+        try (NeoDbCypherBridge bridge = new NeoDbCypherBridge()) {
+            new AccuracyEvaluator(bridge).reportAll();
+        }
+    }
+
+    /**
+     * The relationships read for one relationship type and actors, as packed node id pairs with the labels of the nodes.
+     */
+    private static class Edges {
+
+        long[] ids = new long[16];
+        byte[] labels1 = new byte[16];
+        byte[] labels2 = new byte[16];
+        int size = 0;
+
+        void add(final long id1, final byte label1, final long id2, final byte label2) {
+
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                labels1 = Arrays.copyOf(labels1, size * 2);
+                labels2 = Arrays.copyOf(labels2, size * 2);
+            }
+            ids[size] = pack(id1, id2);
+            labels1[size] = label1;
+            labels2[size] = label2;
+            size++;
+        }
+
+        long id1(final int i) {
+            return ids[i] >>> 32;
+        }
+
+        long id2(final int i) {
+            return ids[i] & 0xFFFFFFFFL;
+        }
+    }
+
+    /**
+     * An accuracy table: links of the given type and actors from records with label1 to records with label2 are
+     * counted as true or false positives according to whether a ground truth relationship exists between the records
+     * in either direction, and ground truth relationships as false negatives if no link exists in either direction.
+     * Where deletions are excluded, links between records that have been deleted are not counted, and ground truth
+     * relationships between them are counted as false negatives. Where there are several link actors, a link requires
+     * all of them, and is missing if none of them is present.
+     */
+    public static class Table {
+
+        final String name;
+        final String label1;
+        final String label2;
+        final byte label_index1;
+        final byte label_index2;
+
+        String link_type;
+        List<String> link_actors;
+        String gt_type;
+        String gt_actors;
+        boolean excludes_deleted = false;
+        boolean directed = true;
+
+        Table(final String name, final String label1, final String label2) {
+
+            this.name = name;
+            this.label1 = label1;
+            this.label2 = label2;
+            label_index1 = (byte) LABELS.indexOf(label1);
+            label_index2 = (byte) LABELS.indexOf(label2);
+        }
+
+        Table links(final String link_type, final String... link_actors) {
+            this.link_type = link_type;
+            this.link_actors = List.of(link_actors);
+            return this;
+        }
+
+        Table groundTruth(final String gt_type, final String gt_actors) {
+            this.gt_type = gt_type;
+            this.gt_actors = gt_actors;
+            return this;
+        }
+
+        Table excludingDeleted() {
+            excludes_deleted = true;
+            return this;
+        }
+
+        /**
+         * Counts links and ground truth relationships in either direction, as the original queries do for records of different types.
+         */
+        Table undirected() {
+            directed = false;
+            return this;
+        }
+
+        /**
+         * Finds the pairs matched by a relationship counted in this table: once if it runs from label1 to label2, and
+         * again in the other direction if undirected.
+         *
+         * @return the number of pairs written to pairs
+         */
+        int match(final Edges edges, final int i, final long[] pairs) {
+
+            int count = 0;
+            if (hasLabels(edges.labels1[i], edges.labels2[i])) pairs[count++] = pair(edges.id1(i), edges.id2(i));
+            if (!directed && hasLabels(edges.labels2[i], edges.labels1[i])) pairs[count++] = pair(edges.id2(i), edges.id1(i));
+            return count;
+        }
+
+        /**
+         * @return the pair related by a relationship in either direction, or -1 if it does not relate records of this table's types
+         */
+        long pair(final Edges edges, final int i) {
+
+            if (hasLabels(edges.labels1[i], edges.labels2[i])) return pair(edges.id1(i), edges.id2(i));
+            if (hasLabels(edges.labels2[i], edges.labels1[i])) return pair(edges.id2(i), edges.id1(i));
+            return -1;
+        }
+
+        private boolean hasLabels(final byte first_label, final byte second_label) {
+            return first_label == label_index1 && second_label == label_index2;
+        }
+
+        private long pair(final long id1, final long id2) {
+            return label1.equals(label2) ? pack(Math.min(id1, id2), Math.max(id1, id2)) : pack(id1, id2);
+        }
+    }
+}
@@ -20,25 +20,13 @@ import uk.ac.standrews.cs.neoStorr.util.NeoDbCypherBridge;
 
 public class BirthBrideOwnMarriageAccuracy extends AbstractAccuracy {
 
-    private static final String BIRTH_BRIDE_ID_TPC = "MATCH (b:Birth)-[r:ID {actors: \"Child-Bride\"}]->(m:Marriage) WHERE (b)-[:GT_ID {actors: \"Child-Bride\"}]-(m) AND NOT (b)-[:DELETED]-(m) return count(r)";
-    private static final String BIRTH_BRIDE_ID_FPC = "MATCH (b:Birth)-[r:ID {actors: \"Child-Bride\"}]->(m:Marriage) WHERE NOT (b)-[:GT_ID {actors: \"Child-Bride\"}]-(m) AND NOT (b)-[:DELETED]-(m) return count(r)";
-    private static final String BIRTH_BRIDE_ID_FNC = "MATCH (b:Birth)-[r:GT_ID {actors: \"Child-Bride\"}]->(m:Marriage) WHERE NOT (b)-[r:ID {actors: \"Child-Bride\"}]-(m) OR (b)-[:DELETED]-(m) return count(r)";
-
     public BirthBrideOwnMarriageAccuracy(NeoDbCypherBridge bridge) {
         super(bridge);
         doqueries();
     }
 
     private void doqueries() {
-        long tpc = doQuery(BIRTH_BRIDE_ID_TPC);
-        long fpc = doQuery(BIRTH_BRIDE_ID_FPC);
-        long fnc = doQuery(BIRTH_BRIDE_ID_FNC);
-
-        long birth_count = doQuery( ALL_BIRTHS );
-        long marriage_count = doQuery( ALL_MARRIAGES );
-        long all_pair_count = birth_count*marriage_count;
-
-        report(fpc,tpc,fnc,all_pair_count);
+        new AccuracyEvaluator(bridge).report(BirthBrideOwnMarriageAccuracy.class);
     }
 
     public static void main(String[] args) {
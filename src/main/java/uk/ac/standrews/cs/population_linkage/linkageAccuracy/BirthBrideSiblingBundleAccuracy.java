@@ -20,24 +20,12 @@ import uk.ac.standrews.cs.neoStorr.util.NeoDbCypherBridge;
 
 public class BirthBrideSiblingBundleAccuracy extends AbstractAccuracy {
 
-    private static final String BIRTH_BRIDE_SIBLING_TPC = "MATCH (b:Birth)-[r:SIBLING {actors:\"Child-Bride\"}]->(m:Marriage) WHERE (b)-[:GT_SIBLING {actors:\"Child-Bride\"}]-(m) return count(r)";
-    private static final String BIRTH_BRIDE_SIBLING_FPC = "MATCH (b:Birth)-[r:SIBLING {actors:\"Child-Bride\"}]->(m:Marriage) WHERE NOT (b)-[:GT_SIBLING {actors:\"Child-Bride\"}]-(m) return count(r)";
-    private static final String BIRTH_BRIDE_SIBLING_FNC = "MATCH (b:Birth)-[r:GT_SIBLING {actors:\"Child-Bride\"}]->(m:Marriage) WHERE NOT (b)-[:SIBLING {actors:\"Child-Bride\"}]-(m) return count(r)";
-
     public BirthBrideSiblingBundleAccuracy(NeoDbCypherBridge bridge) {
         super(bridge);
     }
 
     private void doqueries() {
-        long tpc = doQuery(BIRTH_BRIDE_SIBLING_TPC);
-        long fpc = doQuery(BIRTH_BRIDE_SIBLING_FPC);
-        long fnc = doQuery(BIRTH_BRIDE_SIBLING_FNC);
-
-        long birth_count = doQuery( ALL_BIRTHS );
-        long marriage_count = doQuery( ALL_MARRIAGES );
-        long all_pair_count = birth_count*marriage_count;
-
-        report(fpc,tpc,fnc,all_pair_count);
+        new AccuracyEvaluator(bridge).report(BirthBrideSiblingBundleAccuracy.class);
     }
 
     public static void main(String[] args) {
@@ -20,25 +20,13 @@ import uk.ac.standrews.cs.neoStorr.util.NeoDbCypherBridge;
 
 public class BirthDeathSiblingAccuracy extends AbstractAccuracy {
 
-    private static final String BIRTH_DEATH_SIBLING_TPC = "MATCH (b:Birth)-[r:SIBLING {actors: \"Deceased-Child\"}]-(d:Death) WHERE (b)-[:GT_SIBLING {actors: \"Child-Deceased\"}]-(d) AND NOT (b)-[:DELETED]-(d) return count(r)";
-    private static final String BIRTH_DEATH_SIBLING_FPC = "MATCH (b:Birth)-[r:SIBLING {actors: \"Deceased-Child\"}]-(d:Death) WHERE NOT (b)-[:GT_SIBLING {actors: \"Child-Deceased\"}]-(d) AND NOT (b)-[:DELETED]-(d) return count(r)";
-    private static final String BIRTH_DEATH_SIBLING_FNC = "MATCH (b:Birth)-[r:GT_SIBLING {actors: \"Child-Deceased\"}]-(d:Death) WHERE NOT (b)-[:SIBLING {actors: \"Deceased-Child\"}]-(d) OR (b)-[:DELETED]-(d) return count(r)";
-
     public BirthDeathSiblingAccuracy(NeoDbCypherBridge bridge) {
         super(bridge);
         doqueries();
     }
 
     private void doqueries() {
-        long fpc = doQuery(BIRTH_DEATH_SIBLING_FPC);
-        long tpc = doQuery(BIRTH_DEATH_SIBLING_TPC);
-        long fnc = doQuery(BIRTH_DEATH_SIBLING_FNC);
-
-        long birth_count = doQuery( ALL_BIRTHS );
-        long death_count = doQuery( ALL_DEATHS );
-        long all_pair_count = birth_count*death_count;
-
-        report(fpc,tpc,fnc,all_pair_count);
+        new AccuracyEvaluator(bridge).report(BirthDeathSiblingAccuracy.class);
     }
 
     public static void main(String[] args) {
@@ -20,25 +20,13 @@ import uk.ac.standrews.cs.neoStorr.util.NeoDbCypherBridge;
 
 public class BirthOwnDeathAccuracy extends AbstractAccuracy {
 
-    private static final String BIRTH_DEATH_ID_TPC = "MATCH (b:Birth)-[r:ID {actors: \"Child-Deceased\"}]->(d:Death) WHERE (b)-[:GT_ID {actors: \"Child-Deceased\"}]-(d) AND NOT (b)-[:DELETED]-(d) return count(r)";
-    private static final String BIRTH_DEATH_ID_FPC = "MATCH (b:Birth)-[r:ID {actors: \"Child-Deceased\"}]->(d:Death) WHERE NOT (b)-[:GT_ID {actors: \"Child-Deceased\"}]-(d) AND NOT (b)-[:DELETED]-(d) return count(r)";
-    private static final String BIRTH_DEATH_ID_FNC = "MATCH (b:Birth)-[r:GT_ID {actors: \"Child-Deceased\"}]->(d:Death) WHERE NOT (b)-[:ID {actors: \"Child-Deceased\"}]-(d) OR (b)-[:DELETED]-(d) return count(r)";
-
     public BirthOwnDeathAccuracy(NeoDbCypherBridge bridge) {
         super(bridge);
         doqueries();
     }
 
     private void doqueries() {
-        long tpc = doQuery(BIRTH_DEATH_ID_TPC);
-        long fpc = doQuery(BIRTH_DEATH_ID_FPC);
-        long fnc = doQuery(BIRTH_DEATH_ID_FNC);
-
-        long birth_count = doQuery( ALL_BIRTHS );
-        long death_count = doQuery( ALL_DEATHS );
-        long all_pair_count = birth_count*death_count;
-
-        report(fpc,tpc,fnc,all_pair_count);
+        new AccuracyEvaluator(bridge).report(BirthOwnDeathAccuracy.class);
     }
 
     public static void main(String[] args) {
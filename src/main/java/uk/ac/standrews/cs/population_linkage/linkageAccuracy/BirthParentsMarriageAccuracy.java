@@ -20,10 +20,6 @@ import uk.ac.standrews.cs.neoStorr.util.NeoDbCypherBridge;
 
 public class BirthParentsMarriageAccuracy extends AbstractAccuracy {
 
-    private static final String BIRTH_PARENTS_MARRIAGE_TPC = "MATCH (b:Birth)-[r:ID {actors: \"Child-Mother\"}]-(m:Marriage), (b)-[:ID {actors: \"Child-Father\"}]-(m) WHERE (b)-[:GT_ID {actors: \"Child-Couple\"}]-(m) AND NOT (b)-[:DELETED]-(m) return count(r)";
-    private static final String BIRTH_PARENTS_MARRIAGE_FPC = "MATCH (b:Birth)-[r:ID {actors: \"Child-Mother\"}]-(m:Marriage), (b)-[:ID {actors: \"Child-Father\"}]-(m) WHERE NOT (b)-[:GT_ID {actors: \"Child-Couple\"}]-(m) AND NOT (b)-[:DELETED]-(m) return count(r)";
-    private static final String BIRTH_PARENTS_MARRIAGE_FNC = "MATCH (b:Birth)-[r:GT_ID {actors: \"Child-Couple\"}]-(m:Marriage) WHERE NOT (b)-[:ID {actors: \"Child-Mother\"}]-(m) and NOT (b)-[:ID {actors: \"Child-Father\"}]-(m) OR (b)-[:DELETED]-(m)  return count(r)";
-
     // FATHER
     // MOTHER
     // don't know which
@@ -34,15 +30,7 @@ public class BirthParentsMarriageAccuracy extends AbstractAccuracy {
     }
 
     private void doqueries() {
-        long tpc = doQuery(BIRTH_PARENTS_MARRIAGE_TPC);
-        long fpc = doQuery(BIRTH_PARENTS_MARRIAGE_FPC);
-        long fnc = doQuery(BIRTH_PARENTS_MARRIAGE_FNC);
-
-        long birth_count = doQuery( ALL_BIRTHS );
-        long marriage_count = doQuery( ALL_MARRIAGES );
-        long all_pair_count = birth_count*marriage_count;
-
-        report(fpc,tpc,fnc,all_pair_count);
+        new AccuracyEvaluator(bridge).report(BirthParentsMarriageAccuracy.class);
     }
 
     public static void main(String[] args) {
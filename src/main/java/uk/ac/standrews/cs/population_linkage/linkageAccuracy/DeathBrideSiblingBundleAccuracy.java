@@ -20,24 +20,12 @@ import uk.ac.standrews.cs.neoStorr.util.NeoDbCypherBridge;
 
 public class DeathBrideSiblingBundleAccuracy extends AbstractAccuracy {
 
-    private static final String DEATH_BRIDE_SIBLING_TPC = "MATCH (d:Death)-[r:SIBLING {actors: \"Deceased-Bride\"}]->(m:Marriage) WHERE (d)-[:GT_SIBLING {actors: \"Deceased-Bride\"}]-(m) return count(r)";
-    private static final String DEATH_BRIDE_SIBLING_FPC = "MATCH (d:Death)-[r:SIBLING {actors: \"Deceased-Bride\"}]->(m:Marriage) WHERE NOT (d)-[:GT_SIBLING {actors: \"Deceased-Bride\"}]-(m) return count(r)";
-    private static final String DEATH_BRIDE_SIBLING_FNC = "MATCH (d:Death)-[r:GT_SIBLING {actors: \"Deceased-Bride\"}]->(m:Marriage) WHERE NOT (d)-[:SIBLING {actors: \"Deceased-Bride\"}]-(m) return count(r)";
-
     public DeathBrideSiblingBundleAccuracy(NeoDbCypherBridge bridge) {
         super(bridge);
     }
 
     private void doqueries() {
-        long tpc = doQuery(DEATH_BRIDE_SIBLING_TPC);
-        long fpc = doQuery(DEATH_BRIDE_SIBLING_FPC);
-        long fnc = doQuery(DEATH_BRIDE_SIBLING_FNC);
-
-        long death_count = doQuery( ALL_DEATHS );
-        long marriage_count = doQuery( ALL_MARRIAGES );
-        long all_pair_count = death_count*marriage_count;
-
-        report(fpc,tpc,fnc,all_pair_count);
+        new AccuracyEvaluator(bridge).report(DeathBrideSiblingBundleAccuracy.class);
     }
 
     public static void main(String[] args) {
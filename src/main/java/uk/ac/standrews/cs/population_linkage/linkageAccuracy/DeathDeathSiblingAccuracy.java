@@ -20,24 +20,13 @@ import uk.ac.standrews.cs.neoStorr.util.NeoDbCypherBridge;
 
 public class DeathDeathSiblingAccuracy extends AbstractAccuracy {
 
-    private static final String DEATH_DEATH_SIBLING_TPC = "MATCH (d1:Death)-[r:SIBLING {actors: \"Deceased-Deceased\"}]->(d2:Death) WHERE (d1)-[:GT_SIBLING {actors: \"Deceased-Deceased\"}]-(d2) AND NOT (d1)-[:DELETED]-(d2) return count(r)";
-    private static final String DEATH_DEATH_SIBLING_FPC = "MATCH (d1:Death)-[r:SIBLING {actors: \"Deceased-Deceased\"}]->(d2:Death) WHERE NOT (d1)-[:GT_SIBLING {actors: \"Deceased-Deceased\"}]-(d2) AND NOT (d1)-[:DELETED]-(d2) return count(r)";
-    private static final String DEATH_DEATH_SIBLING_FNC = "MATCH (d1:Death)-[r:GT_SIBLING {actors: \"Deceased-Deceased\"}]->(d2:Death) WHERE NOT (d1)-[:SIBLING {actors: \"Deceased-Deceased\"}]-(d2) OR (d1)-[:DELETED]-(d2) return count(r)";
-
     public DeathDeathSiblingAccuracy(NeoDbCypherBridge bridge) {
         super(bridge);
         doqueries();
     }
 
     private void doqueries() {
-        long fpc = doQuery(DEATH_DEATH_SIBLING_FPC);
-        long tpc = doQuery(DEATH_DEATH_SIBLING_TPC);
-        long fnc = doQuery(DEATH_DEATH_SIBLING_FNC);
-
-        long death_count = doQuery( ALL_DEATHS );
-        long all_pair_count = nChoose2( death_count );
-
-        report(fpc,tpc,fnc,all_pair_count);
+        new AccuracyEvaluator(bridge).report(DeathDeathSiblingAccuracy.class);
     }
 
 
@@ -20,24 +20,12 @@ import uk.ac.standrews.cs.neoStorr.util.NeoDbCypherBridge;
 
 public class DeathGroomOwnMarriageAccuracy extends AbstractAccuracy {
 
-    private static final String DEATH_GROOM_ID_TPC = "MATCH (d:Death)-[r:ID {actors: \"Deceased-Groom\"}]->(m:Marriage) WHERE (d)-[:GT_ID {actors: \"Deceased-Groom\"}]-(m) return count(r)";
-    private static final String DEATH_GROOM_ID_FPC = "MATCH (d:Death)-[r:ID {actors: \"Deceased-Groom\"}]->(m:Marriage) WHERE NOT (d)-[:GT_ID {actors: \"Deceased-Groom\"}]-(m) return count(r)";
-    private static final String DEATH_GROOM_ID_FNC = "MATCH (d:Death)-[r:GT_ID {actors: \"Deceased-Groom\"}]->(m:Marriage) WHERE NOT (d)-[:ID {actors: \"Deceased-Groom\"}]-(m) return count(r)";
-
     public DeathGroomOwnMarriageAccuracy(NeoDbCypherBridge bridge) {
         super(bridge);
     }
 
     private void doqueries() {
-        long tpc = doQuery(DEATH_GROOM_ID_TPC);
-        long fpc = doQuery(DEATH_GROOM_ID_FPC);
-        long fnc = doQuery(DEATH_GROOM_ID_FNC);
-
-        long death_count = doQuery( ALL_DEATHS );
-        long marriage_count = doQuery( ALL_MARRIAGES );
-        long all_pair_count = death_count*marriage_count;
-
-        report(fpc,tpc,fnc,all_pair_count);
+        new AccuracyEvaluator(bridge).report(DeathGroomOwnMarriageAccuracy.class);
     }
 
     public static void main(String[] args) {
@@ -20,23 +20,12 @@ import uk.ac.standrews.cs.neoStorr.util.NeoDbCypherBridge;
 
 public class GroomGroomIdentityAccuracy extends AbstractAccuracy {
 
-    private static final String GROOM_GROOM_ID_TPC = "MATCH (m1:Marriage)-[r:ID {actors: \"Groom-Groom\"}]->(m2:Marriage) WHERE (m1)-[:GT_ID {actors: \"Groom-Groom\"}]-(m2) return count(r)";
-    private static final String GROOM_GROOM_ID_FPC = "MATCH (m1:Marriage)-[r:ID {actors: \"Groom-Groom\"}]->(m2:Marriage) WHERE NOT (m1)-[:GT_ID {actors: \"Groom-Groom\"}]-(m2) return count(r)";
-    private static final String GROOM_GROOM_ID_FNC = "MATCH (m1:Marriage)-[r:GT_ID {actors: \"Groom-Groom\"}]->(m2:Marriage) WHERE NOT (m1)-[:ID {actors: \"Groom-Groom\"}]-(m2) return count(r)";
-
     public GroomGroomIdentityAccuracy(NeoDbCypherBridge bridge) {
         super(bridge);
     }
 
     private void doqueries() {
-        long tpc = doQuery(GROOM_GROOM_ID_TPC);
-        long fpc = doQuery(GROOM_GROOM_ID_FPC);
-        long fnc = doQuery(GROOM_GROOM_ID_FNC);
-
-        long marriage_count = doQuery( ALL_MARRIAGES );
-        long all_pair_count = nChoose2( marriage_count );
-
-        report(fpc,tpc,fnc,all_pair_count);
+        new AccuracyEvaluator(bridge).report(GroomGroomIdentityAccuracy.class);
     }
 
     public static void main(String[] args) {
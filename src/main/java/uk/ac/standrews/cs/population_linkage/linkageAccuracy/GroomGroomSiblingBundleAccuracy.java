@@ -20,23 +20,12 @@ import uk.ac.standrews.cs.neoStorr.util.NeoDbCypherBridge;
 
 public class GroomGroomSiblingBundleAccuracy extends AbstractAccuracy {
 
-    private static final String GROOM_GROOM_SIBLING_TPC = "MATCH (m1:Marriage)-[r:SIBLING {actors: \"Groom-Groom\"}]->(m2:Marriage) WHERE (m1)-[:GT_SIBLING {actors: \"Groom-Groom\"}]-(m2) return count(r)";
-    private static final String GROOM_GROOM_SIBLING_FPC = "MATCH (m1:Marriage)-[r:SIBLING {actors: \"Groom-Groom\"}]->(m2:Marriage) WHERE NOT (m1)-[:GT_SIBLING {actors: \"Groom-Groom\"}]-(m2) return count(r)";
-    private static final String GROOM_GROOM_SIBLING_FNC = "MATCH (m1:Marriage)-[r:GT_SIBLING {actors: \"Groom-Groom\"}]->(m2:Marriage) WHERE NOT (m1)-[:SIBLING {actors: \"Groom-Groom\"}]-(m2) return count(r)";
-
     public GroomGroomSiblingBundleAccuracy(NeoDbCypherBridge bridge) {
         super(bridge);
     }
 
     private void doqueries() {
-        long tpc = doQuery(GROOM_GROOM_SIBLING_TPC);
-        long fpc = doQuery(GROOM_GROOM_SIBLING_FPC);
-        long fnc = doQuery(GROOM_GROOM_SIBLING_FNC);
-
-        long marriage_count = doQuery( ALL_MARRIAGES );
-        long all_pair_count = nChoose2(marriage_count);
-
-        report(fpc,tpc,fnc,all_pair_count);
+        new AccuracyEvaluator(bridge).report(GroomGroomSiblingBundleAccuracy.class);
     }
 
     public static void main(String[] args) {
@@ -24,6 +24,7 @@ import uk.ac.standrews.cs.population_linkage.characterisation.LinkStatus;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.SumOfFieldDistances;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Link;
+import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageConfig;
 import uk.ac.standrews.cs.population_records.record_types.Birth;
 import uk.ac.standrews.cs.population_records.record_types.Marriage;
 
@@ -106,6 +107,11 @@ public class BirthBrideIdentityLinkageRecipe extends LinkageRecipe {
         return trueMatch(record1, record2, TRUE_MATCH_ALTERNATIVES);
     }
 
+    @Override
+    public List<List<Pair>> getTrueMatchAlternatives() {
+        return TRUE_MATCH_ALTERNATIVES;
+    }
+
     @Override
     public String getLinkageType() {
         return LINKAGE_TYPE;
@@ -185,6 +191,16 @@ public class BirthBrideIdentityLinkageRecipe extends LinkageRecipe {
         return isViable(record1, record2);
     }
 
+    public static ViabilityWindow viabilityWindow() {
+        return ViabilityWindow.within(record -> TemporalColumns.get(record, TemporalColumns.BIRTH_DATE),
+                ViabilityWindow.requiring(record -> TemporalColumns.getSpouseBirthDate(record, true), TemporalColumns.MARRIAGE_DATE), LinkageConfig.MAX_ALLOWABLE_AGE_DISCREPANCY);
+    }
+
+    @Override
+    public ViabilityWindow getViabilityWindow() {
+        return viabilityWindow();
+    }
+
     /**
      * Checks whether the date of marriage is sufficiently long after the date of birth for the bride to have
      * attained the minimum age for marriage, and that any discrepancy between that calculated age at marriage
@@ -205,14 +221,11 @@ public class BirthBrideIdentityLinkageRecipe extends LinkageRecipe {
 
     @Override
     public long getNumberOfGroundTruthTrueLinks() {
-        int count = 0;
-        for (LXP query_record : getQueryRecords()) {
-            count += countBirthBrideIdentityGTLinks(bridge, query_record);
-        }
-        return count;
+        return countGroundTruthLinks(BIRTH_BRIDE_GT_IDENTITY_LINKS_COUNT_QUERY, Birth.STANDARDISED_ID);
     }
 
     private static final String BIRTH_BRIDE_GT_IDENTITY_LINKS_QUERY = "MATCH (a:Birth)-[r:GT_ID, { actors: \"Child-Bride\" } ]-(m:Marriage) WHERE m.STANDARDISED_ID = $standard_id_from RETURN r";
+    private static final String BIRTH_BRIDE_GT_IDENTITY_LINKS_COUNT_QUERY = "UNWIND $ids AS id MATCH (a:Birth)-[r:GT_ID, { actors: \"Child-Bride\" } ]-(m:Marriage) WHERE m.STANDARDISED_ID = id RETURN count(r) AS count";
 
     public static int countBirthBrideIdentityGTLinks(NeoDbCypherBridge bridge, LXP birth_record) {
         String standard_id_from = birth_record.getString(Birth.STANDARDISED_ID);
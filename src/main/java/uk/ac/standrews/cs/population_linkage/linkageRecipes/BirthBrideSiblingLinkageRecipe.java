@@ -23,6 +23,7 @@ import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.SumOfFieldDistances;
 import uk.ac.standrews.cs.population_linkage.helpers.RecordFiltering;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Link;
+import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageConfig;
 import uk.ac.standrews.cs.population_records.record_types.Birth;
 import uk.ac.standrews.cs.population_records.record_types.Death;
 import uk.ac.standrews.cs.population_records.record_types.Marriage;
@@ -90,6 +91,11 @@ public class BirthBrideSiblingLinkageRecipe extends LinkageRecipe {
         return trueMatch(record1, record2, TRUE_MATCH_ALTERNATIVES);
     }
 
+    @Override
+    public List<List<Pair>> getTrueMatchAlternatives() {
+        return TRUE_MATCH_ALTERNATIVES;
+    }
+
     @Override
     public String getLinkageType() {
         return LINKAGE_TYPE;
@@ -130,6 +136,16 @@ public class BirthBrideSiblingLinkageRecipe extends LinkageRecipe {
         return isViable(record1, record2);
     }
 
+    public static ViabilityWindow viabilityWindow() {
+        return ViabilityWindow.within(record -> TemporalColumns.get(record, TemporalColumns.BIRTH_DATE),
+                record -> TemporalColumns.getSpouseBirthDate(record, true), LinkageConfig.MAX_SIBLING_AGE_DIFFERENCE);
+    }
+
+    @Override
+    public ViabilityWindow getViabilityWindow() {
+        return viabilityWindow();
+    }
+
     /**
      * Checks:
      *     1. whether the age difference between the potential siblings is plausible.
@@ -28,8 +28,6 @@ import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageConfig;
 import uk.ac.standrews.cs.population_records.record_types.Birth;
 import uk.ac.standrews.cs.population_records.record_types.Death;
 
-import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -104,6 +102,11 @@ public class BirthDeathIdentityLinkageRecipe extends LinkageRecipe {
         return trueMatch(record1, record2, TRUE_MATCH_ALTERNATIVES);
     }
 
+    @Override
+    public List<List<Pair>> getTrueMatchAlternatives() {
+        return TRUE_MATCH_ALTERNATIVES;
+    }
+
     @Override
     public String getLinkageType() {
         return LINKAGE_TYPE;
@@ -139,6 +142,20 @@ public class BirthDeathIdentityLinkageRecipe extends LinkageRecipe {
         return isViable(record1, record2);
     }
 
+    /**
+     * The ages at death calculated from the two birth dates must both be within MAX_ALLOWABLE_AGE_DISCREPANCY of the
+     * recorded age, so the birth dates are within twice that of each other, plus a year for the parts of years dropped.
+     */
+    public static ViabilityWindow viabilityWindow() {
+        return ViabilityWindow.within(record -> TemporalColumns.get(record, TemporalColumns.BIRTH_DATE),
+                ViabilityWindow.requiring(record -> TemporalColumns.get(record, TemporalColumns.BIRTH_DATE), TemporalColumns.DEATH_DATE, TemporalColumns.AGE_AT_DEATH), 2 * LinkageConfig.MAX_ALLOWABLE_AGE_DISCREPANCY + 1);
+    }
+
+    @Override
+    public ViabilityWindow getViabilityWindow() {
+        return viabilityWindow();
+    }
+
     /**
      * Checks whether the birth occurs before the death, that the age at death is plausible, and that the ages at death
      * derived in three different ways are consistent (recorded on death record; difference between birth year on birth
@@ -148,27 +165,27 @@ public class BirthDeathIdentityLinkageRecipe extends LinkageRecipe {
      */
     public static boolean isViable(final LXP birth_record, final LXP death_record) {
 
-        try {
-            final LocalDate date_of_birth_from_birth_record = CommonLinkViabilityLogic.getBirthDateFromBirthRecord(birth_record);
-            final LocalDate date_of_birth_from_death_record = CommonLinkViabilityLogic.getBirthDateFromDeathRecord(death_record);
-            final LocalDate date_of_death_from_death_record = CommonLinkViabilityLogic.getDeathDateFromDeathRecord(death_record);
+        final int date_of_birth_from_birth_record = TemporalColumns.get(birth_record, TemporalColumns.BIRTH_DATE);
+        final int date_of_birth_from_death_record = TemporalColumns.get(death_record, TemporalColumns.BIRTH_DATE);
+        final int date_of_death_from_death_record = TemporalColumns.get(death_record, TemporalColumns.DEATH_DATE);
 
-            final int age_at_death_recorded_on_death_record = Integer.parseInt(death_record.getString(Death.AGE_AT_DEATH));
+        final int age_at_death_recorded_on_death_record = TemporalColumns.get(death_record, TemporalColumns.AGE_AT_DEATH);
 
-            final long age_at_death_calculated_from_both_records = date_of_birth_from_birth_record.until(date_of_death_from_death_record, ChronoUnit.YEARS);
-            final long age_at_death_calculated_from_death_record = date_of_birth_from_death_record.until(date_of_death_from_death_record, ChronoUnit.YEARS);
+        if (!TemporalColumns.isKnown(date_of_birth_from_birth_record) || !TemporalColumns.isKnown(date_of_birth_from_death_record) ||
+                !TemporalColumns.isKnown(date_of_death_from_death_record) || !TemporalColumns.isKnown(age_at_death_recorded_on_death_record)) { // Invalid year.
+            return true;
+        }
 
-            final long age_at_death_discrepancy_1 = Math.abs(age_at_death_recorded_on_death_record - age_at_death_calculated_from_both_records);
-            final long age_at_death_discrepancy_2 = Math.abs(age_at_death_recorded_on_death_record - age_at_death_calculated_from_death_record);
+        final int age_at_death_calculated_from_both_records = TemporalColumns.yearsBetween(date_of_birth_from_birth_record, date_of_death_from_death_record);
+        final int age_at_death_calculated_from_death_record = TemporalColumns.yearsBetween(date_of_birth_from_death_record, date_of_death_from_death_record);
 
-            return age_at_death_calculated_from_both_records >= 0 &&
-                    age_at_death_calculated_from_both_records <= LinkageConfig.MAX_AGE_AT_DEATH &&
-                    age_at_death_discrepancy_1 <= LinkageConfig.MAX_ALLOWABLE_AGE_DISCREPANCY &&
-                    age_at_death_discrepancy_2 <= LinkageConfig.MAX_ALLOWABLE_AGE_DISCREPANCY;
+        final int age_at_death_discrepancy_1 = Math.abs(age_at_death_recorded_on_death_record - age_at_death_calculated_from_both_records);
+        final int age_at_death_discrepancy_2 = Math.abs(age_at_death_recorded_on_death_record - age_at_death_calculated_from_death_record);
 
-        } catch (NumberFormatException e) { // Invalid year.
-            return true;
-        }
+        return age_at_death_calculated_from_both_records >= 0 &&
+                age_at_death_calculated_from_both_records <= LinkageConfig.MAX_AGE_AT_DEATH &&
+                age_at_death_discrepancy_1 <= LinkageConfig.MAX_ALLOWABLE_AGE_DISCREPANCY &&
+                age_at_death_discrepancy_2 <= LinkageConfig.MAX_ALLOWABLE_AGE_DISCREPANCY;
     }
 
     @Override
@@ -183,14 +200,11 @@ public class BirthDeathIdentityLinkageRecipe extends LinkageRecipe {
 
     @Override
     public long getNumberOfGroundTruthTrueLinks() {
-        int count = 0;
-        for (LXP query_record : getQueryRecords()) {
-            count += countBirthDeathIdentityGTLinks(bridge, query_record);
-        }
-        return count;
+        return countGroundTruthLinks(BIRTH_DEATH_GT_IDENTITY_LINKS_COUNT_QUERY, Birth.STANDARDISED_ID);
     }
 
     private static final String BIRTH_DEATH_GT_IDENTITY_LINKS_QUERY = "MATCH (a:Birth)-[r:GT_ID, { actors: \"Child-Deceased\" } ]-(b:Death) WHERE b.STANDARDISED_ID = $standard_id_from RETURN r";
+    private static final String BIRTH_DEATH_GT_IDENTITY_LINKS_COUNT_QUERY = "UNWIND $ids AS id MATCH (a:Birth)-[r:GT_ID, { actors: \"Child-Deceased\" } ]-(b:Death) WHERE b.STANDARDISED_ID = id RETURN count(r) AS count";
     private static final String BIRTH_DEATH_ALL_GT_IDENTITY_LINKS_QUERY = "MATCH (a:Birth)-[r:GT_ID, { actors: \"Child-Deceased\" } ]-(b:Death) RETURN r";
 
     public static List<Relationship> getBirthDeathIdentityGTLinks(NeoDbCypherBridge bridge, LXP birth_record) {
@@ -28,12 +28,12 @@ import uk.ac.standrews.cs.population_linkage.compositeMeasures.SumOfFieldDistanc
 import uk.ac.standrews.cs.population_linkage.helpers.RecordFiltering;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Constants;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Link;
+import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageConfig;
 import uk.ac.standrews.cs.population_records.RecordRepository;
 import uk.ac.standrews.cs.population_records.record_types.Birth;
 import uk.ac.standrews.cs.population_records.record_types.Death;
 import uk.ac.standrews.cs.utilities.measures.coreConcepts.StringMeasure;
 
-import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -101,6 +101,11 @@ public class BirthDeathSiblingLinkageRecipe extends LinkageRecipe {
         return trueMatch(record1, record2, TRUE_MATCH_ALTERNATIVES);
     }
 
+    @Override
+    public List<List<Pair>> getTrueMatchAlternatives() {
+        return TRUE_MATCH_ALTERNATIVES;
+    }
+
     @Override
     public String getLinkageType() {
         return LINKAGE_TYPE;
@@ -141,6 +146,16 @@ public class BirthDeathSiblingLinkageRecipe extends LinkageRecipe {
         return isViable(record1, record2);
     }
 
+    public static ViabilityWindow viabilityWindow() {
+        return ViabilityWindow.within(record -> TemporalColumns.get(record, TemporalColumns.BIRTH_DATE),
+                record -> TemporalColumns.get(record, TemporalColumns.BIRTH_DATE), LinkageConfig.MAX_SIBLING_AGE_DIFFERENCE);
+    }
+
+    @Override
+    public ViabilityWindow getViabilityWindow() {
+        return viabilityWindow();
+    }
+
     /**
      * Checks:
      *    1. whether the age difference between the potential siblings is plausible.
@@ -149,21 +164,16 @@ public class BirthDeathSiblingLinkageRecipe extends LinkageRecipe {
      * @return true if the link is viable
      */
     public static boolean isViable(final LXP birth_record, final LXP death_record) {
-        try {
-            String birth_name = CommonLinkViabilityLogic.getPrimaryNameFromBirthRecord(birth_record);
-            String death_name = CommonLinkViabilityLogic.getPrimaryNameFromDeathRecord(death_record);
-            if( birth_name.equals(death_name)) {
-                return false; // they are the same person and therefore not siblings
-            }
-
-            final LocalDate date_of_birth_from_birth_record = CommonLinkViabilityLogic.getBirthDateFromBirthRecord(birth_record);
-            final LocalDate date_of_birth_from_death_record = CommonLinkViabilityLogic.getBirthDateFromDeathRecord(death_record);
+        String birth_name = CommonLinkViabilityLogic.getPrimaryNameFromBirthRecord(birth_record);
+        String death_name = CommonLinkViabilityLogic.getPrimaryNameFromDeathRecord(death_record);
+        if( birth_name.equals(death_name)) {
+            return false; // they are the same person and therefore not siblings
+        }
 
-            return siblingBirthDatesAreViable(date_of_birth_from_birth_record, date_of_birth_from_death_record);
+        final int date_of_birth_from_birth_record = TemporalColumns.get(birth_record, TemporalColumns.BIRTH_DATE);
+        final int date_of_birth_from_death_record = TemporalColumns.get(death_record, TemporalColumns.BIRTH_DATE);
 
-        } catch (NumberFormatException e) { // Invalid year.
-            return true;
-        }
+        return siblingBirthDatesAreViable(date_of_birth_from_birth_record, date_of_birth_from_death_record);
     }
 
     @Override
@@ -173,15 +183,11 @@ public class BirthDeathSiblingLinkageRecipe extends LinkageRecipe {
 
     @Override
     public long getNumberOfGroundTruthTrueLinks() {
-
-        int count = 0;
-        for (LXP query_record : getQueryRecords()) {
-            count += countBirthDeathSiblingGTLinks(bridge, query_record);
-        }
-        return count;
+        return countGroundTruthLinks(BIRTH_DEATH_GT_SIBLING_LINKS_COUNT_QUERY, Birth.STANDARDISED_ID);
     }
 
     private static final String BIRTH_DEATH_GT_SIBLING_LINKS_QUERY = "MATCH (a:Birth)-[r:GT_SIBLING, { actors: \"Child-Deceased\" } ]-(b:Death) WHERE b.STANDARDISED_ID = $standard_id_from RETURN r";
+    private static final String BIRTH_DEATH_GT_SIBLING_LINKS_COUNT_QUERY = "UNWIND $ids AS id MATCH (a:Birth)-[r:GT_SIBLING, { actors: \"Child-Deceased\" } ]-(b:Death) WHERE b.STANDARDISED_ID = id RETURN count(r) AS count";
 
     public static int countBirthDeathSiblingGTLinks(NeoDbCypherBridge bridge, LXP birth_record) {
 
@@ -24,6 +24,7 @@ import uk.ac.standrews.cs.population_linkage.characterisation.LinkStatus;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.SumOfFieldDistances;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Link;
+import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageConfig;
 import uk.ac.standrews.cs.population_records.record_types.Birth;
 
 import java.util.HashMap;
@@ -75,6 +76,11 @@ public class BirthFatherIdentityLinkageRecipe extends LinkageRecipe {
         return trueMatch(record1, record2, TRUE_MATCH_ALTERNATIVES);
     }
 
+    @Override
+    public List<List<Pair>> getTrueMatchAlternatives() {
+        return TRUE_MATCH_ALTERNATIVES;
+    }
+
     @Override
     public String getLinkageType() {
         return LINKAGE_TYPE;
@@ -110,6 +116,16 @@ public class BirthFatherIdentityLinkageRecipe extends LinkageRecipe {
         return isViable(record1, record2);
     }
 
+    public static ViabilityWindow viabilityWindow() {
+        return new ViabilityWindow(record -> TemporalColumns.get(record, TemporalColumns.BIRTH_DATE),
+                record -> TemporalColumns.get(record, TemporalColumns.BIRTH_DATE), -LinkageConfig.MAX_FATHER_AGE_AT_BIRTH, -LinkageConfig.MIN_PARENT_AGE_AT_BIRTH);
+    }
+
+    @Override
+    public ViabilityWindow getViabilityWindow() {
+        return viabilityWindow();
+    }
+
     /**
      * Checks whether a plausible period has elapsed for the person to be the father.
      *
@@ -132,14 +148,11 @@ public class BirthFatherIdentityLinkageRecipe extends LinkageRecipe {
 
     @Override
     public long getNumberOfGroundTruthTrueLinks() {
-        int count = 0;
-        for (LXP query_record : getQueryRecords()) {
-            count += countBirthFatherIdentityGTLinks(bridge, query_record);
-        }
-        return count;
+        return countGroundTruthLinks(BIRTH_FATHER_GT_IDENTITY_LINKS_COUNT_QUERY, Birth.STANDARDISED_ID);
     }
 
     private static final String BIRTH_FATHER_GT_IDENTITY_LINKS_QUERY = "MATCH (a:Birth)-[r:GT_ID, { actors: \"Child-Father\" } ]-(b:Birth) WHERE b.STANDARDISED_ID = $standard_id_from RETURN r";
+    private static final String BIRTH_FATHER_GT_IDENTITY_LINKS_COUNT_QUERY = "UNWIND $ids AS id MATCH (a:Birth)-[r:GT_ID, { actors: \"Child-Father\" } ]-(b:Birth) WHERE b.STANDARDISED_ID = id RETURN count(r) AS count";
 
     public static int countBirthFatherIdentityGTLinks(NeoDbCypherBridge bridge, LXP birth_record) {
         String standard_id_from = birth_record.getString(Birth.STANDARDISED_ID);
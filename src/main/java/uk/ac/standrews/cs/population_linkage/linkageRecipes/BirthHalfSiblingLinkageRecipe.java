@@ -26,10 +26,10 @@ import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.SumOfFieldDistances;
 import uk.ac.standrews.cs.population_linkage.helpers.RecordFiltering;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Link;
+import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageConfig;
 import uk.ac.standrews.cs.population_records.record_types.Birth;
 import uk.ac.standrews.cs.population_records.record_types.Death;
 
-import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -93,6 +93,11 @@ public class BirthHalfSiblingLinkageRecipe extends LinkageRecipe {
         return trueMatch(record1, record2, TRUE_MATCH_ALTERNATIVES);
     }
 
+    @Override
+    public List<List<Pair>> getTrueMatchAlternatives() {
+        return TRUE_MATCH_ALTERNATIVES;
+    }
+
     @Override
     public String getLinkageType() {
         return LINKAGE_TYPE;
@@ -125,15 +130,10 @@ public class BirthHalfSiblingLinkageRecipe extends LinkageRecipe {
 
     public static boolean isViable(final LXP birth_record1, final LXP birth_record2) {
 
-        try {
-            final LocalDate date_of_birth_from_birth_record1 = CommonLinkViabilityLogic.getBirthDateFromBirthRecord(birth_record1);
-            final LocalDate date_of_birth_from_birth_record2 = CommonLinkViabilityLogic.getBirthDateFromBirthRecord(birth_record2);
+        final int date_of_birth_from_birth_record1 = TemporalColumns.get(birth_record1, TemporalColumns.BIRTH_DATE);
+        final int date_of_birth_from_birth_record2 = TemporalColumns.get(birth_record2, TemporalColumns.BIRTH_DATE);
 
-            return siblingBirthDatesAreViable(date_of_birth_from_birth_record1, date_of_birth_from_birth_record2);
-
-        } catch (NumberFormatException e) { // in this case a BIRTH_YEAR is invalid
-            return true;
-        }
+        return siblingBirthDatesAreViable(date_of_birth_from_birth_record1, date_of_birth_from_birth_record2);
     }
 
     @Override
@@ -141,6 +141,16 @@ public class BirthHalfSiblingLinkageRecipe extends LinkageRecipe {
         return isViable(record1, record2);
     }
 
+    public static ViabilityWindow viabilityWindow() {
+        return ViabilityWindow.within(record -> TemporalColumns.get(record, TemporalColumns.BIRTH_DATE),
+                record -> TemporalColumns.get(record, TemporalColumns.BIRTH_DATE), LinkageConfig.MAX_SIBLING_AGE_DIFFERENCE);
+    }
+
+    @Override
+    public ViabilityWindow getViabilityWindow() {
+        return viabilityWindow();
+    }
+
     @Override
     public List<Integer> getQueryMappingFields() {
         return getLinkageFields();
@@ -153,14 +163,11 @@ public class BirthHalfSiblingLinkageRecipe extends LinkageRecipe {
 
     @Override
     public long getNumberOfGroundTruthTrueLinks() {
-        int count = 0;
-        for (LXP query_record : getQueryRecords()) {
-            count += countBirthSiblingGTLinks(bridge, query_record);
-        }
-        return count;
+        return countGroundTruthLinks(BIRTH_GT_SIBLING_LINKS_COUNT_QUERY, Birth.STANDARDISED_ID);
     }
 
     private static final String BIRTH_GT_SIBLING_LINKS_QUERY = "MATCH (a:Birth)-[r:GT_HALF_SIBLING, { actors: \"Child-Child\" } ]-(b:Birth) WHERE b.STANDARDISED_ID = $standard_id_from RETURN r";
+    private static final String BIRTH_GT_SIBLING_LINKS_COUNT_QUERY = "UNWIND $ids AS id MATCH (a:Birth)-[r:GT_HALF_SIBLING, { actors: \"Child-Child\" } ]-(b:Birth) WHERE b.STANDARDISED_ID = id RETURN count(r) AS count";
 
     public static int countBirthSiblingGTLinks(NeoDbCypherBridge bridge, LXP birth_record) {
         String standard_id_from = birth_record.getString(Birth.STANDARDISED_ID);
@@ -26,8 +26,6 @@ import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageConfig;
 import uk.ac.standrews.cs.population_records.record_types.Birth;
 import uk.ac.standrews.cs.population_records.record_types.Marriage;
 
-import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Map;
 
@@ -98,6 +96,11 @@ public class BirthParentsMarriageIdentityLinkageRecipe extends LinkageRecipe {
         return trueMatch(birth, marriage, TRUE_MATCH_ALTERNATIVES);
     }
 
+    @Override
+    public List<List<Pair>> getTrueMatchAlternatives() {
+        return TRUE_MATCH_ALTERNATIVES;
+    }
+
     @Override
     public String getLinkageType() {
         return LINKAGE_TYPE;
@@ -133,6 +136,16 @@ public class BirthParentsMarriageIdentityLinkageRecipe extends LinkageRecipe {
         return isViable(record1, record2);
     }
 
+    public static ViabilityWindow viabilityWindow() {
+        return new ViabilityWindow(record -> TemporalColumns.get(record, TemporalColumns.BIRTH_DATE),
+                record -> TemporalColumns.get(record, TemporalColumns.MARRIAGE_DATE), LinkageConfig.MIN_MARRIAGE_BIRTH_DIFFERENCE, LinkageConfig.MAX_MARRIAGE_BIRTH_DIFFERENCE);
+    }
+
+    @Override
+    public ViabilityWindow getViabilityWindow() {
+        return viabilityWindow();
+    }
+
     /**
      * Checks whether a plausible period has elapsed between the marriage and the birth.
      *
@@ -140,18 +153,15 @@ public class BirthParentsMarriageIdentityLinkageRecipe extends LinkageRecipe {
      */
     public static boolean isViable(final LXP birth_record, final LXP marriage_record) {
 
-        try {
-            final LocalDate date_of_child_birth = CommonLinkViabilityLogic.getBirthDateFromBirthRecord(birth_record);
-            final LocalDate date_of_parents_marriage = CommonLinkViabilityLogic.getMarriageDateFromMarriageRecord(marriage_record);
+        final int date_of_child_birth = TemporalColumns.get(birth_record, TemporalColumns.BIRTH_DATE);
+        final int date_of_parents_marriage = TemporalColumns.get(marriage_record, TemporalColumns.MARRIAGE_DATE);
 
-            final long years_from_marriage_to_birth = date_of_parents_marriage.until(date_of_child_birth, ChronoUnit.YEARS);
+        if (!TemporalColumns.isKnown(date_of_child_birth) || !TemporalColumns.isKnown(date_of_parents_marriage)) return true;
 
-            return years_from_marriage_to_birth >= LinkageConfig.MIN_MARRIAGE_BIRTH_DIFFERENCE &&
-                    years_from_marriage_to_birth <= LinkageConfig.MAX_MARRIAGE_BIRTH_DIFFERENCE;
+        final int years_from_marriage_to_birth = TemporalColumns.yearsBetween(date_of_parents_marriage, date_of_child_birth);
 
-        } catch (NumberFormatException e) {
-            return true;
-        }
+        return years_from_marriage_to_birth >= LinkageConfig.MIN_MARRIAGE_BIRTH_DIFFERENCE &&
+                years_from_marriage_to_birth <= LinkageConfig.MAX_MARRIAGE_BIRTH_DIFFERENCE;
     }
 
     @Override
@@ -24,10 +24,13 @@ import uk.ac.standrews.cs.population_linkage.characterisation.LinkStatus;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.SumOfFieldDistances;
 import uk.ac.standrews.cs.population_linkage.helpers.RecordFiltering;
+import uk.ac.standrews.cs.population_linkage.linkers.BlockingKey;
+import uk.ac.standrews.cs.population_linkage.linkers.BlockingKeys;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Link;
+import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageConfig;
 import uk.ac.standrews.cs.population_records.record_types.Birth;
 
-import java.time.LocalDate;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -60,6 +63,15 @@ public class BirthSiblingLinkageRecipe extends LinkageRecipe {
             Birth.PARENTS_YEAR_OF_MARRIAGE
     );
 
+    /**
+     * Siblings share parents, so a pair of births is only compared if they share the mother's maiden surname or the
+     * father's surname; a misspelling of one surname alone does not prevent the pair being found.
+     */
+    public static final List<BlockingKey> BLOCKING_KEYS = list(
+            BlockingKeys.field("mother's maiden surname", Birth.MOTHER_MAIDEN_SURNAME, Birth.MOTHER_MAIDEN_SURNAME, null),
+            BlockingKeys.field("father's surname", Birth.FATHER_SURNAME, Birth.FATHER_SURNAME, null)
+    );
+
     /**
      * Various possible relevant sources of ground truth for siblings:
      * * identities of parents
@@ -98,6 +110,11 @@ public class BirthSiblingLinkageRecipe extends LinkageRecipe {
         return trueMatch(record1, record2, TRUE_MATCH_ALTERNATIVES);
     }
 
+    @Override
+    public List<List<Pair>> getTrueMatchAlternatives() {
+        return TRUE_MATCH_ALTERNATIVES;
+    }
+
     @Override
     public String getLinkageType() {
         return LINKAGE_TYPE;
@@ -139,15 +156,10 @@ public class BirthSiblingLinkageRecipe extends LinkageRecipe {
 
     public static boolean isViable(final LXP birth_record1, final LXP birth_record2) {
 
-        try {
-            final LocalDate date_of_birth_from_birth_record1 = CommonLinkViabilityLogic.getBirthDateFromBirthRecord(birth_record1);
-            final LocalDate date_of_birth_from_birth_record2 = CommonLinkViabilityLogic.getBirthDateFromBirthRecord(birth_record2);
+        final int date_of_birth_from_birth_record1 = TemporalColumns.get(birth_record1, TemporalColumns.BIRTH_DATE);
+        final int date_of_birth_from_birth_record2 = TemporalColumns.get(birth_record2, TemporalColumns.BIRTH_DATE);
 
-            return siblingBirthDatesAreViable(date_of_birth_from_birth_record1, date_of_birth_from_birth_record2);
-
-        } catch (NumberFormatException e) { // in this case a BIRTH_YEAR is invalid
-            return true;
-        }
+        return siblingBirthDatesAreViable(date_of_birth_from_birth_record1, date_of_birth_from_birth_record2);
     }
 
     @Override
@@ -155,6 +167,21 @@ public class BirthSiblingLinkageRecipe extends LinkageRecipe {
         return isViable(record1, record2);
     }
 
+    public static ViabilityWindow viabilityWindow() {
+        return ViabilityWindow.within(record -> TemporalColumns.get(record, TemporalColumns.BIRTH_DATE),
+                record -> TemporalColumns.get(record, TemporalColumns.BIRTH_DATE), LinkageConfig.MAX_SIBLING_AGE_DIFFERENCE);
+    }
+
+    @Override
+    public ViabilityWindow getViabilityWindow() {
+        return viabilityWindow();
+    }
+
+    @Override
+    public List<BlockingKey> getBlockingKeys() {
+        return LinkageConfig.BLOCK_BIRTH_SIBLINGS_ON_SURNAMES ? BLOCKING_KEYS : Collections.emptyList();
+    }
+
     @Override
     public List<Integer> getQueryMappingFields() {
         return getLinkageFields();
@@ -167,14 +194,11 @@ public class BirthSiblingLinkageRecipe extends LinkageRecipe {
 
     @Override
     public long getNumberOfGroundTruthTrueLinks() {
-        int count = 0;
-        for (LXP query_record : getQueryRecords()) {
-            count += countBirthSiblingGTLinks(bridge, query_record);
-        }
-        return count;
+        return countGroundTruthLinks(BIRTH_GT_SIBLING_LINKS_COUNT_QUERY, Birth.STANDARDISED_ID);
     }
 
     private static final String BIRTH_GT_SIBLING_LINKS_QUERY = "MATCH (a:Birth)-[r:GT_SIBLING, { actors: \"Child-Child\" } ]-(b:Birth) WHERE b.STANDARDISED_ID = $standard_id_from RETURN r";
+    private static final String BIRTH_GT_SIBLING_LINKS_COUNT_QUERY = "UNWIND $ids AS id MATCH (a:Birth)-[r:GT_SIBLING, { actors: \"Child-Child\" } ]-(b:Birth) WHERE b.STANDARDISED_ID = id RETURN count(r) AS count";
 
     public static int countBirthSiblingGTLinks(NeoDbCypherBridge bridge, LXP birth_record) {
         String standard_id_from = birth_record.getString(Birth.STANDARDISED_ID);
@@ -25,9 +25,9 @@ import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.SumOfFieldDistances;
 import uk.ac.standrews.cs.population_linkage.helpers.RecordFiltering;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Link;
+import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageConfig;
 import uk.ac.standrews.cs.population_records.record_types.Marriage;
 
-import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -96,6 +96,11 @@ public class BrideBrideSiblingLinkageRecipe extends LinkageRecipe {
         return trueMatch(record1, record2, TRUE_MATCH_ALTERNATIVES);
     }
 
+    @Override
+    public List<List<Pair>> getTrueMatchAlternatives() {
+        return TRUE_MATCH_ALTERNATIVES;
+    }
+
     @Override
     public String getLinkageType() {
         return LINKAGE_TYPE;
@@ -132,6 +137,16 @@ public class BrideBrideSiblingLinkageRecipe extends LinkageRecipe {
         return isViable(record1, record2);
     }
 
+    public static ViabilityWindow viabilityWindow() {
+        return ViabilityWindow.within(record -> TemporalColumns.getSpouseBirthDate(record, true),
+                record -> TemporalColumns.getSpouseBirthDate(record, true), LinkageConfig.MAX_SIBLING_AGE_DIFFERENCE);
+    }
+
+    @Override
+    public ViabilityWindow getViabilityWindow() {
+        return viabilityWindow();
+    }
+
     /**
      * Checks whether the recorded or calculated dates of birth are acceptably close for siblings.
      *
@@ -143,15 +158,10 @@ public class BrideBrideSiblingLinkageRecipe extends LinkageRecipe {
             return false;
         }
 
-        try {
-            final LocalDate date_of_birth1 = CommonLinkViabilityLogic.getBirthDateFromMarriageRecord(record1, true);
-            final LocalDate date_of_birth2 = CommonLinkViabilityLogic.getBirthDateFromMarriageRecord(record2, true);
-
-            return CommonLinkViabilityLogic.siblingBirthDatesAreViable(date_of_birth1, date_of_birth2);
+        final int date_of_birth1 = TemporalColumns.getSpouseBirthDate(record1, true);
+        final int date_of_birth2 = TemporalColumns.getSpouseBirthDate(record2, true);
 
-        } catch (NumberFormatException e) {
-            return true;
-        }
+        return CommonLinkViabilityLogic.siblingBirthDatesAreViable(date_of_birth1, date_of_birth2);
     }
 
     @Override
@@ -166,14 +176,11 @@ public class BrideBrideSiblingLinkageRecipe extends LinkageRecipe {
 
     @Override
     public long getNumberOfGroundTruthTrueLinks() {
-        int count = 0;
-        for (LXP query_record : getQueryRecords()) {
-            count += countBrideBrideSiblingGTLinks(bridge, query_record);
-        }
-        return count;
+        return countGroundTruthLinks(BRIDE_BRIDE_GT_SIBLING_LINKS_COUNT_QUERY, Marriage.STANDARDISED_ID);
     }
 
     private static final String BRIDE_BRIDE_GT_SIBLING_LINKS_QUERY = "MATCH (a:Marriage)-[r:GT_SIBLING, { actors: \"Bride-Bride\" } ]-(b:Marriage) WHERE b.STANDARDISED_ID = $standard_id_from RETURN r";
+    private static final String BRIDE_BRIDE_GT_SIBLING_LINKS_COUNT_QUERY = "UNWIND $ids AS id MATCH (a:Marriage)-[r:GT_SIBLING, { actors: \"Bride-Bride\" } ]-(b:Marriage) WHERE b.STANDARDISED_ID = id RETURN count(r) AS count";
 
     public static int countBrideBrideSiblingGTLinks(NeoDbCypherBridge bridge, LXP marriage_record) {
         String standard_id_from = marriage_record.getString(Marriage.STANDARDISED_ID);
@@ -23,11 +23,12 @@ import uk.ac.standrews.cs.population_records.record_types.Birth;
 import uk.ac.standrews.cs.population_records.record_types.Death;
 import uk.ac.standrews.cs.population_records.record_types.Marriage;
 
-import java.time.DateTimeException;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
 
+import static uk.ac.standrews.cs.population_linkage.linkageRecipes.TemporalColumns.*;
+
 public class CommonLinkViabilityLogic {
 
     // Default month to be used for dates if only year is recorded.
@@ -211,6 +212,18 @@ public class CommonLinkViabilityLogic {
         return years_between_sibling_births <= LinkageConfig.MAX_SIBLING_AGE_DIFFERENCE;
     }
 
+    /**
+     * @param date_of_birth1 a date packed as in TemporalColumns, or UNKNOWN
+     * @param date_of_birth2 a date packed as in TemporalColumns, or UNKNOWN
+     * @return true if the dates are close enough for siblings, or either is unknown
+     */
+    public static boolean siblingBirthDatesAreViable(final int date_of_birth1, final int date_of_birth2) {
+
+        if (!isKnown(date_of_birth1) || !isKnown(date_of_birth2)) return true;
+
+        return Math.abs(yearsBetween(date_of_birth1, date_of_birth2)) <= LinkageConfig.MAX_SIBLING_AGE_DIFFERENCE;
+    }
+
     public static boolean alternativeIdentityBirthDatesAreViable(final LocalDate date_of_birth1, final LocalDate date_of_birth2) {
 
         final long years_between_alternative_birth_dates = Math.abs(date_of_birth1.until(date_of_birth2, ChronoUnit.YEARS));
@@ -218,46 +231,45 @@ public class CommonLinkViabilityLogic {
         return years_between_alternative_birth_dates <= LinkageConfig.MAX_ALLOWABLE_AGE_DISCREPANCY;
     }
 
-    public static boolean birthMarriageSiblingLinkIsViable(final LXP birth_record, final LXP marriage_record, final boolean marriage_role_is_bride) {
+    /**
+     * @param date_of_birth1 a date packed as in TemporalColumns, or UNKNOWN
+     * @param date_of_birth2 a date packed as in TemporalColumns, or UNKNOWN
+     * @return true if the dates are close enough to be the same person's, or either is unknown
+     */
+    public static boolean alternativeIdentityBirthDatesAreViable(final int date_of_birth1, final int date_of_birth2) {
 
-        try {
-            final LocalDate date_of_birth1 = getBirthDateFromBirthRecord(birth_record);
-            final LocalDate date_of_birth2 = getBirthDateFromMarriageRecord(marriage_record, marriage_role_is_bride);
+        if (!isKnown(date_of_birth1) || !isKnown(date_of_birth2)) return true;
 
-            return siblingBirthDatesAreViable(date_of_birth1, date_of_birth2);
+        return Math.abs(yearsBetween(date_of_birth1, date_of_birth2)) <= LinkageConfig.MAX_ALLOWABLE_AGE_DISCREPANCY;
+    }
 
-        } catch (NumberFormatException e) { // in this case a BIRTH_YEAR is invalid
-            return true;
-        }
+    public static boolean birthMarriageSiblingLinkIsViable(final LXP birth_record, final LXP marriage_record, final boolean marriage_role_is_bride) {
+
+        final int date_of_birth1 = TemporalColumns.get(birth_record, BIRTH_DATE);
+        final int date_of_birth2 = TemporalColumns.getSpouseBirthDate(marriage_record, marriage_role_is_bride);
+
+        return siblingBirthDatesAreViable(date_of_birth1, date_of_birth2);
     }
 
     public static boolean deathMarriageSiblingLinkIsViable(final LXP death_record, final LXP marriage_record, final boolean marriage_role_is_bride) {
 
-        try {
-            final LocalDate date_of_birth1 = getBirthDateFromDeathRecord(death_record);
-            final LocalDate date_of_birth2 = getBirthDateFromMarriageRecord(marriage_record, marriage_role_is_bride);
-
-            return siblingBirthDatesAreViable(date_of_birth1, date_of_birth2);
+        final int date_of_birth1 = TemporalColumns.get(death_record, BIRTH_DATE);
+        final int date_of_birth2 = TemporalColumns.getSpouseBirthDate(marriage_record, marriage_role_is_bride);
 
-        } catch (NumberFormatException e) { // in this case a BIRTH_YEAR is invalid
-            return true;
-        }
+        return siblingBirthDatesAreViable(date_of_birth1, date_of_birth2);
     }
 
     public static boolean spouseMarriageParentsMarriageIdentityLinkIsViable(final LXP parents_marriage, final LXP spouse_marriage) {
 
-        try {
-            final LocalDate parents_date_of_marriage = getMarriageDateFromMarriageRecord(parents_marriage);
-            final LocalDate spouse_date_of_marriage = getMarriageDateFromMarriageRecord(spouse_marriage);
+        final int parents_date_of_marriage = TemporalColumns.get(parents_marriage, MARRIAGE_DATE);
+        final int spouse_date_of_marriage = TemporalColumns.get(spouse_marriage, MARRIAGE_DATE);
 
-            final long years_between_marriages = parents_date_of_marriage.until(spouse_date_of_marriage, ChronoUnit.YEARS);
+        if (!isKnown(parents_date_of_marriage) || !isKnown(spouse_date_of_marriage)) return true;
 
-            return years_between_marriages >= LinkageConfig.MIN_CHILD_PARENTS_MARRIAGE_DIFFERENCE &&
-                    years_between_marriages <= LinkageConfig.MAX_CHILD_PARENTS_MARRIAGE_DIFFERENCE;
+        final int years_between_marriages = yearsBetween(parents_date_of_marriage, spouse_date_of_marriage);
 
-        } catch (NumberFormatException e) {
-            return true;
-        }
+        return years_between_marriages >= LinkageConfig.MIN_CHILD_PARENTS_MARRIAGE_DIFFERENCE &&
+                years_between_marriages <= LinkageConfig.MAX_CHILD_PARENTS_MARRIAGE_DIFFERENCE;
     }
 
     public static boolean birthMarriageIdentityLinkIsViable(final LXP birth_record, final LXP marriage_record, final boolean marriage_role_is_bride) {
@@ -266,22 +278,19 @@ public class CommonLinkViabilityLogic {
         // record is within acceptable range, and the discrepancy between that age and the age recorded on, or calculated from, the
         // marriage record is acceptably low.
 
-        try {
-            final LocalDate birth_date_from_birth_record = getBirthDateFromBirthRecord(birth_record);
-            final LocalDate birth_date_from_marriage_record = getBirthDateFromMarriageRecord(marriage_record, marriage_role_is_bride);
-            final LocalDate marriage_date_from_marriage_record = getMarriageDateFromMarriageRecord(marriage_record);
+        final int birth_date_from_birth_record = TemporalColumns.get(birth_record, BIRTH_DATE);
+        final int birth_date_from_marriage_record = TemporalColumns.getSpouseBirthDate(marriage_record, marriage_role_is_bride);
+        final int marriage_date_from_marriage_record = TemporalColumns.get(marriage_record, MARRIAGE_DATE);
 
-            final long age_at_marriage_calculated = birth_date_from_birth_record.until(marriage_date_from_marriage_record, ChronoUnit.YEARS);
-            final long birth_date_discrepancy = Math.abs(birth_date_from_birth_record.until(birth_date_from_marriage_record, ChronoUnit.YEARS));
+        // Invalid BIRTH_YEAR or MARRIAGE_YEAR or AGE_OR_DATE_OF_BIRTH, or unparseable date.
+        if (!isKnown(birth_date_from_birth_record) || !isKnown(birth_date_from_marriage_record) || !isKnown(marriage_date_from_marriage_record)) return true;
 
-            return age_at_marriage_calculated >= LinkageConfig.MIN_AGE_AT_MARRIAGE &&
-                    age_at_marriage_calculated <= LinkageConfig.MAX_AGE_AT_DEATH &&
-                    birth_date_discrepancy <= LinkageConfig.MAX_ALLOWABLE_AGE_DISCREPANCY;
+        final int age_at_marriage_calculated = yearsBetween(birth_date_from_birth_record, marriage_date_from_marriage_record);
+        final int birth_date_discrepancy = Math.abs(yearsBetween(birth_date_from_birth_record, birth_date_from_marriage_record));
 
-        } catch (NumberFormatException | DateTimeException e) {
-            // Invalid BIRTH_YEAR or MARRIAGE_YEAR or AGE_OR_DATE_OF_BIRTH, or unparseable date.
-            return true;
-        }
+        return age_at_marriage_calculated >= LinkageConfig.MIN_AGE_AT_MARRIAGE &&
+                age_at_marriage_calculated <= LinkageConfig.MAX_AGE_AT_DEATH &&
+                birth_date_discrepancy <= LinkageConfig.MAX_ALLOWABLE_AGE_DISCREPANCY;
     }
 
     public static boolean deathMarriageIdentityLinkIsViable(final LXP death_record, final LXP marriage_record, final boolean marriage_role_is_bride) {
@@ -289,37 +298,33 @@ public class CommonLinkViabilityLogic {
         // Returns true if year of death is not before year of marriage, and year of birth inferred from death record is
         // consistent with year of birth inferred from marriage record.
 
-        try {
-            final LocalDate death_date = getDeathDateFromDeathRecord(death_record);
-            final LocalDate marriage_date = getMarriageDateFromMarriageRecord(marriage_record);
+        final int death_date = TemporalColumns.get(death_record, DEATH_DATE);
+        final int marriage_date = TemporalColumns.get(marriage_record, MARRIAGE_DATE);
 
-            final LocalDate birth_date_from_death_record = getBirthDateFromDeathRecord(death_record);
-            final LocalDate birth_date_from_marriage_record = getBirthDateFromMarriageRecord(marriage_record, marriage_role_is_bride);
+        final int birth_date_from_death_record = TemporalColumns.get(death_record, BIRTH_DATE);
+        final int birth_date_from_marriage_record = TemporalColumns.getSpouseBirthDate(marriage_record, marriage_role_is_bride);
 
-            final long birth_year_discrepancy = Math.abs(birth_date_from_death_record.until(birth_date_from_marriage_record, ChronoUnit.YEARS));
+        // DEATH_YEAR or MARRIAGE_YEAR is invalid.
+        if (!isKnown(death_date) || !isKnown(marriage_date) || !isKnown(birth_date_from_death_record) || !isKnown(birth_date_from_marriage_record)) return true;
 
-            return !death_date.isBefore(marriage_date) && birth_year_discrepancy <= LinkageConfig.MAX_ALLOWABLE_AGE_DISCREPANCY;
+        final int birth_year_discrepancy = Math.abs(yearsBetween(birth_date_from_death_record, birth_date_from_marriage_record));
 
-        } catch (NumberFormatException e) { // DEATH_YEAR or MARRIAGE_YEAR is invalid.
-            return true;
-        }
+        return death_date >= marriage_date && birth_year_discrepancy <= LinkageConfig.MAX_ALLOWABLE_AGE_DISCREPANCY;
     }
 
     public static boolean birthParentIdentityLinkIsViable(final LXP birth_of_parent , final LXP birth_of_child, final boolean parent_role_is_mother) {
 
         // Returns true if difference in birth years is within acceptable range.
 
-        try {
-            final LocalDate parent_birth_date = getBirthDateFromBirthRecord(birth_of_parent);
-            final LocalDate child_birth_date = getBirthDateFromBirthRecord(birth_of_child);
+        final int parent_birth_date = TemporalColumns.get(birth_of_parent, BIRTH_DATE);
+        final int child_birth_date = TemporalColumns.get(birth_of_child, BIRTH_DATE);
 
-            final long parent_age_at_birth_of_child = parent_birth_date.until(child_birth_date, ChronoUnit.YEARS);
+        // BIRTH_YEAR is invalid.
+        if (!isKnown(parent_birth_date) || !isKnown(child_birth_date)) return true;
 
-            return parent_age_at_birth_of_child >= LinkageConfig.MIN_PARENT_AGE_AT_BIRTH &&
-                    parent_age_at_birth_of_child <= (parent_role_is_mother ? LinkageConfig.MAX_MOTHER_AGE_AT_BIRTH : LinkageConfig.MAX_FATHER_AGE_AT_BIRTH);
+        final int parent_age_at_birth_of_child = yearsBetween(parent_birth_date, child_birth_date);
 
-        } catch (NumberFormatException e) { // BIRTH_YEAR is invalid.
-            return true;
-        }
+        return parent_age_at_birth_of_child >= LinkageConfig.MIN_PARENT_AGE_AT_BIRTH &&
+                parent_age_at_birth_of_child <= (parent_role_is_mother ? LinkageConfig.MAX_MOTHER_AGE_AT_BIRTH : LinkageConfig.MAX_FATHER_AGE_AT_BIRTH);
     }
 }
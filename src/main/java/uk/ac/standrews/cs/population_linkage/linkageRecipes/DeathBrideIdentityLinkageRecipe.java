@@ -25,6 +25,7 @@ import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.SumOfFieldDistances;
 import uk.ac.standrews.cs.population_linkage.helpers.RecordFiltering;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Link;
+import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageConfig;
 import uk.ac.standrews.cs.population_records.record_types.Death;
 import uk.ac.standrews.cs.population_records.record_types.Marriage;
 
@@ -95,6 +96,11 @@ public class DeathBrideIdentityLinkageRecipe extends LinkageRecipe {
         return trueMatch(death, marriage, TRUE_MATCH_ALTERNATIVES);
     }
 
+    @Override
+    public List<List<Pair>> getTrueMatchAlternatives() {
+        return TRUE_MATCH_ALTERNATIVES;
+    }
+
     @Override
     public String getLinkageType() {
         return LINKAGE_TYPE;
@@ -130,6 +136,16 @@ public class DeathBrideIdentityLinkageRecipe extends LinkageRecipe {
         return isViable(record1, record2);
     }
 
+    public static ViabilityWindow viabilityWindow() {
+        return ViabilityWindow.within(ViabilityWindow.requiring(record -> TemporalColumns.get(record, TemporalColumns.BIRTH_DATE), TemporalColumns.DEATH_DATE),
+                ViabilityWindow.requiring(record -> TemporalColumns.getSpouseBirthDate(record, true), TemporalColumns.MARRIAGE_DATE), LinkageConfig.MAX_ALLOWABLE_AGE_DISCREPANCY);
+    }
+
+    @Override
+    public ViabilityWindow getViabilityWindow() {
+        return viabilityWindow();
+    }
+
     public static boolean isViable(final LXP record1, final LXP record2) {
         return CommonLinkViabilityLogic.deathMarriageIdentityLinkIsViable(record1, record2, true);
     }
@@ -146,14 +162,11 @@ public class DeathBrideIdentityLinkageRecipe extends LinkageRecipe {
 
     @Override
     public long getNumberOfGroundTruthTrueLinks() {
-        int count = 0;
-        for (LXP query_record : getQueryRecords()) {
-            count += countDeathBrideSiblingGTLinks(bridge, query_record);
-        }
-        return count;
+        return countGroundTruthLinks(DEATH_BRIDE_GT_IDENTITY_COUNT_QUERY, Death.STANDARDISED_ID);
     }
 
     private static final String DEATH_BRIDE_GT_IDENTITY = "MATCH (a:Death)-[r:GT_ID, { actors: \"Deceased-Bride\" } ]-(b:Marriage) WHERE b.STANDARDISED_ID = $standard_id_from RETURN r";
+    private static final String DEATH_BRIDE_GT_IDENTITY_COUNT_QUERY = "UNWIND $ids AS id MATCH (a:Death)-[r:GT_ID, { actors: \"Deceased-Bride\" } ]-(b:Marriage) WHERE b.STANDARDISED_ID = id RETURN count(r) AS count";
 
     public static int countDeathBrideSiblingGTLinks(NeoDbCypherBridge bridge, LXP death_record) {
         String standard_id_from = death_record.getString(Death.STANDARDISED_ID);
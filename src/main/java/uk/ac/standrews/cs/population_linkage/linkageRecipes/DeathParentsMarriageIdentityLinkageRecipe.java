@@ -29,8 +29,6 @@ import uk.ac.standrews.cs.population_records.record_types.Death;
 import uk.ac.standrews.cs.population_records.record_types.Marriage;
 import uk.ac.standrews.cs.utilities.archive.ErrorHandling;
 
-import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
 
 /**
@@ -135,6 +133,16 @@ public class DeathParentsMarriageIdentityLinkageRecipe extends LinkageRecipe {
         return isViable(record1, record2);
     }
 
+    public static ViabilityWindow viabilityWindow() {
+        return new ViabilityWindow(ViabilityWindow.requiring(record -> TemporalColumns.get(record, TemporalColumns.BIRTH_DATE), TemporalColumns.DEATH_DATE),
+                record -> TemporalColumns.get(record, TemporalColumns.MARRIAGE_DATE), LinkageConfig.MIN_MARRIAGE_BIRTH_DIFFERENCE, LinkageConfig.MAX_MARRIAGE_BIRTH_DIFFERENCE);
+    }
+
+    @Override
+    public ViabilityWindow getViabilityWindow() {
+        return viabilityWindow();
+    }
+
     /**
      * Checks whether a plausible period has elapsed between the marriage and the child's death.
      *
@@ -142,22 +150,19 @@ public class DeathParentsMarriageIdentityLinkageRecipe extends LinkageRecipe {
      */
     public static boolean isViable(final LXP death_record, final LXP marriage_record) {
 
-        try {
-            final LocalDate date_of_child_birth = CommonLinkViabilityLogic.getBirthDateFromDeathRecord(death_record);
-            final LocalDate date_of_child_death = CommonLinkViabilityLogic.getDeathDateFromDeathRecord(death_record);
-            final LocalDate date_of_parents_marriage = CommonLinkViabilityLogic.getMarriageDateFromMarriageRecord(marriage_record);
+        final int date_of_child_birth = TemporalColumns.get(death_record, TemporalColumns.BIRTH_DATE);
+        final int date_of_child_death = TemporalColumns.get(death_record, TemporalColumns.DEATH_DATE);
+        final int date_of_parents_marriage = TemporalColumns.get(marriage_record, TemporalColumns.MARRIAGE_DATE);
 
-            final long years_from_marriage_to_birth = date_of_parents_marriage.until(date_of_child_birth, ChronoUnit.YEARS);
-            final long years_from_marriage_to_death = date_of_parents_marriage.until(date_of_child_death, ChronoUnit.YEARS);
+        if (!TemporalColumns.isKnown(date_of_child_birth) || !TemporalColumns.isKnown(date_of_child_death) || !TemporalColumns.isKnown(date_of_parents_marriage)) return true;
 
-            return years_from_marriage_to_birth >= LinkageConfig.MIN_MARRIAGE_BIRTH_DIFFERENCE &&
-                    years_from_marriage_to_birth <= LinkageConfig.MAX_MARRIAGE_BIRTH_DIFFERENCE &&
-                    years_from_marriage_to_death >= LinkageConfig.MIN_MARRIAGE_BIRTH_DIFFERENCE &&
-                    years_from_marriage_to_death <= LinkageConfig.MAX_MARRIAGE_BIRTH_DIFFERENCE + LinkageConfig.MAX_AGE_AT_DEATH;
+        final int years_from_marriage_to_birth = TemporalColumns.yearsBetween(date_of_parents_marriage, date_of_child_birth);
+        final int years_from_marriage_to_death = TemporalColumns.yearsBetween(date_of_parents_marriage, date_of_child_death);
 
-        } catch (NumberFormatException e) {
-            return true;
-        }
+        return years_from_marriage_to_birth >= LinkageConfig.MIN_MARRIAGE_BIRTH_DIFFERENCE &&
+                years_from_marriage_to_birth <= LinkageConfig.MAX_MARRIAGE_BIRTH_DIFFERENCE &&
+                years_from_marriage_to_death >= LinkageConfig.MIN_MARRIAGE_BIRTH_DIFFERENCE &&
+                years_from_marriage_to_death <= LinkageConfig.MAX_MARRIAGE_BIRTH_DIFFERENCE + LinkageConfig.MAX_AGE_AT_DEATH;
     }
 
     private static String toKeyFromDeath(LXP death_record) {
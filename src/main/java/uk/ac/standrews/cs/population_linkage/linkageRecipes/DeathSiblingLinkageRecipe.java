@@ -24,10 +24,10 @@ import uk.ac.standrews.cs.population_linkage.characterisation.LinkStatus;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.SumOfFieldDistances;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Link;
+import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageConfig;
 import uk.ac.standrews.cs.population_records.record_types.Death;
 import uk.ac.standrews.cs.population_records.record_types.Marriage;
 
-import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -95,6 +95,11 @@ public class DeathSiblingLinkageRecipe extends LinkageRecipe {
         return trueMatch(record1, record2, TRUE_MATCH_ALTERNATIVES);
     }
 
+    @Override
+    public List<List<Pair>> getTrueMatchAlternatives() {
+        return TRUE_MATCH_ALTERNATIVES;
+    }
+
     @Override
     public String getLinkageType() {
         return LINKAGE_TYPE;
@@ -131,15 +136,10 @@ public class DeathSiblingLinkageRecipe extends LinkageRecipe {
 
     public static boolean isViable(final LXP death_record1, final LXP death_record2) {
 
-        try {
-            final LocalDate date_of_birth_from_death_record1 = CommonLinkViabilityLogic.getBirthDateFromDeathRecord(death_record1);
-            final LocalDate date_of_birth_from_death_record2 = CommonLinkViabilityLogic.getBirthDateFromDeathRecord(death_record2);
+        final int date_of_birth_from_death_record1 = TemporalColumns.get(death_record1, TemporalColumns.BIRTH_DATE);
+        final int date_of_birth_from_death_record2 = TemporalColumns.get(death_record2, TemporalColumns.BIRTH_DATE);
 
-            return siblingBirthDatesAreViable(date_of_birth_from_death_record1, date_of_birth_from_death_record2);
-
-        } catch (NumberFormatException e) { // in this case a BIRTH_YEAR is invalid
-            return true;
-        }
+        return siblingBirthDatesAreViable(date_of_birth_from_death_record1, date_of_birth_from_death_record2);
     }
 
     @Override
@@ -147,6 +147,16 @@ public class DeathSiblingLinkageRecipe extends LinkageRecipe {
         return isViable(record1, record2);
     }
 
+    public static ViabilityWindow viabilityWindow() {
+        return ViabilityWindow.within(record -> TemporalColumns.get(record, TemporalColumns.BIRTH_DATE),
+                record -> TemporalColumns.get(record, TemporalColumns.BIRTH_DATE), LinkageConfig.MAX_SIBLING_AGE_DIFFERENCE);
+    }
+
+    @Override
+    public ViabilityWindow getViabilityWindow() {
+        return viabilityWindow();
+    }
+
     @Override
     public List<Integer> getQueryMappingFields() {
         return getLinkageFields();
@@ -159,14 +169,11 @@ public class DeathSiblingLinkageRecipe extends LinkageRecipe {
 
     @Override
     public long getNumberOfGroundTruthTrueLinks() {
-        int count = 0;
-        for (LXP query_record : getQueryRecords()) {
-            count += countDeathSiblingGTLinks(bridge, query_record);
-        }
-        return count;
+        return countGroundTruthLinks(DEATH_GT_SIBLING_LINKS_COUNT_QUERY, Death.STANDARDISED_ID);
     }
 
     private static final String DEATH_GT_SIBLING_LINKS_QUERY = "MATCH (a:Death)-[r:GT_SIBLING, { actors: \"Deceased-Deceased\" } ]-(b:Death) WHERE b.STANDARDISED_ID = $standard_id_from RETURN r";
+    private static final String DEATH_GT_SIBLING_LINKS_COUNT_QUERY = "UNWIND $ids AS id MATCH (a:Death)-[r:GT_SIBLING, { actors: \"Deceased-Deceased\" } ]-(b:Death) WHERE b.STANDARDISED_ID = id RETURN count(r) AS count";
 
     public static int countDeathSiblingGTLinks(NeoDbCypherBridge bridge, LXP death_record) {
         String standard_id_from = death_record.getString(Death.STANDARDISED_ID);
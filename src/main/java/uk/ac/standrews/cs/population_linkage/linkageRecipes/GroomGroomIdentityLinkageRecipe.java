@@ -21,9 +21,9 @@ import uk.ac.standrews.cs.population_linkage.characterisation.LinkStatus;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.SumOfFieldDistances;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Link;
+import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageConfig;
 import uk.ac.standrews.cs.population_records.record_types.Marriage;
 
-import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -75,6 +75,11 @@ public class GroomGroomIdentityLinkageRecipe extends LinkageRecipe {
         return trueMatch(record1, record2, TRUE_MATCH_ALTERNATIVES);
     }
 
+    @Override
+    public List<List<Pair>> getTrueMatchAlternatives() {
+        return TRUE_MATCH_ALTERNATIVES;
+    }
+
     @Override
     public String getLinkageType() {
         return LINKAGE_TYPE;
@@ -125,6 +130,16 @@ public class GroomGroomIdentityLinkageRecipe extends LinkageRecipe {
         return isViable(record1, record2);
     }
 
+    public static ViabilityWindow viabilityWindow() {
+        return ViabilityWindow.within(record -> TemporalColumns.getSpouseBirthDate(record, false),
+                record -> TemporalColumns.getSpouseBirthDate(record, false), LinkageConfig.MAX_ALLOWABLE_AGE_DISCREPANCY);
+    }
+
+    @Override
+    public ViabilityWindow getViabilityWindow() {
+        return viabilityWindow();
+    }
+
     /**
      * Checks whether the discrepancy between the recorded or calculated dates of birth on the two records is acceptably low.
      *
@@ -132,15 +147,10 @@ public class GroomGroomIdentityLinkageRecipe extends LinkageRecipe {
      */
     public static boolean isViable(final LXP record1, final LXP record2) {
 
-        try {
-            LocalDate date_of_birth1 = CommonLinkViabilityLogic.getBirthDateFromMarriageRecord(record1, false);
-            LocalDate date_of_birth2 = CommonLinkViabilityLogic.getBirthDateFromMarriageRecord(record2, false);
-
-            return CommonLinkViabilityLogic.alternativeIdentityBirthDatesAreViable(date_of_birth1, date_of_birth2);
+        final int date_of_birth1 = TemporalColumns.getSpouseBirthDate(record1, false);
+        final int date_of_birth2 = TemporalColumns.getSpouseBirthDate(record2, false);
 
-        } catch (NumberFormatException e) {
-            return true;
-        }
+        return CommonLinkViabilityLogic.alternativeIdentityBirthDatesAreViable(date_of_birth1, date_of_birth2);
     }
 
     @Override
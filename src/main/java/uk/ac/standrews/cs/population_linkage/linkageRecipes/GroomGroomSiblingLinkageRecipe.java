@@ -25,9 +25,9 @@ import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.SumOfFieldDistances;
 import uk.ac.standrews.cs.population_linkage.helpers.RecordFiltering;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Link;
+import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageConfig;
 import uk.ac.standrews.cs.population_records.record_types.Marriage;
 
-import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -95,6 +95,11 @@ public class GroomGroomSiblingLinkageRecipe extends LinkageRecipe {
         return trueMatch(record1, record2, TRUE_MATCH_ALTERNATIVES);
     }
 
+    @Override
+    public List<List<Pair>> getTrueMatchAlternatives() {
+        return TRUE_MATCH_ALTERNATIVES;
+    }
+
     @Override
     public String getLinkageType() {
         return LINKAGE_TYPE;
@@ -130,21 +135,26 @@ public class GroomGroomSiblingLinkageRecipe extends LinkageRecipe {
         return isViable(record1, record2);
     }
 
+    public static ViabilityWindow viabilityWindow() {
+        return ViabilityWindow.within(record -> TemporalColumns.getSpouseBirthDate(record, false),
+                record -> TemporalColumns.getSpouseBirthDate(record, false), LinkageConfig.MAX_SIBLING_AGE_DIFFERENCE);
+    }
+
+    @Override
+    public ViabilityWindow getViabilityWindow() {
+        return viabilityWindow();
+    }
+
     public static boolean isViable(final LXP record1, final LXP record2) {
 
         if (record1.getString(Marriage.STANDARDISED_ID).equals(record2.getString(Marriage.STANDARDISED_ID))) { // avoid self links.
             return false;
         }
 
-        try {
-            final LocalDate date_of_birth1 = CommonLinkViabilityLogic.getBirthDateFromMarriageRecord(record1, false);
-            final LocalDate date_of_birth2 = CommonLinkViabilityLogic.getBirthDateFromMarriageRecord(record2, false);
-
-            return CommonLinkViabilityLogic.siblingBirthDatesAreViable(date_of_birth1, date_of_birth2);
+        final int date_of_birth1 = TemporalColumns.getSpouseBirthDate(record1, false);
+        final int date_of_birth2 = TemporalColumns.getSpouseBirthDate(record2, false);
 
-        } catch (NumberFormatException e) {
-            return true;
-        }
+        return CommonLinkViabilityLogic.siblingBirthDatesAreViable(date_of_birth1, date_of_birth2);
     }
 
     @Override
@@ -159,14 +169,11 @@ public class GroomGroomSiblingLinkageRecipe extends LinkageRecipe {
 
     @Override
     public long getNumberOfGroundTruthTrueLinks() {
-        int count = 0;
-        for (LXP query_record : getQueryRecords()) {
-            count += countGroomGroomSiblingGTLinks(bridge, query_record);
-        }
-        return count;
+        return countGroundTruthLinks(GROOM_GROOM_GT_SIBLING_LINKS_COUNT_QUERY, Marriage.STANDARDISED_ID);
     }
 
     private static final String GROOM_GROOM_GT_SIBLING_LINKS_QUERY = "MATCH (a:Marriage)-[r:GT_SIBLING, { actors: \"Groom-Groom\" } ]-(b:Marriage) WHERE b.STANDARDISED_ID = $standard_id_from RETURN r";
+    private static final String GROOM_GROOM_GT_SIBLING_LINKS_COUNT_QUERY = "UNWIND $ids AS id MATCH (a:Marriage)-[r:GT_SIBLING, { actors: \"Groom-Groom\" } ]-(b:Marriage) WHERE b.STANDARDISED_ID = id RETURN count(r) AS count";
 
     public static int countGroomGroomSiblingGTLinks(NeoDbCypherBridge bridge, LXP marriage_record) {
         String standard_id_from = marriage_record.getString(Marriage.STANDARDISED_ID);
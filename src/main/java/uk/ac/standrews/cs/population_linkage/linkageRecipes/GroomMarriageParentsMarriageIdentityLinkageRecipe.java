@@ -22,6 +22,7 @@ import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.SumOfFieldDistances;
 import uk.ac.standrews.cs.population_linkage.helpers.RecordFiltering;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Link;
+import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageConfig;
 import uk.ac.standrews.cs.population_records.record_types.Marriage;
 
 import java.util.List;
@@ -88,6 +89,11 @@ public class GroomMarriageParentsMarriageIdentityLinkageRecipe extends LinkageRe
         return trueMatch(marriage1, marriage2, TRUE_MATCH_ALTERNATIVES);
     }
 
+    @Override
+    public List<List<Pair>> getTrueMatchAlternatives() {
+        return TRUE_MATCH_ALTERNATIVES;
+    }
+
     @Override
     public String getLinkageType() {
         return LINKAGE_TYPE;
@@ -123,6 +129,16 @@ public class GroomMarriageParentsMarriageIdentityLinkageRecipe extends LinkageRe
         return isViable(record1, record2);
     }
 
+    public static ViabilityWindow viabilityWindow() {
+        return new ViabilityWindow(record -> TemporalColumns.get(record, TemporalColumns.MARRIAGE_DATE),
+                record -> TemporalColumns.get(record, TemporalColumns.MARRIAGE_DATE), -LinkageConfig.MAX_CHILD_PARENTS_MARRIAGE_DIFFERENCE, -LinkageConfig.MIN_CHILD_PARENTS_MARRIAGE_DIFFERENCE);
+    }
+
+    @Override
+    public ViabilityWindow getViabilityWindow() {
+        return viabilityWindow();
+    }
+
     /**
      * Checks whether a plausible period has elapsed between the marriage and the marriage of the daughter.
      *
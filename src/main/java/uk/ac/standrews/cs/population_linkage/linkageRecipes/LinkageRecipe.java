@@ -17,6 +17,7 @@
 package uk.ac.standrews.cs.population_linkage.linkageRecipes;
 
 import com.google.common.collect.Iterables;
+import org.neo4j.driver.Session;
 import uk.ac.standrews.cs.neoStorr.impl.DynamicLXP;
 import uk.ac.standrews.cs.neoStorr.impl.LXP;
 import uk.ac.standrews.cs.neoStorr.impl.Store;
@@ -24,8 +25,10 @@ import uk.ac.standrews.cs.neoStorr.impl.exceptions.PersistentObjectException;
 import uk.ac.standrews.cs.neoStorr.util.NeoDbCypherBridge;
 import uk.ac.standrews.cs.population_linkage.characterisation.LinkStatus;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
+import uk.ac.standrews.cs.population_linkage.linkers.BlockingKey;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Constants;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Link;
+import uk.ac.standrews.cs.population_linkage.supportClasses.RecordSnapshot;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Utilities;
 import uk.ac.standrews.cs.population_records.RecordRepository;
 import uk.ac.standrews.cs.population_records.record_types.Birth;
@@ -36,6 +39,7 @@ import uk.ac.standrews.cs.utilities.measures.coreConcepts.StringMeasure;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
+import java.util.function.ToLongFunction;
 import java.util.stream.StreamSupport;
 
 /**
@@ -65,6 +69,8 @@ public abstract class LinkageRecipe implements LinkViabilityChecker, AutoCloseab
     protected static final String EVERYTHING_STRING = "EVERYTHING";
     public static final int EVERYTHING = Integer.MAX_VALUE;
 
+    private static final int GROUND_TRUTH_COUNT_BATCH_SIZE = 10000;
+
     protected final String source_repository_name;
     protected final String links_persistent_name;
     private final RecordRepository record_repository;
@@ -77,6 +83,8 @@ public abstract class LinkageRecipe implements LinkViabilityChecker, AutoCloseab
     private Integer death_records_size;
     private Integer marriage_records_size;
 
+    private final Map<Class<? extends LXP>, List<TemporalColumns>> temporal_columns = new HashMap<>();
+
     private int number_of_linkage_fields_required;
     private StringMeasure base_measure;
     protected NeoDbCypherBridge bridge;
@@ -96,8 +104,15 @@ public abstract class LinkageRecipe implements LinkViabilityChecker, AutoCloseab
     }
 
     public void close() {
+        for (List<TemporalColumns> columns_for_type : temporal_columns.values()) {
+            for (TemporalColumns columns : columns_for_type) {
+                TemporalColumns.deregister(columns);
+            }
+        }
         record_repository.close();
-        bridge.close();
+        if (RecordSnapshot.getShared(source_repository_name) == null) { // otherwise the bridge is still in use by other recipes
+            bridge.close();
+        }
     }
 
     public int getNumberOfLinkageFieldsRequired() {
@@ -220,6 +235,22 @@ public abstract class LinkageRecipe implements LinkViabilityChecker, AutoCloseab
         throw new RuntimeException("Invalid source type");
     }
 
+    /**
+     * Derives the dates used by the viability checks once for each record type used, so that isViableLink
+     * compares precomputed values rather than parsing the records for every candidate pair. The records returned can
+     * change between calls, for example as the number of linkage fields required changes, so columns are added for
+     * any records not already covered.
+     */
+    private synchronized void prepareTemporalColumns(Class<? extends LXP> type, Iterable<LXP> records) {
+
+        final List<TemporalColumns> columns_for_type = temporal_columns.computeIfAbsent(type, t -> new ArrayList<>());
+        final List<LXP> uncovered = TemporalColumns.uncovered(records, columns_for_type);
+
+        if (!uncovered.isEmpty()) {
+            columns_for_type.add(TemporalColumns.register(new TemporalColumns(uncovered)));
+        }
+    }
+
     private void printSize( Iterable<LXP> iterable, String label) {
         System.out.println( "Retrieved " + Iterables.size(iterable) + " " + label + " records" );
     }
@@ -227,12 +258,14 @@ public abstract class LinkageRecipe implements LinkViabilityChecker, AutoCloseab
     public Iterable<LXP> getStoredRecords() {
         Iterable<LXP> records = getByType(getStoredType());
         printSize( records,"stored");
+        prepareTemporalColumns(getStoredType(), records);
         return records;
     }
 
     public Iterable<LXP> getQueryRecords() {
         Iterable<LXP> records = getByType(getQueryType());
         printSize( records,"query");
+        prepareTemporalColumns(getQueryType(), records);
         return records;
     }
 
@@ -263,6 +296,37 @@ public abstract class LinkageRecipe implements LinkViabilityChecker, AutoCloseab
      */
     public abstract List<Integer> getQueryMappingFields();
 
+    /**
+     * Recipes may declare blocking keys, in which case each query record is only compared with the stored records
+     * sharing a block with it; see BlockingSimilaritySearchLinker.
+     *
+     * @return the blocking keys, or an empty list for no blocking
+     */
+    public List<BlockingKey> getBlockingKeys() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Recipes may declare the range of dates within which a stored record must lie, relative to a query record, for
+     * a link between them to be viable, in which case stored records outside that range are not searched for links
+     * that are to be checked for viability; see TemporalPartitionSearchStructure.
+     *
+     * @return the window, or null if stored records are not to be partitioned by date
+     */
+    public ViabilityWindow getViabilityWindow() {
+        return null;
+    }
+
+    /**
+     * Recipes whose ground truth is defined by trueMatch over a list of alternatives may return that list, so that
+     * candidate true matches can be found by joining records on their identity fields; see GroundTruthIndex.
+     *
+     * @return the alternatives, or null if the ground truth can only be evaluated pairwise by isTrueMatch
+     */
+    public List<List<Pair>> getTrueMatchAlternatives() {
+        return null;
+    }
+
     public boolean isSymmetric() {
         // A linkage is symmetric if both record sets being linked have the same: record type AND role
         // (By definition this must mean that the chosen linkage fields are the same for both records)
@@ -343,6 +407,52 @@ public abstract class LinkageRecipe implements LinkViabilityChecker, AutoCloseab
         return count;
     }
 
+    /**
+     * Counts ground truth relationships for the query records using one aggregate query per batch of record
+     * identifiers, rather than one query per record.
+     *
+     * @param bulk_query a query that unwinds the parameter $ids as id and returns the number of matching relationships as count
+     * @param id_field the field of the query records holding the identifier passed to the query
+     * @return the sum of the counts over all query records
+     */
+    protected long countGroundTruthLinks(String bulk_query, int id_field) {
+
+        Iterable<String> ids = () -> StreamSupport.stream(getQueryRecords().spliterator(), false).map(record -> record.getString(id_field)).iterator();
+
+        return countInBatches(ids, GROUND_TRUTH_COUNT_BATCH_SIZE, batch -> countGroundTruthLinks(bulk_query, batch));
+    }
+
+    /**
+     * @param ids the record identifiers
+     * @param batch_size the maximum number of identifiers in a batch
+     * @param count_batch returns the count for a batch of identifiers
+     * @return the sum of the counts over all batches
+     */
+    static long countInBatches(Iterable<String> ids, int batch_size, ToLongFunction<List<String>> count_batch) {
+
+        long count = 0;
+        List<String> batch = new ArrayList<>();
+
+        for (String id : ids) {
+            batch.add(id);
+            if (batch.size() == batch_size) {
+                count += count_batch.applyAsLong(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            count += count_batch.applyAsLong(batch);
+        }
+        return count;
+    }
+
+    private long countGroundTruthLinks(String bulk_query, List<String> ids) {
+
+        try (Session session = bridge.getNewSession()) {
+            return session.run(bulk_query, Map.of("ids", ids)).single().get("count").asLong();
+        }
+    }
+
     public Map<String, Link> getGroundTruthLinksSymmetric() {
 
         Map<String, Link> map = new HashMap<>();
@@ -404,7 +514,8 @@ public abstract class LinkageRecipe implements LinkViabilityChecker, AutoCloseab
 
     public Iterable<LXP> getBirthRecords() {
         if (birth_records == null) {
-            birth_records = Utilities.getBirthRecords(record_repository);
+            RecordSnapshot snapshot = RecordSnapshot.getShared(source_repository_name);
+            birth_records = snapshot != null ? snapshot.getBirthRecords() : Utilities.getBirthRecords(record_repository);
         }
         return birth_records;
     }
@@ -418,7 +529,8 @@ public abstract class LinkageRecipe implements LinkViabilityChecker, AutoCloseab
 
     protected Iterable<LXP> getDeathRecords() {
         if (death_records == null) {
-            death_records = Utilities.getDeathRecords(record_repository);
+            RecordSnapshot snapshot = RecordSnapshot.getShared(source_repository_name);
+            death_records = snapshot != null ? snapshot.getDeathRecords() : Utilities.getDeathRecords(record_repository);
         }
         return death_records;
     }
@@ -432,7 +544,8 @@ public abstract class LinkageRecipe implements LinkViabilityChecker, AutoCloseab
 
     protected Iterable<LXP> getMarriageRecords() {
         if (marriage_records == null) {
-            marriage_records = Utilities.getMarriageRecords(record_repository);
+            RecordSnapshot snapshot = RecordSnapshot.getShared(source_repository_name);
+            marriage_records = snapshot != null ? snapshot.getMarriageRecords() : Utilities.getMarriageRecords(record_repository);
         }
         return marriage_records;
     }
@@ -489,6 +602,10 @@ public abstract class LinkageRecipe implements LinkViabilityChecker, AutoCloseab
         return filteredRecords;
     }
 
+    public String getSourceRepositoryName() {
+        return source_repository_name;
+    }
+
     public String getLinksPersistentName() {
         return links_persistent_name;
     }
@@ -0,0 +1,360 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.linkageRecipes;
+
+import uk.ac.standrews.cs.neoStorr.impl.LXP;
+import uk.ac.standrews.cs.population_records.record_types.Birth;
+import uk.ac.standrews.cs.population_records.record_types.Death;
+import uk.ac.standrews.cs.population_records.record_types.Marriage;
+
+import java.time.Month;
+import java.time.Year;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The dates needed by the link viability checks, derived once for each of a set of records and held in primitive
+ * columns so that checking a candidate pair needs only integer comparisons, with no parsing, allocation or exceptions.
+ * <p>
+ * Dates are packed as year * 10000 + month * 100 + day, so that they are ordered as the dates are and the number of
+ * whole years between two dates, as LocalDate.until computes it, is the difference of the packed values divided by
+ * 10000. Dates are derived as the corresponding getters in CommonLinkViabilityLogic derive them, and each carries a
+ * precision flag recording whether it was recorded exactly, only as a year, or derived from a recorded age. Where
+ * a getter would have thrown because the data is missing or invalid, the column holds UNKNOWN.
+ * <p>
+ * Columns are registered while their records are in use, and CommonLinkViabilityLogic reads dates through the static
+ * accessors, which look a record up by id in the registered columns and derive its dates on the spot if it is not
+ * registered. When further records come into use, columns covering just those records can be added with uncovered. Columns are not modified after construction and may be shared between threads.
+ */
+public class TemporalColumns {
+
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    // Precisions.
+    public static final byte MISSING = 0;
+    public static final byte EXACT = 1;
+    public static final byte YEAR_ONLY = 2;
+    public static final byte AGE_DERIVED = 3;
+
+    // Columns.
+    public static final int BIRTH_DATE = 0;         // child on a birth record, deceased on a death record
+    public static final int BRIDE_BIRTH_DATE = 1;
+    public static final int GROOM_BIRTH_DATE = 2;
+    public static final int MARRIAGE_DATE = 3;
+    public static final int DEATH_DATE = 4;
+    public static final int AGE_AT_DEATH = 5;       // in years, as recorded rather than a packed date
+    private static final int NUMBER_OF_COLUMNS = 6;
+
+    // Years outside this range are treated as invalid, so that differences between packed dates cannot overflow.
+    private static final int MIN_YEAR = -9999;
+    private static final int MAX_YEAR = 99999;
+
+    private static final List<TemporalColumns> registered = new CopyOnWriteArrayList<>();
+
+    private final Map<String, Integer> ordinals = new HashMap<>(); // record id to index into the columns
+    private final int[][] values;
+    private final byte[][] precisions;
+
+    @SafeVarargs
+    public TemporalColumns(final Iterable<LXP>... record_sets) {
+
+        final List<LXP> distinct = new ArrayList<>();
+        for (Iterable<LXP> record_set : record_sets) {
+            for (LXP record : record_set) {
+                if (ordinals.putIfAbsent(record.getId(), distinct.size()) == null) distinct.add(record);
+            }
+        }
+
+        values = new int[NUMBER_OF_COLUMNS][distinct.size()];
+        precisions = new byte[NUMBER_OF_COLUMNS][distinct.size()];
+
+        final int[] record_values = new int[NUMBER_OF_COLUMNS];
+        final byte[] record_precisions = new byte[NUMBER_OF_COLUMNS];
+
+        for (int ordinal = 0; ordinal < distinct.size(); ordinal++) {
+
+            derive(distinct.get(ordinal), record_values, record_precisions);
+            for (int column = 0; column < NUMBER_OF_COLUMNS; column++) {
+                values[column][ordinal] = record_values[column];
+                precisions[column][ordinal] = record_precisions[column];
+            }
+        }
+    }
+
+    /**
+     * Makes the columns visible to the static accessors until they are deregistered.
+     */
+    public static TemporalColumns register(final TemporalColumns columns) {
+        registered.add(columns);
+        return columns;
+    }
+
+    public static void deregister(final TemporalColumns columns) {
+        registered.remove(columns);
+    }
+
+    /**
+     * @return those of the records not held in any of the given columns
+     */
+    public static List<LXP> uncovered(final Iterable<LXP> records, final Collection<TemporalColumns> columns) {
+
+        final List<LXP> result = new ArrayList<>();
+        for (LXP record : records) {
+
+            boolean covered = false;
+            for (TemporalColumns c : columns) {
+                if (c.getOrdinal(record.getId()) >= 0) {
+                    covered = true;
+                    break;
+                }
+            }
+            if (!covered) result.add(record);
+        }
+        return result;
+    }
+
+    /**
+     * @return the value of the given column for the record, or UNKNOWN
+     */
+    public static int get(final LXP record, final int column) {
+
+        final String id = record.getId();
+        for (TemporalColumns columns : registered) {
+            final int ordinal = columns.getOrdinal(id);
+            if (ordinal >= 0) return columns.values[column][ordinal];
+        }
+
+        final int[] record_values = new int[NUMBER_OF_COLUMNS];
+        derive(record, record_values, new byte[NUMBER_OF_COLUMNS]);
+        return record_values[column];
+    }
+
+    /**
+     * @return the birth date of the bride or groom on a marriage record, or UNKNOWN
+     */
+    public static int getSpouseBirthDate(final LXP marriage_record, final boolean spouse_is_bride) {
+        return get(marriage_record, spouse_is_bride ? BRIDE_BIRTH_DATE : GROOM_BIRTH_DATE);
+    }
+
+    /**
+     * @return the number of whole years from the first date to the second, negative if the second is earlier
+     */
+    public static int yearsBetween(final int from, final int to) {
+        return (to - from) / 10000;
+    }
+
+    public static boolean isKnown(final int value) {
+        return value != UNKNOWN;
+    }
+
+    public static int getYear(final int date) {
+        return Math.floorDiv(date, 10000);
+    }
+
+    public int size() {
+        return ordinals.size();
+    }
+
+    /**
+     * @return the ordinal of the record with the given id, or -1 if it is not held
+     */
+    public int getOrdinal(final String id) {
+
+        final Integer ordinal = ordinals.get(id);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    public int getValue(final int ordinal, final int column) {
+        return values[column][ordinal];
+    }
+
+    public byte getPrecision(final int ordinal, final int column) {
+        return precisions[column][ordinal];
+    }
+
+    private static void derive(final LXP record, final int[] values, final byte[] precisions) {
+
+        Arrays.fill(values, UNKNOWN);
+        Arrays.fill(precisions, MISSING);
+
+        if (record instanceof Birth) {
+
+            setDate(values, precisions, BIRTH_DATE, record.getString(Birth.BIRTH_DAY), record.getString(Birth.BIRTH_MONTH), record.getString(Birth.BIRTH_YEAR));
+        }
+        else if (record instanceof Marriage) {
+
+            final int marriage_year = parseInteger(record.getString(Marriage.MARRIAGE_YEAR));
+            final String bride_age_or_date_of_birth = record.getString(Marriage.BRIDE_AGE_OR_DATE_OF_BIRTH);
+            final String groom_age_or_date_of_birth = record.getString(Marriage.GROOM_AGE_OR_DATE_OF_BIRTH);
+
+            setDate(values, precisions, MARRIAGE_DATE, record.getString(Marriage.MARRIAGE_DAY), record.getString(Marriage.MARRIAGE_MONTH), record.getString(Marriage.MARRIAGE_YEAR));
+            setBirthDate(values, precisions, BRIDE_BIRTH_DATE, bride_age_or_date_of_birth, marriage_year, parseInteger(bride_age_or_date_of_birth));
+            setBirthDate(values, precisions, GROOM_BIRTH_DATE, groom_age_or_date_of_birth, marriage_year, parseInteger(groom_age_or_date_of_birth));
+        }
+        else if (record instanceof Death) {
+
+            final int death_year = parseInteger(record.getString(Death.DEATH_YEAR));
+            final int age_at_death = parseInteger(record.getString(Death.AGE_AT_DEATH));
+
+            if (isKnown(age_at_death)) {
+                values[AGE_AT_DEATH] = age_at_death;
+                precisions[AGE_AT_DEATH] = EXACT;
+            }
+
+            setBirthDate(values, precisions, BIRTH_DATE, record.getString(Death.DATE_OF_BIRTH), death_year, age_at_death);
+            setDate(values, precisions, DEATH_DATE, record.getString(Death.DEATH_DAY), record.getString(Death.DEATH_MONTH), record.getString(Death.DEATH_YEAR));
+
+            if (!isKnown(death_year) && isKnown(values[BIRTH_DATE]) && isKnown(age_at_death)) {
+
+                // Approximate the date from date of birth and age at death, as LocalDate.plusYears does.
+                final int birth_year = getYear(values[BIRTH_DATE]);
+                final int month_and_day = values[BIRTH_DATE] - birth_year * 10000;
+                final int death_date = pack(birth_year + age_at_death, month_and_day / 100, month_and_day % 100);
+
+                set(values, precisions, DEATH_DATE, isKnown(death_date) ? death_date : pack(birth_year + age_at_death, 2, 28), AGE_DERIVED);
+            }
+        }
+    }
+
+    /**
+     * Sets a date recorded as separate day, month and year fields, assuming DEFAULT_MONTH if only the year is usable.
+     */
+    private static void setDate(final int[] values, final byte[] precisions, final int column, final String day, final String month, final String year) {
+
+        final int parsed_year = parseInteger(year);
+        if (!isKnown(parsed_year)) return;
+
+        final int parsed_day = parseInteger(day);
+        final int parsed_month = parseInteger(month);
+
+        if (isKnown(parsed_day) && isKnown(parsed_month)) {
+            set(values, precisions, column, pack(parsed_year, parsed_month, parsed_day), EXACT);
+        } else {
+            set(values, precisions, column, pack(parsed_year, CommonLinkViabilityLogic.DEFAULT_MONTH, 1), YEAR_ONLY);
+        }
+    }
+
+    /**
+     * Sets a date of birth recorded as a full or partial date, or failing that approximated from an age at an event.
+     */
+    private static void setBirthDate(final int[] values, final byte[] precisions, final int column, final String date_of_birth, final int event_year, final int age) {
+
+        // A bare number is an age rather than a date, and an empty field is neither, so don't try to parse them.
+        if (date_of_birth != null && !date_of_birth.isEmpty() && !isKnown(parseInteger(date_of_birth))) {
+
+            final int date = parseDate(date_of_birth);
+            if (isKnown(date)) {
+                set(values, precisions, column, date, EXACT);
+                return;
+            }
+
+            // Try with just the year.
+            final int year = parseInteger(extractYear(date_of_birth));
+            if (isKnown(year)) {
+                set(values, precisions, column, pack(year, CommonLinkViabilityLogic.DEFAULT_MONTH, 1), YEAR_ONLY);
+                return;
+            }
+        }
+
+        if (isKnown(event_year) && isKnown(age)) {
+            set(values, precisions, column, pack(event_year - age, CommonLinkViabilityLogic.DEFAULT_MONTH, 1), AGE_DERIVED);
+        }
+    }
+
+    private static void set(final int[] values, final byte[] precisions, final int column, final int value, final byte precision) {
+
+        if (isKnown(value)) {
+            values[column] = value;
+            precisions[column] = precision;
+        }
+    }
+
+    /**
+     * @return the packed date, or UNKNOWN if it is not a valid date
+     */
+    private static int pack(final int year, final int month, final int day) {
+
+        if (year < MIN_YEAR || year > MAX_YEAR || month < 1 || month > 12 || day < 1 || day > Month.of(month).length(Year.isLeap(year))) {
+            return UNKNOWN;
+        }
+        return year * 10000 + month * 100 + day;
+    }
+
+    /**
+     * @return the packed date written in the dd/MM/yyyy form read by Normalisation.parseDate, or UNKNOWN if the string
+     * is not in that form or is not a valid date
+     */
+    static int parseDate(final String s) {
+
+        if (s == null || s.length() < 10 || s.charAt(2) != '/' || s.charAt(5) != '/') return UNKNOWN;
+
+        final int day = parseDigits(s, 0, 2);
+        final int month = parseDigits(s, 3, 5);
+        final int year = parseDigits(s, 6, s.length());
+
+        return isKnown(day) && isKnown(month) && isKnown(year) ? pack(year, month, day) : UNKNOWN;
+    }
+
+    /**
+     * @return the part of the date following the last separator, as Normalisation.extractYear gives it
+     */
+    static String extractYear(final String s) {
+        return s.substring(s.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * @return the non-negative value of the digits between the given positions, or UNKNOWN if there are any other characters
+     */
+    private static int parseDigits(final String s, final int start, final int end) {
+
+        if (end - start > 9) return UNKNOWN;
+
+        int result = 0;
+        for (int position = start; position < end; position++) {
+
+            final int digit = Character.digit(s.charAt(position), 10);
+            if (digit < 0) return UNKNOWN;
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    /**
+     * @return the value of the string as Integer.parseInt would give it, or UNKNOWN where that would throw
+     */
+    public static int parseInteger(final String s) {
+
+        if (s == null || s.isEmpty()) return UNKNOWN;
+
+        final boolean negative = s.charAt(0) == '-';
+        int position = negative || s.charAt(0) == '+' ? 1 : 0;
+        if (position == s.length()) return UNKNOWN;
+
+        long result = 0;
+        for (; position < s.length(); position++) {
+
+            final int digit = Character.digit(s.charAt(position), 10);
+            if (digit < 0) return UNKNOWN;
+
+            result = result * 10 + digit;
+            if (result > (long) Integer.MAX_VALUE + 1) return UNKNOWN;
+        }
+
+        if (negative) result = -result;
+        return result > Integer.MAX_VALUE || result <= UNKNOWN ? UNKNOWN : (int) result;
+    }
+}
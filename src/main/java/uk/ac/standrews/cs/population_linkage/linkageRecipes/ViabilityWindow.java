@@ -0,0 +1,109 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.linkageRecipes;
+
+import uk.ac.standrews.cs.neoStorr.impl.LXP;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * Declares how far apart in time a stored record and a query record may be for a link between them to be viable,
+ * so that stored records outside that range can be left out of the search for each query record.
+ * <p>
+ * The window must be no narrower than the recipe's viability check: any pair placed outside it must also be rejected
+ * by LinkageRecipe.isViableLink. Pairs in which either date is unknown are never excluded, as the checks treat them
+ * as viable.
+ *
+ * @see uk.ac.standrews.cs.population_linkage.searchStructures.TemporalPartitionSearchStructure
+ */
+public class ViabilityWindow {
+
+    private final ToIntFunction<LXP> stored_date;
+    private final ToIntFunction<LXP> query_date;
+    private final int min_years;
+    private final int max_years;
+
+    /**
+     * @param stored_date - gives the date for a stored record, packed as in TemporalColumns, or UNKNOWN
+     * @param query_date  - gives the date for a query record, packed as in TemporalColumns, or UNKNOWN
+     * @param min_years   - the least viable value of TemporalColumns.yearsBetween(query date, stored date)
+     * @param max_years   - the greatest viable value of TemporalColumns.yearsBetween(query date, stored date)
+     */
+    public ViabilityWindow(final ToIntFunction<LXP> stored_date, final ToIntFunction<LXP> query_date, final int min_years, final int max_years) {
+
+        this.stored_date = stored_date;
+        this.query_date = query_date;
+        this.min_years = min_years;
+        this.max_years = max_years;
+    }
+
+    /**
+     * @return the year of the stored record's date, or UNKNOWN
+     */
+    public int getStoredYear(final LXP stored_record) {
+
+        final int date = stored_date.applyAsInt(stored_record);
+        return TemporalColumns.isKnown(date) ? TemporalColumns.getYear(date) : TemporalColumns.UNKNOWN;
+    }
+
+    /**
+     * The window is widened by a year at each end, since whole years between dates may differ by one from the
+     * difference between their years.
+     *
+     * @return the earliest year of a stored record that may be viably linked to the query record, or Integer.MIN_VALUE
+     * if the query record's date is unknown
+     */
+    public int getEarliestStoredYear(final LXP query_record) {
+
+        final int date = query_date.applyAsInt(query_record);
+        return TemporalColumns.isKnown(date) ? TemporalColumns.getYear(date) + min_years - 1 : Integer.MIN_VALUE;
+    }
+
+    /**
+     * @return the latest year of a stored record that may be viably linked to the query record, or Integer.MAX_VALUE
+     * if the query record's date is unknown
+     * @see #getEarliestStoredYear
+     */
+    public int getLatestStoredYear(final LXP query_record) {
+
+        final int date = query_date.applyAsInt(query_record);
+        return TemporalColumns.isKnown(date) ? TemporalColumns.getYear(date) + max_years + 1 : Integer.MAX_VALUE;
+    }
+
+    /**
+     * For checks that treat a pair as viable if any of several dates is unknown.
+     *
+     * @param columns - columns of TemporalColumns that must be known for the date to be used
+     * @return the given date, or UNKNOWN if any of the columns is unknown for the record
+     */
+    public static ToIntFunction<LXP> requiring(final ToIntFunction<LXP> date, final int... columns) {
+
+        return record -> {
+            for (int column : columns) {
+                if (!TemporalColumns.isKnown(TemporalColumns.get(record, column))) return TemporalColumns.UNKNOWN;
+            }
+            return date.applyAsInt(record);
+        };
+    }
+
+    /**
+     * A window for links between records whose dates must be within the given number of years of each other.
+     */
+    public static ViabilityWindow within(final ToIntFunction<LXP> stored_date, final ToIntFunction<LXP> query_date, final int max_years_apart) {
+        return new ViabilityWindow(stored_date, query_date, -max_years_apart, max_years_apart);
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.linkageRunners;
+
+import uk.ac.standrews.cs.neoStorr.util.NeoDbCypherBridge;
+import uk.ac.standrews.cs.population_linkage.graph.Query;
+import uk.ac.standrews.cs.population_linkage.linkageRecipes.LinkageRecipe;
+import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageConfig;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Buffers links on behalf of a MakePersistent implementation and writes them to Neo4j in batches,
+ * using one of the UNWIND *_BATCH_QUERY queries in Query per relationship type.
+ * Links are deduplicated in memory within each batch before being written; since the existence checks in Query are
+ * undirected, a link and its reverse are treated as the same link when both records are of the same type.
+ * Duplicates in different batches are left to the MERGE in the batch queries, so that memory use is bounded by the
+ * batches awaiting writing rather than growing with the number of links.
+ * Full batches are written by a single writer thread; if more than MAX_PENDING_LINK_BATCHES are waiting to be written
+ * then add blocks until the writer catches up.
+ * close must be called to write the final partial batches and wait for the writer.
+ */
+public class BatchedLinkPersister implements AutoCloseable {
+
+    private static final Batch END_OF_BATCHES = new Batch(null, Collections.emptyList());
+    private static final Map<String, LongAdder> relationships_created_by_provenance = new ConcurrentHashMap<>();
+
+    private final int batch_size;
+    private final Map<String, List<Map<String, Object>>> buffers = new HashMap<>(); // query -> rows awaiting a batch
+    private final Map<String, Set<String>> seen = new HashMap<>(); // query -> keys of the links in its buffer
+    private final BlockingQueue<Batch> pending;
+
+    private NeoDbCypherBridge bridge = null;
+    private String provenance = null;
+    private Thread writer = null;
+    private volatile RuntimeException writer_failure = null;
+    private boolean closed = false;
+
+    private long links_added = 0;
+    private long duplicates_dropped = 0;
+    private long links_written = 0;
+    private long relationships_created = 0;
+    private long start_time = 0;
+
+    public BatchedLinkPersister() {
+        this(LinkageConfig.LINK_PERSISTENCE_BATCH_SIZE, LinkageConfig.MAX_PENDING_LINK_BATCHES);
+    }
+
+    public BatchedLinkPersister(int batch_size, int max_pending_batches) {
+        this.batch_size = batch_size;
+        this.pending = new ArrayBlockingQueue<>(max_pending_batches + 1); // +1 leaves room for END_OF_BATCHES
+    }
+
+    /**
+     * Adds a link to be created from the node with standard_id_from to the node with standard_id_to.
+     * @param recipe      - the recipe which made the link; supplies the bridge, provenance and number of fields populated
+     * @param batch_query - one of the *_BATCH_QUERY queries in Query
+     */
+    public synchronized void add(LinkageRecipe recipe, String batch_query, String standard_id_from, String standard_id_to, double distance) {
+
+        add(recipe, recipe.getNumberOfLinkageFieldsRequired(), batch_query, standard_id_from, standard_id_to, distance);
+    }
+
+    /**
+     * Adds a link as above, made when fields_populated linkage fields were required rather than the recipe's current number.
+     * @param fields_populated - the number of linkage fields required of the pass which made the link; see LinkageRunner.sweepLinkageFields
+     */
+    public synchronized void add(LinkageRecipe recipe, int fields_populated, String batch_query, String standard_id_from, String standard_id_to, double distance) {
+
+        if (bridge == null) {
+            bridge = recipe.getBridge();
+        }
+
+        boolean undirected = recipe.getStoredType().equals(recipe.getQueryType());
+        add(recipe.getLinksPersistentName(), undirected, fields_populated, batch_query, standard_id_from, standard_id_to, distance);
+    }
+
+    /**
+     * Adds a link as above, given the properties of the recipe which made it.
+     * @param undirected - whether a link and its reverse are the same link, as when both records are of the same type
+     */
+    synchronized void add(String links_persistent_name, boolean undirected, int fields_populated, String batch_query, String standard_id_from, String standard_id_to, double distance) {
+
+        checkWriter();
+        if (closed) {
+            throw new IllegalStateException("links added after persister closed");
+        }
+
+        if (provenance == null) {
+            provenance = links_persistent_name;
+        }
+
+        links_added++;
+        if (!seen.computeIfAbsent(batch_query, k -> new HashSet<>()).add(toKey(links_persistent_name, undirected, standard_id_from, standard_id_to))) {
+            duplicates_dropped++;
+            return;
+        }
+
+        List<Map<String, Object>> rows = buffers.computeIfAbsent(batch_query, k -> new ArrayList<>());
+        rows.add(Query.getBatchCreationRow(standard_id_from, standard_id_to, links_persistent_name, fields_populated, distance));
+
+        if (rows.size() >= batch_size) {
+            buffers.remove(batch_query);
+            seen.remove(batch_query);
+            submit(new Batch(batch_query, rows));
+        }
+    }
+
+    /**
+     * Writes out all buffered links, waits for the writer to finish and reports the persistence rate.
+     */
+    @Override
+    public synchronized void close() {
+
+        if (closed) return;
+        closed = true;
+
+        for (Map.Entry<String, List<Map<String, Object>>> entry : buffers.entrySet()) {
+            submit(new Batch(entry.getKey(), entry.getValue()));
+        }
+        buffers.clear();
+        seen.clear();
+
+        if (writer != null) {
+            put(END_OF_BATCHES);
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            checkWriter();
+            printStatistics();
+        }
+    }
+
+    /**
+     * @param links_persistent_name - the links persistent name of the recipes whose links are counted
+     * @return the number of relationships created in this JVM by persisters used with those recipes
+     */
+    public static long getRelationshipsCreated(String links_persistent_name) {
+        LongAdder created = relationships_created_by_provenance.get(links_persistent_name);
+        return created == null ? 0 : created.sum();
+    }
+
+    private String toKey(String links_persistent_name, boolean undirected, String standard_id_from, String standard_id_to) {
+
+        String ids = undirected && standard_id_from.compareTo(standard_id_to) > 0 ? standard_id_to + "-" + standard_id_from : standard_id_from + "-" + standard_id_to;
+
+        return links_persistent_name + "/" + ids;
+    }
+
+    private void submit(Batch batch) {
+
+        if (writer == null) {
+            startWriter();
+        }
+        put(batch);
+    }
+
+    private void startWriter() {
+
+        start_time = System.currentTimeMillis();
+        writer = new Thread(() -> {
+            try {
+                Batch batch;
+                while ((batch = pending.take()) != END_OF_BATCHES) {
+                    int created = createReferences(batch);
+                    relationships_created += created;
+                    relationships_created_by_provenance.computeIfAbsent(provenance, k -> new LongAdder()).add(created);
+                    links_written += batch.rows.size();
+                }
+            } catch (InterruptedException e) {
+                writer_failure = new RuntimeException(e);
+            } catch (RuntimeException e) {
+                writer_failure = e;
+                pending.clear(); // release any producer blocked in put
+            }
+        }, "link-persister");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private int createReferences(Batch batch) throws InterruptedException {
+
+        // a batch is written in one transaction, so it can be retried if it is rolled back, e.g. on deadlock with a concurrent writer
+        return Query.writeWithRetry(() -> write(batch.query, batch.rows));
+    }
+
+    /**
+     * Writes a batch of rows in one transaction, called from the writer thread.
+     * @return the number of relationships created
+     */
+    int write(String batch_query, List<Map<String, Object>> rows) {
+        return Query.createReferences(bridge, batch_query, rows);
+    }
+
+    private void put(Batch batch) {
+
+        try {
+            while (!pending.offer(batch, 1, TimeUnit.SECONDS)) {
+                checkWriter(); // blocks here while the writer is behind - this is the back-pressure on linkage
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void checkWriter() {
+
+        if (writer_failure != null) {
+            throw new RuntimeException("Link persistence failed", writer_failure);
+        }
+    }
+
+    private void printStatistics() {
+
+        long elapsed_millis = Math.max(1, System.currentTimeMillis() - start_time);
+        System.out.printf("Links persisted: %d added, %d duplicates dropped, %d written, %d relationships created in %.1fs (%.0f links/s)\n",
+                links_added, duplicates_dropped, links_written, relationships_created, elapsed_millis / 1000.0, links_written * 1000.0 / elapsed_millis);
+    }
+
+    private static class Batch {
+
+        final String query;
+        final List<Map<String, Object>> rows;
+
+        Batch(String query, List<Map<String, Object>> rows) {
+            this.query = query;
+            this.rows = rows;
+        }
+    }
+}
@@ -16,19 +16,14 @@
  */
 package uk.ac.standrews.cs.population_linkage.linkageRunners;
 
-import org.neo4j.driver.types.Relationship;
 import uk.ac.standrews.cs.neoStorr.impl.LXP;
-import uk.ac.standrews.cs.neoStorr.impl.Store;
 import uk.ac.standrews.cs.neoStorr.impl.exceptions.BucketException;
 import uk.ac.standrews.cs.neoStorr.impl.exceptions.RepositoryException;
-import uk.ac.standrews.cs.neoStorr.interfaces.IBucket;
-import uk.ac.standrews.cs.neoStorr.interfaces.IRepository;
 import uk.ac.standrews.cs.neoStorr.util.NeoDbCypherBridge;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
-import uk.ac.standrews.cs.population_linkage.datasets.Umea;
 import uk.ac.standrews.cs.population_linkage.helpers.RecordFiltering;
-import uk.ac.standrews.cs.population_linkage.linkageRecipes.BirthDeathIdentityLinkageRecipe;
 import uk.ac.standrews.cs.population_linkage.linkageRecipes.LinkageRecipe;
+import uk.ac.standrews.cs.population_linkage.linkers.BlockingSimilaritySearchLinker;
 import uk.ac.standrews.cs.population_linkage.linkers.Linker;
 import uk.ac.standrews.cs.population_linkage.linkers.SimilaritySearchLinker;
 import uk.ac.standrews.cs.population_linkage.searchStructures.BitBlasterSearchStructure;
@@ -38,24 +33,22 @@ import uk.ac.standrews.cs.population_linkage.supportClasses.Link;
 import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageConfig;
 import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageQuality;
 import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageResult;
+import uk.ac.standrews.cs.population_linkage.supportClasses.RecordPair;
 import uk.ac.standrews.cs.population_records.RecordRepository;
-import uk.ac.standrews.cs.population_records.record_types.Birth;
-import uk.ac.standrews.cs.population_records.record_types.Death;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
-import static uk.ac.standrews.cs.population_linkage.graph.NeoUtil.getByNeoId;
 import static uk.ac.standrews.cs.population_linkage.helpers.RecordFiltering.filter;
 import static uk.ac.standrews.cs.population_linkage.supportClasses.DisplayMethods.*;
 
 public class BitBlasterLinkageRunner extends LinkageRunner {
 
+    private static final int EVALUATION_CHUNK_SIZE = 10000;
+
     @Override
     public LinkageRecipe getLinkageRecipe(String links_persistent_name, String source_repository_name, String results_repository_name, RecordRepository record_repository) {
         return linkage_recipe;
@@ -64,25 +57,62 @@ public class BitBlasterLinkageRunner extends LinkageRunner {
     public Linker getLinker(LinkageRecipe linkage_recipe) {
         LXPMeasure composite_measure = linkage_recipe.getCompositeMeasure();
         System.out.println( composite_measure.getMeasureName() + " : " + composite_measure.hashCode() );
+        if (!linkage_recipe.getBlockingKeys().isEmpty()) {
+            return new BlockingSimilaritySearchLinker(getSearchFactory(composite_measure), composite_measure, linkage_recipe.getThreshold(), getNumberOfProgressUpdates(),
+                    linkage_recipe.getLinkageType(), "threshold match at ", linkage_recipe.getStoredRole(), linkage_recipe.getQueryRole(), linkage_recipe, linkage_recipe.getBlockingKeys());
+        }
         return new SimilaritySearchLinker(getSearchFactory(composite_measure), composite_measure, linkage_recipe.getThreshold(), getNumberOfProgressUpdates(),
                 linkage_recipe.getLinkageType(), "threshold match at ", linkage_recipe.getStoredRole(), linkage_recipe.getQueryRole(), linkage_recipe);
     }
 
     public SearchStructureFactory<LXP> getSearchFactory(LXPMeasure composite_measure) {
-        return new BitBlasterSearchStructureFactory<>(composite_measure);
+
+        if (LinkageConfig.REFERENCE_DISTANCE_INDEX_DIRECTORY == null || linkage_recipe == null) {
+            return new BitBlasterSearchStructureFactory<>(composite_measure);
+        }
+
+        String index_key = linkage_recipe.getSourceRepositoryName() + "/" + linkage_recipe.getClass().getName() + "/" + composite_measure.getMeasureName() + "/" +
+                linkage_recipe.getLinkageFields();
+        return new BitBlasterSearchStructureFactory<>(composite_measure, LinkageConfig.REFERENCE_DISTANCE_INDEX_DIRECTORY, index_key, LXP::getId, this::getLinkageFieldContent);
+    }
+
+    /**
+     * @return the values of the record's linkage fields, on which its distances depend
+     */
+    private String getLinkageFieldContent(LXP record) {
+
+        StringBuilder builder = new StringBuilder();
+        for (int field : linkage_recipe.getLinkageFields()) {
+            builder.append(record.getString(field)).append('\0');
+        }
+        return builder.toString();
     }
 
     protected List<LXP> getReferencePoints() {
-        List<LXP> candidates = filter(linkage_recipe.getLinkageFields().size(), LinkageRecipe.EVERYTHING, linkage_recipe.getStoredRecords(), linkage_recipe.getLinkageFields());
+        return getReferencePoints(linkage_recipe.getStoredRecords());
+    }
+
+    protected List<LXP> getReferencePoints(Iterable<LXP> stored_records) {
+        List<LXP> candidates = filter(linkage_recipe.getLinkageFields().size(), LinkageRecipe.EVERYTHING, stored_records, linkage_recipe.getLinkageFields());
         return BitBlasterSearchStructure.chooseRandomReferencePoints(candidates, LinkageConfig.NUMBER_OF_REFERENCE_OBJECTS);
     }
 
     public LinkageResult link(Linker linker, MakePersistent make_persistent, boolean evaluate_quality, long numberOfGroundTruthTrueLinks, boolean persist_links) throws Exception {
 
-        List<Link> links_as_list;
-        Iterable<Link> links = linker.getLinks();
-        links_as_list = StreamSupport.stream(links.spliterator(), false).collect(Collectors.toList());
-        return processLinks(make_persistent, evaluate_quality, persist_links, links_as_list);
+        LinkageResult result;
+
+        if (linker instanceof SimilaritySearchLinker) {
+            try (SimilaritySearchLinker.ParallelLinks links = ((SimilaritySearchLinker) linker).getLinksInParallel()) {
+                result = processLinkStream(make_persistent, evaluate_quality, persist_links, links);
+            }
+        } else {
+            result = processLinkStream(make_persistent, evaluate_quality, persist_links, linker.getLinks());
+        }
+
+        if (evaluate_quality && LinkageConfig.REPORT_BLOCKING_RECALL && linker instanceof BlockingSimilaritySearchLinker) {
+            ((BlockingSimilaritySearchLinker) linker).reportRecall(linkage_recipe.getNumberOfGroundTruthTrueLinks());
+        }
+        return result;
     }
 
     public void addRecords(Linker linker) {
@@ -91,6 +121,12 @@ public class BitBlasterLinkageRunner extends LinkageRunner {
         System.out.println("Finished adding records @ " + LocalDateTime.now());
     }
 
+    protected void addRecords(Linker linker, Iterable<LXP> stored_records, Iterable<LXP> query_records, List<LXP> reference_objects) {
+        System.out.println("Adding records into linker @ " + LocalDateTime.now());
+        ((SimilaritySearchLinker) linker).addRecords(stored_records, query_records, reference_objects);
+        System.out.println("Finished adding records @ " + LocalDateTime.now());
+    }
+
     private void addRecordsDummy() {
         System.out.println("Should Add records into linker @ " + LocalDateTime.now());
         System.exit(1);
@@ -102,7 +138,10 @@ public class BitBlasterLinkageRunner extends LinkageRunner {
 
         List<Link> linked_pairs = new ArrayList<>();
 
-        for (List<Link> list_of_links : linker.getListsOfLinks()) {
+        // For identity linkage only the closest links are used, so there is no need to retrieve the others.
+        Iterable<List<Link>> lists_of_links = isIdentityLinkage ? linker.getListsOfClosestLinks() : linker.getListsOfLinks();
+
+        for (List<Link> list_of_links : lists_of_links) {
             if (list_of_links.size() > 0) {
                 if (!isIdentityLinkage) {   // for non identity add all of then for now - TODO EXPLORE THIS.
                     linked_pairs.addAll(list_of_links);
@@ -131,7 +170,7 @@ public class BitBlasterLinkageRunner extends LinkageRunner {
 //        showlol( lol );
         List<Link> linked_pairs = processListsOfLists(linker.getListsOfLinks(), isIdentityLinkage);
         LinkageResult result = processLinks(make_persistent, true, false, linked_pairs); // params hacked TODO
-        investigate(result.getLinks(), bridge);
+        investigate(result.getLinks());
         return result;
     }
 
@@ -146,7 +185,7 @@ public class BitBlasterLinkageRunner extends LinkageRunner {
         LinkageResult result = processLinks(make_persistent, true, false, linked_pairs); // params hacked TODO
         System.out.println("printing links and non-links @ " + LocalDateTime.now());
         printLinks(result.getLinks());
-        printNonLinks(result.getLinks(), bridge);
+        printNonLinks(result.getLinks());
         return result;
     }
 
@@ -165,72 +204,26 @@ public class BitBlasterLinkageRunner extends LinkageRunner {
     }
 
     // Print non-links and distances
-    private void printNonLinks(Iterable<Link> links, NeoDbCypherBridge bridge) throws RepositoryException, BucketException {
-
-        List<Relationship> gt_links = BirthDeathIdentityLinkageRecipe.getAllBirthDeathIdentityGTLinks(bridge);
-        IRepository umea_repo = Store.getInstance().getRepository(Umea.REPOSITORY_NAME);
-        IBucket<Birth> births = umea_repo.getBucket("birth_records", Birth.class);
-        IBucket<Death> deaths = umea_repo.getBucket("death_records", Death.class);
-
-        for (Relationship gt_link : gt_links) {
-            String birth_neo_id = gt_link.startNodeElementId();
-            String death_neo_id = gt_link.endNodeElementId();
-
-            if (notFound(links, birth_neo_id, death_neo_id)) {
-
-                Birth b = getByNeoId(birth_neo_id, births, bridge);
-                Death d = getByNeoId(death_neo_id, deaths, bridge);
+    private void printNonLinks(Iterable<Link> links) {
 
-                String birth_storr_id = b.getId();
-                String death_storr_id = d.getId();
-
-                double distance = linkage_recipe.getCompositeMeasure().distance(b, d);
-                System.out.println(birth_storr_id + "\t" + death_storr_id + "\t" + distance + "\tFN");
-            }
+        for (RecordPair missed : getGroundTruthIndex().getMissedLinks(links)) {
+            System.out.println(missed.stored_record.getId() + "\t" + missed.query_record.getId() + "\t" + missed.distance + "\tFN");
         }
     }
 
     // Investigate non-links and why we missed them.
-    private void investigate(Iterable<Link> links, NeoDbCypherBridge bridge) throws RepositoryException, BucketException {
-
-        List<Relationship> gt_links = ((BirthDeathIdentityLinkageRecipe) linkage_recipe).getAllBirthDeathIdentityGTLinks(bridge);
-        IRepository umea_repo = Store.getInstance().getRepository(Umea.REPOSITORY_NAME); // TODO HACK
-        IBucket<Birth> births = umea_repo.getBucket("birth_records", Birth.class);
-        IBucket<Death> deaths = umea_repo.getBucket("death_records", Death.class);
-
-        for (Relationship gt_link : gt_links) {
-            String birth_neo_id = gt_link.startNodeElementId();
-            String death_neo_id = gt_link.endNodeElementId();
-
-            System.out.println("Links not found by linker:");
-            if (notFound(links, birth_neo_id, death_neo_id)) {
-
-                Birth b = getByNeoId(birth_neo_id, births, bridge);
-                Death d = getByNeoId(death_neo_id, deaths, bridge);
-
-                String birth_storr_id = b.getId();
-                String death_storr_id = d.getId();
-
-                double distance = linkage_recipe.getCompositeMeasure().distance(b, d);
-                System.out.println("No match for pair: " + birth_storr_id + " " + death_storr_id + " distance =" + distance);
-                Birth birth = births.getObjectById(birth_storr_id);
-                Death death = deaths.getObjectById(death_storr_id);
-                LXP death_birth = linkage_recipe.convertToOtherRecordType(death);
-                showBirth(birth);
-                showDeath(death);
-                showMatchFields(birth, death_birth, linkage_recipe.getLinkageFields());
-                System.out.println("---");
-            }
-        }
-    }
+    private void investigate(Iterable<Link> links) {
 
-    private boolean notFound(Iterable<Link> links, String birth_neo_id, String death_neo_id) {
-        for (Link link : links) {
-            if (link.getRecord1().getObjectId().equals(birth_neo_id) && link.getRecord2().getObjectId().equals(death_neo_id)) {
-                return false;
-            }
+        System.out.println("Links not found by linker:");
+        for (RecordPair missed : getGroundTruthIndex().getMissedLinks(links)) {
+
+            System.out.println("No match for pair: " + missed.stored_record.getId() + " " + missed.query_record.getId() + " distance =" + missed.distance);
+            LXP query_as_stored = linkage_recipe.convertToOtherRecordType(missed.query_record);
+            showBirth(missed.stored_record);
+            showDeath(missed.query_record);
+            showMatchFields(missed.stored_record, query_as_stored, linkage_recipe.getLinkageFields());
+            System.out.println("---");
         }
-        return true;
     }
 
     private void showlol(Iterable<List<Link>> lol) {
@@ -484,6 +477,43 @@ public class BitBlasterLinkageRunner extends LinkageRunner {
         }
     }
 
+    /**
+     * As processLinks, but the links are consumed as they are produced and not retained, so the links are not
+     * included in the result. Evaluation is carried out in parallel over chunks of links.
+     */
+    protected LinkageResult processLinkStream(MakePersistent make_persistent, boolean evaluate_quality, boolean persist_links, Iterable<Link> links) {
+
+        System.out.println("Entering persist and evaluate loop @ " + LocalDateTime.now());
+
+        long links_made = 0;
+        long tp = 0;
+        List<Link> chunk = new ArrayList<>();
+
+        for (Link link : links) {
+            if (persist_links) {
+                make_persistent.makePersistent(linkage_recipe, link);
+            }
+            links_made++;
+            if (evaluate_quality) {
+                chunk.add(link);
+                if (chunk.size() == EVALUATION_CHUNK_SIZE) {
+                    tp += chunk.parallelStream().filter(l -> doesGTSayIsTrue(l)).count();
+                    chunk.clear();
+                }
+            }
+        }
+        tp += chunk.parallelStream().filter(l -> doesGTSayIsTrue(l)).count();
+
+        System.out.println(persist_links ? "Links made: " + links_made : "Persist links not requested");
+        System.out.println("Exiting persist and evaluate loop @ " + LocalDateTime.now());
+
+        if (evaluate_quality) {
+            return new LinkageResult(getLinkageQuality(evaluate_quality, tp, links_made - tp), null);
+        } else {
+            return new LinkageResult(new LinkageQuality("Linkage Quality not requested"), null);
+        }
+    }
+
     private LinkageQuality getLinkageQuality(boolean evaluate_quality, long tp, long fp) {
         long numberOfGroundTruthTrueLinks;
         System.out.println("Evaluating ground truth @ " + LocalDateTime.now());
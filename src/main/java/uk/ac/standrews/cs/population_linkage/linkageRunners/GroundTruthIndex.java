@@ -0,0 +1,268 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.linkageRunners;
+
+import uk.ac.standrews.cs.neoStorr.impl.LXP;
+import uk.ac.standrews.cs.neoStorr.impl.exceptions.BucketException;
+import uk.ac.standrews.cs.neoStorr.impl.exceptions.RepositoryException;
+import uk.ac.standrews.cs.population_linkage.characterisation.LinkStatus;
+import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
+import uk.ac.standrews.cs.population_linkage.linkageRecipes.LinkageRecipe;
+import uk.ac.standrews.cs.population_linkage.supportClasses.Link;
+import uk.ac.standrews.cs.population_linkage.supportClasses.RecordPair;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * An in-memory index of the ground truth for a linkage recipe, built once from the recipe's stored and query records,
+ * so that links can be classified without faulting their records back in from the store, and the ground truth links
+ * missed by a linker listed without comparing every link with every ground truth pair.
+ *
+ * Each record is given an ordinal, against which are held the record and its identity keys for each of the recipe's
+ * true match alternatives. A key is the concatenation of the identity fields in an alternative, or null if any of them
+ * is empty. A recipe only reports a true match when some alternative matches, so only pairs sharing a key are
+ * candidates, and each candidate is confirmed by the recipe's own isTrueMatch on the held records.
+ */
+public class GroundTruthIndex {
+
+    private static final char KEY_SEPARATOR = '\u0001';
+
+    private final String recipe_name;
+    private final List<List<LinkageRecipe.Pair>> true_match_alternatives;
+    private final boolean symmetric;
+    private final BiFunction<LXP, LXP, LinkStatus> true_match;
+    private final Supplier<LXPMeasure> composite_measure;
+
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final List<LXP> records = new ArrayList<>();
+    private final BitSet stored = new BitSet();
+    private final BitSet query = new BitSet();
+
+    private String[][] stored_keys;     // indexed by alternative then ordinal
+    private String[][] query_keys;
+
+    public GroundTruthIndex(final LinkageRecipe linkage_recipe) {
+        this(linkage_recipe, linkage_recipe.getStoredRecords(), linkage_recipe.getQueryRecords());
+    }
+
+    public GroundTruthIndex(final LinkageRecipe linkage_recipe, final Iterable<LXP> stored_records, final Iterable<LXP> query_records) {
+
+        this(linkage_recipe.getClass().getSimpleName(), linkage_recipe.getTrueMatchAlternatives(), linkage_recipe.isSymmetric(),
+                linkage_recipe::isTrueMatch, linkage_recipe::getCompositeMeasure, stored_records, query_records);
+    }
+
+    /**
+     * Creates an index of ground truth given directly rather than by a linkage recipe.
+     *
+     * @param recipe_name name of the linkage, for error messages
+     * @param true_match_alternatives the alternatives used by true_match, or null if it can only be evaluated pairwise
+     * @param symmetric whether the linkage is symmetric, so that a pair is the same in either direction
+     * @param true_match the ground truth for a pair of records
+     * @param composite_measure source of the measure giving the distances between missed pairs
+     * @param stored_records the stored records
+     * @param query_records the query records
+     */
+    public GroundTruthIndex(final String recipe_name, final List<List<LinkageRecipe.Pair>> true_match_alternatives, final boolean symmetric,
+                            final BiFunction<LXP, LXP, LinkStatus> true_match, final Supplier<LXPMeasure> composite_measure,
+                            final Iterable<LXP> stored_records, final Iterable<LXP> query_records) {
+
+        this.recipe_name = recipe_name;
+        this.true_match_alternatives = true_match_alternatives;
+        this.symmetric = symmetric;
+        this.true_match = true_match;
+        this.composite_measure = composite_measure;
+
+        addRecords(stored_records, stored);
+        addRecords(query_records, query);
+
+        if (true_match_alternatives != null) {
+
+            stored_keys = new String[true_match_alternatives.size()][];
+            query_keys = new String[true_match_alternatives.size()][];
+
+            for (int i = 0; i < true_match_alternatives.size(); i++) {
+                stored_keys[i] = getKeys(stored, true_match_alternatives.get(i), true);
+                query_keys[i] = getKeys(query, true_match_alternatives.get(i), false);
+            }
+        }
+    }
+
+    public int size() {
+        return records.size();
+    }
+
+    /**
+     * @param link a link from a stored record to a query record
+     * @return true if the ground truth says that the link is a true match
+     */
+    public boolean isTrueMatch(final Link link) {
+
+        final Integer stored_ordinal = ordinals.get(link.getRecord1().getObjectId());
+        final Integer query_ordinal = ordinals.get(link.getRecord2().getObjectId());
+
+        if (stored_ordinal == null || query_ordinal == null) {
+
+            // Not indexed, so fall back to the records in the store.
+            try {
+                return true_match.apply(link.getRecord1().getReferend(), link.getRecord2().getReferend()) == LinkStatus.TRUE_MATCH;
+
+            } catch (BucketException | RepositoryException e) {
+                throw new RuntimeException("Bucket exception from accessing referend - bucket no longer contains expected records (TD)", e);
+            }
+        }
+
+        return isTrueMatch(stored_ordinal, query_ordinal);
+    }
+
+    /**
+     * Lists the ground truth links between the indexed records that are not among the given links. For symmetric
+     * linkage a pair counts as linked if it is linked in either direction, and is listed once if not.
+     *
+     * @param links the links found by a linker
+     * @return the missed pairs, with the distances between them under the recipe's composite measure
+     */
+    public List<RecordPair> getMissedLinks(final Iterable<Link> links) {
+
+        if (true_match_alternatives == null) {
+            throw new RuntimeException("ground truth links cannot be listed for " + recipe_name + " as it does not declare its true match alternatives");
+        }
+
+        final Set<Long> linked_pairs = new HashSet<>();
+
+        for (final Link link : links) {
+
+            final Integer stored_ordinal = ordinals.get(link.getRecord1().getObjectId());
+            final Integer query_ordinal = ordinals.get(link.getRecord2().getObjectId());
+
+            if (stored_ordinal != null && query_ordinal != null) {
+                linked_pairs.add(pairCode(stored_ordinal, query_ordinal));
+            }
+        }
+
+        final List<RecordPair> missed = new ArrayList<>();
+        final Set<Long> seen = new HashSet<>();
+        final LXPMeasure measure = composite_measure.get();
+
+        for (int i = 0; i < true_match_alternatives.size(); i++) {
+
+            final Map<String, List<Integer>> query_ordinals_by_key = new HashMap<>();
+
+            for (int query_ordinal = query.nextSetBit(0); query_ordinal >= 0; query_ordinal = query.nextSetBit(query_ordinal + 1)) {
+
+                final String key = query_keys[i][query_ordinal];
+                if (key != null) {
+                    query_ordinals_by_key.computeIfAbsent(key, k -> new ArrayList<>()).add(query_ordinal);
+                }
+            }
+
+            for (int stored_ordinal = stored.nextSetBit(0); stored_ordinal >= 0; stored_ordinal = stored.nextSetBit(stored_ordinal + 1)) {
+
+                final String key = stored_keys[i][stored_ordinal];
+                final List<Integer> matching_query_ordinals = key == null ? null : query_ordinals_by_key.get(key);
+
+                if (matching_query_ordinals != null) {
+                    for (final int query_ordinal : matching_query_ordinals) {
+
+                        final long pair_code = pairCode(stored_ordinal, query_ordinal);
+
+                        if (!(symmetric && stored_ordinal == query_ordinal) && !linked_pairs.contains(pair_code) && seen.add(pair_code)
+                                && true_match.apply(records.get(stored_ordinal), records.get(query_ordinal)) == LinkStatus.TRUE_MATCH) {
+
+                            final LXP stored_record = records.get(stored_ordinal);
+                            final LXP query_record = records.get(query_ordinal);
+                            missed.add(new RecordPair(stored_record, query_record, measure.distance(stored_record, query_record)));
+                        }
+                    }
+                }
+            }
+        }
+
+        return missed;
+    }
+
+    private boolean isTrueMatch(final int stored_ordinal, final int query_ordinal) {
+
+        if (true_match_alternatives != null && !sharesKey(stored_ordinal, query_ordinal)) {
+            return false;
+        }
+        return true_match.apply(records.get(stored_ordinal), records.get(query_ordinal)) == LinkStatus.TRUE_MATCH;
+    }
+
+    private boolean sharesKey(final int stored_ordinal, final int query_ordinal) {
+
+        for (int i = 0; i < true_match_alternatives.size(); i++) {
+
+            final String key = stored_keys[i][stored_ordinal];
+            if (key != null && key.equals(query_keys[i][query_ordinal])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long pairCode(final int stored_ordinal, final int query_ordinal) {
+
+        if (symmetric && stored_ordinal > query_ordinal) {
+            return pairCode(query_ordinal, stored_ordinal);
+        }
+        return ((long) stored_ordinal << 32) | query_ordinal;
+    }
+
+    private void addRecords(final Iterable<LXP> records_to_add, final BitSet members) {
+
+        for (final LXP record : records_to_add) {
+
+            final int ordinal = ordinals.computeIfAbsent(record.getId(), id -> {
+                records.add(record);
+                return records.size() - 1;
+            });
+            members.set(ordinal);
+        }
+    }
+
+    private String[] getKeys(final BitSet members, final List<LinkageRecipe.Pair> fields, final boolean stored_side) {
+
+        final String[] keys = new String[records.size()];
+
+        for (int ordinal = members.nextSetBit(0); ordinal >= 0; ordinal = members.nextSetBit(ordinal + 1)) {
+            keys[ordinal] = getKey(records.get(ordinal), fields, stored_side);
+        }
+        return keys;
+    }
+
+    private static String getKey(final LXP record, final List<LinkageRecipe.Pair> fields, final boolean stored_side) {
+
+        final StringBuilder builder = new StringBuilder();
+
+        for (final LinkageRecipe.Pair pair : fields) {
+
+            final String value = record.getString(stored_side ? pair.first : pair.second);
+            if (value.isEmpty()) return null;
+
+            builder.append(value).append(KEY_SEPARATOR);
+        }
+        return builder.toString();
+    }
+}
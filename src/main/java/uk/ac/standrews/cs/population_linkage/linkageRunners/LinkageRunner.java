@@ -17,8 +17,6 @@
 package uk.ac.standrews.cs.population_linkage.linkageRunners;
 
 import uk.ac.standrews.cs.neoStorr.impl.LXP;
-import uk.ac.standrews.cs.neoStorr.impl.exceptions.BucketException;
-import uk.ac.standrews.cs.neoStorr.impl.exceptions.RepositoryException;
 import uk.ac.standrews.cs.neoStorr.util.NeoDbCypherBridge;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
 import uk.ac.standrews.cs.population_linkage.helpers.MemoryLogger;
@@ -31,19 +29,29 @@ import uk.ac.standrews.cs.population_records.record_types.Birth;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 import java.util.concurrent.TimeUnit;
 
-import static uk.ac.standrews.cs.population_linkage.characterisation.LinkStatus.TRUE_MATCH;
-
 public abstract class LinkageRunner {
 
     private static final int DEFAULT_NUMBER_OF_PROGRESS_UPDATES = 100;
     protected LinkageRecipe linkage_recipe;
+    private GroundTruthIndex ground_truth_index;
+    private LinkageRecipe indexed_recipe;
 
     public LinkageResult run(LinkageRecipe linkage_recipe,
                              MakePersistent make_persistent,
                              boolean evaluateQuality, boolean persistLinks) throws Exception {
 
+        if (LinkageConfig.INCREMENTAL_LINKAGE && !evaluateQuality) {
+            return incrementalRun(linkage_recipe, make_persistent, persistLinks);
+        }
+
         this.linkage_recipe = linkage_recipe;
         MemoryLogger.update();
 
@@ -57,7 +65,202 @@ public abstract class LinkageRunner {
             LinkageResult result = link(linker, make_persistent, evaluateQuality, numberOGroundTruthLinks, persistLinks);
 
             return result;
+        } finally {
+            make_persistent.flush();
+        }
+    }
+
+    /**
+     * Links with each number of linkage fields required from max_fields down to min_fields, persisting the links made
+     * with a new MakePersistent from make_persistent_supplier for each.
+     * If LinkageConfig.SWEEP_LINKAGE_FIELDS is set this is done in a single linkage pass; see sweepLinkageFields.
+     */
+    public void runOverLinkageFields(LinkageRecipe linkage_recipe, Supplier<MakePersistent> make_persistent_supplier, int max_fields, int min_fields) throws Exception {
+
+        if (LinkageConfig.SWEEP_LINKAGE_FIELDS && !LinkageConfig.INCREMENTAL_LINKAGE) {
+            sweepLinkageFields(linkage_recipe, make_persistent_supplier.get(), max_fields, min_fields);
+            return;
+        }
+
+        for (int fields = max_fields; fields >= min_fields; fields--) {
+            linkage_recipe.setNumberLinkageFieldsRequired(fields);
+            LinkageResult lr = run(linkage_recipe, make_persistent_supplier.get(), false, true);
+            lr.getLinkageQuality().print(System.out);
+        }
+    }
+
+    /**
+     * Makes the same links as linking separately with each number of linkage fields required from max_fields down to
+     * min_fields, but with one search structure and one query of each record.
+     * The structure is built over the union of the stored records included in any pass, and searched to the largest of
+     * the thresholds. The passes need not include nested sets of records, e.g. when the number of records is limited,
+     * so each record is given the set of numbers of fields required for which the recipe includes it, and each link is
+     * assigned the largest number of fields for which both its records are included and its distance is within the
+     * threshold, which is the pass that would have first made it.
+     * Links not made by any pass are dropped; the others are persisted with their number of fields through
+     * MakePersistent.makePersistent(recipe, link, fields_required). The recipe is set to each number of fields in turn
+     * only while the records and thresholds of the passes are collected, so it is not changed while links are made.
+     */
+    public void sweepLinkageFields(LinkageRecipe linkage_recipe, MakePersistent make_persistent, int max_fields, int min_fields) throws Exception {
+
+        this.linkage_recipe = linkage_recipe;
+        linkage_recipe.setCacheSizes(LinkageConfig.BIRTH_CACHE_SIZE, LinkageConfig.DEATH_CACHE_SIZE, LinkageConfig.MARRIAGE_CACHE_SIZE);
+        MemoryLogger.update();
+
+        Map<String, BitSet> stored_fields = new HashMap<>();
+        Map<String, BitSet> query_fields = new HashMap<>();
+        double[] thresholds = new double[max_fields + 1];
+        double max_threshold = 0;
+
+        List<LXP> stored_records = new ArrayList<>();
+        List<LXP> query_records = new ArrayList<>();
+        boolean same_set = true;
+
+        for (int fields = max_fields; fields >= min_fields; fields--) {
+            linkage_recipe.setNumberLinkageFieldsRequired(fields);
+            thresholds[fields] = linkage_recipe.getThreshold();
+            max_threshold = Math.max(max_threshold, thresholds[fields]);
+            Iterable<LXP> pass_stored_records = linkage_recipe.getStoredRecords();
+            Iterable<LXP> pass_query_records = linkage_recipe.getQueryRecords();
+            same_set = same_set && pass_stored_records == pass_query_records;
+            recordFieldsRequired(pass_stored_records, stored_records, stored_fields, fields);
+            recordFieldsRequired(pass_query_records, query_records, query_fields, fields);
+        }
+
+        // As in each pass, records are not linked to themselves if the stored and query records are the same set.
+        if (same_set) query_records = stored_records;
+
+        FieldsRequiredPersister persister = new FieldsRequiredPersister(make_persistent, stored_fields, query_fields, thresholds, min_fields);
+        LinkageResult result;
+
+        try (Linker linker = getLinker(linkage_recipe)) {
+            linker.setThreshold(max_threshold);
+            addRecords(linker, stored_records, query_records, getReferencePoints(stored_records));
+            result = link(linker, persister, false, 0, true);
+        } finally {
+            make_persistent.flush();
+        }
+
+        for (int fields = max_fields; fields >= min_fields; fields--) {
+            System.out.println("Links with " + fields + " linkage fields required: " + persister.links_made[fields] + " made, " +
+                    persister.links_persisted[fields] + " not made with more fields required");
+            result.getLinkageQuality().print(System.out);
+        }
+    }
+
+    /**
+     * Adds the records included in a pass that are not yet in the union of the passes, and records that they are included in the pass.
+     */
+    private static void recordFieldsRequired(Iterable<LXP> records, List<LXP> union, Map<String, BitSet> fields_required, int fields) {
+
+        for (LXP record : records) {
+            BitSet passes = fields_required.get(record.getId());
+            if (passes == null) {
+                passes = new BitSet();
+                fields_required.put(record.getId(), passes);
+                union.add(record);
+            }
+            passes.set(fields);
+        }
+    }
+
+    /**
+     * Links only the records added since the recipe's watermark was last saved, and persists only the resulting links;
+     * see linkNewRecords. The reference objects recorded in the watermark are reused, both for a single search
+     * structure and for each block or temporal partition, so that the reference distance index still applies.
+     * The watermark is saved once the links have been persisted.
+     */
+    public LinkageResult incrementalRun(LinkageRecipe linkage_recipe, MakePersistent make_persistent, boolean persistLinks) throws Exception {
+
+        this.linkage_recipe = linkage_recipe;
+        linkage_recipe.setCacheSizes(LinkageConfig.BIRTH_CACHE_SIZE, LinkageConfig.DEATH_CACHE_SIZE, LinkageConfig.MARRIAGE_CACHE_SIZE);
+        MemoryLogger.update();
+
+        LinkageWatermark watermark = LinkageWatermark.load(LinkageConfig.LINKAGE_WATERMARK_DIRECTORY, getWatermarkKey());
+
+        Iterable<LXP> all_stored_records = linkage_recipe.getStoredRecords();
+        Iterable<LXP> all_query_records = linkage_recipe.getQueryRecords();
+
+        // As in a full run, records are not linked to themselves if the stored and query records are the same set.
+        boolean same_set = all_stored_records == all_query_records;
+
+        List<LXP> stored_records = new ArrayList<>();
+        all_stored_records.forEach(stored_records::add);
+
+        List<LXP> found_reference_objects = watermark.findReferenceObjects(stored_records);
+        List<LXP> reference_objects = found_reference_objects != null ? found_reference_objects : getReferencePoints(stored_records);
+
+        try {
+            linkNewRecords(watermark, stored_records, all_query_records, linkage_recipe.isSymmetric(),
+                    (stored, query) -> linkIncrement(make_persistent, persistLinks, stored, query, reference_objects, same_set));
+        } finally {
+            make_persistent.flush();
         }
+
+        if (persistLinks) {
+            watermark.setReferenceObjects(reference_objects);
+            watermark.save();
+        }
+
+        return new LinkageResult(new LinkageQuality("Linkage Quality not evaluated for incremental linkage"), null);
+    }
+
+    /**
+     * Links a list of stored records with a list of query records.
+     */
+    public interface IncrementLinker {
+        void link(List<LXP> stored_records, List<LXP> query_records) throws Exception;
+    }
+
+    /**
+     * Links the records not covered by the watermark, and adds them to it: the new query records are linked against
+     * all the stored records and, unless the recipe is symmetric so that the stored and query records are the same,
+     * the old query records are linked against the new stored records. Together with the links already made for the
+     * records in the watermark, this gives the same links as linking all the records at once.
+     */
+    public static void linkNewRecords(LinkageWatermark watermark, Iterable<LXP> stored_records, Iterable<LXP> query_records, boolean symmetric,
+                                      IncrementLinker increment_linker) throws Exception {
+
+        List<LXP> all_stored_records = new ArrayList<>();
+        List<LXP> new_stored_records = new ArrayList<>();
+        for (LXP record : stored_records) {
+            all_stored_records.add(record);
+            if (!watermark.containsStoredRecord(record)) new_stored_records.add(record);
+        }
+
+        List<LXP> new_query_records = new ArrayList<>();
+        List<LXP> old_query_records = new ArrayList<>();
+        for (LXP record : query_records) {
+            (watermark.containsQueryRecord(record) ? old_query_records : new_query_records).add(record);
+        }
+
+        System.out.println("Incremental linkage: " + new_stored_records.size() + " of " + all_stored_records.size() + " stored records and " +
+                new_query_records.size() + " of " + (new_query_records.size() + old_query_records.size()) + " query records are new");
+
+        if (!new_query_records.isEmpty()) {
+            increment_linker.link(all_stored_records, new_query_records);
+        }
+        if (!symmetric && !new_stored_records.isEmpty() && !old_query_records.isEmpty()) {
+            increment_linker.link(new_stored_records, old_query_records);
+        }
+
+        watermark.addStoredRecords(new_stored_records);
+        watermark.addQueryRecords(new_query_records);
+    }
+
+    private void linkIncrement(MakePersistent make_persistent, boolean persistLinks, List<LXP> stored_records, List<LXP> query_records, List<LXP> reference_objects,
+                               boolean same_set) throws Exception {
+
+        try (Linker linker = getLinker(linkage_recipe)) {
+            addRecords(linker, stored_records, query_records, reference_objects);
+            linker.setRecordsFromSameSet(same_set);
+            link(linker, make_persistent, false, 0, persistLinks);
+        }
+    }
+
+    protected String getWatermarkKey() {
+        return linkage_recipe.getClass().getName() + "/" + linkage_recipe.getLinksPersistentName() + "/" + linkage_recipe.getCompositeMeasure().getMeasureName() + "/" +
+                linkage_recipe.getLinkageFields() + "/" + linkage_recipe.getNumberOfLinkageFieldsRequired() + "/" + linkage_recipe.getThreshold();
     }
 
     public LinkageResult listsRun(LinkageRecipe linkage_recipe,
@@ -74,6 +277,8 @@ public abstract class LinkageRunner {
             MemoryLogger.update();
             LinkageResult result = linkLists(linker, linkage_recipe.getBridge(), make_persistent, evaluateQuality, numberOGroundTruthLinks, persistLinks, isIdentityLinkage);
             return result;
+        } finally {
+            make_persistent.flush();
         }
     }
 
@@ -91,6 +296,8 @@ public abstract class LinkageRunner {
             MemoryLogger.update();
             LinkageResult result = investigatelinkLists(linker, make_persistent, evaluateQuality, numberOGroundTruthLinks, persistLinks, isIdentityLinkage, bridge);
             return result;
+        } finally {
+            make_persistent.flush();
         }
     }
 
@@ -107,11 +314,17 @@ public abstract class LinkageRunner {
             MemoryLogger.update();
             LinkageResult result = printLinksNonLinks(linker, make_persistent, evaluateQuality, numberOGroundTruthLinks, persistLinks, isIdentityLinkage, bridge);
             return result;
+        } finally {
+            make_persistent.flush();
         }
     }
 
     public abstract void addRecords(Linker linker);
 
+    protected abstract void addRecords(Linker linker, Iterable<LXP> stored_records, Iterable<LXP> query_records, List<LXP> reference_objects);
+
+    protected abstract List<LXP> getReferencePoints(Iterable<LXP> stored_records);
+
     protected abstract LinkageResult printLinksNonLinks(Linker linker, MakePersistent make_persistent, boolean evaluateQuality, int numberOGroundTruthLinks, boolean persistLinks, boolean isIdentityLinkage, NeoDbCypherBridge bridge) throws Exception;
 
     protected abstract LinkageResult investigatelinkLists(Linker linker, MakePersistent make_persistent, boolean evaluateQuality, int numberOGroundTruthLinks, boolean persistLinks, boolean isIdentityLinkage, NeoDbCypherBridge bridge) throws Exception;
@@ -136,16 +349,21 @@ public abstract class LinkageRunner {
     }
 
     protected boolean doesGTSayIsTrue(Link link) {
-        try {
-            return linkage_recipe.isTrueMatch(
-                    link.getRecord1().getReferend(),
-                    link.getRecord2().getReferend())
-                    .equals(TRUE_MATCH);
-        } catch (BucketException e) {
-            throw new RuntimeException("Bucket exception from accessing referend - bucket no longer contains expected records (TD)", e);
-        } catch (RepositoryException e) {
-            throw new RuntimeException("Bucket exception from accessing referend - bucket no longer contains expected records (TD)", e);
+        return getGroundTruthIndex().isTrueMatch(link);
+    }
+
+    /**
+     * @return the ground truth index for the current recipe, built on first use
+     */
+    protected synchronized GroundTruthIndex getGroundTruthIndex() {
+
+        if (ground_truth_index == null || indexed_recipe != linkage_recipe) {
+            System.out.println("Indexing ground truth @ " + LocalDateTime.now());
+            ground_truth_index = new GroundTruthIndex(linkage_recipe);
+            indexed_recipe = linkage_recipe;
+            System.out.println("Indexed ground truth for " + ground_truth_index.size() + " records @ " + LocalDateTime.now());
         }
+        return ground_truth_index;
     }
 
     ///////////////////////////// I/O /////////////////////////////
@@ -216,4 +434,61 @@ public abstract class LinkageRunner {
     protected int getNumberOfProgressUpdates() {
         return DEFAULT_NUMBER_OF_PROGRESS_UPDATES;
     }
+
+    /**
+     * Assigns each link made by sweepLinkageFields to the number of linkage fields required of the pass that would have
+     * first made it, and counts the links each pass would have made.
+     */
+    static class FieldsRequiredPersister implements MakePersistent {
+
+        private final MakePersistent make_persistent;
+        private final Map<String, BitSet> stored_fields;
+        private final Map<String, BitSet> query_fields;
+        private final double[] thresholds;
+        private final int min_fields;
+        final long[] links_made;
+        final long[] links_persisted;
+
+        FieldsRequiredPersister(MakePersistent make_persistent, Map<String, BitSet> stored_fields, Map<String, BitSet> query_fields, double[] thresholds, int min_fields) {
+
+            this.make_persistent = make_persistent;
+            this.stored_fields = stored_fields;
+            this.query_fields = query_fields;
+            this.thresholds = thresholds;
+            this.min_fields = min_fields;
+            this.links_made = new long[thresholds.length];
+            this.links_persisted = new long[thresholds.length];
+        }
+
+        @Override
+        public void makePersistent(LinkageRecipe recipe, Link link) {
+
+            int fields = assignFields(link.getRecord1().getObjectId(), link.getRecord2().getObjectId(), link.getDistance());
+
+            if (fields >= min_fields) {
+                make_persistent.makePersistent(recipe, link, fields);
+            }
+        }
+
+        /**
+         * @return the largest number of fields required for which both records are included and the distance is within
+         * the threshold, or less than min_fields if there is none
+         */
+        int assignFields(String stored_id, String query_id, double distance) {
+
+            BitSet stored_passes = stored_fields.get(stored_id);
+            BitSet query_passes = query_fields.get(query_id);
+
+            int assigned = min_fields - 1;
+            for (int fields = thresholds.length - 1; fields >= min_fields; fields--) {
+                if (stored_passes.get(fields) && query_passes.get(fields) && distance <= thresholds[fields]) {
+                    links_made[fields]++;
+                    if (assigned < min_fields) assigned = fields;
+                }
+            }
+
+            if (assigned >= min_fields) links_persisted[assigned]++;
+            return assigned;
+        }
+    }
 }
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.linkageRunners;
+
+import uk.ac.standrews.cs.neoStorr.impl.LXP;
+import uk.ac.standrews.cs.population_linkage.searchStructures.ReferenceDistanceIndex;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Records which stored and query records have already been linked by a recipe, so that an incremental run
+ * only has to link the records that have been added to the repository since.
+ * The reference objects used are also recorded so that later runs can use the same ones, which lets the
+ * search structure be rebuilt from the reference distance index with only the new records' distances calculated.
+ * <p>
+ * Watermarks are kept in files named by a hash of the key, which should identify the recipe, fields and threshold;
+ * links made with any other settings are not covered by the watermark.
+ */
+public class LinkageWatermark {
+
+    private static final int MAGIC = 0x4C574D4B; // "LWMK"
+    private static final int VERSION = 1;
+
+    private final Path path;
+    private final String key;
+    private final Set<String> stored_ids = new HashSet<>();
+    private final Set<String> query_ids = new HashSet<>();
+    private final List<String> reference_object_ids = new ArrayList<>();
+
+    private LinkageWatermark(Path directory, String key) {
+
+        this.path = directory.resolve(ReferenceDistanceIndex.hash(key) + ".lwm");
+        this.key = key;
+    }
+
+    /**
+     * @return the watermark saved with the given key, or an empty watermark if there is none
+     */
+    public static LinkageWatermark load(Path directory, String key) {
+
+        LinkageWatermark watermark = new LinkageWatermark(directory, key);
+        watermark.load();
+        return watermark;
+    }
+
+    public boolean isEmpty() {
+        return stored_ids.isEmpty() && query_ids.isEmpty();
+    }
+
+    public boolean containsStoredRecord(LXP record) {
+        return stored_ids.contains(record.getId());
+    }
+
+    public boolean containsQueryRecord(LXP record) {
+        return query_ids.contains(record.getId());
+    }
+
+    public void addStoredRecords(Iterable<LXP> records) {
+        for (LXP record : records) stored_ids.add(record.getId());
+    }
+
+    public void addQueryRecords(Iterable<LXP> records) {
+        for (LXP record : records) query_ids.add(record.getId());
+    }
+
+    /**
+     * @return the recorded reference objects, found among the given records, or null if any are missing
+     */
+    public List<LXP> findReferenceObjects(Iterable<LXP> records) {
+
+        if (reference_object_ids.isEmpty()) return null;
+
+        Map<String, LXP> records_by_id = new HashMap<>();
+        for (LXP record : records) {
+            if (reference_object_ids.contains(record.getId())) {
+                records_by_id.put(record.getId(), record);
+            }
+        }
+
+        List<LXP> reference_objects = new ArrayList<>();
+        for (String id : reference_object_ids) {
+            LXP record = records_by_id.get(id);
+            if (record == null) return null;
+            reference_objects.add(record);
+        }
+        return reference_objects;
+    }
+
+    public void setReferenceObjects(List<LXP> reference_objects) {
+
+        reference_object_ids.clear();
+        for (LXP record : reference_objects) reference_object_ids.add(record.getId());
+    }
+
+    /**
+     * Writes the watermark; this should only be done once all the links it covers have been persisted.
+     */
+    public void save() {
+
+        try {
+            Files.createDirectories(path.getParent());
+            Path temp = Files.createTempFile(path.getParent(), "watermark", ".tmp");
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(key);
+                writeIds(out, reference_object_ids);
+                writeIds(out, stored_ids);
+                writeIds(out, query_ids);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        } catch (IOException e) {
+            throw new RuntimeException("Could not save linkage watermark " + path, e);
+        }
+    }
+
+    private void load() {
+
+        if (!Files.exists(path)) return;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(key)) {
+                throw new RuntimeException("Linkage watermark " + path + " does not match key " + key);
+            }
+            readIds(in, reference_object_ids);
+            readIds(in, stored_ids);
+            readIds(in, query_ids);
+            System.out.println("Loaded linkage watermark " + path + " covering " + stored_ids.size() + " stored and " + query_ids.size() + " query records");
+
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read linkage watermark " + path, e);
+        }
+    }
+
+    private static void writeIds(DataOutputStream out, Collection<String> ids) throws IOException {
+
+        out.writeInt(ids.size());
+        for (String id : ids) out.writeUTF(id);
+    }
+
+    private static void readIds(DataInputStream in, Collection<String> ids) throws IOException {
+
+        int number_of_ids = in.readInt();
+        for (int i = 0; i < number_of_ids; i++) ids.add(in.readUTF());
+    }
+}
@@ -21,4 +21,17 @@ import uk.ac.standrews.cs.population_linkage.supportClasses.Link;
 
 public interface MakePersistent {
     public void makePersistent(LinkageRecipe linkage_recipe, Link link);
+
+    /**
+     * Persists a link made when fields_required linkage fields were required, which may differ from the recipe's
+     * current number when links for several numbers are made in one pass; see LinkageRunner.sweepLinkageFields.
+     */
+    public default void makePersistent(LinkageRecipe linkage_recipe, Link link, int fields_required) {
+        throw new UnsupportedOperationException(getClass().getName() + " does not persist links made with a given number of linkage fields required");
+    }
+
+    /**
+     * Called when a linkage run completes so that any links buffered by makePersistent can be written.
+     */
+    public default void flush() {}
 }
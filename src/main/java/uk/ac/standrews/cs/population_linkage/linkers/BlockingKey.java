@@ -0,0 +1,38 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.linkers;
+
+import uk.ac.standrews.cs.neoStorr.impl.LXP;
+
+import java.util.Collection;
+
+/**
+ * A key used to partition stored and query records into blocks, so that each query record is only compared with the
+ * stored records that share a block with it. A record may be placed in several blocks, for example the year bands
+ * either side of a date, and a record with no keys is not placed in any block.
+ *
+ * @see BlockingKeys
+ * @see BlockingSimilaritySearchLinker
+ */
+public interface BlockingKey {
+
+    String getName();
+
+    Collection<String> getStoredKeys(LXP stored_record);
+
+    Collection<String> getQueryKeys(LXP query_record);
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.linkers;
+
+import uk.ac.standrews.cs.neoStorr.impl.LXP;
+import uk.ac.standrews.cs.population_linkage.helpers.RecordFiltering;
+import uk.ac.standrews.cs.population_linkage.linkageRecipes.TemporalColumns;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Blocking keys that can be declared by linkage recipes.
+ */
+public class BlockingKeys {
+
+    /**
+     * Blocks on the normalised value of a field, optionally encoded, for example by a phonetic encoder such as
+     * {@code new NYSIIS()::encode}.
+     *
+     * @param stored_field - the field in the stored records
+     * @param query_field  - the corresponding field in the query records
+     * @param encoder      - applied to the lower case trimmed value, or null to use that value as it is
+     */
+    public static BlockingKey field(final String name, final int stored_field, final int query_field, final Function<String, String> encoder) {
+
+        return new BlockingKey() {
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public Collection<String> getStoredKeys(final LXP stored_record) {
+                return key(stored_record, stored_field);
+            }
+
+            @Override
+            public Collection<String> getQueryKeys(final LXP query_record) {
+                return key(query_record, query_field);
+            }
+
+            private Collection<String> key(final LXP record, final int field) {
+
+                final String field_value = record.getString(field);
+                if (field_value == null) return Collections.emptyList();
+
+                final String value = field_value.toLowerCase().trim();
+                if (RecordFiltering.isMissing(value)) return Collections.emptyList();
+
+                final String key = encoder != null ? encoder.apply(value) : value;
+                return key == null || key.isEmpty() ? Collections.emptyList() : Collections.singletonList(key);
+            }
+        };
+    }
+
+    /**
+     * Blocks on bands of years, such that a query record is placed in every band that a viable stored record could be in.
+     * A query with year q is compared with stored records with years from q + min_difference to q + max_difference.
+     *
+     * @param band_width - the number of years in each band
+     */
+    public static BlockingKey yearBands(final String name, final int stored_year_field, final int query_year_field, final int min_difference, final int max_difference, final int band_width) {
+
+        return new BlockingKey() {
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public Collection<String> getStoredKeys(final LXP stored_record) {
+
+                final int year = year(stored_record, stored_year_field);
+                return year == TemporalColumns.UNKNOWN ? Collections.emptyList() : Collections.singletonList(String.valueOf(Math.floorDiv(year, band_width)));
+            }
+
+            @Override
+            public Collection<String> getQueryKeys(final LXP query_record) {
+
+                final int year = year(query_record, query_year_field);
+                if (year == TemporalColumns.UNKNOWN) return Collections.emptyList();
+
+                final List<String> keys = new ArrayList<>();
+                for (int band = Math.floorDiv(year + min_difference, band_width); band <= Math.floorDiv(year + max_difference, band_width); band++) {
+                    keys.add(String.valueOf(band));
+                }
+                return keys;
+            }
+
+            private int year(final LXP record, final int field) {
+
+                final String value = record.getString(field);
+                return value == null ? TemporalColumns.UNKNOWN : TemporalColumns.parseInteger(value.trim());
+            }
+        };
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.linkers;
+
+import uk.ac.standrews.cs.neoStorr.impl.LXP;
+import uk.ac.standrews.cs.population_linkage.characterisation.LinkStatus;
+import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
+import uk.ac.standrews.cs.population_linkage.linkageRecipes.LinkageRecipe;
+import uk.ac.standrews.cs.population_linkage.searchStructures.BitBlasterSearchStructure;
+import uk.ac.standrews.cs.population_linkage.searchStructures.RecordBlock;
+import uk.ac.standrews.cs.population_linkage.searchStructures.SearchStructure;
+import uk.ac.standrews.cs.population_linkage.searchStructures.SearchStructureFactory;
+import uk.ac.standrews.cs.utilities.measures.coreConcepts.DataDistance;
+
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * A similarity search linker that partitions the stored records into blocks using the blocking keys declared by
+ * the linkage recipe, and searches for each query record only within the blocks that share a key with it.
+ * Where there is more than one blocking key the results from each are combined, so a pair is found if any key
+ * places both records in the same block.
+ * <p>
+ * Each block is a RecordBlock, so large blocks are given their own search structure, while smaller blocks are simply
+ * scanned. Query records are processed in parallel as for SimilaritySearchLinker.
+ */
+public class BlockingSimilaritySearchLinker extends SimilaritySearchLinker {
+
+    private final List<BlockingKey> blocking_keys;
+
+    public BlockingSimilaritySearchLinker(SearchStructureFactory<LXP> search_structure_factory, LXPMeasure distance_measure, double threshold, int number_of_progress_updates,
+                                          String link_type, String provenance, String role_type_1, String role_type_2, LinkageRecipe linkage_recipe, List<BlockingKey> blocking_keys) {
+
+        super(search_structure_factory, distance_measure, threshold, number_of_progress_updates, link_type, provenance, role_type_1, role_type_2, linkage_recipe);
+        this.blocking_keys = blocking_keys;
+    }
+
+    /**
+     * Partitions the stored records into blocks rather than creating a single search structure. The reference objects,
+     * if given, are used for each block's search structure; otherwise they are chosen for each block by the factory.
+     */
+    @Override
+    protected SearchStructure<LXP> createSearchStructure(Iterable<LXP> storedSet, List<LXP> reference_objects) {
+
+        final Blocks blocks = new Blocks(blocking_keys, composite_measure, storedSet, search_structure_factory, reference_objects);
+        System.out.println(blocks);
+        return blocks;
+    }
+
+    @Override
+    protected List<DataDistance<LXP>> findWithinThreshold(final LXP query_record, final LXP converted_record) {
+        return getBlocks().findWithinThreshold(query_record, converted_record, threshold);
+    }
+
+    @Override
+    protected List<DataDistance<LXP>> findNearest(final LXP query_record, final LXP converted_record, final int k) {
+        return getBlocks().findNearest(query_record, converted_record, k);
+    }
+
+    /**
+     * Reports how many ground truth links are lost through blocking, by counting the true matches between query
+     * records and the stored records that share a block with them.
+     *
+     * @param number_of_ground_truth_links - the total, as given by LinkageRecipe.getNumberOfGroundTruthTrueLinks
+     */
+    public void reportRecall(final long number_of_ground_truth_links) {
+
+        final long co_blocked_true_links = getBlocks().countTrueLinks(search_set, linkage_recipe::isTrueMatch, records_from_same_set, linkage_recipe.isSymmetric());
+
+        final long lost = number_of_ground_truth_links - co_blocked_true_links;
+        System.out.printf("Blocking recall: %d of %d ground truth links share a block, %d (%.2f%%) lost%n", co_blocked_true_links, number_of_ground_truth_links,
+                lost, number_of_ground_truth_links == 0 ? 0.0 : 100.0 * lost / number_of_ground_truth_links);
+    }
+
+    private Blocks getBlocks() {
+        return (Blocks) search_structure;
+    }
+
+    /**
+     * The stored records partitioned by each of the blocking keys. The blocks to be searched are chosen using the
+     * keys of the query record as it is, rather than as converted to the stored record type, so searches are made
+     * through the methods taking both; the SearchStructure methods, given only the converted record, are not supported.
+     */
+    static class Blocks implements SearchStructure<LXP> {
+
+        private final List<BlockingKey> blocking_keys;
+        private final List<Map<String, RecordBlock>> blocks = new ArrayList<>(); // one map per blocking key
+        private final int[] search_structures;
+        private int unblocked_records = 0;
+
+        /**
+         * @param reference_objects - the reference objects to be used for each block, or null to let the factory choose them
+         */
+        Blocks(final List<BlockingKey> blocking_keys, final LXPMeasure composite_measure, final Iterable<LXP> stored_set,
+               final SearchStructureFactory<LXP> search_structure_factory, final List<LXP> reference_objects) {
+
+            this.blocking_keys = blocking_keys;
+            this.search_structures = new int[blocking_keys.size()];
+
+            for (int i = 0; i < blocking_keys.size(); i++) {
+                blocks.add(new HashMap<>());
+            }
+
+            for (LXP stored_record : stored_set) {
+
+                boolean blocked = false;
+                for (int i = 0; i < blocking_keys.size(); i++) {
+                    for (String key : blocking_keys.get(i).getStoredKeys(stored_record)) {
+                        blocks.get(i).computeIfAbsent(key, k -> new RecordBlock(composite_measure)).add(stored_record);
+                        blocked = true;
+                    }
+                }
+                if (!blocked) unblocked_records++;
+            }
+
+            for (int i = 0; i < blocking_keys.size(); i++) {
+                for (Map.Entry<String, RecordBlock> entry : blocks.get(i).entrySet()) {
+                    if (entry.getValue().createSearchStructure(search_structure_factory, reference_objects, blocking_keys.get(i).getName() + "=" + entry.getKey())) {
+                        search_structures[i]++;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Finds the stored records within the threshold in any block shared with the query record, each only once
+         * however many blocks it shares.
+         */
+        List<DataDistance<LXP>> findWithinThreshold(final LXP query_record, final LXP converted_record, final double threshold) {
+
+            final Map<LXP, DataDistance<LXP>> results = new IdentityHashMap<>();
+
+            for (RecordBlock block : getBlocks(query_record)) {
+                for (DataDistance<LXP> result : block.findWithinThreshold(converted_record, threshold)) {
+                    results.putIfAbsent(result.value, result);
+                }
+            }
+            return new ArrayList<>(results.values());
+        }
+
+        /**
+         * Finds the k closest stored records over all the blocks shared with the query record.
+         */
+        List<DataDistance<LXP>> findNearest(final LXP query_record, final LXP converted_record, final int k) {
+
+            final Map<LXP, DataDistance<LXP>> results = new IdentityHashMap<>();
+
+            for (RecordBlock block : getBlocks(query_record)) {
+                for (DataDistance<LXP> result : block.findNearest(converted_record, k)) {
+                    results.putIfAbsent(result.value, result);
+                }
+            }
+            return BitBlasterSearchStructure.closest(new ArrayList<>(results.values()), k);
+        }
+
+        /**
+         * Counts the true matches between the query records and the stored records sharing a block with them.
+         *
+         * @param datasets_same - whether the stored and query records are the same, so records are not matched with themselves
+         * @param symmetric     - whether each link is found in both directions, and so should be counted once
+         */
+        long countTrueLinks(final Iterable<LXP> query_records, final BiFunction<LXP, LXP, LinkStatus> is_true_match, final boolean datasets_same, final boolean symmetric) {
+
+            long true_links = 0;
+
+            for (LXP query_record : query_records) {
+                for (LXP stored_record : getCandidates(query_record)) {
+                    if (datasets_same && stored_record.getId().equals(query_record.getId())) continue;
+                    if (is_true_match.apply(stored_record, query_record) == LinkStatus.TRUE_MATCH) true_links++;
+                }
+            }
+
+            // As in LinkageRunner.getLinkageQuality, links within a single data set are found in both directions.
+            return symmetric ? true_links / 2 : true_links;
+        }
+
+        @Override
+        public List<DataDistance<LXP>> findWithinThreshold(final LXP record, final double threshold) {
+            throw new UnsupportedOperationException("blocks are chosen by the unconverted query record");
+        }
+
+        @Override
+        public List<DataDistance<LXP>> findNearest(final LXP record, final int k) {
+            throw new UnsupportedOperationException("blocks are chosen by the unconverted query record");
+        }
+
+        @Override
+        public void terminate() {
+
+            for (Map<String, RecordBlock> blocks_for_key : blocks) {
+                for (RecordBlock block : blocks_for_key.values()) {
+                    block.terminate();
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+
+            final StringBuilder builder = new StringBuilder();
+
+            for (int i = 0; i < blocking_keys.size(); i++) {
+
+                int largest_block = 0;
+                for (RecordBlock block : blocks.get(i).values()) {
+                    largest_block = Math.max(largest_block, block.size());
+                }
+                builder.append("Blocking on ").append(blocking_keys.get(i).getName()).append(": ").append(blocks.get(i).size()).append(" blocks, largest ")
+                        .append(largest_block).append(", ").append(search_structures[i]).append(" with search structures\n");
+            }
+            return builder.append("Stored records not in any block: ").append(unblocked_records).toString();
+        }
+
+        private Collection<LXP> getCandidates(final LXP query_record) {
+
+            final Set<LXP> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (RecordBlock block : getBlocks(query_record)) {
+                candidates.addAll(block.getRecords());
+            }
+            return candidates;
+        }
+
+        private List<RecordBlock> getBlocks(final LXP query_record) {
+
+            final List<RecordBlock> result = new ArrayList<>();
+            for (int i = 0; i < blocking_keys.size(); i++) {
+                for (String key : blocking_keys.get(i).getQueryKeys(query_record)) {
+                    final RecordBlock block = blocks.get(i).get(key);
+                    if (block != null) result.add(block);
+                }
+            }
+            return result;
+        }
+    }
+}
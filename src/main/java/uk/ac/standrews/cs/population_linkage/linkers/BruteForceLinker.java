@@ -81,7 +81,8 @@ public abstract class BruteForceLinker extends Linker {
 
                 void loadNextPair() {
 
-                    next_pair = (record1 == null || record2 == null) ? null : new RecordPair(record1, record2, composite_measure.distance(record1, record2));
+                    // Pairs further apart than the threshold are not matched, so their distances need not be calculated in full.
+                    next_pair = (record1 == null || record2 == null) ? null : new RecordPair(record1, record2, composite_measure.distanceIfWithin(record1, record2, threshold));
                 }
 
                 void advanceIndices() {
@@ -20,7 +20,9 @@ import uk.ac.standrews.cs.neoStorr.impl.LXP;
 import uk.ac.standrews.cs.neoStorr.impl.exceptions.PersistentObjectException;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
 import uk.ac.standrews.cs.population_linkage.linkageRecipes.LinkViabilityChecker;
+import uk.ac.standrews.cs.population_linkage.linkageRecipes.TemporalColumns;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Link;
+import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageConfig;
 import uk.ac.standrews.cs.population_linkage.supportClasses.RecordPair;
 import uk.ac.standrews.cs.utilities.PercentageProgressIndicator;
 import uk.ac.standrews.cs.utilities.ProgressIndicator;
@@ -37,11 +39,13 @@ public abstract class Linker implements AutoCloseable {
     protected double threshold;
     protected Iterable<LXP> records1;
     protected Iterable<LXP> records2;
+    protected boolean records_from_same_set; // if so, records are not linked to themselves
     private final String link_type;
     private final String provenance;
     private final String role_type_1;
     private final String role_type_2;
     protected LinkViabilityChecker link_viability_checker;
+    private TemporalColumns temporal_columns = null;
 
     public Linker(LXPMeasure composite_measure, double threshold, int number_of_progress_updates,
                   String link_type, String provenance, String role_type_1, String role_type_2, LinkViabilityChecker link_viability_checker) {
@@ -62,6 +66,39 @@ public abstract class Linker implements AutoCloseable {
 
         this.records1 = records1;
         this.records2 = records2;
+        records_from_same_set = records1 == records2;
+
+        if (composite_measure != null) {
+            if (LinkageConfig.USE_LINKAGE_FIELD_STORE) composite_measure.buildFieldStore(records1);
+            composite_measure.orderFieldsByMeanDistance(records1);
+            if (LinkageConfig.PRECOMPUTE_CHARACTER_DISTRIBUTIONS) composite_measure.precomputeCharacterDistributions();
+            composite_measure.cacheFieldDistances(LinkageConfig.FIELD_DISTANCE_CACHE_SIZE);
+        }
+
+        if (LinkageConfig.USE_TEMPORAL_COLUMNS && link_viability_checker != null) {
+            releaseTemporalColumns();
+            temporal_columns = TemporalColumns.register(records_from_same_set ? new TemporalColumns(records1) : new TemporalColumns(records1, records2));
+        }
+    }
+
+    /**
+     * Deregisters the dates derived for viability checks by addRecords; to be called when the linker is closed.
+     */
+    protected void releaseTemporalColumns() {
+
+        if (temporal_columns != null) {
+            TemporalColumns.deregister(temporal_columns);
+            temporal_columns = null;
+        }
+    }
+
+    /**
+     * Declares whether the query records are drawn from the same set as the stored records, as they are when the same
+     * records are given for both, so that no record is linked to itself. This is needed when the query records are a
+     * subset of the stored records, as in incremental linkage. It must be called after addRecords.
+     */
+    public void setRecordsFromSameSet(boolean records_from_same_set) {
+        this.records_from_same_set = records_from_same_set;
     }
 
     public abstract void close();
@@ -147,9 +184,45 @@ public abstract class Linker implements AutoCloseable {
      * @return all the links per query rather than returning indvidual links as getLinks does.
      */
     public Iterable<List<Link>> getListsOfLinks() {
+        return toListsOfLinks(getMatchingLists());
+    }
+
+    /**
+     * @return for each query, the links to the closest stored records within the threshold - more than one if there are ties.
+     */
+    public Iterable<List<Link>> getListsOfClosestLinks() {
+        return toListsOfLinks(getClosestMatchingLists());
+    }
+
+    /**
+     * As getMatchingLists but keeping only the closest pairs for each query, in the same form as getListsOfClosestLinks.
+     * Linkers that can find nearest neighbours directly should override this.
+     */
+    public Iterable<List<RecordPair>> getClosestMatchingLists() {
 
         final Iterator<List<RecordPair>> iter = getMatchingLists().iterator();
 
+        return () -> new Iterator<>() {
+
+            @Override
+            public boolean hasNext() {
+                return iter.hasNext();
+            }
+
+            @Override
+            public List<RecordPair> next() {
+
+                List<RecordPair> pairs = iter.next();
+                double closest = pairs.stream().mapToDouble(pair -> pair.distance).min().orElse(0.0);
+                return pairs.stream().filter(pair -> pair.distance == closest).collect(Collectors.toList());
+            }
+        };
+    }
+
+    private Iterable<List<Link>> toListsOfLinks(Iterable<List<RecordPair>> lists_of_pairs) {
+
+        final Iterator<List<RecordPair>> iter = lists_of_pairs.iterator();
+
         return () -> new Iterator<>() {
 
             @Override
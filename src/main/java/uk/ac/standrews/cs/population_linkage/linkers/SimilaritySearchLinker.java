@@ -17,23 +17,32 @@
 package uk.ac.standrews.cs.population_linkage.linkers;
 
 import uk.ac.standrews.cs.neoStorr.impl.LXP;
+import uk.ac.standrews.cs.neoStorr.impl.exceptions.PersistentObjectException;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
 import uk.ac.standrews.cs.population_linkage.linkageRecipes.LinkageRecipe;
+import uk.ac.standrews.cs.population_linkage.linkageRecipes.ViabilityWindow;
 import uk.ac.standrews.cs.population_linkage.searchStructures.SearchStructure;
 import uk.ac.standrews.cs.population_linkage.searchStructures.SearchStructureFactory;
+import uk.ac.standrews.cs.population_linkage.searchStructures.TemporalPartitionSearchStructure;
+import uk.ac.standrews.cs.population_linkage.supportClasses.Link;
+import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageConfig;
 import uk.ac.standrews.cs.population_linkage.supportClasses.RecordPair;
 import uk.ac.standrews.cs.utilities.ProgressIndicator;
 import uk.ac.standrews.cs.utilities.measures.coreConcepts.DataDistance;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class SimilaritySearchLinker extends Linker {
 
-    private final SearchStructureFactory<LXP> search_structure_factory;
-    private final LinkageRecipe linkage_recipe;
+    protected final SearchStructureFactory<LXP> search_structure_factory;
+    protected final LinkageRecipe linkage_recipe;
+    protected final ViabilityWindow viability_window; // null if the stored records are not partitioned by date
     protected SearchStructure<LXP> search_structure;
     protected Iterable<LXP> search_set;
 
@@ -44,26 +53,49 @@ public class SimilaritySearchLinker extends Linker {
 
         this.search_structure_factory = search_structure_factory;
         this.linkage_recipe = linkage_recipe;
+        viability_window = linkage_recipe != null && LinkageConfig.PARTITION_BY_VIABILITY_WINDOW ? linkage_recipe.getViabilityWindow() : null;
     }
 
     public void addRecords(Iterable<LXP> storedSet, Iterable<LXP> searchSet) {
 
         super.addRecords(storedSet, searchSet);
         this.search_set = searchSet;
-        search_structure = search_structure_factory.newSearchStructure(storedSet);
+        search_structure = createSearchStructure(storedSet, null);
     }
 
     public void addRecords(Iterable<LXP> storedSet, Iterable<LXP> searchSet, List<LXP> reference_objects) {
 
         super.addRecords(storedSet, searchSet);
         this.search_set = searchSet;
-        search_structure = search_structure_factory.newSearchStructure(storedSet, reference_objects);
+        search_structure = createSearchStructure(storedSet, reference_objects);
+    }
+
+    /**
+     * If the recipe declares a viability window the stored records are partitioned by date, and the reference objects
+     * are used for each partition's search structure.
+     *
+     * @param reference_objects - the reference objects to be used, or null to let the factory choose them
+     */
+    protected SearchStructure<LXP> createSearchStructure(Iterable<LXP> storedSet, List<LXP> reference_objects) {
+
+        if (viability_window != null) {
+            return new TemporalPartitionSearchStructure(search_structure_factory, composite_measure, storedSet, reference_objects,
+                    viability_window::getStoredYear, LinkageConfig.VIABILITY_PARTITION_WIDTH);
+        }
+        return reference_objects == null ? search_structure_factory.newSearchStructure(storedSet) : search_structure_factory.newSearchStructure(storedSet, reference_objects);
     }
 
     public void close() {
         if( search_structure != null ) { // if it were not initialised
+            if( search_structure instanceof TemporalPartitionSearchStructure ) {
+                System.out.println( search_structure );
+            }
             search_structure.terminate();
         }
+        releaseTemporalColumns();
+        if( composite_measure.getFieldDistanceCache() != null ) {
+            System.out.println( composite_measure.getFieldDistanceCache() );
+        }
     }
 
     @Override
@@ -84,11 +116,299 @@ public class SimilaritySearchLinker extends Linker {
                 // the next_record_from_search_set converted into the same type as the stored records
                 final LXP converted_record = linkage_recipe != null ? linkage_recipe.convertToOtherRecordType(next_record_from_search_set) : next_record_from_search_set;
 
-                return toRecordPairList(next_record_from_search_set, search_structure.findWithinThreshold(converted_record, threshold)).collect(Collectors.toList());
+                return toRecordPairList(next_record_from_search_set, findWithinThreshold(next_record_from_search_set, converted_record)).collect(Collectors.toList());
+            }
+        };
+    }
+
+    /**
+     * Uses a nearest neighbour search for each query rather than retrieving every stored record within the threshold.
+     */
+    @Override
+    public Iterable<List<RecordPair>> getClosestMatchingLists() {
+
+        Iterator<LXP> search_set_iterator = search_set.iterator();
+
+        return () -> new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return search_set_iterator.hasNext();
+            }
+
+            @Override
+            public List<RecordPair> next() {
+
+                final LXP next_record_from_search_set = search_set_iterator.next();
+                final LXP converted_record = linkage_recipe != null ? linkage_recipe.convertToOtherRecordType(next_record_from_search_set) : next_record_from_search_set;
+
+                return toRecordPairList(next_record_from_search_set, findNearest(next_record_from_search_set, converted_record, 1))
+                        .filter(pair -> pair.distance <= threshold).collect(Collectors.toList());
             }
         };
     }
 
+    /**
+     * As getLinks, but the range searches are run concurrently using the worker configuration in LinkageConfig.
+     */
+    public ParallelLinks getLinksInParallel() {
+        return getLinksInParallel(LinkageConfig.NUMBER_OF_QUERY_WORKERS, LinkageConfig.QUERY_SHARD_SIZE, LinkageConfig.LINK_QUEUE_CAPACITY);
+    }
+
+    /**
+     * As getLinks, but the query records are split into shards of shard_size records which are searched by number_of_workers threads.
+     * The links found for each query record are passed back through a queue holding at most queue_capacity results,
+     * so the workers block rather than accumulate links if the consumer falls behind.
+     * Links are not returned in query order. The result should be closed once the links are no longer needed, so that
+     * the threads of any iteration not run to completion are reclaimed.
+     */
+    public ParallelLinks getLinksInParallel(int number_of_workers, int shard_size, int queue_capacity) {
+        return new ParallelLinks(number_of_workers, shard_size, queue_capacity);
+    }
+
+    /**
+     * The links returned by getLinksInParallel. Each iteration runs its own searches, which are cancelled when this is closed.
+     */
+    public class ParallelLinks implements Iterable<Link>, AutoCloseable {
+
+        private final int number_of_workers;
+        private final int shard_size;
+        private final int queue_capacity;
+        private final List<ParallelLinkIterator> iterators = new ArrayList<>();
+
+        private ParallelLinks(int number_of_workers, int shard_size, int queue_capacity) {
+
+            this.number_of_workers = number_of_workers;
+            this.shard_size = shard_size;
+            this.queue_capacity = queue_capacity;
+        }
+
+        @Override
+        public synchronized Iterator<Link> iterator() {
+
+            ParallelLinkIterator iterator = new ParallelLinkIterator(number_of_workers, shard_size, queue_capacity);
+            iterators.add(iterator);
+            return iterator;
+        }
+
+        @Override
+        public synchronized void close() {
+
+            for (ParallelLinkIterator iterator : iterators) {
+                iterator.close();
+            }
+            iterators.clear();
+        }
+    }
+
+    private static final List<Link> END_OF_LINKS = new ArrayList<>(); // compared by identity
+
+    private class ParallelLinkIterator implements Iterator<Link> {
+
+        private final BlockingQueue<List<Link>> results;
+        private final ExecutorService workers;
+        private final Semaphore shards_in_flight;
+        private final Thread feeder;
+        private final boolean datasets_same = records_from_same_set;
+        private final int shard_size;
+
+        private volatile RuntimeException failure = null;
+        private volatile boolean closed = false;
+        private Iterator<Link> current = null;
+        private boolean finished = false;
+
+        ParallelLinkIterator(int number_of_workers, int shard_size, int queue_capacity) {
+
+            this.shard_size = shard_size;
+            results = new ArrayBlockingQueue<>(queue_capacity);
+            workers = Executors.newFixedThreadPool(number_of_workers, runnable -> {
+                Thread thread = new Thread(runnable, "query-worker");
+                thread.setDaemon(true); // don't keep the JVM alive if the consumer abandons the links without closing them
+                return thread;
+            });
+            shards_in_flight = new Semaphore(number_of_workers * 2); // stops the feeder reading far ahead of the workers
+
+            if (linkage_recipe != null) linkage_progress_indicator.setTotalSteps(linkage_recipe.getQuerySetSize());
+
+            feeder = new Thread(this::feed, "query-feeder");
+            feeder.setDaemon(true);
+            feeder.start();
+        }
+
+        @Override
+        public boolean hasNext() {
+
+            if (closed) return false;
+
+            while (!finished && (current == null || !current.hasNext())) {
+                List<Link> next = take();
+                if (next == END_OF_LINKS) {
+                    finished = true;
+                    if (failure != null) throw failure;
+                } else {
+                    current = next.iterator();
+                }
+            }
+            return !finished;
+        }
+
+        @Override
+        public Link next() {
+
+            if (!hasNext()) throw new NoSuchElementException();
+            return current.next();
+        }
+
+        /**
+         * Cancels any searches still to be run, waits for the threads to finish and discards any links not yet consumed.
+         */
+        void close() {
+
+            if (closed) return;
+            closed = true;
+
+            feeder.interrupt();
+            workers.shutdownNow(); // interrupts any worker blocked on a full queue
+            results.clear();
+
+            try {
+                feeder.join();
+                workers.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            results.clear();
+        }
+
+        private boolean stopped() {
+            return closed || failure != null;
+        }
+
+        private List<Link> take() {
+            try {
+                return results.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+
+        private void feed() {
+
+            try {
+                // The search set may be backed by the store, so it is iterated only on this thread.
+                List<LXP> shard = new ArrayList<>(shard_size);
+                for (LXP query_record : search_set) {
+                    if (stopped()) break;
+                    shard.add(query_record);
+                    if (shard.size() == shard_size) {
+                        submit(shard);
+                        shard = new ArrayList<>(shard_size);
+                    }
+                }
+                if (!shard.isEmpty() && !stopped()) submit(shard);
+
+                workers.shutdown();
+                workers.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+
+            } catch (InterruptedException e) {
+                if (!closed) failure = new RuntimeException(e);
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                workers.shutdownNow();
+                if (!closed) {
+                    try {
+                        results.put(END_OF_LINKS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+
+        private void submit(List<LXP> shard) throws InterruptedException {
+
+            shards_in_flight.acquire();
+            try {
+                workers.execute(() -> {
+                    try {
+                        for (LXP query_record : shard) {
+                            if (stopped()) return;
+                            List<Link> links = search(query_record);
+                            if (!links.isEmpty()) results.put(links);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (RuntimeException e) {
+                        failure = e;
+                    } finally {
+                        shards_in_flight.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // The workers were shut down by close.
+                shards_in_flight.release();
+            }
+        }
+
+        private List<Link> search(LXP query_record) {
+
+            // the query record converted into the same type as the stored records
+            final LXP converted_record = linkage_recipe != null ? linkage_recipe.convertToOtherRecordType(query_record) : query_record;
+
+            List<Link> links = new ArrayList<>();
+            for (DataDistance<LXP> result : findViableCandidates(query_record, converted_record)) {
+
+                final LXP stored_record = result.value;
+                if (datasets_same && stored_record.getId().equals(query_record.getId())) continue;
+                if (result.distance > threshold) continue;
+                if (link_viability_checker != null && !link_viability_checker.isViableLink(stored_record, query_record)) continue;
+
+                try {
+                    links.add(new Link(stored_record, getRoleType1(), query_record, getRoleType2(), 1.0f,
+                            getLinkType(), result.distance, getProvenance() + ", distance: " + result.distance));
+                } catch (PersistentObjectException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            synchronized (linkage_progress_indicator) {
+                linkage_progress_indicator.progressStep();
+            }
+            return links;
+        }
+    }
+
+    /**
+     * Finds the stored records within the threshold of a query record.
+     *
+     * @param query_record     - the query record as read
+     * @param converted_record - the query record converted into the same type as the stored records
+     */
+    protected List<DataDistance<LXP>> findWithinThreshold(final LXP query_record, final LXP converted_record) {
+        return search_structure.findWithinThreshold(converted_record, threshold);
+    }
+
+    /**
+     * As findWithinThreshold, but the results may omit stored records outside the recipe's viability window, so this
+     * is used only where the results are then checked for viability.
+     */
+    protected List<DataDistance<LXP>> findViableCandidates(final LXP query_record, final LXP converted_record) {
+
+        if (search_structure instanceof TemporalPartitionSearchStructure) {
+            return ((TemporalPartitionSearchStructure) search_structure).findWithinThreshold(converted_record, threshold,
+                    viability_window.getEarliestStoredYear(query_record), viability_window.getLatestStoredYear(query_record));
+        }
+        return findWithinThreshold(query_record, converted_record);
+    }
+
+    /**
+     * Finds the k stored records closest to a query record; see {@link SearchStructure#findNearest}.
+     */
+    protected List<DataDistance<LXP>> findNearest(final LXP query_record, final LXP converted_record, final int k) {
+        return search_structure.findNearest(converted_record, k);
+    }
+
     private Stream<RecordPair> toRecordPairList(LXP search_record, List<DataDistance<LXP>> withinThreshold) {
         return withinThreshold.stream().map( dd -> new RecordPair(dd.value, search_record, dd.distance) );
     }
@@ -126,7 +446,7 @@ public class SimilaritySearchLinker extends Linker {
                     final LXP converted_record = linkage_recipe != null ? linkage_recipe.convertToOtherRecordType(next_record_from_search_set) : next_record_from_search_set;
 
                     result_index = 0;
-                    result_records = search_structure.findWithinThreshold(converted_record, threshold);
+                    result_records = findViableCandidates(next_record_from_search_set, converted_record);
                 }
 
                 @Override
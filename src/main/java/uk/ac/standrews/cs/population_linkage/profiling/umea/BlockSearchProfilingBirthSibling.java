@@ -0,0 +1,113 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.profiling.umea;
+
+import uk.ac.standrews.cs.neoStorr.impl.LXP;
+import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
+import uk.ac.standrews.cs.population_linkage.compositeMeasures.SumOfFieldDistances;
+import uk.ac.standrews.cs.population_linkage.datasets.Umea;
+import uk.ac.standrews.cs.population_linkage.linkageRecipes.BirthSiblingLinkageRecipe;
+import uk.ac.standrews.cs.population_linkage.searchStructures.BitBlasterSearchStructureFactory;
+import uk.ac.standrews.cs.population_linkage.searchStructures.RecordBlock;
+import uk.ac.standrews.cs.population_linkage.supportClasses.Constants;
+import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageConfig;
+import uk.ac.standrews.cs.population_linkage.supportClasses.Utilities;
+import uk.ac.standrews.cs.population_records.RecordRepository;
+
+import java.util.List;
+
+/**
+ * Times searches of blocks of birth records of various sizes, both by scanning and through a search structure, as a
+ * guide to setting LinkageConfig.MIN_BLOCK_SIZE_FOR_SEARCH_STRUCTURE. A linkage typically makes about as many
+ * searches of a block as it has stored records, so the build time is reported alongside the time per search.
+ */
+public class BlockSearchProfilingBirthSibling {
+
+    private static final int[] BLOCK_SIZES = {500, 1000, 2000, 5000, 10000, 20000, 50000};
+    private static final int NUMBER_OF_QUERIES = 1000;
+    private static final double THRESHOLD = 1d;
+
+    protected final String repo_name;
+
+    private BlockSearchProfilingBirthSibling(final String repo_name) {
+
+        this.repo_name = repo_name;
+    }
+
+    public void run() {
+
+        final RecordRepository record_repository = new RecordRepository(repo_name);
+
+        final List<LXP> birth_records = Utilities.permute(Utilities.getBirthRecords(record_repository));
+        final List<LXP> query_records = birth_records.subList(0, NUMBER_OF_QUERIES);
+
+        final LXPMeasure measure = new SumOfFieldDistances(Constants.JENSEN_SHANNON, BirthSiblingLinkageRecipe.LINKAGE_FIELDS);
+
+        for (final int block_size : BLOCK_SIZES) {
+
+            if (NUMBER_OF_QUERIES + block_size > birth_records.size()) break;
+            timeSearches(birth_records.subList(NUMBER_OF_QUERIES, NUMBER_OF_QUERIES + block_size), query_records, measure);
+        }
+    }
+
+    private void timeSearches(final List<LXP> stored_records, final List<LXP> query_records, final LXPMeasure measure) {
+
+        final RecordBlock scanned = makeBlock(stored_records, measure);
+        final double scan_millis = timeQueries(scanned, query_records);
+
+        final RecordBlock structured = makeBlock(stored_records, measure);
+        final int original_min_block_size = LinkageConfig.MIN_BLOCK_SIZE_FOR_SEARCH_STRUCTURE;
+        final long start_time = System.currentTimeMillis();
+
+        try {
+            LinkageConfig.MIN_BLOCK_SIZE_FOR_SEARCH_STRUCTURE = 0;
+            structured.createSearchStructure(new BitBlasterSearchStructureFactory<>(measure), null, "profiling");
+        } finally {
+            LinkageConfig.MIN_BLOCK_SIZE_FOR_SEARCH_STRUCTURE = original_min_block_size;
+        }
+
+        final long build_millis = System.currentTimeMillis() - start_time;
+        final double search_millis = timeQueries(structured, query_records);
+        structured.terminate();
+
+        System.out.printf("%d records: scan %.3f ms per search; search structure %d ms to build, %.3f ms per search%n",
+                stored_records.size(), scan_millis, build_millis, search_millis);
+    }
+
+    private static RecordBlock makeBlock(final List<LXP> stored_records, final LXPMeasure measure) {
+
+        final RecordBlock block = new RecordBlock(measure);
+        for (final LXP record : stored_records) {
+            block.add(record);
+        }
+        return block;
+    }
+
+    private static double timeQueries(final RecordBlock block, final List<LXP> query_records) {
+
+        final long start_time = System.currentTimeMillis();
+        for (final LXP record : query_records) {
+            block.findWithinThreshold(record, THRESHOLD);
+        }
+        return (double) (System.currentTimeMillis() - start_time) / query_records.size();
+    }
+
+    public static void main(String[] args) {
+
+        new BlockSearchProfilingBirthSibling(Umea.REPOSITORY_NAME).run();
+    }
+}
@@ -16,20 +16,16 @@
  */
 package uk.ac.standrews.cs.population_linkage.resolvers;
 
-import org.neo4j.driver.Result;
 import org.neo4j.driver.Session;
 import org.neo4j.driver.Transaction;
-import org.neo4j.driver.types.Node;
 import uk.ac.standrews.cs.neoStorr.impl.LXP;
 import uk.ac.standrews.cs.neoStorr.impl.exceptions.BucketException;
-import uk.ac.standrews.cs.neoStorr.interfaces.IBucket;
 import uk.ac.standrews.cs.neoStorr.util.NeoDbCypherBridge;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
 import uk.ac.standrews.cs.population_linkage.endToEnd.builders.BirthSiblingBundleBuilder;
 import uk.ac.standrews.cs.population_linkage.linkageAccuracy.BirthBirthSiblingAccuracy;
 import uk.ac.standrews.cs.population_linkage.linkageRecipes.BirthSiblingLinkageRecipe;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Constants;
-import uk.ac.standrews.cs.population_records.RecordRepository;
 import uk.ac.standrews.cs.population_records.record_types.Birth;
 import uk.ac.standrews.cs.utilities.measures.coreConcepts.StringMeasure;
 
@@ -41,7 +37,6 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 public class BirthBirthOpenTriangleResolver extends SiblingOpenTriangleResolver {
     //Cypher queries used in predicates
@@ -84,7 +79,6 @@ public class BirthBirthOpenTriangleResolver extends SiblingOpenTriangleResolver
 
         final StringMeasure base_measure = Constants.LEVENSHTEIN;
         final LXPMeasure composite_measure_date = getCompositeMeasureDate(base_measure);
-        IBucket births = record_repository.getBucket("birth_records");
         BirthSiblingLinkageRecipe recipe = new BirthSiblingLinkageRecipe(sourceRepo, numberOfRecords, BirthSiblingBundleBuilder.class.getName());
         int availableProcessors = Runtime.getRuntime().availableProcessors();
         ExecutorService executorService = Executors.newFixedThreadPool(availableProcessors);
@@ -113,10 +107,13 @@ public class BirthBirthOpenTriangleResolver extends SiblingOpenTriangleResolver
         for (OpenTriangleClusterBB triangle : triangles) {
             executorService.submit(() ->
                 {
+                    triangle.prefetchRecords();
                     try {
-                        resolveTrianglesMSED(triangle.getTriangleChain(), triangle.x, recipe, deletionPredicates[4], Birth.STANDARDISED_ID, BB_SIBLING_QUERY_DEL_PROV);
+                        resolveTrianglesMSED(triangle, recipe, deletionPredicates[4], Birth.STANDARDISED_ID, BB_SIBLING_QUERY_DEL_PROV);
                     } catch (BucketException e) {
                         throw new RuntimeException(e);
+                    } finally {
+                        triangle.releaseRecords();
                     }
                 }
             );
@@ -126,10 +123,13 @@ public class BirthBirthOpenTriangleResolver extends SiblingOpenTriangleResolver
         for (OpenTriangleClusterBB cluster : triangles) { //loop through each triangle cluster
             executorService.submit(() ->
                 {
+                    cluster.prefetchRecords();
                     try {
-                        resolveTrianglesPredicates(cluster, births, composite_measure_date);
+                        resolveTrianglesPredicates(cluster, composite_measure_date);
                     } catch (BucketException e) {
                         throw new RuntimeException(e);
+                    } finally {
+                        cluster.releaseRecords();
                     }
                 }
             );
@@ -137,6 +137,7 @@ public class BirthBirthOpenTriangleResolver extends SiblingOpenTriangleResolver
 
         executorService.shutdown();
         executorService.awaitTermination(1, TimeUnit.HOURS);
+        link_writer.flush();
 
         System.out.println("After");
         System.out.println("\n");
@@ -150,13 +151,12 @@ public class BirthBirthOpenTriangleResolver extends SiblingOpenTriangleResolver
      * Method to resolve open triangles using logical predicates
      *
      * @param cluster cluster of open triangles to resolve
-     * @param births births bucket
      * @param composite_measure_date composite measure for date
      * @throws BucketException
      */
-    private void resolveTrianglesPredicates(OpenTriangleClusterBB cluster, IBucket births, LXPMeasure composite_measure_date) throws BucketException {
+    private void resolveTrianglesPredicates(OpenTriangleClusterBB cluster, LXPMeasure composite_measure_date) throws BucketException {
         for (List<String> chain : cluster.getTriangleChain()){ //loop through each chain of open triangles in cluster
-            LXP[] tempKids = {(LXP) births.getObjectById(cluster.x), (LXP) births.getObjectById(chain.get(0)), (LXP) births.getObjectById(chain.get(1))}; //get node objects
+            LXP[] tempKids = cluster.getTriangleRecords(chain); //get node objects
             String std_id_x = tempKids[0].getString(Birth.STANDARDISED_ID);
             String std_id_y = tempKids[1].getString(Birth.STANDARDISED_ID);
             String std_id_z = tempKids[2].getString(Birth.STANDARDISED_ID);
@@ -174,18 +174,18 @@ public class BirthBirthOpenTriangleResolver extends SiblingOpenTriangleResolver
             hasChanged = mostCommonBirthPlacePredicate(cluster, hasChanged, tempKids, 2);
 
             //4. If same marriage date and pass other checks, create link
-            if(!hasChanged && getDistance(cluster.x, chain.get(1), composite_measure_date, births) < DATE_THRESHOLD &&
+            if(!hasChanged && getDistance(tempKids[0], tempKids[2], composite_measure_date) < DATE_THRESHOLD &&
                     !Objects.equals(tempKids[0].getString(Birth.PARENTS_YEAR_OF_MARRIAGE), "----") &&
                     !Objects.equals(tempKids[2].getString(Birth.PARENTS_YEAR_OF_MARRIAGE), "----")){
                 createLink(bridge, std_id_x, std_id_z, creationPredicates[0], BB_SIBLING_QUERY);
             }else{
-                if(!hasChanged && getDistance(cluster.x, chain.get(0), composite_measure_date, births) > DATE_THRESHOLD &&
+                if(!hasChanged && getDistance(tempKids[0], tempKids[1], composite_measure_date) > DATE_THRESHOLD &&
                         !Objects.equals(tempKids[0].getString(Birth.PARENTS_YEAR_OF_MARRIAGE), "----") &&
                         !Objects.equals(tempKids[1].getString(Birth.PARENTS_YEAR_OF_MARRIAGE), "----")){
                     deleteLink(bridge, std_id_x, std_id_y, deletionPredicates[3], BB_SIBLING_QUERY_DEL_PROV);
                 }
 
-                if (!hasChanged && getDistance(chain.get(0), chain.get(1), composite_measure_date, births) > DATE_THRESHOLD &&
+                if (!hasChanged && getDistance(tempKids[1], tempKids[2], composite_measure_date) > DATE_THRESHOLD &&
                         !Objects.equals(tempKids[1].getString(Birth.PARENTS_YEAR_OF_MARRIAGE), "----") &&
                         !Objects.equals(tempKids[2].getString(Birth.PARENTS_YEAR_OF_MARRIAGE), "----")){
                     deleteLink(bridge, std_id_z, std_id_y, deletionPredicates[3], BB_SIBLING_QUERY_DEL_PROV);
@@ -201,42 +201,12 @@ public class BirthBirthOpenTriangleResolver extends SiblingOpenTriangleResolver
      * @return List of open triangle clusters
      */
     private List<OpenTriangleClusterBB> findIllegalBirthBirthSiblingTriangles(NeoDbCypherBridge bridge, String recordRepo) {
-        final String BIRTH_SIBLING_TRIANGLE_QUERY = "MATCH (x:Birth)-[:SIBLING]-(y:Birth)-[:SIBLING]-(z:Birth)\n" +
-                "WHERE NOT (x)-[:SIBLING]-(z) AND NOT (x)-[:DELETED]-(y) AND NOT (z)-[:DELETED]-(y)\n" +
-                "RETURN x, collect([y, z]) AS openTriangles";
-
-        //run query to get all open triangles
-        Result result = bridge.getNewSession().run(BIRTH_SIBLING_TRIANGLE_QUERY);
         List<OpenTriangleClusterBB> clusters = new ArrayList<>();
-        List<List<String>> temp = new ArrayList<>();
-
-        //loop through each cluster
-        result.stream().forEach(r -> {
-            String x = ((Node) r.asMap().get("x")).get("STORR_ID").asString();
-            List<List<Node>> openTrianglesNodes = (List<List<Node>>) r.asMap().get("openTriangles");
-
-            for (List<Node> innerList : openTrianglesNodes) {
-                List<String> openTriangleList = innerList.stream()
-                        .map(obj -> {
-                            if (obj instanceof Node) {
-                                return ((Node) obj).get("STORR_ID").asString();
-                            } else {
-                                throw new IllegalArgumentException("Expected a Node but got: " + obj.getClass());
-                            }
-                        })
-                        .collect(Collectors.toList());
 
-                temp.add(openTriangleList); //add triangles to a temporary list
-
-                if (temp.size() == 360) { //limit number of triangles in cluster
-                    clusters.add(new OpenTriangleClusterBB(x, new ArrayList<>(temp), recordRepo));
-                    temp.clear();
-                }
-            }
-
-            if (!temp.isEmpty()) { //if not reached limit, create a cluster object with whatever is left
-                clusters.add(new OpenTriangleClusterBB(x, new ArrayList<>(temp), recordRepo));
-                temp.clear();
+        //find all open triangles in an in-memory snapshot of the sibling links, grouped by x
+        SiblingGraph.load(bridge, "Birth", "Birth").findOpenTriangles().forEach((x, openTriangles) -> {
+            for (int i = 0; i < openTriangles.size(); i += 360) { //limit number of triangles in cluster
+                clusters.add(new OpenTriangleClusterBB(x, new ArrayList<>(openTriangles.subList(i, Math.min(i + 360, openTriangles.size()))), recordRepo));
             }
         });
 
@@ -468,23 +438,4 @@ public class BirthBirthOpenTriangleResolver extends SiblingOpenTriangleResolver
             }
         }
     }
-
-    /**
-     * Method to get birth objects based on storr IDs
-     *
-     * @param sibling_ids ids of records to find
-     * @param record_repository repository of where records stored
-     * @return list of birth objects
-     * @throws BucketException
-     */
-    @SuppressWarnings("unchecked")
-    @Override
-    protected List<LXP> getRecords(List<String> sibling_ids, RecordRepository record_repository) throws BucketException {
-        IBucket<LXP> births = (IBucket<LXP>) record_repository.getBucket("birth_records");
-        ArrayList<LXP> bs = new ArrayList<>();
-        for( String id : sibling_ids) {
-            bs.add(births.getObjectById(id));
-        }
-        return bs;
-    }
 }
@@ -106,6 +106,7 @@ public class BirthDeathIDPredicateOpenTriangleResolver extends IdentityOpenTrian
 
         executorService.shutdown();
         executorService.awaitTermination(1, TimeUnit.HOURS);
+        link_writer.flush();
 
         System.out.println("After");
         System.out.println("\n");
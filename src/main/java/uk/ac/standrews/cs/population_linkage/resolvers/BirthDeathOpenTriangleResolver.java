@@ -16,19 +16,16 @@
  */
 package uk.ac.standrews.cs.population_linkage.resolvers;
 
-import org.neo4j.driver.Result;
-import org.neo4j.driver.types.Node;
 import uk.ac.standrews.cs.neoStorr.impl.LXP;
 import uk.ac.standrews.cs.neoStorr.impl.exceptions.BucketException;
-import uk.ac.standrews.cs.neoStorr.interfaces.IBucket;
 import uk.ac.standrews.cs.neoStorr.util.NeoDbCypherBridge;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
 import uk.ac.standrews.cs.population_linkage.endToEnd.builders.BirthDeathSiblingBundleBuilder;
+import uk.ac.standrews.cs.population_linkage.linkageAccuracy.AccuracyEvaluator;
 import uk.ac.standrews.cs.population_linkage.linkageAccuracy.BirthBirthSiblingAccuracy;
 import uk.ac.standrews.cs.population_linkage.linkageAccuracy.BirthDeathSiblingAccuracy;
 import uk.ac.standrews.cs.population_linkage.linkageRecipes.BirthDeathSiblingLinkageRecipe;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Constants;
-import uk.ac.standrews.cs.population_records.RecordRepository;
 import uk.ac.standrews.cs.population_records.record_types.Birth;
 import uk.ac.standrews.cs.population_records.record_types.Death;
 import uk.ac.standrews.cs.utilities.measures.coreConcepts.StringMeasure;
@@ -41,7 +38,6 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 public class BirthDeathOpenTriangleResolver extends SiblingOpenTriangleResolver {
     //Cypher queries used in predicates
@@ -72,8 +68,6 @@ public class BirthDeathOpenTriangleResolver extends SiblingOpenTriangleResolver
         super(sourceRepo);
         final StringMeasure base_measure = Constants.LEVENSHTEIN;
         final LXPMeasure composite_measure_date = getCompositeMeasureDate(base_measure);
-        IBucket births = record_repository.getBucket("birth_records");
-        IBucket deaths = record_repository.getBucket("death_records");
         BirthDeathSiblingLinkageRecipe recipe = new BirthDeathSiblingLinkageRecipe(sourceRepo, numberOfRecords, BirthDeathSiblingBundleBuilder.class.getName(), null);
         int availableProcessors = Runtime.getRuntime().availableProcessors();
         ExecutorService executorService = Executors.newFixedThreadPool(availableProcessors);
@@ -81,8 +75,7 @@ public class BirthDeathOpenTriangleResolver extends SiblingOpenTriangleResolver
         System.out.println("Before");
         PatternsCounter.countOpenTrianglesToString(bridge, "Birth", "Death");
         PatternsCounter.countOpenTrianglesToString(bridge, "Birth", "Birth");
-        new BirthDeathSiblingAccuracy(bridge);
-        new BirthBirthSiblingAccuracy(bridge);
+        new AccuracyEvaluator(bridge).report(BirthDeathSiblingAccuracy.class, BirthBirthSiblingAccuracy.class);
 
         System.out.println("Locating triangles...");
         List<OpenTriangleClusterBD> triangles = findIllegalBirthDeathSiblingTriangles(bridge, sourceRepo);
@@ -92,10 +85,13 @@ public class BirthDeathOpenTriangleResolver extends SiblingOpenTriangleResolver
         for (OpenTriangleClusterBD cluster : triangles) {
             executorService.submit(() ->
                 {
+                    cluster.prefetchRecords();
                     try {
-                        resolveTrianglesMSED(cluster.getTriangleChain(), cluster.x, recipe, deletionPredicates[4], Birth.STANDARDISED_ID, BD_SIBLING_QUERY_DEL_PROV);
+                        resolveTrianglesMSED(cluster, recipe, deletionPredicates[4], Birth.STANDARDISED_ID, BD_SIBLING_QUERY_DEL_PROV);
                     } catch (BucketException e) {
                         throw new RuntimeException(e);
+                    } finally {
+                        cluster.releaseRecords();
                     }
                 }
             );
@@ -105,10 +101,13 @@ public class BirthDeathOpenTriangleResolver extends SiblingOpenTriangleResolver
         for (OpenTriangleCluster cluster : triangles) {
             executorService.submit(() ->
                 {
+                    cluster.prefetchRecords();
                     try {
-                        resolveTrianglesPredicates(cluster, births, deaths, composite_measure_date);
+                        resolveTrianglesPredicates(cluster, composite_measure_date);
                     } catch (BucketException e) {
                         throw new RuntimeException(e);
+                    } finally {
+                        cluster.releaseRecords();
                     }
                 }
             );
@@ -116,6 +115,7 @@ public class BirthDeathOpenTriangleResolver extends SiblingOpenTriangleResolver
 
         executorService.shutdown();
         executorService.awaitTermination(1, TimeUnit.HOURS);
+        link_writer.flush();
 
         System.out.println("After");
         PredicateEfficacy pef = new PredicateEfficacy(); //get efficacy of each predicate
@@ -125,21 +125,19 @@ public class BirthDeathOpenTriangleResolver extends SiblingOpenTriangleResolver
         pef.countSiblingEfficacy(creationPredicates, new String[0], "Birth", "Birth");
         PatternsCounter.countOpenTrianglesToString(bridge, "Birth", "Death");
         PatternsCounter.countOpenTrianglesToString(bridge, "Birth", "Birth");
-        new BirthDeathSiblingAccuracy(bridge);
-        new BirthBirthSiblingAccuracy(bridge);
+        new AccuracyEvaluator(bridge).report(BirthDeathSiblingAccuracy.class, BirthBirthSiblingAccuracy.class);
     }
 
     /**
      * Method to resolve open triangles using logical predicates
      *
      * @param cluster cluster of open triangles to resolve
-     * @param births births bucket
      * @param composite_measure_date composite measure for date
      * @throws BucketException
      */
-    private void resolveTrianglesPredicates(OpenTriangleCluster cluster, IBucket births, IBucket deaths, LXPMeasure composite_measure_date) throws BucketException {
+    private void resolveTrianglesPredicates(OpenTriangleCluster cluster, LXPMeasure composite_measure_date) throws BucketException {
         for (List<String> chain : cluster.getTriangleChain()){
-            LXP[] tempKids = {(LXP) births.getObjectById(cluster.x), (LXP) deaths.getObjectById(chain.get(0)), (LXP) births.getObjectById(chain.get(1))};
+            LXP[] tempKids = cluster.getTriangleRecords(chain);
             String std_id_x = tempKids[0].getString(Birth.STANDARDISED_ID);
             String std_id_y = tempKids[1].getString(Death.STANDARDISED_ID);
             String std_id_z = tempKids[2].getString(Birth.STANDARDISED_ID);
@@ -157,7 +155,7 @@ public class BirthDeathOpenTriangleResolver extends SiblingOpenTriangleResolver
             hasChanged = mostCommonBirthPlacePredicate(cluster, hasChanged, tempKids, 2);
 
             //4. If same marriage date and pass other checks, create link. Match for same birthplace as well?
-            if(!hasChanged && getDistance(cluster.x, chain.get(1), composite_measure_date, births) < DATE_THRESHOLD &&
+            if(!hasChanged && getDistance(tempKids[0], tempKids[2], composite_measure_date) < DATE_THRESHOLD &&
                     !Objects.equals(tempKids[0].getString(Birth.PARENTS_YEAR_OF_MARRIAGE), "----") &&
                     !Objects.equals(tempKids[2].getString(Birth.PARENTS_YEAR_OF_MARRIAGE), "----")){
                 createLink(bridge, std_id_x, std_id_z, creationPredicates[0], BB_SIBLING_QUERY);
@@ -172,42 +170,12 @@ public class BirthDeathOpenTriangleResolver extends SiblingOpenTriangleResolver
      * @return List of open triangle clusters
      */
     private List<OpenTriangleClusterBD> findIllegalBirthDeathSiblingTriangles(NeoDbCypherBridge bridge, String recordRepo) {
-        final String BIRTH_SIBLING_TRIANGLE_QUERY = "MATCH (x:Birth)-[:SIBLING]-(y:Death)-[:SIBLING]-(z:Birth)\n"+
-                "WHERE NOT (x)-[:SIBLING]-(z) AND NOT (x)-[:DELETED]-(y) AND NOT (z)-[:DELETED]-(y)\n" +
-                "RETURN x, collect([y, z]) AS openTriangles";
-
-        //run query to get all open triangles
-        Result result = bridge.getNewSession().run(BIRTH_SIBLING_TRIANGLE_QUERY);
         List<OpenTriangleClusterBD> clusters = new ArrayList<>();
-        List<List<String>> temp = new ArrayList<>();
-
-        //loop through each cluster
-        result.stream().forEach(r -> {
-            String x = ((Node) r.asMap().get("x")).get("STORR_ID").asString();
-            List<List<Node>> openTrianglesNodes = (List<List<Node>>) r.asMap().get("openTriangles");
-
-            for (List<Node> innerList : openTrianglesNodes) {
-                List<String> openTriangleList = innerList.stream()
-                        .map(obj -> {
-                            if (obj instanceof Node) {
-                                return ((Node) obj).get("STORR_ID").asString();
-                            } else {
-                                throw new IllegalArgumentException("Expected a Node but got: " + obj.getClass());
-                            }
-                        })
-                        .collect(Collectors.toList());
-
-                temp.add(openTriangleList); //add triangles to a temporary list
-
-                if (temp.size() == 360) { //limit number of triangles in cluster
-                    clusters.add(new OpenTriangleClusterBD(x, new ArrayList<>(temp), recordRepo));
-                    temp.clear();
-                }
-            }
 
-            if (!temp.isEmpty()) { //if not reached limit, create a cluster object with whatever is left
-                clusters.add(new OpenTriangleClusterBD(x, new ArrayList<>(temp), recordRepo));
-                temp.clear();
+        //find all open triangles in an in-memory snapshot of the sibling links, grouped by x
+        SiblingGraph.load(bridge, "Birth", "Death").findOpenTriangles().forEach((x, openTriangles) -> {
+            for (int i = 0; i < openTriangles.size(); i += 360) { //limit number of triangles in cluster
+                clusters.add(new OpenTriangleClusterBD(x, new ArrayList<>(openTriangles.subList(i, Math.min(i + 360, openTriangles.size()))), recordRepo));
             }
         });
 
@@ -461,29 +429,4 @@ public class BirthDeathOpenTriangleResolver extends SiblingOpenTriangleResolver
             }
         }
     }
-
-    /**
-     * Method to get birth/death objects based on storr IDs
-     *
-     * @param sibling_ids ids of records to find
-     * @param record_repository repository of where records stored
-     * @return list of birth/death objects
-     * @throws BucketException
-     */
-    @Override
-    protected List<LXP> getRecords(List<String> sibling_ids, RecordRepository record_repository) throws BucketException {
-        IBucket<Birth> births = (IBucket<Birth>) record_repository.getBucket("birth_records");
-        IBucket<Death> deaths = (IBucket<Death>) record_repository.getBucket("death_records");
-        ArrayList<LXP> bs = new ArrayList();
-
-        for (int i = 0; i < sibling_ids.size(); i++) {
-            if(i == 1){
-                bs.add(deaths.getObjectById(sibling_ids.get(i)));
-            }else{
-                bs.add(births.getObjectById(sibling_ids.get(i)));
-            }
-        }
-
-        return bs;
-    }
 }
@@ -26,6 +26,7 @@ import uk.ac.standrews.cs.neoStorr.interfaces.IBucket;
 import uk.ac.standrews.cs.neoStorr.util.NeoDbCypherBridge;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.SumOfFieldDistances;
+import uk.ac.standrews.cs.population_linkage.linkageAccuracy.AccuracyEvaluator;
 import uk.ac.standrews.cs.population_linkage.linkageAccuracy.BirthBrideOwnMarriageAccuracy;
 import uk.ac.standrews.cs.population_linkage.linkageAccuracy.BirthGroomOwnMarriageBundleAccuracy;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Constants;
@@ -88,8 +89,7 @@ public class BirthMarriageIDOpenTriangleResolver extends IdentityOpenTriangleRes
 
         System.out.println("Before");
         PatternsCounter.countOpenTrianglesToStringID(bridge, "Birth", "Marriage"); //get number of triangles before resolution
-        new BirthGroomOwnMarriageBundleAccuracy(bridge);
-        new BirthBrideOwnMarriageAccuracy(bridge);
+        new AccuracyEvaluator(bridge).report(BirthGroomOwnMarriageBundleAccuracy.class, BirthBrideOwnMarriageAccuracy.class);
 
         //loop through each partner
         for (String partner : partners) {
@@ -121,6 +121,7 @@ public class BirthMarriageIDOpenTriangleResolver extends IdentityOpenTriangleRes
             for (String[] triangle : triangles) {
                 resolveTriangle(partner, triangle, births, marriages, composite_measure);
             }
+            link_writer.flush();
         }
 
         System.out.println("After");
@@ -131,8 +132,7 @@ public class BirthMarriageIDOpenTriangleResolver extends IdentityOpenTriangleRes
             pef.countIDEfficacyDel(deletionPredicates, "Birth", "Marriage", "Child-" + partner);
         }
         PatternsCounter.countOpenTrianglesToStringID(bridge, "Birth", "Marriage"); //count number of open triangles after resolution
-        new BirthGroomOwnMarriageBundleAccuracy(bridge);
-        new BirthBrideOwnMarriageAccuracy(bridge);
+        new AccuracyEvaluator(bridge).report(BirthGroomOwnMarriageBundleAccuracy.class, BirthBrideOwnMarriageAccuracy.class);
     }
 
     /**
@@ -16,18 +16,14 @@
  */
 package uk.ac.standrews.cs.population_linkage.resolvers;
 
-import org.neo4j.driver.Result;
 import org.neo4j.driver.Session;
 import org.neo4j.driver.Transaction;
-import org.neo4j.driver.types.Node;
 import uk.ac.standrews.cs.neoStorr.impl.LXP;
 import uk.ac.standrews.cs.neoStorr.impl.exceptions.BucketException;
-import uk.ac.standrews.cs.neoStorr.interfaces.IBucket;
 import uk.ac.standrews.cs.neoStorr.util.NeoDbCypherBridge;
 import uk.ac.standrews.cs.population_linkage.endToEnd.builders.DeathSiblingBundleBuilder;
 import uk.ac.standrews.cs.population_linkage.linkageAccuracy.DeathDeathSiblingAccuracy;
 import uk.ac.standrews.cs.population_linkage.linkageRecipes.DeathSiblingLinkageRecipe;
-import uk.ac.standrews.cs.population_records.RecordRepository;
 import uk.ac.standrews.cs.population_records.record_types.Death;
 
 import java.time.LocalDate;
@@ -38,7 +34,6 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 public class DeathDeathOpenTriangleResolver extends SiblingOpenTriangleResolver {
     //Cypher queries used in predicates
@@ -81,7 +76,6 @@ public class DeathDeathOpenTriangleResolver extends SiblingOpenTriangleResolver
 
     public DeathDeathOpenTriangleResolver(String sourceRepo, String numberOfRecords) throws BucketException, InterruptedException {
         super(sourceRepo);
-        IBucket deaths = record_repository.getBucket("death_records");
         DeathSiblingLinkageRecipe recipe = new DeathSiblingLinkageRecipe(sourceRepo, numberOfRecords, DeathSiblingBundleBuilder.class.getName());
         int availableProcessors = Runtime.getRuntime().availableProcessors();
         ExecutorService executorService = Executors.newFixedThreadPool(availableProcessors);
@@ -110,10 +104,13 @@ public class DeathDeathOpenTriangleResolver extends SiblingOpenTriangleResolver
         for (OpenTriangleClusterDD cluster : triangles) {
             executorService.submit(() ->
                 {
+                    cluster.prefetchRecords();
                     try {
-                        resolveTrianglesMSED(cluster.getTriangleChain(), cluster.x, recipe, deletionPredicates[4], Death.STANDARDISED_ID, DD_SIBLING_QUERY_DEL_PROV);
+                        resolveTrianglesMSED(cluster, recipe, deletionPredicates[4], Death.STANDARDISED_ID, DD_SIBLING_QUERY_DEL_PROV);
                     } catch (BucketException e) {
                         throw new RuntimeException(e);
+                    } finally {
+                        cluster.releaseRecords();
                     }
                 }
             );
@@ -123,10 +120,13 @@ public class DeathDeathOpenTriangleResolver extends SiblingOpenTriangleResolver
         for (OpenTriangleCluster cluster : triangles) {
             executorService.submit(() ->
                 {
+                    cluster.prefetchRecords();
                     try {
-                        resolveTrianglesPredicates(cluster, deaths);
+                        resolveTrianglesPredicates(cluster);
                     } catch (BucketException e) {
                         throw new RuntimeException(e);
+                    } finally {
+                        cluster.releaseRecords();
                     }
                 }
             );
@@ -134,6 +134,7 @@ public class DeathDeathOpenTriangleResolver extends SiblingOpenTriangleResolver
 
         executorService.shutdown();
         executorService.awaitTermination(1, TimeUnit.HOURS);
+        link_writer.flush();
 
         System.out.println("After");
         PredicateEfficacy pef = new PredicateEfficacy(); //get efficacy of each predicate
@@ -147,12 +148,11 @@ public class DeathDeathOpenTriangleResolver extends SiblingOpenTriangleResolver
      * Method to resolve open triangles using logical predicates
      *
      * @param cluster cluster of open triangles to resolve
-     * @param deaths deaths bucket
      * @throws BucketException
      */
-    private void resolveTrianglesPredicates(OpenTriangleCluster cluster, IBucket deaths) throws BucketException {
+    private void resolveTrianglesPredicates(OpenTriangleCluster cluster) throws BucketException {
         for (List<String> chain : cluster.getTriangleChain()){ //loop through each chain of open triangles in cluster
-            LXP[] tempKids = {(LXP) deaths.getObjectById(cluster.x), (LXP) deaths.getObjectById(chain.get(0)), (LXP) deaths.getObjectById(chain.get(1))};
+            LXP[] tempKids = cluster.getTriangleRecords(chain);
 
             cluster.getYearStatistics();
             boolean hasChanged = false;
@@ -175,42 +175,12 @@ public class DeathDeathOpenTriangleResolver extends SiblingOpenTriangleResolver
      * @return List of open triangle clusters
      */
     private List<OpenTriangleClusterDD> findIllegalDeathDeathSiblingTriangles(NeoDbCypherBridge bridge, String recordRepo) {
-        final String DEATH_SIBLING_TRIANGLE_QUERY = "MATCH (x:Death)-[:SIBLING]-(y:Death)-[:SIBLING]-(z:Death)\n"+
-                "WHERE NOT (x)-[:SIBLING]-(z) AND NOT (x)-[:DELETED]-(y) AND NOT (z)-[:DELETED]-(y)\n" +
-                "RETURN x, collect([y, z]) AS openTriangles";
-
-        //run query to get all open triangles
-        Result result = bridge.getNewSession().run(DEATH_SIBLING_TRIANGLE_QUERY);
         List<OpenTriangleClusterDD> clusters = new ArrayList<>();
-        List<List<String>> temp = new ArrayList<>();
-
-        //loop through each cluster
-        result.stream().forEach(r -> {
-            String x = ((Node) r.asMap().get("x")).get("STORR_ID").asString();
-            List<List<Node>> openTrianglesNodes = (List<List<Node>>) r.asMap().get("openTriangles");
-
-            for (List<Node> innerList : openTrianglesNodes) {
-                List<String> openTriangleList = innerList.stream()
-                        .map(obj -> {
-                            if (obj instanceof Node) {
-                                return ((Node) obj).get("STORR_ID").asString();
-                            } else {
-                                throw new IllegalArgumentException("Expected a Node but got: " + obj.getClass());
-                            }
-                        })
-                        .collect(Collectors.toList());
-
-                temp.add(openTriangleList); //add triangles to a temporary list
-
-                if (temp.size() == 360) { //limit number of triangles in cluster
-                    clusters.add(new OpenTriangleClusterDD(x, new ArrayList<>(temp), recordRepo));
-                    temp.clear();
-                }
-            }
 
-            if (!temp.isEmpty()) { //if not reached limit, create a cluster object with whatever is left
-                clusters.add(new OpenTriangleClusterDD(x, new ArrayList<>(temp), recordRepo));
-                temp.clear();
+        //find all open triangles in an in-memory snapshot of the sibling links, grouped by x
+        SiblingGraph.load(bridge, "Death", "Death").findOpenTriangles().forEach((x, openTriangles) -> {
+            for (int i = 0; i < openTriangles.size(); i += 360) { //limit number of triangles in cluster
+                clusters.add(new OpenTriangleClusterDD(x, new ArrayList<>(openTriangles.subList(i, Math.min(i + 360, openTriangles.size()))), recordRepo));
             }
         });
 
@@ -457,24 +427,4 @@ public class DeathDeathOpenTriangleResolver extends SiblingOpenTriangleResolver
             }
         }
     }
-
-    /**
-     * Method to get death objects based on storr IDs
-     *
-     * @param sibling_ids ids of records to find
-     * @param record_repository repository of where records stored
-     * @return list of death objects
-     * @throws BucketException
-     */
-    @Override
-    protected List<LXP> getRecords(List<String> sibling_ids, RecordRepository record_repository) throws BucketException {
-        IBucket<Death> deaths = (IBucket<Death>) record_repository.getBucket("death_records");
-        ArrayList<LXP> bs = new ArrayList();
-
-        for (int i = 0; i < sibling_ids.size(); i++) {
-            bs.add(deaths.getObjectById(sibling_ids.get(i)));
-        }
-
-        return bs;
-    }
 }
@@ -16,8 +16,6 @@
  */
 package uk.ac.standrews.cs.population_linkage.resolvers;
 
-import org.neo4j.driver.Session;
-import org.neo4j.driver.Transaction;
 import uk.ac.standrews.cs.neoStorr.impl.LXP;
 import uk.ac.standrews.cs.neoStorr.impl.Store;
 import uk.ac.standrews.cs.neoStorr.impl.exceptions.BucketException;
@@ -30,6 +28,7 @@ import java.util.*;
 public abstract class IdentityOpenTriangleResolver {
     protected NeoDbCypherBridge bridge;
     protected RecordRepository record_repository;
+    protected final ResolverLinkWriter link_writer;
 
     protected final int MIN_MARRIAGE_AGE = 15;
     protected final int MAX_MARRIAGE_AGE = 60;
@@ -37,21 +36,19 @@ public abstract class IdentityOpenTriangleResolver {
     public IdentityOpenTriangleResolver(String sourceRepo) {
         bridge = Store.getInstance().getBridge();
         record_repository= new RecordRepository(sourceRepo);
+        link_writer = new ResolverLinkWriter(bridge);
     }
 
     /**
-     * Method to create a delete link between two records, used in testing
+     * Method to create a delete link between two records, used in testing. The link is buffered until the batch for
+     * the query is full or link_writer is flushed.
      *
      * @param bridge Neo4j bridge
      * @param std_id_x standardised id of record x
      * @param std_id_y standardised id of record y
      */
     protected void deleteLink(NeoDbCypherBridge bridge, String std_id_x, String std_id_y, String actor, String prov, String query){
-        try (Session session = bridge.getNewSession(); Transaction tx = session.beginTransaction();) {
-            Map<String, Object> parameters = getCreationParameterMap(std_id_x, std_id_y, prov, actor);
-            tx.run(query, parameters);
-            tx.commit();
-        }
+        link_writer.add(query, getCreationParameterMap(std_id_x, std_id_y, prov, actor));
     }
 
     /**
@@ -19,6 +19,7 @@ package uk.ac.standrews.cs.population_linkage.resolvers;
 import org.neo4j.driver.Session;
 import org.neo4j.driver.Transaction;
 import uk.ac.standrews.cs.neoStorr.impl.exceptions.BucketException;
+import uk.ac.standrews.cs.population_linkage.linkageAccuracy.AccuracyEvaluator;
 import uk.ac.standrews.cs.population_linkage.linkageAccuracy.BrideMarriageParentsMarriageAccuracy;
 import uk.ac.standrews.cs.population_linkage.linkageAccuracy.GroomMarriageParentsMarriageAccuracy;
 
@@ -82,8 +83,7 @@ public class MarriageParentsMarriageIDOpenTriangleResolver extends IdentityOpenT
 
         System.out.println("Before");
         PatternsCounter.countOpenTrianglesToStringID(bridge, "Marriage", "Marriage"); //get number of triangles before resolution
-        new GroomMarriageParentsMarriageAccuracy(bridge);
-        new BrideMarriageParentsMarriageAccuracy(bridge);
+        new AccuracyEvaluator(bridge).report(GroomMarriageParentsMarriageAccuracy.class, BrideMarriageParentsMarriageAccuracy.class);
 
         String[] partners = {"Groom", "Bride"};
 
@@ -113,7 +113,6 @@ public class MarriageParentsMarriageIDOpenTriangleResolver extends IdentityOpenT
             pef.countIDEfficacyCreate(creationPredicates, "Marriage", "Marriage", partner + "-Couple");
         }
         PatternsCounter.countOpenTrianglesToStringID(bridge, "Marriage", "Marriage"); //get number of triangles before resolution
-        new GroomMarriageParentsMarriageAccuracy(bridge);
-        new BrideMarriageParentsMarriageAccuracy(bridge);
+        new AccuracyEvaluator(bridge).report(GroomMarriageParentsMarriageAccuracy.class, BrideMarriageParentsMarriageAccuracy.class);
     }
 }
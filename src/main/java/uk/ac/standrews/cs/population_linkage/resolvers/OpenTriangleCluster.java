@@ -18,6 +18,7 @@ package uk.ac.standrews.cs.population_linkage.resolvers;
 
 import uk.ac.standrews.cs.neoStorr.impl.LXP;
 import uk.ac.standrews.cs.neoStorr.impl.exceptions.BucketException;
+import uk.ac.standrews.cs.neoStorr.interfaces.IBucket;
 
 import java.time.LocalDate;
 import java.util.*;
@@ -33,6 +34,8 @@ public abstract class OpenTriangleCluster {
     protected double yearAvg;
     protected int yearMedian;
     protected String mostCommonBirthplace = null;
+    protected Map<String, LXP> records = Collections.emptyMap(); // records in the cluster by storr id, read by the first worker task resolving the cluster
+    private int tasks_using_records = 0;
 
     public OpenTriangleCluster(String x, List<List<String>>  triangleChain) {
         this.x = x;
@@ -49,6 +52,53 @@ public abstract class OpenTriangleCluster {
 
     public abstract void getYearStatistics() throws BucketException;
 
+    /**
+     * Method to read the records of the cluster at the start of a worker task, so that the reads are spread
+     * over the worker threads and only the clusters being resolved are held in memory.
+     * Each call must be matched by a call to releaseRecords.
+     */
+    public abstract void prefetchRecords();
+
+    /**
+     * Method to read each distinct record in the cluster once, so that resolution need not go back to the buckets
+     *
+     * @param xz_records bucket holding records x and z
+     * @param y_records bucket holding records y
+     */
+    protected synchronized void prefetchRecords(IBucket xz_records, IBucket y_records) {
+        if (tasks_using_records == 0) {
+            Map<String, LXP> prefetched = new HashMap<>();
+            try {
+                prefetched.put(x, (LXP) xz_records.getObjectById(x));
+                for (List<String> chain : triangleChain) {
+                    if (!prefetched.containsKey(chain.get(0))) prefetched.put(chain.get(0), (LXP) y_records.getObjectById(chain.get(0)));
+                    if (!prefetched.containsKey(chain.get(1))) prefetched.put(chain.get(1), (LXP) xz_records.getObjectById(chain.get(1)));
+                }
+            } catch (BucketException e) {
+                throw new RuntimeException(e);
+            }
+            records = Collections.unmodifiableMap(prefetched);
+        }
+        tasks_using_records++;
+    }
+
+    /**
+     * Method to drop the prefetched records once no worker task is resolving the cluster
+     */
+    public synchronized void releaseRecords() {
+        if (--tasks_using_records == 0) {
+            records = Collections.emptyMap();
+        }
+    }
+
+    /**
+     * @param chain open triangle in the cluster
+     * @return records x, y and z of the open triangle
+     */
+    public LXP[] getTriangleRecords(List<String> chain) {
+        return new LXP[]{records.get(x), records.get(chain.get(0)), records.get(chain.get(1))};
+    }
+
     public int getAgeRange() {
         return ageRange;
     }
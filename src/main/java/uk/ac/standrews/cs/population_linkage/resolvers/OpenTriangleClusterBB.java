@@ -26,7 +26,7 @@ import java.time.LocalDate;
 import java.util.*;
 
 public class OpenTriangleClusterBB extends OpenTriangleCluster {
-    IBucket births;
+    private IBucket births;
 
     public OpenTriangleClusterBB(String x, List<List<String>>  triangleChain, String recordRepo) {
         super(x, triangleChain);
@@ -34,13 +34,18 @@ public class OpenTriangleClusterBB extends OpenTriangleCluster {
         births = record_repository.getBucket("birth_records");
     }
 
+    @Override
+    public void prefetchRecords() {
+        prefetchRecords(births, births);
+    }
+
     /**
      * Method to get birth year statistics for cluster
      */
     @Override
     public void getYearStatistics() throws BucketException  {
         for (List<String> chain : triangleChain){ //loop through each open triangle
-            LXP[] tempKids = {(LXP) births.getObjectById(x), (LXP) births.getObjectById(chain.get(0)), (LXP) births.getObjectById(chain.get(1))};
+            LXP[] tempKids = getTriangleRecords(chain);
             for (int i = 0; i < tempKids.length; i++) { //loop through children in triangle
                 if (!children.contains(tempKids[i])) { //if not in children set
                     //set default date if child has missing DOB details
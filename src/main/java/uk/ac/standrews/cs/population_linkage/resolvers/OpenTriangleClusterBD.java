@@ -37,13 +37,18 @@ public class OpenTriangleClusterBD extends OpenTriangleCluster {
         deaths = record_repository.getBucket("death_records");
     }
 
+    @Override
+    public void prefetchRecords() {
+        prefetchRecords(births, deaths);
+    }
+
     /**
      * Method to get birth year statistics for cluster
      */
     @Override
     public void getYearStatistics() throws BucketException {
         for (List<String> chain : triangleChain){ //loop through each open triangle
-            LXP[] tempKids = {(LXP) births.getObjectById(x), (LXP) deaths.getObjectById(chain.get(0)), (LXP) births.getObjectById(chain.get(1))};
+            LXP[] tempKids = getTriangleRecords(chain);
             for (int i = 0; i < tempKids.length; i++) { //loop through children in triangle
                 if (!children.contains(tempKids[i])) { //if not in children set
                     //set default date if child has missing DOB details
@@ -62,29 +62,14 @@ public class PatternsCounter {
     }
 
     /**
-     * Method to count all sibling triangles
+     * Method to count all sibling triangles, using an in-memory snapshot of the sibling links
      *
      * @param bridge Neo4j bridge
      * @param type1 records x,z
      * @param type2 record y
      */
     public static int countOpenTriangles(NeoDbCypherBridge bridge, String type1, String type2) {
-        String openTriangleQuery = String.format(
-                "MATCH (x:%s)-[:SIBLING]-(y:%s)-[:SIBLING]-(z:%s) " +
-                        "WHERE NOT (x)-[:SIBLING]-(z) AND id(x) < id(z) AND NOT (x)-[:DELETED]-(y) AND NOT (z)-[:DELETED]-(y)" +
-                        "RETURN count(DISTINCT [x, z]) as cluster_count",
-                type1, type2, type1
-        );
-
-        Result result = bridge.getNewSession().run(openTriangleQuery);
-        List<Long> clusters = result.list(r -> r.get("cluster_count").asLong());
-
-        long count = 0;
-        if (!clusters.isEmpty()) {
-            count = clusters.get(0);
-        }
-
-        return (int) count;
+        return (int) SiblingGraph.load(bridge, type1, type2).countOpenTriangles();
     }
 
     /**
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.resolvers;
+
+import uk.ac.standrews.cs.neoStorr.util.NeoDbCypherBridge;
+import uk.ac.standrews.cs.population_linkage.graph.Query;
+import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageConfig;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Collects the links created and deleted by open triangle resolvers, and writes them to Neo4j in batches.
+ * Each decision is buffered with the query that would write it on its own; decisions made with the same query are
+ * written together by a single UNWIND query in one transaction once a batch is full, or when flush is called.
+ * Safe for use by multiple resolver threads.
+ */
+public class ResolverLinkWriter {
+
+    private static final Pattern PARAMETER = Pattern.compile("\\$(\\w+)");
+
+    private final NeoDbCypherBridge bridge;
+    private final int batch_size;
+    private final Map<String, List<Map<String, Object>>> pending = new HashMap<>();
+    private final LongAdder relationships_created = new LongAdder();
+
+    public ResolverLinkWriter(NeoDbCypherBridge bridge) {
+        this(bridge, LinkageConfig.LINK_PERSISTENCE_BATCH_SIZE);
+    }
+
+    public ResolverLinkWriter(NeoDbCypherBridge bridge, int batch_size) {
+        this.bridge = bridge;
+        this.batch_size = batch_size;
+    }
+
+    /**
+     * Adds a decision to be written. If this fills the batch for the query, the batch is written by the calling thread.
+     *
+     * @param query query that writes a single decision, with its parameters given as $name
+     * @param parameters the parameters for the query
+     */
+    public void add(String query, Map<String, Object> parameters) {
+
+        final List<Map<String, Object>> batch;
+
+        synchronized (pending) {
+            final List<Map<String, Object>> rows = pending.computeIfAbsent(query, k -> new ArrayList<>());
+            rows.add(parameters);
+
+            if (rows.size() < batch_size) return;
+            batch = pending.remove(query);
+        }
+
+        write(query, batch);
+    }
+
+    /**
+     * Writes all buffered decisions. Must be called before the graph is next queried for the effects of the resolver.
+     */
+    public void flush() {
+
+        final Map<String, List<Map<String, Object>>> batches;
+
+        synchronized (pending) {
+            batches = new HashMap<>(pending);
+            pending.clear();
+        }
+
+        for (Map.Entry<String, List<Map<String, Object>>> entry : batches.entrySet()) {
+            write(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public long getRelationshipsCreated() {
+        return relationships_created.sum();
+    }
+
+    /**
+     * @return a query that applies the given single decision query to each of the maps in $rows
+     */
+    static String toBatchQuery(String query) {
+        return "UNWIND $rows AS row " + PARAMETER.matcher(query).replaceAll("row.$1");
+    }
+
+    private void write(String query, List<Map<String, Object>> rows) {
+
+        final String batch_query = toBatchQuery(query);
+
+        try {
+            // a batch is written in one transaction, so it can be retried if it is rolled back, e.g. on deadlock with another resolver thread
+            relationships_created.add(Query.writeWithRetry(() -> Query.createReferences(bridge, batch_query, rows)));
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.resolvers;
+
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import uk.ac.standrews.cs.neoStorr.util.NeoDbCypherBridge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory snapshot of the SIBLING and DELETED relationships between records of two types, used to find open
+ * triangles x-y-z, where x and z are of the first type and y is of the second type, without pattern matching in the
+ * database. Each relationship type is held as a compressed sparse row adjacency structure over int node ids, with
+ * each node's neighbours sorted so that open triangles can be found by merging adjacency lists.
+ */
+public class SiblingGraph {
+
+    private static final String COUNT_NODES_QUERY = "MATCH (n) WHERE n:%1$s OR n:%2$s RETURN count(n) AS count";
+    private static final String NODES_QUERY = "MATCH (n) WHERE n:%1$s OR n:%2$s RETURN id(n) AS id, n.STORR_ID AS storr_id, n:%1$s AS is_type1, n:%2$s AS is_type2 ORDER BY id";
+    private static final String EDGES_QUERY = "MATCH (a)-[:%3$s]-(b) WHERE (a:%1$s OR a:%2$s) AND (b:%1$s OR b:%2$s) AND id(a) < id(b) RETURN DISTINCT id(a) AS a, id(b) AS b";
+
+    private final long[] node_ids;      // Neo4j ids in ascending order; the position of a node is its id in the adjacency structures.
+    private final String[] storr_ids;
+    private final boolean[] is_type1;   // Whether each node can be x or z in an open triangle.
+    private final boolean[] is_type2;   // Whether each node can be y in an open triangle.
+
+    private Adjacency siblings;
+    private Adjacency deleted;
+
+    private SiblingGraph(final long[] node_ids, final String[] storr_ids, final boolean[] is_type1, final boolean[] is_type2) {
+
+        this.node_ids = node_ids;
+        this.storr_ids = storr_ids;
+        this.is_type1 = is_type1;
+        this.is_type2 = is_type2;
+    }
+
+    /**
+     * Loads the relationships between records of the given types.
+     *
+     * @param bridge Neo4j bridge
+     * @param type1 type of records x,z
+     * @param type2 type of record y
+     * @return the graph
+     */
+    public static SiblingGraph load(final NeoDbCypherBridge bridge, final String type1, final String type2) {
+
+        try (Session session = bridge.getNewSession()) {
+
+            final int number_of_nodes = (int) session.run(String.format(COUNT_NODES_QUERY, type1, type2)).single().get("count").asLong();
+
+            final long[] node_ids = new long[number_of_nodes];
+            final String[] storr_ids = new String[number_of_nodes];
+            final boolean[] is_type1 = new boolean[number_of_nodes];
+            final boolean[] is_type2 = new boolean[number_of_nodes];
+
+            final Result nodes = session.run(String.format(NODES_QUERY, type1, type2));
+            int i = 0;
+            while (nodes.hasNext() && i < number_of_nodes) {
+                final Record record = nodes.next();
+                node_ids[i] = record.get("id").asLong();
+                storr_ids[i] = record.get("storr_id").asString();
+                is_type1[i] = record.get("is_type1").asBoolean();
+                is_type2[i] = record.get("is_type2").asBoolean();
+                i++;
+            }
+            nodes.consume();
+
+            // Fewer nodes than counted may be returned if any are deleted while loading.
+            final SiblingGraph graph = new SiblingGraph(Arrays.copyOf(node_ids, i), Arrays.copyOf(storr_ids, i), Arrays.copyOf(is_type1, i), Arrays.copyOf(is_type2, i));
+
+            graph.siblings = graph.loadAdjacency(session, String.format(EDGES_QUERY, type1, type2, "SIBLING"));
+            graph.deleted = graph.loadAdjacency(session, String.format(EDGES_QUERY, type1, type2, "DELETED"));
+
+            return graph;
+        }
+    }
+
+    /**
+     * Creates a graph from nodes and relationships as they would be loaded from the database.
+     *
+     * @param node_ids Neo4j ids in ascending order
+     * @param storr_ids storr ids of the nodes
+     * @param is_type1 whether each node is of the type of records x,z
+     * @param is_type2 whether each node is of the type of record y
+     * @param sibling_pairs distinct pairs of Neo4j ids of nodes with a SIBLING relationship, the lower id first
+     * @param deleted_pairs distinct pairs of Neo4j ids of nodes with a DELETED relationship, the lower id first
+     * @return the graph
+     */
+    static SiblingGraph of(final long[] node_ids, final String[] storr_ids, final boolean[] is_type1, final boolean[] is_type2, final long[][] sibling_pairs, final long[][] deleted_pairs) {
+
+        final SiblingGraph graph = new SiblingGraph(node_ids, storr_ids, is_type1, is_type2);
+
+        graph.siblings = graph.toAdjacency(sibling_pairs);
+        graph.deleted = graph.toAdjacency(deleted_pairs);
+
+        return graph;
+    }
+
+    /**
+     * @return the number of distinct unordered pairs {x, z} that form an open triangle with some y
+     */
+    public long countOpenTriangles() {
+
+        return IntStream.range(0, storr_ids.length).parallel().filter(x -> is_type1[x]).mapToLong(x -> {
+
+            final IntStream.Builder zs = IntStream.builder();
+            forEachOpenTriangle(x, (y, z) -> {
+                if (z > x) zs.add(z);
+            });
+            return zs.build().distinct().count();
+
+        }).sum();
+    }
+
+    /**
+     * @return map from the storr id of each x that is in an open triangle to the [y, z] storr ids of the open triangles it is in
+     */
+    public Map<String, List<List<String>>> findOpenTriangles() {
+
+        @SuppressWarnings("unchecked") final List<List<String>>[] triangles_by_x = new List[storr_ids.length];
+
+        IntStream.range(0, storr_ids.length).parallel().filter(x -> is_type1[x]).forEach(x -> {
+
+            final List<List<String>> triangles = new ArrayList<>();
+            forEachOpenTriangle(x, (y, z) -> triangles.add(List.of(storr_ids[y], storr_ids[z])));
+            triangles_by_x[x] = triangles;
+        });
+
+        final Map<String, List<List<String>>> result = new LinkedHashMap<>();
+
+        for (int x = 0; x < storr_ids.length; x++) {
+            if (triangles_by_x[x] != null && !triangles_by_x[x].isEmpty()) {
+                result.put(storr_ids[x], triangles_by_x[x]);
+            }
+        }
+        return result;
+    }
+
+    private void forEachOpenTriangle(final int x, final TriangleConsumer consumer) {
+
+        final int x_end = siblings.end(x);
+
+        for (int i = siblings.start(x); i < x_end; i++) {
+
+            final int y = siblings.neighbours[i];
+            if (!is_type2[y] || deleted.contains(x, y)) continue;
+
+            // Merge the sorted siblings of y against the sorted siblings of x, to find the siblings of y that are not siblings of x.
+            int k = siblings.start(x);
+
+            for (int j = siblings.start(y); j < siblings.end(y); j++) {
+
+                final int z = siblings.neighbours[j];
+
+                while (k < x_end && siblings.neighbours[k] < z) k++;
+                final boolean z_is_sibling_of_x = k < x_end && siblings.neighbours[k] == z;
+
+                if (z != x && is_type1[z] && !z_is_sibling_of_x && !deleted.contains(z, y)) {
+                    consumer.accept(y, z);
+                }
+            }
+        }
+    }
+
+    private Adjacency loadAdjacency(final Session session, final String query) {
+
+        final EdgeList edges = new EdgeList();
+        final Result result = session.run(query);
+
+        while (result.hasNext()) {
+
+            final Record record = result.next();
+            addEdge(edges, record.get("a").asLong(), record.get("b").asLong());
+        }
+
+        return new Adjacency(node_ids.length, edges);
+    }
+
+    private Adjacency toAdjacency(final long[][] pairs) {
+
+        final EdgeList edges = new EdgeList();
+        for (long[] pair : pairs) {
+            addEdge(edges, pair[0], pair[1]);
+        }
+
+        return new Adjacency(node_ids.length, edges);
+    }
+
+    private void addEdge(final EdgeList edges, final long id_a, final long id_b) {
+
+        final int a = Arrays.binarySearch(node_ids, id_a);
+        final int b = Arrays.binarySearch(node_ids, id_b);
+
+        // Ignore any relationship to a node created since the nodes were loaded.
+        if (a >= 0 && b >= 0) edges.add(a, b);
+    }
+
+    private interface TriangleConsumer {
+        void accept(int y, int z);
+    }
+
+    private static class EdgeList {
+
+        int[] from = new int[1024];
+        int[] to = new int[1024];
+        int size = 0;
+
+        void add(final int a, final int b) {
+
+            if (size == from.length) {
+                from = Arrays.copyOf(from, size * 2);
+                to = Arrays.copyOf(to, size * 2);
+            }
+            from[size] = a;
+            to[size] = b;
+            size++;
+        }
+    }
+
+    /**
+     * Undirected adjacency in compressed sparse row form: the neighbours of node u are neighbours[offsets[u]] to
+     * neighbours[offsets[u + 1] - 1], in ascending order.
+     */
+    private static class Adjacency {
+
+        final int[] offsets;
+        final int[] neighbours;
+
+        Adjacency(final int number_of_nodes, final EdgeList edges) {
+
+            offsets = new int[number_of_nodes + 1];
+            for (int i = 0; i < edges.size; i++) {
+                offsets[edges.from[i] + 1]++;
+                offsets[edges.to[i] + 1]++;
+            }
+            for (int u = 0; u < number_of_nodes; u++) {
+                offsets[u + 1] += offsets[u];
+            }
+
+            neighbours = new int[edges.size * 2];
+            final int[] next = Arrays.copyOf(offsets, number_of_nodes);
+            for (int i = 0; i < edges.size; i++) {
+                neighbours[next[edges.from[i]]++] = edges.to[i];
+                neighbours[next[edges.to[i]]++] = edges.from[i];
+            }
+            for (int u = 0; u < number_of_nodes; u++) {
+                Arrays.sort(neighbours, offsets[u], offsets[u + 1]);
+            }
+        }
+
+        int start(final int u) {
+            return offsets[u];
+        }
+
+        int end(final int u) {
+            return offsets[u + 1];
+        }
+
+        boolean contains(final int u, final int v) {
+            return Arrays.binarySearch(neighbours, offsets[u], offsets[u + 1], v) >= 0;
+        }
+    }
+}
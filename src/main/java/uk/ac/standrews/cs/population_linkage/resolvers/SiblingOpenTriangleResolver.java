@@ -16,18 +16,14 @@
  */
 package uk.ac.standrews.cs.population_linkage.resolvers;
 
-import org.neo4j.driver.Session;
-import org.neo4j.driver.Transaction;
 import uk.ac.standrews.cs.neoStorr.impl.LXP;
 import uk.ac.standrews.cs.neoStorr.impl.Store;
 import uk.ac.standrews.cs.neoStorr.impl.exceptions.BucketException;
-import uk.ac.standrews.cs.neoStorr.interfaces.IBucket;
 import uk.ac.standrews.cs.neoStorr.util.NeoDbCypherBridge;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.SumOfFieldDistances;
 import uk.ac.standrews.cs.population_linkage.linkageRecipes.LinkageRecipe;
-import uk.ac.standrews.cs.population_linkage.resolverExperiments.msed.Binomials;
-import uk.ac.standrews.cs.population_linkage.resolverExperiments.msed.MSED;
+import uk.ac.standrews.cs.population_linkage.resolverExperiments.msed.IncrementalMSED;
 import uk.ac.standrews.cs.population_linkage.resolverExperiments.msed.OrderedList;
 import uk.ac.standrews.cs.population_records.RecordRepository;
 import uk.ac.standrews.cs.population_records.record_types.Birth;
@@ -42,16 +38,23 @@ import static uk.ac.standrews.cs.population_linkage.linkageRecipes.LinkageRecipe
 public abstract class SiblingOpenTriangleResolver {
     protected static NeoDbCypherBridge bridge;
     protected static RecordRepository record_repository;
+    protected final ResolverLinkWriter link_writer;
 
     //Various constants for predicates
     protected static final int MAX_AGE_DIFFERENCE  = 24;
     protected static final double DATE_THRESHOLD = 0.5;
     protected static final double NAME_THRESHOLD = 0.5;
     protected static final int BIRTH_INTERVAL = 270;
+    protected static final double FAMILY_THRESHOLD = 0.01;
 
     public SiblingOpenTriangleResolver(String sourceRepo) {
         bridge = Store.getInstance().getBridge();
         record_repository= new RecordRepository(sourceRepo);
+        link_writer = new ResolverLinkWriter(bridge);
+    }
+
+    SiblingOpenTriangleResolver(ResolverLinkWriter link_writer) {
+        this.link_writer = link_writer;
     }
 
     /**
@@ -81,37 +84,35 @@ public abstract class SiblingOpenTriangleResolver {
     }
 
     /**
-     * Method to get MSED distance for a combination of nodes
+     * Method to get MSED distance for the combinations of nodes of size k that lie within a bound
      *
      * @param family a set of records in a family
      * @param k number of records in a combination
-     * @param recipe recipe to get linkage fields to get distance
+     * @param bound largest distance of interest; the closest combination is returned even if it exceeds this
+     * @param linkage_fields linkage fields to get distance
      * @return a list of combinations and their distances in order of distance
-     * @throws BucketException
      */
-    protected OrderedList<List<LXP>,Double> getMSEDForK(Set<LXP> family, int k, LinkageRecipe recipe) throws BucketException {
-        OrderedList<List<LXP>,Double> all_mseds = new OrderedList<>(Integer.MAX_VALUE); // don't want a limit!
+    protected OrderedList<List<LXP>,Double> getMSEDForK(Set<LXP> family, int k, double bound, List<Integer> linkage_fields) {
         List<LXP> bs = new ArrayList<>(family);
+        IncrementalMSED msed = new IncrementalMSED(getLinkageFieldStrings(bs, linkage_fields));
 
-        List<List<Integer>> indices = Binomials.pickAll(bs.size(), k);
-        for (List<Integer> choices : indices) {
-            List<LXP> births = getRecordsFromChoices(bs, choices);
-            double distance = getMSEDForCluster(births, recipe);
-            all_mseds.add(births,distance);
+        OrderedList<List<Integer>,Double> closest = msed.closestSubsets(k, bound);
+        OrderedList<List<LXP>,Double> all_mseds = new OrderedList<>(Integer.MAX_VALUE); // don't want a limit!
+        for (int i = 0; i < closest.getList().size(); i++) {
+            all_mseds.add(getRecordsFromChoices(bs, closest.getList().get(i)), closest.getComparators().get(i));
         }
         return all_mseds;
     }
 
     /**
-     * Method to calculate the MESD for the cluster represented by the indices choices into bs
+     * Method to make the strings over which MSED is calculated for the given records
      *
-     * @param choices records to get distance
-     * @param recipe recipe to get linkage fields to get distance
-     * @return MSED distance for cluster
+     * @param choices records to get strings for
+     * @param linkage_fields the linkage field indexes to be used
+     * @return the concatenated linkage fields of each record
      */
-    protected double getMSEDForCluster(List<LXP> choices, LinkageRecipe recipe) {
+    protected List<String> getLinkageFieldStrings(List<LXP> choices, List<Integer> linkage_fields) {
         List<String> fields_from_choices = new ArrayList<>(); // a list of the concatenated linkage fields from the selected choices.
-        List<Integer> linkage_fields = recipe.getLinkageFields(); // the linkage field indexes to be used
         for (LXP a_birth : choices) {
             StringBuilder sb = new StringBuilder();              // make a string of values for this record drawn from the recipe linkage fields
             for (int field_selector : linkage_fields) {
@@ -119,7 +120,7 @@ public abstract class SiblingOpenTriangleResolver {
             }
             fields_from_choices.add(sb.toString()); // add the linkage fields for this choice to the list being assessed
         }
-        return MSED.distance(fields_from_choices);
+        return fields_from_choices;
     }
 
     /**
@@ -153,7 +154,8 @@ public abstract class SiblingOpenTriangleResolver {
     }
 
     /**
-     * Method to create a link between two records
+     * Method to create a link between two records. The link is buffered until the batch for the query is full or
+     * link_writer is flushed.
      *
      * @param bridge Neo4j bridge
      * @param std_id_x standardised id of record x
@@ -161,26 +163,19 @@ public abstract class SiblingOpenTriangleResolver {
      * @param prov provenance of resolver
      */
     protected void createLink(NeoDbCypherBridge bridge, String std_id_x, String std_id_z, String prov, String createQuery) {
-        try (Session session = bridge.getNewSession(); Transaction tx = session.beginTransaction()) {
-            Map<String, Object> parameters = getCreationParameterMap(std_id_x, std_id_z, prov);
-            tx.run(createQuery, parameters);
-            tx.commit();
-        }
+        link_writer.add(createQuery, getCreationParameterMap(std_id_x, std_id_z, prov));
     }
 
     /**
-     * Method to create a delete link between two records, used in testing
+     * Method to create a delete link between two records, used in testing. The link is buffered until the batch for
+     * the query is full or link_writer is flushed.
      *
      * @param bridge Neo4j bridge
      * @param std_id_x standardised id of record x
      * @param std_id_y standardised id of record y
      */
     protected void deleteLink(NeoDbCypherBridge bridge, String std_id_x, String std_id_y, String prov, String deleteQuery){
-        try (Session session = bridge.getNewSession(); Transaction tx = session.beginTransaction();) {
-            Map<String, Object> parameters = getCreationParameterMap(std_id_x, std_id_y, prov);
-            tx.run(deleteQuery, parameters);
-            tx.commit();
-        }
+        link_writer.add(deleteQuery, getCreationParameterMap(std_id_x, std_id_y, prov));
     }
 
     /**
@@ -232,48 +227,50 @@ public abstract class SiblingOpenTriangleResolver {
     }
 
     /**
-     * Method to get distance between two nodes based on their storr ID
+     * Method to get distance between two records
      *
-     * @param id1 ID of record 1
-     * @param id2 ID of record 2
+     * @param b1 record 1
+     * @param b2 record 2
      * @param composite_measure measure to be used
-     * @param births births bucket
      * @return distance between two records
-     * @throws BucketException
      */
-    protected double getDistance(String id1, String id2, LXPMeasure composite_measure, IBucket births) throws BucketException {
-        LXP b1 = (LXP) births.getObjectById(id1);
-        LXP b2 = (LXP) births.getObjectById(id2);
+    protected double getDistance(LXP b1, LXP b2, LXPMeasure composite_measure) {
         return composite_measure.distance(b1, b2);
     }
 
     /**
      * Method to resolve open triangles using MSED
      *
-     * @param triangleChain chain of open triangles
-     * @param x x node in the cluster
+     * @param cluster cluster of open triangles, with its records prefetched
      * @param recipe recipe for particular linkage
      * @param dPred predicate number to delete
      * @throws BucketException
      */
-    public void resolveTrianglesMSED(List<List<String>> triangleChain, String x, LinkageRecipe recipe, String dPred, int standID, String query) throws BucketException {
+    public void resolveTrianglesMSED(OpenTriangleCluster cluster, LinkageRecipe recipe, String dPred, int standID, String query) throws BucketException {
+        resolveTrianglesMSED(cluster, recipe.getLinkageFields(), dPred, standID, query);
+    }
+
+    void resolveTrianglesMSED(OpenTriangleCluster cluster, List<Integer> linkage_fields, String dPred, int standID, String query) {
         double THRESHOLD = 0.03;
         double TUPLE_THRESHOLD = 0.01;
 
         List<Set<LXP>> familySets = new ArrayList<>();
         List<List<LXP>> toDelete = new ArrayList<>();
 
-        for (List<String> chain : triangleChain){
-            List<String> listWithX = new ArrayList<>(Arrays.asList(x));
-            listWithX.addAll(chain);
-            List<LXP> bs = getRecords(listWithX, record_repository);
+        for (List<String> chain : cluster.getTriangleChain()){
+            List<LXP> bs = Arrays.asList(cluster.getTriangleRecords(chain));
 
             cleanStrings(bs);
 
             //If below threshold, add all children to family
-            double distance = getMSEDForCluster(bs, recipe);
-            double distanceXY = getMSEDForCluster(bs.subList(0, 2), recipe);
-            double distanceZY = getMSEDForCluster(bs.subList(1, 3), recipe);
+            IncrementalMSED msed = new IncrementalMSED(getLinkageFieldStrings(bs, linkage_fields));
+            msed.addAll();
+            double distance = msed.distance();
+            msed.remove(2);
+            double distanceXY = msed.distance();
+            msed.remove(0);
+            msed.add(2);
+            double distanceZY = msed.distance();
 
             if(distance < THRESHOLD) { //if above threshold, delete triangle links
                 addFamilyMSED(familySets, bs);
@@ -295,7 +292,7 @@ public abstract class SiblingOpenTriangleResolver {
         for (Set<LXP> fSet : familySets) {
             int k = 3;
             if (fSet.size() >= k) { //filter only if family set is bigger than 3 siblings
-                OrderedList<List<LXP>,Double> familySetMSED = getMSEDForK(fSet, k, recipe); //get distances for all possible combinations of families
+                OrderedList<List<LXP>,Double> familySetMSED = getMSEDForK(fSet, k, FAMILY_THRESHOLD, linkage_fields); //get distances for the combinations of families close enough to be kept
                 List<Double> distances = familySetMSED.getComparators();
                 List<List<LXP>> records = familySetMSED.getList();
                 List<Set<LXP>> newSets = new ArrayList<>();
@@ -305,7 +302,7 @@ public abstract class SiblingOpenTriangleResolver {
                 //loop through each distance
                 for (int i = 1; i < distances.size(); i++) {
                     //if distance increases dramatically or exceeds 0.01, assume one child is odd one out and dont add to family set
-                    if ((distances.get(i) - distances.get(i - 1)) / distances.get(i - 1) > 0.5 || distances.get(i) > 0.01) {
+                    if ((distances.get(i) - distances.get(i - 1)) / distances.get(i - 1) > 0.5 || distances.get(i) > FAMILY_THRESHOLD) {
                         break;
                     } else {
                         boolean familyFound = false;
@@ -367,6 +364,4 @@ public abstract class SiblingOpenTriangleResolver {
     protected abstract boolean maxRangePredicate(OpenTriangleCluster cluster, LXP[] tempKids, boolean hasChanged, int predNumber);
 
     protected abstract void cleanStrings(List<LXP> bs);
-
-    protected abstract List<LXP> getRecords(List<String> sibling_ids, RecordRepository record_repository) throws BucketException;
 }
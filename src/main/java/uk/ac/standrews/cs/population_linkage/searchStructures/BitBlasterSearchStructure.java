@@ -21,23 +21,85 @@ import uk.ac.standrews.cs.utilities.measures.coreConcepts.DataDistance;
 import uk.ac.standrews.cs.utilities.measures.coreConcepts.Measure;
 import uk.al_richard.metricbitblaster.production.ParallelBitBlaster2;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class BitBlasterSearchStructure<T> implements SearchStructure<T> {
 
     private static final int DEFAULT_NUMBER_OF_REFERENCE_POINTS = 70;
     private static long SEED = 34258723425L;
+    private static final double MINIMUM_NEAREST_NEIGHBOUR_RADIUS = 0.05;
     private ParallelBitBlaster2<T> bit_blaster;
 
+    private Measure<T> measure;
+    private int data_size;
+    private final List<T> reference_objects_in_data = new ArrayList<>();
+
+    private Path index_directory = null;
+    private String index_key = null;
+    private Function<T, String> id_function = null;
+    private Function<T, String> content_function = null;
+
     public BitBlasterSearchStructure(Measure<T> measure, Iterable<T> data) {
         this(measure, data, DEFAULT_NUMBER_OF_REFERENCE_POINTS);
     }
 
+    /**
+     * Creates a search structure whose record-to-reference-object distances are kept in a {@link ReferenceDistanceIndex}
+     * in the given directory, so that they are only calculated once for a given key, seed and set of reference objects.
+     */
+    public BitBlasterSearchStructure(Measure<T> measure, Iterable<T> data, Path index_directory, String index_key, Function<T, String> id_function, Function<T, String> content_function) {
+
+        useIndex(index_directory, index_key, id_function, content_function);
+        build(measure, data, DEFAULT_NUMBER_OF_REFERENCE_POINTS);
+    }
+
+    /**
+     * As above, but with the given reference objects.
+     */
+    public BitBlasterSearchStructure(Measure<T> measure, Iterable<T> data, List<T> reference_objects, Path index_directory, String index_key,
+                                     Function<T, String> id_function, Function<T, String> content_function) {
+
+        useIndex(index_directory, index_key, id_function, content_function);
+        try {
+            init(measure, copyData(data), reference_objects);
+
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public BitBlasterSearchStructure(Measure<T> measure, Iterable<T> data, int number_of_reference_objects) {
 
+        build(measure, data, number_of_reference_objects);
+    }
+
+    public BitBlasterSearchStructure(Measure<T> measure, Iterable<T> data, List<T> reference_objects) {
+
+        try {
+            init(measure, copyData(data), reference_objects);
+
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void useIndex(Path index_directory, String index_key, Function<T, String> id_function, Function<T, String> content_function) {
+
+        this.index_directory = index_directory;
+        this.index_key = index_key;
+        this.id_function = id_function;
+        this.content_function = content_function;
+    }
+
+    public static long getSeed() {
+        return SEED;
+    }
+
+    private void build(Measure<T> measure, Iterable<T> data, int number_of_reference_objects) {
+
         List<T> copy_of_data = copyData(data);
 
         // Keep repeating with fewer reference objects if we cannot initialise bitblaster
@@ -63,16 +125,6 @@ public class BitBlasterSearchStructure<T> implements SearchStructure<T> {
         throw new RuntimeException("Failed to initialise BitBlaster");
     }
 
-    public BitBlasterSearchStructure(Measure<T> measure, Iterable<T> data, List<T> reference_objects) {
-
-        try {
-            init(measure, copyData(data), reference_objects);
-
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-    }
-
     private static <X> List<X> copyData(final Iterable<X> data) {
 
         List<X> copy_of_data = new ArrayList<>();
@@ -112,12 +164,32 @@ public class BitBlasterSearchStructure<T> implements SearchStructure<T> {
 
     private void init(final Measure<T> distance_measure, final List<T> data, final List<T> reference_objects) throws Exception {
 
+        measure = distance_measure;
+        data_size = data.size();
+
+        Set<T> data_set = Collections.newSetFromMap(new IdentityHashMap<>());
+        data_set.addAll(data);
+        reference_objects_in_data.clear();
+        for (T reference_object : reference_objects) {
+            if (data_set.contains(reference_object)) reference_objects_in_data.add(reference_object);
+        }
+
         boolean fourPoint = distance_measure.getMeasureName().equals(Constants.JENSEN_SHANNON.getMeasureName());
 
 //        System.out.println( "Creating ParallelBitBlaster2: no processors"  + Runtime.getRuntime().availableProcessors() );
 
-        bit_blaster = new ParallelBitBlaster2<>(distance_measure::distance, reference_objects, data, 2,
-                Runtime.getRuntime().availableProcessors(), fourPoint, true);
+        if (index_directory == null) {
+            bit_blaster = new ParallelBitBlaster2<>(distance_measure::distance, reference_objects, data, 2,
+                    Runtime.getRuntime().availableProcessors(), fourPoint, true);
+
+        } else {
+            ReferenceDistanceIndex<T> index = new ReferenceDistanceIndex<>(index_directory, index_key + "/seed=" + SEED,
+                    distance_measure, id_function, content_function, data, reference_objects);
+
+            bit_blaster = new ParallelBitBlaster2<>(index::distance, reference_objects, data, 2,
+                    Runtime.getRuntime().availableProcessors(), fourPoint, true);
+            index.save();
+        }
     }
 
     @Override
@@ -131,6 +203,72 @@ public class BitBlasterSearchStructure<T> implements SearchStructure<T> {
         }
     }
 
+    /**
+     * Finds the nearest records with a single range search where possible. The reference objects that are themselves
+     * data records give an upper bound on the distance of the kth nearest neighbour, so a range search at that radius
+     * is guaranteed to contain the k nearest. The radius is only grown if there are fewer than k such reference objects.
+     */
+    @Override
+    public List<DataDistance<T>> findNearest(final T record, final int k) {
+
+        double radius = nearestNeighbourBound(record, k);
+        List<DataDistance<T>> candidates = findWithinThreshold(record, radius);
+
+        while (candidates.size() < k && candidates.size() < data_size) {
+            radius = Math.max(radius * 2, MINIMUM_NEAREST_NEIGHBOUR_RADIUS);
+            candidates = findWithinThreshold(record, radius);
+        }
+
+        return closest(candidates, k);
+    }
+
+    private double nearestNeighbourBound(final T record, final int k) {
+
+        if (reference_objects_in_data.isEmpty()) return 0.0;
+
+        double[] distances = new double[reference_objects_in_data.size()];
+        for (int i = 0; i < distances.length; i++) {
+            distances[i] = measure.distance(record, reference_objects_in_data.get(i));
+        }
+        Arrays.sort(distances);
+
+        return distances[Math.min(k, distances.length) - 1];
+    }
+
+    /**
+     * Selects the k closest of the given results, plus any tied with the kth, using a bounded priority queue.
+     *
+     * @return the selected results in increasing order of distance
+     */
+    public static <T> List<DataDistance<T>> closest(final List<DataDistance<T>> results, final int k) {
+
+        if (k <= 0) return new ArrayList<>();
+
+        PriorityQueue<DataDistance<T>> queue = new PriorityQueue<>(k, (d1, d2) -> Double.compare(d2.distance, d1.distance));
+
+        for (DataDistance<T> result : results) {
+            if (queue.size() < k) {
+                queue.add(result);
+            } else if (result.distance < queue.peek().distance) {
+                queue.poll();
+                queue.add(result);
+            }
+        }
+
+        List<DataDistance<T>> nearest = new ArrayList<>(queue);
+        nearest.sort(Comparator.comparingDouble(d -> d.distance));
+
+        if (nearest.size() == k) {
+            double kth_distance = nearest.get(k - 1).distance;
+            Set<DataDistance<T>> selected = Collections.newSetFromMap(new IdentityHashMap<>());
+            selected.addAll(nearest);
+            for (DataDistance<T> result : results) {
+                if (result.distance == kth_distance && !selected.contains(result)) nearest.add(result);
+            }
+        }
+        return nearest;
+    }
+
     public static <T> List<DataDistance<T>> convertDataDistanceList(List<uk.ac.standrews.cs.utilities.metrics.coreConcepts.DataDistance<T>> list) {
 
         return list.stream().map(x -> new DataDistance<>(x.value, x.distance)).collect(Collectors.toList());
@@ -18,24 +18,63 @@ package uk.ac.standrews.cs.population_linkage.searchStructures;
 
 import uk.ac.standrews.cs.utilities.measures.coreConcepts.Measure;
 
+import java.nio.file.Path;
 import java.util.List;
+import java.util.function.Function;
 
 public class BitBlasterSearchStructureFactory<T> implements SearchStructureFactory<T> {
 
+    private static final String WHOLE = "all"; // the part for a search structure over all the stored records
+
     private final Measure<T> composite_measure;
+    private final Path index_directory;
+    private final String index_key;
+    private final Function<T, String> id_function;
+    private final Function<T, String> content_function;
 
     public BitBlasterSearchStructureFactory(Measure<T> composite_measure) {
 
+        this(composite_measure, null, null, null, null);
+    }
+
+    /**
+     * @param index_directory  - directory for reference distance indices, or null if they are not to be used
+     * @param index_key        - identifies the repository, linkage, measure and fields for which the structures are created
+     * @param id_function      - gives a stable identifier for each record
+     * @param content_function - gives the content of each record on which its distances depend
+     */
+    public BitBlasterSearchStructureFactory(Measure<T> composite_measure, Path index_directory, String index_key, Function<T, String> id_function, Function<T, String> content_function) {
+
         this.composite_measure = composite_measure;
+        this.index_directory = index_directory;
+        this.index_key = index_key;
+        this.id_function = id_function;
+        this.content_function = content_function;
     }
 
     @Override
     public SearchStructure<T> newSearchStructure(final Iterable<T> records) {
-        return new BitBlasterSearchStructure<>(composite_measure, records);
+        return newSearchStructure(records, null, WHOLE);
     }
 
     public SearchStructure<T> newSearchStructure(final Iterable<T> records, final List<T> reference_objects) {
-        return new BitBlasterSearchStructure<>(composite_measure, records, reference_objects);
+        return newSearchStructure(records, reference_objects, WHOLE);
+    }
+
+    /**
+     * Each part has its own reference distance index, since the parts' search structures hold different records
+     * and may have different reference objects.
+     */
+    @Override
+    public SearchStructure<T> newSearchStructure(final Iterable<T> records, final List<T> reference_objects, final String part) {
+
+        if (index_directory != null) {
+
+            final String part_key = index_key + "/part=" + part;
+            return reference_objects == null ? new BitBlasterSearchStructure<>(composite_measure, records, index_directory, part_key, id_function, content_function) :
+                    new BitBlasterSearchStructure<>(composite_measure, records, reference_objects, index_directory, part_key, id_function, content_function);
+        }
+        return reference_objects == null ? new BitBlasterSearchStructure<>(composite_measure, records) : new BitBlasterSearchStructure<>(composite_measure, records, reference_objects);
     }
 
     @Override
@@ -40,5 +40,16 @@ public class MTreeSearchStructure<T> implements SearchStructure<T> {
         return m_tree.rangeSearch(record, threshold);
     }
 
+    @Override
+    public List<DataDistance<T>> findNearest(final T record, final int k) {
+
+        List<DataDistance<T>> nearest = m_tree.nearestN(record, k);
+        if (nearest.size() < k) return nearest;
+
+        // Widen to include any records tied with the kth.
+        double kth_distance = nearest.get(nearest.size() - 1).distance;
+        return BitBlasterSearchStructure.closest(m_tree.rangeSearch(record, kth_distance), k);
+    }
+
     public void terminate() {}
 }
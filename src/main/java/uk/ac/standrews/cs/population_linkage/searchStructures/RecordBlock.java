@@ -0,0 +1,98 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.searchStructures;
+
+import uk.ac.standrews.cs.neoStorr.impl.LXP;
+import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
+import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageConfig;
+import uk.ac.standrews.cs.utilities.measures.coreConcepts.DataDistance;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A subset of the stored records, such as a block or a temporal partition, that is searched through its own search
+ * structure if it holds at least LinkageConfig.MIN_BLOCK_SIZE_FOR_SEARCH_STRUCTURE records, and otherwise scanned.
+ * <p>
+ * A search structure costs a distance from each record to each reference object to build, and a distance from the
+ * query to each reference object on every search, whereas a scan costs at most one early-abandoned distance per
+ * record; BlockSearchProfilingBirthSibling measures where one overtakes the other.
+ */
+public class RecordBlock {
+
+    private final LXPMeasure composite_measure;
+    private final List<LXP> records = new ArrayList<>();
+    private SearchStructure<LXP> search_structure = null;
+
+    public RecordBlock(final LXPMeasure composite_measure) {
+        this.composite_measure = composite_measure;
+    }
+
+    public void add(final LXP record) {
+        records.add(record);
+    }
+
+    public List<LXP> getRecords() {
+        return records;
+    }
+
+    public int size() {
+        return records.size();
+    }
+
+    /**
+     * Creates a search structure over the records if there are enough of them.
+     *
+     * @param reference_objects - the reference objects to be used, or null to let the factory choose them
+     * @param part              - identifies the block among the parts of the stored records; see SearchStructureFactory
+     * @return whether a search structure was created
+     */
+    public boolean createSearchStructure(final SearchStructureFactory<LXP> search_structure_factory, final List<LXP> reference_objects, final String part) {
+
+        if (records.size() < LinkageConfig.MIN_BLOCK_SIZE_FOR_SEARCH_STRUCTURE) return false;
+
+        search_structure = search_structure_factory.newSearchStructure(records, reference_objects, part);
+        return true;
+    }
+
+    public List<DataDistance<LXP>> findWithinThreshold(final LXP record, final double threshold) {
+
+        if (search_structure != null) return search_structure.findWithinThreshold(record, threshold);
+
+        final List<DataDistance<LXP>> results = new ArrayList<>();
+        for (LXP stored_record : records) {
+            final double distance = composite_measure.distanceIfWithin(stored_record, record, threshold);
+            if (distance <= threshold) results.add(new DataDistance<>(stored_record, distance));
+        }
+        return results;
+    }
+
+    public List<DataDistance<LXP>> findNearest(final LXP record, final int k) {
+
+        if (search_structure != null) return search_structure.findNearest(record, k);
+
+        final List<DataDistance<LXP>> results = new ArrayList<>();
+        for (LXP stored_record : records) {
+            results.add(new DataDistance<>(stored_record, composite_measure.distance(stored_record, record)));
+        }
+        return BitBlasterSearchStructure.closest(results, k);
+    }
+
+    public void terminate() {
+        if (search_structure != null) search_structure.terminate();
+    }
+}
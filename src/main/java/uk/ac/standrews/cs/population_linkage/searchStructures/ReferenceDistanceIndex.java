@@ -0,0 +1,288 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.searchStructures;
+
+import uk.ac.standrews.cs.utilities.measures.coreConcepts.Measure;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * An on-disk index of the distances between the records in a search structure and its reference objects,
+ * which are the distances that dominate the cost of building a BitBlaster.
+ * <p>
+ * The bitmaps themselves are private to ParallelBitBlaster2, so rather than storing them this index supplies the
+ * record-to-reference-object distances through the distance function given to ParallelBitBlaster2, which then
+ * only has to set bits. Distances missing from the index, e.g. for records not present when it was written, are
+ * calculated and added when the index is saved, so an index grows to cover all the record sets it has been used with.
+ * <p>
+ * Each record and reference object is held with a hash of its content, as given by a content function, so that
+ * distances are not reused for a record whose content has changed under the same id: its row is recalculated and
+ * replaced. The distance table is memory-mapped when an index file exists whose key, reference objects and reference
+ * object contents match. Files are named by a hash of the key, which should identify the repository, recipe,
+ * composite measure, fields, seed and, where a linkage has several search structures, the structure.
+ */
+public class ReferenceDistanceIndex<T> {
+
+    private static final int MAGIC = 0x42424958; // "BBIX"
+    private static final int VERSION = 2;
+
+    private final Path path;
+    private final String key;
+    private final Measure<T> measure;
+    private final List<String> reference_object_ids = new ArrayList<>();
+    private final List<Long> reference_object_hashes = new ArrayList<>();
+    private final Map<T, Integer> reference_object_positions = new IdentityHashMap<>();
+    private final Map<T, String> data_ids = new IdentityHashMap<>();
+    private final Map<String, Long> data_hashes = new HashMap<>(); // keyed by id
+
+    private final Map<String, Integer> stored_rows = new HashMap<>();
+    private final Map<String, Long> stored_hashes = new HashMap<>();
+    private final Map<T, Integer> valid_rows = new IdentityHashMap<>(); // stored rows whose content matches the data record
+    private ByteBuffer stored_distances = null;
+    private final Map<String, double[]> new_rows = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * @param directory        - the directory in which index files are kept
+     * @param key              - identifies the repository, recipe, measure, fields, seed and structure
+     * @param id_function      - gives an identifier for each record that is stable between runs
+     * @param content_function - gives the content of each record on which its distances depend
+     */
+    public ReferenceDistanceIndex(Path directory, String key, Measure<T> measure, Function<T, String> id_function, Function<T, String> content_function,
+                                  List<T> data, List<T> reference_objects) {
+
+        this.path = directory.resolve(hash(key) + ".bbix");
+        this.key = key;
+        this.measure = measure;
+
+        for (T reference_object : reference_objects) {
+            reference_object_positions.put(reference_object, reference_object_ids.size());
+            reference_object_ids.add(id_function.apply(reference_object));
+            reference_object_hashes.add(contentHash(content_function.apply(reference_object)));
+        }
+        for (T record : data) {
+            String id = id_function.apply(record);
+            data_ids.put(record, id);
+            data_hashes.put(id, contentHash(content_function.apply(record)));
+        }
+
+        load();
+
+        for (Map.Entry<T, String> entry : data_ids.entrySet()) {
+            String id = entry.getValue();
+            Integer row = stored_rows.get(id);
+            if (row != null && stored_hashes.get(id).equals(data_hashes.get(id))) {
+                valid_rows.put(entry.getKey(), row);
+            }
+        }
+    }
+
+    /**
+     * The distance function to be given to the search structure.
+     * Distances between a data record and a reference object are taken from the index, all others are calculated.
+     */
+    public double distance(T a, T b) {
+
+        Integer position = reference_object_positions.get(b);
+        T record = a;
+        if (position == null) {
+            position = reference_object_positions.get(a);
+            record = b;
+        }
+
+        String id = position == null ? null : data_ids.get(record);
+        if (id == null) {
+            return measure.distance(a, b);
+        }
+
+        Integer row = valid_rows.get(record);
+        if (row != null) {
+            hits.increment();
+            return stored_distances.getDouble(offset(row, position));
+        }
+
+        double[] distances = new_rows.computeIfAbsent(id, k -> newRow());
+        if (Double.isNaN(distances[position])) {
+            distances[position] = measure.distance(a, b);
+        }
+        return distances[position];
+    }
+
+    /**
+     * Writes a new index file if any distances were calculated that were not already in the index.
+     * Rows for records whose content has changed are replaced by their recalculated rows.
+     */
+    public void save() {
+
+        System.out.println("Reference distance index: " + hits.sum() + " distances read, " + new_rows.size() + " new records");
+        if (new_rows.isEmpty()) return;
+
+        try {
+            Files.createDirectories(path.getParent());
+            Path temp = Files.createTempFile(path.getParent(), "index", ".tmp");
+
+            List<String> ids = new ArrayList<>();
+            for (String id : stored_rows.keySet()) {
+                if (!new_rows.containsKey(id)) ids.add(id);
+            }
+            ids.addAll(new_rows.keySet());
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(key);
+                out.writeInt(reference_object_ids.size());
+                for (int position = 0; position < reference_object_ids.size(); position++) {
+                    out.writeUTF(reference_object_ids.get(position));
+                    out.writeLong(reference_object_hashes.get(position));
+                }
+                out.writeInt(ids.size());
+                for (String id : ids) {
+                    out.writeUTF(id);
+                    out.writeLong(new_rows.containsKey(id) ? data_hashes.get(id) : stored_hashes.get(id));
+                }
+
+                for (String id : ids) {
+                    double[] new_row = new_rows.get(id);
+                    Integer row = stored_rows.get(id);
+                    for (int position = 0; position < reference_object_ids.size(); position++) {
+                        out.writeDouble(new_row != null ? new_row[position] : stored_distances.getDouble(offset(row, position)));
+                    }
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        } catch (IOException e) {
+            System.out.println("Could not save reference distance index " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the number of distances read from the index rather than calculated
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    private void load() {
+
+        if (!Files.exists(path)) return;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+            if (channel.size() > Integer.MAX_VALUE) return;
+
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || !readUTF(buffer).equals(key)) return;
+
+            int number_of_reference_objects = buffer.getInt();
+            List<String> ids = new ArrayList<>();
+            List<Long> hashes = new ArrayList<>();
+            for (int i = 0; i < number_of_reference_objects; i++) {
+                ids.add(readUTF(buffer));
+                hashes.add(buffer.getLong());
+            }
+            if (!ids.equals(reference_object_ids) || !hashes.equals(reference_object_hashes)) return;
+
+            int number_of_rows = buffer.getInt();
+            for (int row = 0; row < number_of_rows; row++) {
+                String id = readUTF(buffer);
+                stored_rows.put(id, row);
+                stored_hashes.put(id, buffer.getLong());
+            }
+
+            stored_distances = buffer.slice(); // the distance table follows the record ids
+            System.out.println("Loaded reference distance index " + path + " with " + number_of_rows + " records");
+
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Ignoring unreadable reference distance index " + path + ": " + e.getMessage());
+            stored_rows.clear();
+            stored_hashes.clear();
+            stored_distances = null;
+        }
+    }
+
+    private int offset(int row, int position) {
+        return (row * reference_object_ids.size() + position) * Double.BYTES;
+    }
+
+    private double[] newRow() {
+        double[] row = new double[reference_object_ids.size()];
+        Arrays.fill(row, Double.NaN);
+        return row;
+    }
+
+    /**
+     * Reads a string written by DataOutputStream.writeUTF, which uses modified UTF-8 preceded by its length in bytes.
+     */
+    private static String readUTF(ByteBuffer buffer) throws IOException {
+
+        int length = buffer.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length + 2];
+        bytes[0] = (byte) (length >>> 8);
+        bytes[1] = (byte) length;
+        buffer.get(bytes, 2, length);
+        return new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
+    }
+
+    /**
+     * @return a 64-bit FNV-1a hash of the given content
+     */
+    static long contentHash(String content) {
+
+        if (content == null) return 0L;
+
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < content.length(); i++) {
+            hash ^= content.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * @return a file name component identifying the given key
+     */
+    public static String hash(String key) {
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < 16; i++) builder.append(String.format("%02x", digest[i]));
+            return builder.toString();
+
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
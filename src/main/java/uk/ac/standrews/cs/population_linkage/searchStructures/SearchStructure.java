@@ -23,5 +23,14 @@ import java.util.List;
 public interface SearchStructure<T> {
 
     List<DataDistance<T>> findWithinThreshold(T record, double threshold);
+
+    /**
+     * Finds the k records closest to the given record, together with any further records at the same distance as
+     * the kth, so that the result does not depend on how ties are broken.
+     *
+     * @return the closest records in increasing order of distance, or all the records if there are fewer than k
+     */
+    List<DataDistance<T>> findNearest(T record, int k);
+
     void terminate();
 }
@@ -25,4 +25,15 @@ public interface SearchStructureFactory<T> {
     SearchStructure<T> newSearchStructure(Iterable<T> stored_set, List<T> reference_objects);
 
     SearchStructure<T> newSearchStructure(Iterable<T> stored_set);
+
+    /**
+     * Creates a search structure over one part of the stored records, such as a block or partition, where a linkage
+     * uses several. The part identifies the structure among them, so that any data kept for it is not confused with
+     * that of another.
+     *
+     * @param reference_objects - the reference objects to be used, or null to let the factory choose them
+     */
+    default SearchStructure<T> newSearchStructure(Iterable<T> stored_set, List<T> reference_objects, String part) {
+        return reference_objects == null ? newSearchStructure(stored_set) : newSearchStructure(stored_set, reference_objects);
+    }
 }
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.searchStructures;
+
+import uk.ac.standrews.cs.neoStorr.impl.LXP;
+import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
+import uk.ac.standrews.cs.utilities.measures.coreConcepts.DataDistance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * A search structure that partitions the stored records into bands of years, so that a search restricted to a range
+ * of years need only visit the partitions overlapping that range. Records without a year are kept in a partition of
+ * their own, which is always searched.
+ * <p>
+ * Each partition is a RecordBlock, so large partitions are given their own search structure, created by the given
+ * factory, while smaller partitions are simply scanned. If reference objects are supplied they are used for every
+ * partition's search structure, so that searches over the partitions use the same reference objects as a single
+ * search structure would. The sizes of the partitions, and counts of the partitions and records left out of
+ * restricted searches, are reported by toString.
+ *
+ * @see uk.ac.standrews.cs.population_linkage.linkageRecipes.ViabilityWindow
+ */
+public class TemporalPartitionSearchStructure implements SearchStructure<LXP> {
+
+    private final int partition_width;
+
+    private final NavigableMap<Integer, RecordBlock> partitions = new TreeMap<>(); // keyed by band
+    private final RecordBlock undated;
+    private int number_of_records = 0;
+    private int largest_partition = 0;
+    private int search_structures = 0;
+
+    private final LongAdder restricted_searches = new LongAdder();
+    private final LongAdder partitions_searched = new LongAdder();
+    private final LongAdder partitions_pruned = new LongAdder();
+    private final LongAdder records_searched = new LongAdder();
+    private final LongAdder records_pruned = new LongAdder();
+
+    /**
+     * @param reference_objects - the reference objects to be used for each partition, or null to let the factory choose them
+     * @param year_function     - gives the year of a stored record, or Integer.MIN_VALUE if it has none
+     * @param partition_width   - the number of years in each partition
+     */
+    public TemporalPartitionSearchStructure(final SearchStructureFactory<LXP> search_structure_factory, final LXPMeasure composite_measure, final Iterable<LXP> stored_set,
+                                            final List<LXP> reference_objects, final ToIntFunction<LXP> year_function, final int partition_width) {
+
+        this.partition_width = partition_width;
+        this.undated = new RecordBlock(composite_measure);
+
+        for (LXP stored_record : stored_set) {
+
+            final int year = year_function.applyAsInt(stored_record);
+            final RecordBlock partition = year == Integer.MIN_VALUE ? undated : partitions.computeIfAbsent(getBand(year), band -> new RecordBlock(composite_measure));
+
+            partition.add(stored_record);
+            number_of_records++;
+        }
+
+        for (Map.Entry<Integer, RecordBlock> entry : partitions.entrySet()) {
+            final int band = entry.getKey();
+            createSearchStructure(entry.getValue(), search_structure_factory, reference_objects, "years " + band * partition_width + "-" + ((band + 1) * partition_width - 1));
+        }
+        if (undated.size() > 0) createSearchStructure(undated, search_structure_factory, reference_objects, "undated");
+    }
+
+    private void createSearchStructure(final RecordBlock partition, final SearchStructureFactory<LXP> search_structure_factory, final List<LXP> reference_objects, final String part) {
+
+        largest_partition = Math.max(largest_partition, partition.size());
+        if (partition.createSearchStructure(search_structure_factory, reference_objects, part)) search_structures++;
+    }
+
+    @Override
+    public List<DataDistance<LXP>> findWithinThreshold(final LXP record, final double threshold) {
+
+        final List<DataDistance<LXP>> results = new ArrayList<>();
+        for (RecordBlock partition : getAllPartitions()) {
+            results.addAll(partition.findWithinThreshold(record, threshold));
+        }
+        return results;
+    }
+
+    /**
+     * As findWithinThreshold, but leaving out the partitions that cannot contain records with years in the given
+     * range. Records without a year are always searched, and records in the partitions at either end of the range
+     * may have years outside it.
+     *
+     * @param earliest_year - the earliest year to be searched, or Integer.MIN_VALUE for no limit
+     * @param latest_year   - the latest year to be searched, or Integer.MAX_VALUE for no limit
+     */
+    public List<DataDistance<LXP>> findWithinThreshold(final LXP record, final double threshold, final int earliest_year, final int latest_year) {
+
+        final List<DataDistance<LXP>> results = new ArrayList<>(undated.findWithinThreshold(record, threshold));
+
+        int searched = undated.size() == 0 ? 0 : 1;
+        int records = undated.size();
+
+        if (earliest_year <= latest_year) {
+            for (RecordBlock partition : partitions.subMap(getBand(earliest_year), true, getBand(latest_year), true).values()) {
+                results.addAll(partition.findWithinThreshold(record, threshold));
+                searched++;
+                records += partition.size();
+            }
+        }
+
+        restricted_searches.increment();
+        partitions_searched.add(searched);
+        partitions_pruned.add(getNumberOfPartitions() - searched);
+        records_searched.add(records);
+        records_pruned.add(number_of_records - records);
+
+        return results;
+    }
+
+    @Override
+    public List<DataDistance<LXP>> findNearest(final LXP record, final int k) {
+
+        final List<DataDistance<LXP>> results = new ArrayList<>();
+        for (RecordBlock partition : getAllPartitions()) {
+            results.addAll(partition.findNearest(record, k));
+        }
+        return BitBlasterSearchStructure.closest(results, k);
+    }
+
+    @Override
+    public void terminate() {
+
+        for (RecordBlock partition : getAllPartitions()) {
+            partition.terminate();
+        }
+    }
+
+    @Override
+    public String toString() {
+
+        final long pruned = records_pruned.sum();
+        final long total = pruned + records_searched.sum();
+        final long partitions_total = partitions_pruned.sum() + partitions_searched.sum();
+
+        return String.format("Temporal partitions: %d stored records in %d bands of %d years, largest %d, %d with search structures, %d without a year; " +
+                        "%d restricted searches, %d of %d partition visits (%.2f%%) and %d of %d record comparisons (%.2f%%) pruned",
+                number_of_records, partitions.size(), partition_width, largest_partition, search_structures, undated.size(),
+                restricted_searches.sum(), partitions_pruned.sum(), partitions_total, partitions_total == 0 ? 0.0 : 100.0 * partitions_pruned.sum() / partitions_total,
+                pruned, total, total == 0 ? 0.0 : 100.0 * pruned / total);
+    }
+
+    private int getBand(final int year) {
+        return Math.floorDiv(year, partition_width);
+    }
+
+    private int getNumberOfPartitions() {
+        return partitions.size() + (undated.size() == 0 ? 0 : 1);
+    }
+
+    private List<RecordBlock> getAllPartitions() {
+
+        final List<RecordBlock> result = new ArrayList<>(partitions.values());
+        if (undated.size() > 0) result.add(undated);
+        return result;
+    }
+}
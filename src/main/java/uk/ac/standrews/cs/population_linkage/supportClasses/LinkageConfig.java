@@ -16,6 +16,9 @@
  */
 package uk.ac.standrews.cs.population_linkage.supportClasses;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 public class LinkageConfig {
 
     public static final int BIRTH_CACHE_SIZE = 10000;
@@ -24,6 +27,37 @@ public class LinkageConfig {
 
     public static final int NUMBER_OF_REFERENCE_OBJECTS = 70;
 
+    public static int LINK_PERSISTENCE_BATCH_SIZE = 5000;                // Number of links written to Neo4j in each UNWIND batch.
+    public static int MAX_PENDING_LINK_BATCHES = 4;                     // Number of full batches that may queue for writing before linkage blocks.
+
+    public static boolean USE_LINKAGE_FIELD_STORE = true;               // Whether composite measures read stored records' linkage fields from a LinkageFieldStore.
+    public static boolean USE_TEMPORAL_COLUMNS = true;                  // Whether the dates used by viability checks are derived once per linkage rather than for every candidate pair.
+    public static boolean PRECOMPUTE_CHARACTER_DISTRIBUTIONS = true;    // Whether Jensen-Shannon and SED field distances are calculated from precomputed distributions of stored values.
+    public static int FIELD_DISTANCE_CACHE_SIZE = 1000000;              // Maximum number of field value distances cached by a composite measure; 0 to disable.
+
+    public static Path REFERENCE_DISTANCE_INDEX_DIRECTORY = null;       // Where BitBlaster reference distances are kept between runs; null to disable.
+
+    public static boolean SWEEP_LINKAGE_FIELDS = true;                  // Whether builders link for all numbers of linkage fields required in one pass rather than one pass each.
+    public static boolean INCREMENTAL_LINKAGE = false;                  // Whether runs that do not evaluate quality link only records added since the last run.
+    public static Path LINKAGE_WATERMARK_DIRECTORY =                    // Where the records covered by previous incremental runs are recorded.
+            Paths.get(System.getProperty("java.io.tmpdir"), "linkage-watermarks");
+
+    public static int MIN_BLOCK_SIZE_FOR_SEARCH_STRUCTURE = 5000;       // Blocks and temporal partitions with fewer stored records than this are scanned rather than searched;
+                                                                        // the point at which a search structure pays for itself can be checked with BlockSearchProfilingBirthSibling.
+    public static boolean REPORT_BLOCKING_RECALL = true;                // Whether ground truth links lost through blocking are counted when quality is evaluated.
+    public static boolean BLOCK_BIRTH_SIBLINGS_ON_SURNAMES = true;      // Whether birth sibling linkage only compares births sharing the mother's maiden surname or the father's surname.
+    public static boolean PARTITION_BY_VIABILITY_WINDOW = true;         // Whether stored records are partitioned by year so that searches skip those outside recipes' viability windows.
+    public static int VIABILITY_PARTITION_WIDTH = 5;                    // Number of years in each partition of the stored records.
+
+    public static int NUMBER_OF_QUERY_WORKERS = Runtime.getRuntime().availableProcessors(); // Threads running range searches for query records.
+    public static int QUERY_SHARD_SIZE = 100;                           // Number of query records handed to a query worker at a time.
+    public static int LINK_QUEUE_CAPACITY = 1000;                       // Number of query results that may wait to be consumed before query workers block.
+
+    public static int NUMBER_OF_CONCURRENT_LINKAGE_STAGES = 2;          // Number of end-to-end builders run at once by LinkageOrchestrator.
+
+    public static double GROUND_TRUTH_NEGATIVE_SAMPLING_RATE = 1.0;     // Proportion of non-matching pairs compared in threshold analysis; 1 to compare all pairs.
+    public static double GROUND_TRUTH_CONFIDENCE_INTERVAL_WIDTH = 0.0;  // Threshold analysis stops once all precision and recall 95% intervals are this narrow; 0 to check all records.
+
     public static final double AVERAGE_DAYS_IN_YEAR = 365.25;
     public static final double AVERAGE_DAYS_IN_MONTH = 30.4;
     public static final int AVERAGE_GESTATION_IN_MONTHS = 9;
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.supportClasses;
+
+import uk.ac.standrews.cs.neoStorr.impl.LXP;
+import uk.ac.standrews.cs.population_linkage.helpers.RecordFiltering;
+
+import java.util.*;
+
+/**
+ * A column-oriented snapshot of the linkage fields of a set of records, so that composite measures can read
+ * field values and whether they are missing without going through the records themselves.
+ * <p>
+ * Each record is given an ordinal in iteration order. Values are interned within the store so that repeated
+ * values share a single instance, and missing values are recorded in a bitset per field, using the same test
+ * as RecordFiltering.isMissing. The store is not modified after construction and may be shared between threads.
+ */
+public class LinkageFieldStore {
+
+    private final List<Integer> fields;
+    private final List<LXP> records = new ArrayList<>();
+    private final LXP[] ordinal_keys;    // open-addressed identity table from record to ordinal, probed linearly
+    private final int[] ordinal_values;
+    private final String[][] columns;
+    private final BitSet[] missing;
+    private final Set<String> distinct_values;
+
+    public LinkageFieldStore(final Iterable<LXP> stored_records, final List<Integer> fields) {
+
+        this.fields = new ArrayList<>(fields);
+
+        for (LXP record : stored_records) {
+            this.records.add(record);
+        }
+
+        // At most half full, so that probes are short. Looked up for every distance calculation, so avoids the boxing
+        // and extra indirection of an IdentityHashMap.
+        final int capacity = Integer.highestOneBit(Math.max(records.size(), 1) * 4 - 1);
+        ordinal_keys = new LXP[capacity];
+        ordinal_values = new int[capacity];
+
+        for (int ordinal = 0; ordinal < records.size(); ordinal++) {
+
+            final LXP record = records.get(ordinal);
+            int slot = slot(record);
+            while (ordinal_keys[slot] != null && ordinal_keys[slot] != record) slot = (slot + 1) & (capacity - 1);
+
+            if (ordinal_keys[slot] == null) {
+                ordinal_keys[slot] = record;
+                ordinal_values[slot] = ordinal;
+            }
+        }
+
+        columns = new String[fields.size()][records.size()];
+        missing = new BitSet[fields.size()];
+
+        Map<String, String> interned = new HashMap<>();
+
+        for (int field = 0; field < fields.size(); field++) {
+
+            missing[field] = new BitSet(records.size());
+            final int field_index = fields.get(field);
+
+            for (int ordinal = 0; ordinal < records.size(); ordinal++) {
+
+                String value = this.records.get(ordinal).getString(field_index);
+                if (value != null) value = interned.computeIfAbsent(value, v -> v);
+
+                columns[field][ordinal] = value;
+                if (RecordFiltering.isMissing(value)) missing[field].set(ordinal);
+            }
+        }
+
+        distinct_values = Collections.unmodifiableSet(interned.keySet());
+    }
+
+    /**
+     * @return the fields held by the store, in the order used by getValue and isMissing
+     */
+    public List<Integer> getFields() {
+        return fields;
+    }
+
+    public int size() {
+        return records.size();
+    }
+
+    /**
+     * @return the distinct non-null values held in any of the fields
+     */
+    public Set<String> getDistinctValues() {
+        return distinct_values;
+    }
+
+    /**
+     * @return the ordinal of the given record, which must be the same object as was stored, or -1 if it is not in the store
+     */
+    public int getOrdinal(final LXP record) {
+
+        for (int slot = slot(record); ; slot = (slot + 1) & (ordinal_keys.length - 1)) {
+
+            final LXP key = ordinal_keys[slot];
+            if (key == record) return ordinal_values[slot];
+            if (key == null) return -1;
+        }
+    }
+
+    private int slot(final LXP record) {
+
+        final int hash = System.identityHashCode(record) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (ordinal_keys.length - 1);
+    }
+
+    /**
+     * @return the record with the given ordinal
+     */
+    public LXP getRecord(final int ordinal) {
+        return records.get(ordinal);
+    }
+
+    /**
+     * @param field - the position of the field in getFields(), not the field index in the record
+     */
+    public String getValue(final int ordinal, final int field) {
+        return columns[field][ordinal];
+    }
+
+    /**
+     * @param field - the position of the field in getFields(), not the field index in the record
+     */
+    public boolean isMissing(final int ordinal, final int field) {
+        return missing[field].get(ordinal);
+    }
+
+    public int getNumberOfPopulatedFields(final int ordinal) {
+
+        int populated = 0;
+        for (BitSet field_missing : missing) {
+            if (!field_missing.get(ordinal)) populated++;
+        }
+        return populated;
+    }
+}
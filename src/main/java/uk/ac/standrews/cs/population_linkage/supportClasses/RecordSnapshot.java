@@ -0,0 +1,106 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.supportClasses;
+
+import uk.ac.standrews.cs.neoStorr.impl.LXP;
+import uk.ac.standrews.cs.population_records.RecordRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the birth, death and marriage records of a source repository in memory so that all the linkage recipes
+ * run within one JVM read them from the repository once rather than once per recipe.
+ * Each record type is loaded when first requested.
+ * While a snapshot is shared for a repository, LinkageRecipe takes its records from the snapshot and leaves the
+ * store's bridge open, since it is in use by the other recipes; the bridge and snapshot are closed by whoever shared it.
+ */
+public class RecordSnapshot implements AutoCloseable {
+
+    private static final Map<String, RecordSnapshot> shared_snapshots = new ConcurrentHashMap<>();
+
+    private final String source_repository_name;
+    private final RecordRepository record_repository;
+
+    private List<LXP> birth_records;
+    private List<LXP> death_records;
+    private List<LXP> marriage_records;
+
+    private RecordSnapshot(String source_repository_name) {
+
+        this.source_repository_name = source_repository_name;
+        record_repository = new RecordRepository(source_repository_name);
+        record_repository.setBirthsCacheSize(LinkageConfig.BIRTH_CACHE_SIZE);
+        record_repository.setDeathsCacheSize(LinkageConfig.DEATH_CACHE_SIZE);
+        record_repository.setMarriagesCacheSize(LinkageConfig.MARRIAGE_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a snapshot of the given repository, or returns the existing one, and makes it visible to recipes via getShared.
+     */
+    public static RecordSnapshot share(String source_repository_name) {
+        return shared_snapshots.computeIfAbsent(source_repository_name, RecordSnapshot::new);
+    }
+
+    /**
+     * @return the snapshot shared for the given repository, or null if there is none
+     */
+    public static RecordSnapshot getShared(String source_repository_name) {
+        return shared_snapshots.get(source_repository_name);
+    }
+
+    public synchronized List<LXP> getBirthRecords() {
+        if (birth_records == null) {
+            birth_records = load(Utilities.getBirthRecords(record_repository), "births");
+        }
+        return birth_records;
+    }
+
+    public synchronized List<LXP> getDeathRecords() {
+        if (death_records == null) {
+            death_records = load(Utilities.getDeathRecords(record_repository), "deaths");
+        }
+        return death_records;
+    }
+
+    public synchronized List<LXP> getMarriageRecords() {
+        if (marriage_records == null) {
+            marriage_records = load(Utilities.getMarriageRecords(record_repository), "marriages");
+        }
+        return marriage_records;
+    }
+
+    @Override
+    public void close() {
+        shared_snapshots.remove(source_repository_name, this);
+        record_repository.close();
+    }
+
+    private List<LXP> load(Iterable<LXP> records, String label) {
+
+        long start_time = System.currentTimeMillis();
+        List<LXP> loaded = new ArrayList<>();
+        for (LXP record : records) {
+            loaded.add(record);
+        }
+        System.out.printf("Loaded %d %s from %s in %.1fs\n", loaded.size(), label, source_repository_name, (System.currentTimeMillis() - start_time) / 1000.0);
+        return Collections.unmodifiableList(loaded);
+    }
+}
@@ -16,12 +16,16 @@
  */
 package uk.ac.standrews.cs.population_linkage;
 
+import org.junit.jupiter.api.Test;
 import uk.ac.standrews.cs.population_linkage.searchStructures.BitBlasterSearchStructure;
 import uk.ac.standrews.cs.population_linkage.searchStructures.SearchStructure;
+import uk.ac.standrews.cs.utilities.measures.coreConcepts.DataDistance;
 import uk.ac.standrews.cs.utilities.measures.coreConcepts.Measure;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
 
 public class BitBlasterTest extends SimilaritySearchTest {
 
@@ -30,6 +34,42 @@ public class BitBlasterTest extends SimilaritySearchTest {
     private static final int MAX_NUMBER_OF_REFERENCE_POINTS = 30;
     private static final int NUMBER_OF_REFERENCE_POINTS_INCREMENT = 5;
 
+    @Test
+    public void closestKeepsAllResultsTiedWithKth() {
+
+        List<DataDistance<String>> results = Arrays.asList(
+                new DataDistance<>("a", 0.3), new DataDistance<>("b", 0.1), new DataDistance<>("c", 0.2),
+                new DataDistance<>("d", 0.2), new DataDistance<>("e", 0.4), new DataDistance<>("f", 0.2));
+
+        checkClosest(results, 1, "b");
+        checkClosest(results, 2, "b", "c", "d", "f");
+        checkClosest(results, 4, "b", "c", "d", "f");
+        checkClosest(results, 5, "b", "c", "d", "f", "a");
+    }
+
+    @Test
+    public void closestReturnsAllResultsIfFewerThanK() {
+
+        List<DataDistance<String>> results = Arrays.asList(new DataDistance<>("a", 0.3), new DataDistance<>("b", 0.1));
+
+        checkClosest(results, 3, "b", "a");
+        checkClosest(results, 0);
+    }
+
+    private static void checkClosest(List<DataDistance<String>> results, int k, String... expected) {
+
+        List<DataDistance<String>> closest = BitBlasterSearchStructure.closest(results, k);
+
+        Set<String> values = new HashSet<>();
+        for (int i = 0; i < closest.size(); i++) {
+            values.add(closest.get(i).value);
+            if (i > 0) assertTrue(closest.get(i - 1).distance <= closest.get(i).distance);
+        }
+
+        assertEquals(expected.length, closest.size());
+        assertEquals(new HashSet<>(Arrays.asList(expected)), values);
+    }
+
     @Override
     SearchStructure<Point> getSearchStructure(Measure<Point> measure, List<Point> data_points, final List<Point> reference_points) {
 
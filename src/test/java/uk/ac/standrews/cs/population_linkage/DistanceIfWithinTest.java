@@ -0,0 +1,150 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.cs.neoStorr.impl.LXP;
+import uk.ac.standrews.cs.population_linkage.compositeMeasures.*;
+import uk.ac.standrews.cs.population_linkage.supportClasses.Constants;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Checks that distanceIfWithin gives the same distance as distance for pairs within the bound, and a distance
+ * greater than the bound otherwise, for each composite measure with and without field ordering, a field store and a field
+ * distance cache.
+ */
+public class DistanceIfWithinTest {
+
+    private static final double DELTA = 0.000000001;
+    private static final List<Integer> FIELDS = Arrays.asList(0, 1, 2, 3);
+    private static final String ALPHABET = "abcde";
+
+    private final Random random = new Random(4291);
+
+    @Test
+    public void distanceIfWithinAgreesWithDistance() {
+
+        final List<LXP> records = makeRecords(30, false);
+
+        check(() -> new SumOfFieldDistances(Constants.LEVENSHTEIN, FIELDS), records);
+        check(() -> new SumOfFieldDistances(Constants.JENSEN_SHANNON, FIELDS), records);
+        check(() -> new MeanOfFieldDistances(Constants.LEVENSHTEIN, FIELDS), records);
+        check(() -> new MeanOfFieldDistances(Constants.SED, FIELDS), records);
+        check(() -> new MaximumOfFieldDistances(Constants.LEVENSHTEIN, FIELDS), records);
+        check(() -> new MaximumOfFieldDistances(Constants.JENSEN_SHANNON, FIELDS), records);
+        check(() -> new MeanOfFieldDistancesNormalised(Constants.JENSEN_SHANNON, FIELDS), records);
+        check(() -> new MeanOfFieldDistancesNormalised(Constants.LEVENSHTEIN, FIELDS), records);
+        check(() -> new MeanOfFieldDistancesNormalised(Constants.LEVENSHTEIN, FIELDS, 3.0), records);
+    }
+
+    @Test
+    public void distanceIfWithinAgreesWithDistanceForMissingFields() {
+
+        final List<LXP> records = makeRecords(30, true);
+
+        check(() -> new MeanOfFieldDistancesWithZeroForMissingFields(Constants.LEVENSHTEIN, FIELDS), records);
+        check(() -> new MeanOfFieldDistancesWithMaxForMissingFields(Constants.LEVENSHTEIN, FIELDS, 10.0), records);
+        check(() -> new MeanOfFieldDistancesWithMeanForMissingFields(Constants.LEVENSHTEIN, FIELDS, 2.5), records);
+        check(() -> new MeanOfFieldDistancesIgnoringMissingFields(Constants.LEVENSHTEIN, FIELDS, 10.0), records);
+    }
+
+    @Test
+    public void fieldsWithGreatestMeanDistanceVisitedFirstWithoutFieldStore() {
+
+        // The last field differs by much more than the first, so once fields are ordered it is visited first and
+        // the calculation is abandoned after it.
+        final List<LXP> records = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            records.add(new LinkageTest.DummyLXP(random.nextBoolean() ? "a" : "b", "c", "c", random.nextBoolean() ? "aaaaaaaaaa" : "bbbbbbbbbb"));
+        }
+
+        final LXP x = new LinkageTest.DummyLXP("a", "c", "c", "aaaaaaaaaa");
+        final LXP y = new LinkageTest.DummyLXP("b", "c", "c", "bbbbbbbbbb");
+
+        final LXPMeasure measure = new SumOfFieldDistances(Constants.LEVENSHTEIN, FIELDS);
+        assertEquals(1.0, measure.distanceIfWithin(x, y, 0.5), DELTA);
+
+        measure.orderFieldsByMeanDistance(records);
+        assertEquals(10.0, measure.distanceIfWithin(x, y, 0.5), DELTA);
+        assertEquals(11.0, measure.distanceIfWithin(x, y, 11.0), DELTA);
+    }
+
+    private void check(final Supplier<LXPMeasure> measure_supplier, final List<LXP> records) {
+
+        final LXPMeasure plain = measure_supplier.get();
+
+        final LXPMeasure with_field_order = measure_supplier.get();
+        with_field_order.orderFieldsByMeanDistance(records);
+
+        final LXPMeasure with_field_store = measure_supplier.get();
+        with_field_store.buildFieldStore(records);
+        with_field_store.orderFieldsByMeanDistance(records);
+
+        final LXPMeasure with_cache = measure_supplier.get();
+        with_cache.buildFieldStore(records);
+        with_cache.orderFieldsByMeanDistance(records);
+        with_cache.cacheFieldDistances(100);
+
+        for (LXPMeasure measure : Arrays.asList(plain, with_field_order, with_field_store, with_cache)) {
+            for (LXP x : records) {
+                for (LXP y : records) {
+
+                    final double distance = measure.distance(x, y);
+
+                    for (double bound : new double[]{0.0, distance * 0.5, distance, distance * 1.5, random.nextDouble() * 10}) {
+
+                        final double distance_if_within = measure.distanceIfWithin(x, y, bound);
+
+                        if (distance <= bound) {
+                            assertEquals(measure.getMeasureName(), distance, distance_if_within, DELTA);
+                        } else {
+                            assertTrue(measure.getMeasureName() + " bound: " + bound + " distance: " + distance + " result: " + distance_if_within, distance_if_within > bound);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private List<LXP> makeRecords(final int number_of_records, final boolean with_missing_fields) {
+
+        final List<LXP> records = new ArrayList<>();
+        for (int i = 0; i < number_of_records; i++) {
+
+            final String[] values = new String[FIELDS.size()];
+            for (int j = 0; j < values.length; j++) {
+                values[j] = with_missing_fields && random.nextInt(4) == 0 ? "" : randomString();
+            }
+            records.add(new LinkageTest.DummyLXP(values));
+        }
+        return records;
+    }
+
+    private String randomString() {
+
+        final StringBuilder builder = new StringBuilder();
+        for (int length = 1 + random.nextInt(6); length > 0; length--) {
+            builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return builder.toString();
+    }
+}
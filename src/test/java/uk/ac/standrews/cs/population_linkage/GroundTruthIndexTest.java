@@ -0,0 +1,234 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.cs.neoStorr.impl.LXP;
+import uk.ac.standrews.cs.neoStorr.impl.LXPReference;
+import uk.ac.standrews.cs.neoStorr.impl.exceptions.PersistentObjectException;
+import uk.ac.standrews.cs.neoStorr.interfaces.IStoreReference;
+import uk.ac.standrews.cs.population_linkage.characterisation.LinkStatus;
+import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
+import uk.ac.standrews.cs.population_linkage.compositeMeasures.SumOfFieldDistances;
+import uk.ac.standrews.cs.population_linkage.linkageRecipes.LinkageRecipe;
+import uk.ac.standrews.cs.population_linkage.linkageRunners.GroundTruthIndex;
+import uk.ac.standrews.cs.population_linkage.supportClasses.Constants;
+import uk.ac.standrews.cs.population_linkage.supportClasses.Link;
+import uk.ac.standrews.cs.population_linkage.supportClasses.RecordPair;
+
+import java.util.*;
+
+import static junit.framework.TestCase.*;
+
+/**
+ * Checks the ground truth given by GroundTruthIndex against evaluating the true match alternatives for every pair.
+ */
+public class GroundTruthIndexTest {
+
+    private static final double DELTA = 0.000000001;
+    private static final String[] IDENTITY_VALUES = {"", "1", "2", "3", "4"};
+
+    // A pair matches if field 1 matches, or fields 2 and 3 match crosswise.
+    private static final List<List<LinkageRecipe.Pair>> ALTERNATIVES = Arrays.asList(
+            Collections.singletonList(new LinkageRecipe.Pair(1, 1)),
+            Arrays.asList(new LinkageRecipe.Pair(2, 3), new LinkageRecipe.Pair(3, 2)));
+
+    private static final int NUMBER_OF_RECORDS = 60;
+    private static final int NUMBER_OF_TRIALS = 20;
+
+    private final Random random = new Random(823495873L);
+
+    @Test
+    public void trueMatchesAgreeWithAlternatives() throws PersistentObjectException {
+
+        for (int trial = 0; trial < NUMBER_OF_TRIALS; trial++) {
+
+            final List<LXP> stored_records = makeRecords();
+            final List<LXP> query_records = makeRecords();
+
+            checkTrueMatches(makeIndex(ALTERNATIVES, false, stored_records, query_records), stored_records, query_records);
+            checkTrueMatches(makeIndex(ALTERNATIVES, true, stored_records, stored_records), stored_records, stored_records);
+
+            // Without the alternatives every pair is evaluated directly.
+            checkTrueMatches(makeIndex(null, false, stored_records, query_records), stored_records, query_records);
+        }
+    }
+
+    @Test
+    public void recordsNotIndexedEvaluatedDirectly() throws PersistentObjectException {
+
+        final List<LXP> stored_records = makeRecords();
+        final List<LXP> query_records = makeRecords();
+
+        final GroundTruthIndex index = makeIndex(ALTERNATIVES, false, stored_records.subList(0, 10), query_records.subList(0, 10));
+
+        assertEquals(20, index.size());
+        checkTrueMatches(index, stored_records, query_records);
+    }
+
+    @Test
+    public void missedLinksAgreeWithAlternatives() throws PersistentObjectException {
+
+        for (int trial = 0; trial < NUMBER_OF_TRIALS; trial++) {
+
+            final List<LXP> stored_records = makeRecords();
+            final List<LXP> query_records = makeRecords();
+
+            checkMissedLinks(false, stored_records, query_records);
+            checkMissedLinks(true, stored_records, stored_records);
+        }
+    }
+
+    @Test
+    public void missedLinksNeedAlternatives() {
+
+        final GroundTruthIndex index = makeIndex(null, false, makeRecords(), makeRecords());
+
+        try {
+            index.getMissedLinks(Collections.emptyList());
+            fail("missed links listed without alternatives");
+        } catch (RuntimeException e) {
+            // Expected.
+        }
+    }
+
+    private void checkTrueMatches(final GroundTruthIndex index, final List<LXP> stored_records, final List<LXP> query_records) throws PersistentObjectException {
+
+        for (final LXP stored_record : stored_records) {
+            for (final LXP query_record : query_records) {
+
+                final boolean expected = isTrueMatch(stored_record, query_record);
+                assertEquals(expected, index.isTrueMatch(makeLink(stored_record, query_record)));
+            }
+        }
+    }
+
+    private void checkMissedLinks(final boolean symmetric, final List<LXP> stored_records, final List<LXP> query_records) throws PersistentObjectException {
+
+        final LXPMeasure measure = makeMeasure();
+        final GroundTruthIndex index = makeIndex(ALTERNATIVES, symmetric, stored_records, query_records);
+
+        // Report some of the true matches and some other pairs as linked, in either direction for symmetric linkage.
+        final List<Link> links = new ArrayList<>();
+        final Set<List<String>> linked = new HashSet<>();
+
+        for (final LXP stored_record : stored_records) {
+            for (final LXP query_record : query_records) {
+
+                if (random.nextInt(isTrueMatch(stored_record, query_record) ? 2 : 50) == 0) {
+
+                    final boolean reverse = symmetric && random.nextBoolean();
+                    links.add(reverse ? makeLink(query_record, stored_record) : makeLink(stored_record, query_record));
+                    linked.add(pairKey(symmetric, stored_record, query_record));
+                }
+            }
+        }
+
+        final Set<List<String>> expected = new HashSet<>();
+
+        for (final LXP stored_record : stored_records) {
+            for (final LXP query_record : query_records) {
+
+                final List<String> key = pairKey(symmetric, stored_record, query_record);
+                if (!(symmetric && stored_record == query_record) && isTrueMatch(stored_record, query_record) && !linked.contains(key)) {
+                    expected.add(key);
+                }
+            }
+        }
+
+        final List<RecordPair> missed = index.getMissedLinks(links);
+        final Set<List<String>> found = new HashSet<>();
+
+        for (final RecordPair pair : missed) {
+
+            assertTrue(found.add(pairKey(symmetric, pair.stored_record, pair.query_record)));
+            assertEquals(measure.distance(pair.stored_record, pair.query_record), pair.distance, DELTA);
+        }
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, found);
+    }
+
+    private static boolean isTrueMatch(final LXP record1, final LXP record2) {
+
+        return LinkageRecipe.trueMatch(record1, record2, ALTERNATIVES) == LinkStatus.TRUE_MATCH;
+    }
+
+    private static GroundTruthIndex makeIndex(final List<List<LinkageRecipe.Pair>> alternatives, final boolean symmetric, final List<LXP> stored_records, final List<LXP> query_records) {
+
+        return new GroundTruthIndex("test", alternatives, symmetric, (record1, record2) -> LinkageRecipe.trueMatch(record1, record2, ALTERNATIVES),
+                GroundTruthIndexTest::makeMeasure, stored_records, query_records);
+    }
+
+    private static LXPMeasure makeMeasure() {
+
+        return new SumOfFieldDistances(Constants.LEVENSHTEIN, Collections.singletonList(0));
+    }
+
+    private static Link makeLink(final LXP record1, final LXP record2) throws PersistentObjectException {
+
+        return new Link(record1, "role1", record2, "role2", 1.0f, "test", 0.0, "test");
+    }
+
+    private static List<String> pairKey(final boolean symmetric, final LXP record1, final LXP record2) {
+
+        final String id1 = record1.getId();
+        final String id2 = record2.getId();
+
+        return symmetric && id1.compareTo(id2) > 0 ? Arrays.asList(id2, id1) : Arrays.asList(id1, id2);
+    }
+
+    private List<LXP> makeRecords() {
+
+        final List<LXP> records = new ArrayList<>();
+
+        for (int i = 0; i < NUMBER_OF_RECORDS; i++) {
+            records.add(new IndexedLXP("name" + random.nextInt(20), randomIdentity(), randomIdentity(), randomIdentity()));
+        }
+        return records;
+    }
+
+    private String randomIdentity() {
+
+        return IDENTITY_VALUES[random.nextInt(IDENTITY_VALUES.length)];
+    }
+
+    /**
+     * A record whose reference has the same id as the record, as for records in a store.
+     */
+    private static class IndexedLXP extends LinkageTest.DummyLXP {
+
+        IndexedLXP(final String... values) {
+            super(values);
+        }
+
+        @Override
+        public IStoreReference<?> getThisRef() {
+
+            if (store_reference == null) {
+                final LXP this_lxp = this;
+                store_reference = new LXPReference<>("dummy-repo", "dummy-bucket", getId()) {
+                    @Override
+                    public LXP getReferend() {
+                        return this_lxp;
+                    }
+                };
+            }
+            return store_reference;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.cs.neoStorr.impl.LXP;
+import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
+import uk.ac.standrews.cs.population_linkage.compositeMeasures.SumOfFieldDistances;
+import uk.ac.standrews.cs.population_linkage.linkageRunners.LinkageRunner;
+import uk.ac.standrews.cs.population_linkage.linkageRunners.LinkageWatermark;
+import uk.ac.standrews.cs.population_linkage.linkers.SimilaritySearchLinker;
+import uk.ac.standrews.cs.population_linkage.searchStructures.BitBlasterSearchStructure;
+import uk.ac.standrews.cs.population_linkage.searchStructures.BitBlasterSearchStructureFactory;
+import uk.ac.standrews.cs.population_linkage.supportClasses.Constants;
+import uk.ac.standrews.cs.population_linkage.supportClasses.Link;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+
+/**
+ * Checks that linking records in increments, as LinkageRunner.incrementalRun does, gives the same links as linking
+ * all the records at once.
+ */
+public class IncrementalLinkageTest {
+
+    private static final double THRESHOLD = 3.0;
+    private static final String WATERMARK_KEY = "test recipe/fields/threshold";
+
+    private final LXPMeasure measure = new SumOfFieldDistances(Constants.LEVENSHTEIN, Arrays.asList(0, 1));
+
+    private final List<LXP> births = Arrays.asList(
+            new LinkageTest.DummyLXP("john", "smith", "1"),
+            new LinkageTest.DummyLXP("janet", "smith", "2"),
+            new LinkageTest.DummyLXP("jane", "smyth", "3"),
+            new LinkageTest.DummyLXP("janet", "smith", "4"),
+            new LinkageTest.DummyLXP("jon", "smith", "5"),
+            new LinkageTest.DummyLXP("anthony", "aardvark", "6"),
+            new LinkageTest.DummyLXP("tony", "aardvark", "7"),
+            new LinkageTest.DummyLXP("jane", "smith", "8"));
+
+    private final List<LXP> deaths = Arrays.asList(
+            new LinkageTest.DummyLXP("janet", "smythe", "9"),
+            new LinkageTest.DummyLXP("john", "stith", "10"),
+            new LinkageTest.DummyLXP("jane", "smyth", "11"),
+            new LinkageTest.DummyLXP("anthony", "aardvark", "12"),
+            new LinkageTest.DummyLXP("tony", "armadillo", "13"),
+            new LinkageTest.DummyLXP("jon", "smyth", "14"));
+
+    private Path watermark_directory;
+
+    @BeforeEach
+    public void setup() throws IOException {
+
+        watermark_directory = Files.createTempDirectory("watermark");
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+
+        try (Stream<Path> files = Files.list(watermark_directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) Files.delete(file);
+        }
+        Files.delete(watermark_directory);
+    }
+
+    @Test
+    public void incrementalLinksWithSingleDataSetSameAsFullRun() throws Exception {
+
+        final List<LXP> reference_objects = BitBlasterSearchStructure.chooseRandomReferencePoints(births.subList(0, 5), 3);
+
+        final Set<String> full_links = getLinks(births, births, reference_objects, true, false);
+        final Set<String> incremental_links = getIncrementalLinks(births.subList(0, 5), births.subList(0, 5), births, births, reference_objects, true);
+
+        assertFalse(full_links.isEmpty());
+        assertEquals(full_links, incremental_links);
+    }
+
+    @Test
+    public void incrementalLinksWithTwoDataSetsSameAsFullRun() throws Exception {
+
+        final List<LXP> reference_objects = BitBlasterSearchStructure.chooseRandomReferencePoints(births.subList(0, 4), 3);
+
+        final Set<String> full_links = getLinks(births, deaths, reference_objects, false, true);
+        final Set<String> incremental_links = getIncrementalLinks(births.subList(0, 4), deaths.subList(0, 3), births, deaths, reference_objects, false);
+
+        assertFalse(full_links.isEmpty());
+        assertEquals(full_links, incremental_links);
+    }
+
+    /**
+     * Links the first records, then all the records, in increments recorded by a watermark saved between the runs.
+     */
+    private Set<String> getIncrementalLinks(final List<LXP> first_stored, final List<LXP> first_query, final List<LXP> all_stored, final List<LXP> all_query,
+                                            final List<LXP> reference_objects, final boolean same_set) throws Exception {
+
+        final Set<String> links = new HashSet<>();
+
+        LinkageWatermark watermark = LinkageWatermark.load(watermark_directory, WATERMARK_KEY);
+        LinkageRunner.linkNewRecords(watermark, first_stored, first_query, same_set,
+                (stored, query) -> links.addAll(getLinks(stored, query, reference_objects, same_set, !same_set)));
+        watermark.setReferenceObjects(reference_objects);
+        watermark.save();
+
+        watermark = LinkageWatermark.load(watermark_directory, WATERMARK_KEY);
+        final List<LXP> reused_reference_objects = watermark.findReferenceObjects(all_stored);
+        assertEquals(reference_objects, reused_reference_objects);
+
+        LinkageRunner.linkNewRecords(watermark, all_stored, all_query, same_set,
+                (stored, query) -> links.addAll(getLinks(stored, query, reused_reference_objects, same_set, !same_set)));
+
+        return links;
+    }
+
+    /**
+     * @return the links made, each given by the ids of its records, in the order stored then query if directed
+     */
+    private Set<String> getLinks(final List<LXP> stored, final List<LXP> query, final List<LXP> reference_objects, final boolean same_set, final boolean directed) throws Exception {
+
+        final Set<String> links = new HashSet<>();
+
+        try (SimilaritySearchLinker linker = new SimilaritySearchLinker(new BitBlasterSearchStructureFactory<>(measure), measure, THRESHOLD, 0,
+                "link type", "provenance", "role1", "role2", null)) {
+
+            linker.addRecords(stored, query, reference_objects);
+            linker.setRecordsFromSameSet(same_set);
+
+            try (SimilaritySearchLinker.ParallelLinks parallel_links = linker.getLinksInParallel(2, 2, 4)) {
+                for (Link link : parallel_links) {
+
+                    final String id1 = link.getRecord1().getReferend().getId();
+                    final String id2 = link.getRecord2().getReferend().getId();
+
+                    links.add(directed || id1.compareTo(id2) < 0 ? id1 + "-" + id2 : id2 + "-" + id1);
+                }
+            }
+        }
+        return links;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.cs.neoStorr.impl.LXP;
+import uk.ac.standrews.cs.population_linkage.compositeMeasures.*;
+import uk.ac.standrews.cs.population_linkage.helpers.RecordFiltering;
+import uk.ac.standrews.cs.population_linkage.supportClasses.Constants;
+import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageFieldStore;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+import static junit.framework.TestCase.assertEquals;
+
+/**
+ * Checks that a field store holds the same values as the records it was built from, and that composite measures
+ * give the same distances when reading stored records' fields from a store as when reading them from the records.
+ */
+public class LinkageFieldStoreTest {
+
+    private static final double DELTA = 0.000000001;
+    private static final List<Integer> FIELDS = Arrays.asList(0, 1, 2, 3);
+    private static final String ALPHABET = "abcde";
+    private static final String[] MISSING_VALUES = {"", "missing", "--", "¤"};
+
+    private final Random random = new Random(7213);
+
+    @Test
+    public void storeHoldsRecordValues() {
+
+        final List<LXP> records = makeRecords(1000);
+        final LinkageFieldStore store = new LinkageFieldStore(records, FIELDS);
+
+        assertEquals(records.size(), store.size());
+
+        for (int ordinal = 0; ordinal < records.size(); ordinal++) {
+
+            final LXP record = records.get(ordinal);
+            assertEquals(ordinal, store.getOrdinal(record));
+            assertEquals(record, store.getRecord(ordinal));
+
+            for (int field = 0; field < FIELDS.size(); field++) {
+
+                final String value = record.getString(FIELDS.get(field));
+                assertEquals(value, store.getValue(ordinal, field));
+                assertEquals(RecordFiltering.isMissing(value), store.isMissing(ordinal, field));
+            }
+        }
+    }
+
+    @Test
+    public void recordsNotStoredHaveNoOrdinal() {
+
+        final List<LXP> records = makeRecords(100);
+        final LinkageFieldStore store = new LinkageFieldStore(records, FIELDS);
+
+        for (LXP copy : copy(records)) {
+            assertEquals(-1, store.getOrdinal(copy));
+        }
+        assertEquals(-1, new LinkageFieldStore(Collections.emptyList(), FIELDS).getOrdinal(records.get(0)));
+    }
+
+    @Test
+    public void storeBackedDistancesAgreeWithRecordDistances() {
+
+        final List<LXP> stored_records = makeRecords(30);
+
+        // Query records are copies, so are not in the store and are read from the records whichever measure is used.
+        final List<LXP> query_records = new ArrayList<>(stored_records);
+        query_records.addAll(copy(stored_records));
+
+        check(() -> new SumOfFieldDistances(Constants.LEVENSHTEIN, FIELDS), stored_records, query_records);
+        check(() -> new SumOfFieldDistances(Constants.JENSEN_SHANNON, FIELDS), stored_records, query_records);
+        check(() -> new MeanOfFieldDistances(Constants.SED, FIELDS), stored_records, query_records);
+        check(() -> new MaximumOfFieldDistances(Constants.LEVENSHTEIN, FIELDS), stored_records, query_records);
+        check(() -> new MeanOfFieldDistancesNormalised(Constants.JENSEN_SHANNON, FIELDS), stored_records, query_records);
+        check(() -> new MeanOfFieldDistancesWithZeroForMissingFields(Constants.LEVENSHTEIN, FIELDS), stored_records, query_records);
+        check(() -> new MeanOfFieldDistancesWithMaxForMissingFields(Constants.LEVENSHTEIN, FIELDS, 10.0), stored_records, query_records);
+        check(() -> new MeanOfFieldDistancesWithMeanForMissingFields(Constants.LEVENSHTEIN, FIELDS, 2.5), stored_records, query_records);
+        check(() -> new MeanOfFieldDistancesIgnoringMissingFields(Constants.LEVENSHTEIN, FIELDS, 10.0), stored_records, query_records);
+    }
+
+    private void check(final Supplier<LXPMeasure> measure_supplier, final List<LXP> stored_records, final List<LXP> query_records) {
+
+        final LXPMeasure from_records = measure_supplier.get();
+
+        final LXPMeasure from_store = measure_supplier.get();
+        from_store.buildFieldStore(stored_records);
+
+        for (LXP x : stored_records) {
+            for (LXP y : query_records) {
+
+                final double distance = from_records.distance(x, y);
+
+                assertEquals(from_store.getMeasureName(), distance, from_store.distance(x, y), DELTA);
+                assertEquals(from_store.getMeasureName(), distance, from_store.distance(y, x), DELTA);
+                assertEquals(from_store.getMeasureName(), distance, from_store.distanceIfWithin(x, y, distance), DELTA);
+            }
+        }
+    }
+
+    private List<LXP> makeRecords(final int number_of_records) {
+
+        final List<LXP> records = new ArrayList<>();
+        for (int i = 0; i < number_of_records; i++) {
+
+            final String[] values = new String[FIELDS.size()];
+            for (int j = 0; j < values.length; j++) {
+                values[j] = random.nextInt(4) == 0 ? MISSING_VALUES[random.nextInt(MISSING_VALUES.length)] : randomString();
+            }
+            records.add(new LinkageTest.DummyLXP(values));
+        }
+        return records;
+    }
+
+    private static List<LXP> copy(final List<LXP> records) {
+
+        final List<LXP> copies = new ArrayList<>();
+        for (LXP record : records) {
+
+            final String[] values = new String[FIELDS.size()];
+            for (int j = 0; j < values.length; j++) {
+                values[j] = record.getString(FIELDS.get(j));
+            }
+            copies.add(new LinkageTest.DummyLXP(values));
+        }
+        return copies;
+    }
+
+    private String randomString() {
+
+        final StringBuilder builder = new StringBuilder();
+        for (int length = 1 + random.nextInt(6); length > 0; length--) {
+            builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return builder.toString();
+    }
+}
@@ -16,6 +16,7 @@
  */
 package uk.ac.standrews.cs.population_linkage;
 
+import org.junit.jupiter.api.Test;
 import uk.ac.standrews.cs.neoStorr.impl.LXP;
 import uk.ac.standrews.cs.neoStorr.interfaces.IStoreReference;
 import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
@@ -23,6 +24,13 @@ import uk.ac.standrews.cs.population_linkage.linkers.SimilaritySearchLinker;
 import uk.ac.standrews.cs.population_linkage.searchStructures.SearchStructureFactory;
 import uk.ac.standrews.cs.population_linkage.supportClasses.Link;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+
 public abstract class SimilaritySearchLinkageTest extends LinkageTest {
 
     @Override
@@ -37,6 +45,60 @@ public abstract class SimilaritySearchLinkageTest extends LinkageTest {
         return (link_id1.equals(id1) && link_id2.equals(id2)) || (link_id1.equals(id2) && link_id2.equals(id1));
     }
 
+    @Test
+    public void parallelLinksSameAsSequentialLinksWithSingleDataSet() throws Exception {
+
+        linker.setThreshold(4.0);
+        linker.addRecords(birth_records, birth_records);
+
+        checkParallelLinks();
+    }
+
+    @Test
+    public void parallelLinksSameAsSequentialLinksWithTwoDataSets() throws Exception {
+
+        linker.setThreshold(2.0);
+        linker.addRecords(birth_records, death_records);
+
+        checkParallelLinks();
+    }
+
+    @Test
+    public void closingParallelLinksEarlyStopsWorkers() throws Exception {
+
+        linker.setThreshold(4.0);
+        linker.addRecords(birth_records, birth_records);
+
+        // A queue holding a single result, so that the workers are blocked when the links are closed.
+        try (SimilaritySearchLinker.ParallelLinks parallel_links = ((SimilaritySearchLinker) linker).getLinksInParallel(3, 1, 1)) {
+
+            assertTrue(parallel_links.iterator().hasNext());
+        }
+
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("query-worker") || thread.getName().equals("query-feeder")) {
+
+                thread.join(1000); // a pool thread may still be exiting after its executor has terminated
+                assertFalse(thread.isAlive());
+            }
+        }
+    }
+
+    private void checkParallelLinks() throws Exception {
+
+        // Small shards and queue so that several workers and blocking on the queue are exercised.
+        final List<Link> parallel_links = new ArrayList<>();
+        try (SimilaritySearchLinker.ParallelLinks links = ((SimilaritySearchLinker) linker).getLinksInParallel(3, 1, 1)) {
+            for (Link link : links) parallel_links.add(link);
+        }
+
+        assertEquals(count(linker.getLinks()), parallel_links.size());
+
+        for (Link link : linker.getLinks()) {
+            assertTrue(containsPair(parallel_links, link.getRecord1().getReferend(), link.getRecord2().getReferend()));
+        }
+    }
+
      class TestLinker extends SimilaritySearchLinker {
 
         TestLinker(SearchStructureFactory<LXP> search_structure_factory, double threshold, LXPMeasure measure, int number_of_progress_updates) {
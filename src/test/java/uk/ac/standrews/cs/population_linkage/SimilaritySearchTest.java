@@ -23,6 +23,7 @@ import uk.ac.standrews.cs.utilities.measures.coreConcepts.DataDistance;
 import uk.ac.standrews.cs.utilities.measures.coreConcepts.Measure;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static junit.framework.TestCase.fail;
@@ -31,6 +32,7 @@ public abstract class SimilaritySearchTest {
 
     private static final double MAX_SIDE_OF_SQUARE = 10.0;
     private static final double MAX_THRESHOLD = 12.0;
+    private static final int[] NUMBERS_OF_NEIGHBOURS = {1, 2, 3, 5, 8};
 
     private Measure<Point> measure;
 
@@ -86,6 +88,65 @@ public abstract class SimilaritySearchTest {
         }
     }
 
+    @Test
+    public void nearestNeighbourSearchGivesClosestResultsIncludingTies() {
+
+        for (double side_of_square = 1.0; side_of_square <= MAX_SIDE_OF_SQUARE; side_of_square += 2) {
+            for (Point query : getQueryPoints()) {
+
+                List<Point> data_points = generatePointGrid(side_of_square);
+
+                for (int number_of_reference_points : getReferencePointsOptions(data_points.size())) {
+
+                    final List<Point> reference_points = getReferencePoints(data_points, number_of_reference_points);
+                    checkNearest(data_points, reference_points, query);
+                }
+            }
+        }
+    }
+
+    private void checkNearest(final List<Point> data_points, final List<Point> reference_points, final Point query) {
+
+        final SearchStructure<Point> search_structure = getSearchStructure(measure, data_points, reference_points);
+
+        for (int k : NUMBERS_OF_NEIGHBOURS) {
+
+            final List<DataDistance<Point>> results = search_structure.findNearest(query, k);
+
+            for (int i = 1; i < results.size(); i++) {
+                if (results.get(i - 1).distance > results.get(i).distance) {
+                    fail("results out of order for query: " + query + " k: " + k + " actual: " + print(getPoints(results)));
+                }
+            }
+
+            final List<Point> ground_truth = bruteForceNearest(data_points, query, k);
+            final List<Point> query_results = getPoints(results);
+
+            if (!checkSamePoints(ground_truth, query_results)) {
+
+                search_structure.terminate();
+                fail("mismatch for query: " + query + " k: " + k + " data points: " + print(data_points) + "\n" +
+                        "expected: " + print(ground_truth) + "\n" + "actual: " + print(query_results));
+            }
+        }
+
+        search_structure.terminate();
+    }
+
+    /**
+     * @return the k points closest to the query, together with any others at the same distance as the kth
+     */
+    private List<Point> bruteForceNearest(final List<Point> points, final Point query, final int k) {
+
+        if (points.size() <= k) return points;
+
+        List<Double> distances = new ArrayList<>();
+        for (Point point : points) distances.add(measure.distance(point, query));
+        Collections.sort(distances);
+
+        return bruteForceQuery(points, query, distances.get(k - 1));
+    }
+
     private List<Point> getQueryPoints() {
 
         List<Point> results = generatePointGrid(MAX_SIDE_OF_SQUARE);
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.compositeMeasures;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.cs.population_linkage.supportClasses.Constants;
+import uk.ac.standrews.cs.utilities.measures.coreConcepts.StringMeasure;
+
+import java.util.*;
+
+import static junit.framework.TestCase.*;
+
+public class CharacterDistributionsTest {
+
+    private static final double DELTA = 0.000000001;
+    private static final String ALPHABET = "abcdefg ";
+    private static final int MAX_OTHER_VALUES = 100;
+
+    private final Random random = new Random(5507);
+
+    @Test
+    public void distancesAgreeWithJensenShannon() {
+
+        checkAgreement(Constants.JENSEN_SHANNON, MAX_OTHER_VALUES);
+        checkAgreement(Constants.JENSEN_SHANNON, 0);
+    }
+
+    @Test
+    public void distancesAgreeWithSED() {
+
+        checkAgreement(Constants.SED, MAX_OTHER_VALUES);
+        checkAgreement(Constants.SED, 0);
+    }
+
+    @Test
+    public void notUsedForOtherMeasures() {
+
+        assertNull(CharacterDistributions.forMeasure(Constants.LEVENSHTEIN, Arrays.asList("a", "b"), MAX_OTHER_VALUES));
+        assertNull(CharacterDistributions.forMeasure(Constants.COSINE, Arrays.asList("a", "b"), MAX_OTHER_VALUES));
+    }
+
+    @Test
+    public void distributionsArePrecomputedForDistinctValues() {
+
+        final CharacterDistributions distributions = CharacterDistributions.forMeasure(Constants.JENSEN_SHANNON, Arrays.asList("john", "jon", "john", null), MAX_OTHER_VALUES);
+
+        assertNotNull(distributions);
+        assertEquals(2, distributions.size());
+    }
+
+    @Test
+    public void identicalValuesHaveZeroDistance() {
+
+        final CharacterDistributions distributions = CharacterDistributions.forMeasure(Constants.SED, Arrays.asList("john", "jon"), MAX_OTHER_VALUES);
+
+        assertEquals(0.0, distributions.distance("john", "john"), DELTA);
+        assertEquals(0.0, distributions.distance("aaaa", "aaaa"), DELTA);
+    }
+
+    @Test
+    public void otherValuesCachedUpToLimit() {
+
+        final CharacterDistributions distributions = CharacterDistributions.forMeasure(Constants.JENSEN_SHANNON, Arrays.asList("john", "jon"), MAX_OTHER_VALUES);
+
+        for (String value : randomStrings(10 * MAX_OTHER_VALUES)) {
+            assertEquals(Constants.JENSEN_SHANNON.distance("john", value), distributions.distance("john", value), DELTA);
+        }
+
+        assertEquals(2, distributions.size());
+        assertTrue(distributions.getNumberOfOtherValues() > 0);
+        assertTrue(distributions.getNumberOfOtherValues() <= MAX_OTHER_VALUES);
+    }
+
+    @Test
+    public void otherValuesNotCachedIfNoLimit() {
+
+        final CharacterDistributions distributions = CharacterDistributions.forMeasure(Constants.JENSEN_SHANNON, Arrays.asList("john", "jon"), 0);
+
+        assertEquals(Constants.JENSEN_SHANNON.distance("john", "joan"), distributions.distance("john", "joan"), DELTA);
+        assertEquals(0, distributions.getNumberOfOtherValues());
+    }
+
+    private void checkAgreement(final StringMeasure base_measure, final int max_other_values) {
+
+        final List<String> precomputed = randomStrings(50);
+        final CharacterDistributions distributions = CharacterDistributions.forMeasure(base_measure, precomputed, max_other_values);
+        assertNotNull(distributions);
+
+        // Values not precomputed, such as those of query records, values with repeated bigrams, and the empty value.
+        final List<String> others = randomStrings(20);
+        others.addAll(Arrays.asList("", "a", "aa", "aaaa", "abab", "abcabc", "ab ab"));
+
+        final List<String> values = new ArrayList<>(precomputed);
+        values.addAll(others);
+
+        for (String value1 : values) {
+            for (String value2 : values) {
+                assertEquals(value1 + " / " + value2, base_measure.distance(value1, value2), distributions.distance(value1, value2), DELTA);
+            }
+        }
+    }
+
+    private List<String> randomStrings(final int number_of_strings) {
+
+        final List<String> strings = new ArrayList<>();
+        for (int i = 0; i < number_of_strings; i++) {
+
+            final StringBuilder builder = new StringBuilder();
+            for (int length = 1 + random.nextInt(10); length > 0; length--) {
+                builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            strings.add(builder.toString());
+        }
+        return strings;
+    }
+}
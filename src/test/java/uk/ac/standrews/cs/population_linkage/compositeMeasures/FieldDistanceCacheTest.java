@@ -0,0 +1,153 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.compositeMeasures;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToDoubleBiFunction;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+public class FieldDistanceCacheTest {
+
+    private static final double DELTA = 0.0000001;
+
+    private AtomicInteger distances_calculated;
+
+    // Not symmetric, so that the order of the values in a cached entry can be checked.
+    private ToDoubleBiFunction<String, String> measure;
+
+    @BeforeEach
+    public void setup() {
+
+        distances_calculated = new AtomicInteger();
+        measure = (s1, s2) -> {
+            distances_calculated.incrementAndGet();
+            return length(s1) * 10 + length(s2);
+        };
+    }
+
+    @Test
+    public void cachedDistancesAreNotRecalculated() {
+
+        final FieldDistanceCache cache = new FieldDistanceCache("test", measure, false, 1000);
+
+        assertEquals(12.0, cache.distance("a", "bb"), DELTA);
+        assertEquals(12.0, cache.distance("a", "bb"), DELTA);
+        assertEquals(21.0, cache.distance("bb", "a"), DELTA);
+        assertEquals(21.0, cache.distance("bb", "a"), DELTA);
+
+        assertEquals(2, distances_calculated.get());
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate(), DELTA);
+    }
+
+    @Test
+    public void symmetricCacheSharesEntryForBothOrders() {
+
+        final FieldDistanceCache cache = new FieldDistanceCache("test", measure, true, 1000);
+
+        final double distance = cache.distance("bb", "a");
+        assertEquals(distance, cache.distance("a", "bb"), DELTA);
+        assertEquals(distance, cache.distance("bb", "a"), DELTA);
+
+        assertEquals(1, distances_calculated.get());
+    }
+
+    @Test
+    public void nullValuesAreCached() {
+
+        final FieldDistanceCache cache = new FieldDistanceCache("test", measure, true, 1000);
+
+        assertEquals(1.0, cache.distance(null, "a"), DELTA);
+        assertEquals(1.0, cache.distance(null, "a"), DELTA);
+        assertEquals(10.0, cache.distance("a", null), DELTA);
+        assertEquals(0.0, cache.distance(null, null), DELTA);
+
+        assertEquals(3, distances_calculated.get());
+    }
+
+    @Test
+    public void cacheHoldsAtMostMaximumSize() {
+
+        final int max_size = 128;
+        final int number_of_values = 1000;
+        final FieldDistanceCache cache = new FieldDistanceCache("test", measure, false, max_size);
+
+        for (int i = 0; i < number_of_values; i++) {
+            cache.distance(String.valueOf(i), "x");
+        }
+        assertEquals(number_of_values, distances_calculated.get());
+
+        for (int i = 0; i < number_of_values; i++) {
+            assertEquals(length(String.valueOf(i)) * 10 + 1.0, cache.distance(String.valueOf(i), "x"), DELTA);
+        }
+        assertTrue(cache.getHits() <= max_size);
+    }
+
+    @Test
+    public void smallestCacheStillHoldsLastDistance() {
+
+        final FieldDistanceCache cache = new FieldDistanceCache("test", measure, false, 1);
+
+        // With one entry per segment, the most recent lookup in each segment is kept.
+        cache.distance("a", "b");
+        cache.distance("a", "b");
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void cacheGivesCorrectDistancesWhenShared() throws Exception {
+
+        final FieldDistanceCache cache = new FieldDistanceCache("test", measure, false, 64);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            final List<Future<Boolean>> results = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                final int seed = thread;
+                results.add(executor.submit(() -> {
+                    final ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 10000; i++) {
+                        final String value1 = "v".repeat(random.nextInt(20));
+                        final String value2 = "w".repeat((random.nextInt(20) + seed) % 20);
+                        if (cache.distance(value1, value2) != length(value1) * 10 + length(value2)) return false;
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(80000, cache.getHits() + cache.getMisses());
+    }
+
+    private static int length(final String s) {
+        return s == null ? 0 : s.length();
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.endToEnd.builders;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Checks the scheduling of stages by LinkageOrchestrator, with the builders replaced by stub actions that record
+ * when they start and finish.
+ */
+public class LinkageOrchestratorTest {
+
+    private static final String[] ARGS = {"repository", "EVERYTHING"};
+    private static final String RELATIONSHIP_INDICES = "Relationship indices";
+    private static final String GT_INDICES = "GT indices";
+
+    // Builders creating relationships between the same types of record.
+    private static final List<List<Class<?>>> BUILDERS_BY_RECORD_TYPES = Arrays.asList(
+            Arrays.asList(BirthSiblingBundleBuilder.class),
+            Arrays.asList(BirthOwnDeathBuilder.class, BirthDeathSiblingBundleBuilder.class),
+            Arrays.asList(BirthBrideOwnMarriageBuilder.class, BirthGroomOwnMarriageBuilder.class, BirthParentsMarriageBuilder.class,
+                    BirthBrideSiblingBundleBuilder.class, BirthGroomSiblingBundleBuilder.class),
+            Arrays.asList(DeathGroomOwnMarriageBuilder.class, DeathBrideOwnMarriageBuilder.class, DeathBrideSiblingBundleBuilder.class,
+                    DeathGroomSiblingBundleBuilder.class),
+            Arrays.asList(GroomGroomSiblingBuilder.class, BrideBrideSiblingBuilder.class, BrideGroomSiblingBuilder.class,
+                    BrideBrideIdentityBuilder.class, GroomGroomIdentityBuilder.class, BrideMarriageParentsMarriageBuilder.class,
+                    GroomMarriageParentsMarriageBuilder.class),
+            Arrays.asList(DeathSiblingBundleBuilder.class));
+
+    private final AtomicInteger clock = new AtomicInteger();
+    private final Map<String, Integer> start_times = new ConcurrentHashMap<>();
+    private final Map<String, Integer> finish_times = new ConcurrentHashMap<>();
+    private final Set<String> failing = new HashSet<>();
+
+    @Test
+    public void stagesRunAfterTheirDependencies() throws InterruptedException {
+
+        final LinkageOrchestrator orchestrator = newOrchestrator()
+                .addOptionalStage("a", null, ARGS)
+                .addOptionalStage("b", null, ARGS, "a")
+                .addOptionalStage("c", null, ARGS, "a")
+                .addOptionalStage("d", null, ARGS, "b", "c")
+                .addOptionalStage("e", null, ARGS);
+
+        orchestrator.run(3);
+
+        for (String stage : orchestrator.getStageNames()) {
+            assertEquals(LinkageOrchestrator.Status.FINISHED, orchestrator.getStatus(stage));
+            for (String dependency : orchestrator.getDependencies(stage)) {
+                assertRunsAfter(stage, dependency);
+            }
+        }
+    }
+
+    @Test
+    public void allEndToEndStagesRun() throws InterruptedException {
+
+        final LinkageOrchestrator orchestrator = newOrchestrator().addEndToEndStages(ARGS);
+        orchestrator.run(4);
+
+        int number_of_builders = 0;
+        for (List<Class<?>> builders : BUILDERS_BY_RECORD_TYPES) number_of_builders += builders.size();
+
+        assertEquals(number_of_builders + 2, orchestrator.getStageNames().size());
+        for (String stage : orchestrator.getStageNames()) {
+            assertEquals(stage, LinkageOrchestrator.Status.FINISHED, orchestrator.getStatus(stage));
+        }
+    }
+
+    @Test
+    public void buildersRunAfterIndices() throws InterruptedException {
+
+        final LinkageOrchestrator orchestrator = newOrchestrator().addEndToEndStages(ARGS);
+        orchestrator.run(4);
+
+        assertRunsAfter(GT_INDICES, RELATIONSHIP_INDICES);
+
+        for (List<Class<?>> builders : BUILDERS_BY_RECORD_TYPES) {
+            for (Class<?> builder : builders) {
+                assertRunsAfter(builder.getName(), GT_INDICES);
+            }
+        }
+    }
+
+    @Test
+    public void buildersSharingRecordTypesDoNotOverlap() throws InterruptedException {
+
+        // More threads than chains, so that only the dependencies can keep builders of the same chain apart.
+        final LinkageOrchestrator orchestrator = newOrchestrator().addEndToEndStages(ARGS);
+        orchestrator.run(BUILDERS_BY_RECORD_TYPES.size() + 2);
+
+        for (List<Class<?>> builders : BUILDERS_BY_RECORD_TYPES) {
+            for (int i = 1; i < builders.size(); i++) {
+
+                // Each builder of a chain depends directly on the one before it.
+                assertEquals(Collections.singletonList(builders.get(i - 1).getName()), orchestrator.getDependencies(builders.get(i).getName()));
+                assertRunsAfter(builders.get(i).getName(), builders.get(i - 1).getName());
+            }
+        }
+    }
+
+    @Test
+    public void failedIndexStagesDoNotBlockBuilders() throws InterruptedException {
+
+        failing.add(RELATIONSHIP_INDICES);
+        failing.add(GT_INDICES);
+
+        final LinkageOrchestrator orchestrator = newOrchestrator().addEndToEndStages(ARGS);
+        orchestrator.run(4);
+
+        assertEquals(LinkageOrchestrator.Status.FAILED, orchestrator.getStatus(RELATIONSHIP_INDICES));
+        assertEquals(LinkageOrchestrator.Status.FAILED, orchestrator.getStatus(GT_INDICES));
+
+        for (List<Class<?>> builders : BUILDERS_BY_RECORD_TYPES) {
+            for (Class<?> builder : builders) {
+                assertEquals(LinkageOrchestrator.Status.FINISHED, orchestrator.getStatus(builder.getName()));
+            }
+        }
+    }
+
+    @Test
+    public void failedBuilderSkipsRestOfItsChainOnly() throws InterruptedException {
+
+        failing.add(BirthParentsMarriageBuilder.class.getName());
+
+        final LinkageOrchestrator orchestrator = newOrchestrator().addEndToEndStages(ARGS);
+        orchestrator.run(4);
+
+        assertEquals(LinkageOrchestrator.Status.FINISHED, orchestrator.getStatus(BirthGroomOwnMarriageBuilder.class.getName()));
+        assertEquals(LinkageOrchestrator.Status.FAILED, orchestrator.getStatus(BirthParentsMarriageBuilder.class.getName()));
+
+        // Skipped transitively down the chain, and never started.
+        for (Class<?> builder : Arrays.asList(BirthBrideSiblingBundleBuilder.class, BirthGroomSiblingBundleBuilder.class)) {
+            assertEquals(LinkageOrchestrator.Status.SKIPPED, orchestrator.getStatus(builder.getName()));
+            assertTrue(!start_times.containsKey(builder.getName()));
+        }
+
+        for (Class<?> builder : Arrays.asList(BirthSiblingBundleBuilder.class, DeathGroomSiblingBundleBuilder.class, GroomMarriageParentsMarriageBuilder.class)) {
+            assertEquals(LinkageOrchestrator.Status.FINISHED, orchestrator.getStatus(builder.getName()));
+        }
+    }
+
+    @Test
+    public void failedStageBlocksDependentsOnlyIfRequired() throws InterruptedException {
+
+        failing.add(String.class.getName());
+        failing.add("optional");
+
+        final LinkageOrchestrator orchestrator = newOrchestrator()
+                .addStage(String.class, null, ARGS)
+                .addStage(Integer.class, null, ARGS, String.class.getName())
+                .addStage(Long.class, null, ARGS, Integer.class.getName())
+                .addOptionalStage("optional", null, ARGS)
+                .addOptionalStage("after optional", null, ARGS, "optional");
+
+        orchestrator.run(2);
+
+        assertEquals(LinkageOrchestrator.Status.FAILED, orchestrator.getStatus(String.class.getName()));
+        assertEquals(LinkageOrchestrator.Status.SKIPPED, orchestrator.getStatus(Integer.class.getName()));
+        assertEquals(LinkageOrchestrator.Status.SKIPPED, orchestrator.getStatus(Long.class.getName()));
+        assertEquals(LinkageOrchestrator.Status.FAILED, orchestrator.getStatus("optional"));
+        assertEquals(LinkageOrchestrator.Status.FINISHED, orchestrator.getStatus("after optional"));
+    }
+
+    private LinkageOrchestrator newOrchestrator() {
+
+        return new LinkageOrchestrator((name, action) -> args -> {
+
+            start_times.put(name, clock.incrementAndGet());
+            Thread.sleep(5);
+            finish_times.put(name, clock.incrementAndGet());
+
+            if (failing.contains(name)) throw new RuntimeException("stage failed: " + name);
+        });
+    }
+
+    private void assertRunsAfter(final String stage, final String dependency) {
+
+        assertTrue(stage + " started before " + dependency + " finished", start_times.get(stage) > finish_times.get(dependency));
+    }
+}
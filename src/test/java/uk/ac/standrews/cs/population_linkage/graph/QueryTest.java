@@ -0,0 +1,73 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.graph;
+
+import org.junit.jupiter.api.Test;
+import org.neo4j.driver.exceptions.TransientException;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.fail;
+
+public class QueryTest {
+
+    private int attempts;
+
+    @Test
+    public void writeRetriedAfterTransientFailure() throws InterruptedException {
+
+        attempts = 0;
+        final int created = Query.writeWithRetry(() -> {
+            if (++attempts < 3) throw new TransientException("Neo.TransientError.Transaction.DeadlockDetected", "deadlock");
+            return 7;
+        }, 5, 0);
+
+        assertEquals(7, created);
+        assertEquals(3, attempts);
+    }
+
+    @Test
+    public void transientFailureRethrownAfterLastAttempt() throws InterruptedException {
+
+        attempts = 0;
+        try {
+            Query.writeWithRetry(() -> {
+                attempts++;
+                throw new TransientException("Neo.TransientError.Transaction.DeadlockDetected", "deadlock");
+            }, 5, 0);
+            fail("expected transient failure to be rethrown");
+
+        } catch (TransientException e) {
+            assertEquals(5, attempts);
+        }
+    }
+
+    @Test
+    public void otherFailuresNotRetried() throws InterruptedException {
+
+        attempts = 0;
+        try {
+            Query.writeWithRetry(() -> {
+                attempts++;
+                throw new IllegalStateException("constraint violated");
+            }, 5, 0);
+            fail("expected failure to be rethrown");
+
+        } catch (IllegalStateException e) {
+            assertEquals(1, attempts);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.groundTruth;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static junit.framework.TestCase.*;
+
+public class StratifiedPairSamplingTest {
+
+    private static final long SEED = 34553543456223L;
+    private static final int NUMBER_OF_NEGATIVES = 100000;
+    private static final double WIDTH = 0.05;
+
+    @Test
+    public void invalidSamplingRatesRejected() {
+
+        for (final double rate : new double[]{0d, -0.5, 1.01}) {
+            try {
+                new StratifiedPairSampling(rate, WIDTH);
+                fail("rate accepted: " + rate);
+            } catch (RuntimeException e) {
+                // Expected.
+            }
+        }
+    }
+
+    @Test
+    public void noSamplingIncludesAllNegativesWithoutWeighting() {
+
+        final StratifiedPairSampling sampling = new StratifiedPairSampling(1d, WIDTH);
+        final Random random = StratifiedPairSampling.getRandom(SEED, 0, 0);
+
+        assertFalse(sampling.samplesNegatives());
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(sampling.includeNegative(random));
+        }
+        assertEquals(0, sampling.weightNegatives(0));
+        assertEquals(1234, sampling.weightNegatives(1234));
+    }
+
+    @Test
+    public void negativesWeightedByInverseSamplingRate() {
+
+        assertEquals(12, new StratifiedPairSampling(0.25, WIDTH).weightNegatives(3));
+        assertEquals(1000, new StratifiedPairSampling(0.01, WIDTH).weightNegatives(10));
+        assertEquals(3, new StratifiedPairSampling(0.3, WIDTH).weightNegatives(1));
+    }
+
+    @Test
+    public void weightedSampleEstimatesNumberOfNegatives() {
+
+        for (final double rate : new double[]{0.5, 0.1, 0.02}) {
+
+            final StratifiedPairSampling sampling = new StratifiedPairSampling(rate, WIDTH);
+            final Random random = StratifiedPairSampling.getRandom(SEED, 0, 0);
+
+            long sampled = 0;
+            for (int i = 0; i < NUMBER_OF_NEGATIVES; i++) {
+                if (sampling.includeNegative(random)) sampled++;
+            }
+
+            assertEquals(rate, (double) sampled / NUMBER_OF_NEGATIVES, 0.01);
+            assertEquals(NUMBER_OF_NEGATIVES, sampling.weightNegatives(sampled), NUMBER_OF_NEGATIVES * 0.05);
+        }
+    }
+
+    @Test
+    public void samplingDecisionsDeterministicPerRecord() {
+
+        final StratifiedPairSampling sampling = new StratifiedPairSampling(0.5, WIDTH);
+
+        assertEquals(decisions(sampling, SEED, 2, 7), decisions(sampling, SEED, 2, 7));
+        assertFalse(decisions(sampling, SEED, 2, 7).equals(decisions(sampling, SEED, 2, 8)));
+        assertFalse(decisions(sampling, SEED, 2, 7).equals(decisions(sampling, SEED, 3, 7)));
+    }
+
+    @Test
+    public void withoutNegativeSamplingKeepsWidth() {
+
+        final StratifiedPairSampling sampling = new StratifiedPairSampling(0.1, WIDTH);
+        final StratifiedPairSampling unsampled = sampling.withoutNegativeSampling();
+
+        assertFalse(unsampled.samplesNegatives());
+        assertEquals(1d, unsampled.getNegativeSamplingRate(), 0d);
+        assertEquals(WIDTH, unsampled.getConfidenceIntervalWidth(), 0d);
+        assertTrue(unsampled.stopsEarly());
+        assertSame(unsampled, unsampled.withoutNegativeSampling());
+    }
+
+    @Test
+    public void neverConvergesWithoutWidth() {
+
+        final StratifiedPairSampling sampling = new StratifiedPairSampling(1d, 0d);
+
+        assertFalse(sampling.stopsEarly());
+        assertFalse(sampling.isConverged(1000000, 10, 10));
+    }
+
+    @Test
+    public void convergesWithEnoughCounts() {
+
+        final StratifiedPairSampling sampling = new StratifiedPairSampling(1d, WIDTH);
+
+        assertFalse(sampling.isConverged(5, 5, 5));
+        assertTrue(sampling.isConverged(10000, 100, 100));
+    }
+
+    @Test
+    public void convergenceMonotonicInCounts() {
+
+        final StratifiedPairSampling sampling = new StratifiedPairSampling(0.1, WIDTH);
+
+        boolean converged = false;
+        for (long k = 1; k <= 10000; k++) {
+
+            final boolean converged_now = sampling.isConverged(9 * k, k, k);
+            if (converged) assertTrue("not converged at " + k, converged_now);
+            converged = converged_now;
+        }
+        assertTrue(converged);
+    }
+
+    @Test
+    public void weightingWidensPrecisionInterval() {
+
+        // 10 sampled false positives at rate 0.01 estimate 1000 over all pairs, halving precision.
+        assertTrue(new StratifiedPairSampling(1d, WIDTH).isConverged(1000, 10, 10));
+        assertFalse(new StratifiedPairSampling(0.01, WIDTH).isConverged(1000, 10, 10));
+    }
+
+    @Test
+    public void noLinksDoesNotPreventConvergence() {
+
+        final StratifiedPairSampling sampling = new StratifiedPairSampling(0.1, WIDTH);
+
+        assertTrue(sampling.isConverged(0, 0, 2000));
+    }
+
+    @Test
+    public void recallNeedsTrueLinks() {
+
+        final StratifiedPairSampling sampling = new StratifiedPairSampling(0.1, WIDTH);
+
+        assertFalse(sampling.isConverged(0, 0, 0));
+        assertFalse(sampling.isConverged(0, 1000, 0));
+    }
+
+    private static String decisions(final StratifiedPairSampling sampling, final long seed, final int run_number, final int record_index) {
+
+        final Random random = StratifiedPairSampling.getRandom(seed, run_number, record_index);
+        final StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < 100; i++) {
+            builder.append(sampling.includeNegative(random) ? '1' : '0');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.groundTruth;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.cs.neoStorr.impl.LXP;
+import uk.ac.standrews.cs.population_linkage.characterisation.LinkStatus;
+import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
+import uk.ac.standrews.cs.population_records.RecordRepository;
+import uk.ac.standrews.cs.population_records.record_types.Birth;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static junit.framework.TestCase.*;
+
+/**
+ * Checks the TP, FP, FN and TN counts that a run records at each threshold, after each block of records, against
+ * counts found directly from the link decision for every pair of records.
+ */
+public class ThresholdAnalysisTest {
+
+    private static final int NUMBER_OF_RECORDS = 200; // Two blocks.
+    private static final int NUMBER_OF_THRESHOLDS = 101;
+    private static final String[] IDENTITIES = {"", "a", "b", "c", "d"};
+
+    // Distances on the thresholds, to check that a link at exactly a threshold is counted at that threshold.
+    private static final LXPMeasure ON_THRESHOLDS = new LXPMeasure() {
+
+        @Override
+        public String getMeasureName() {
+            return "on thresholds";
+        }
+
+        @Override
+        public boolean maxDistanceIsOne() {
+            return true;
+        }
+
+        @Override
+        public double calculateDistance(final LXP x, final LXP y) {
+            return Math.abs(value(x) - value(y)) / 100d;
+        }
+    };
+
+    // Distances between the thresholds.
+    private static final LXPMeasure BETWEEN_THRESHOLDS = new LXPMeasure() {
+
+        @Override
+        public String getMeasureName() {
+            return "between thresholds";
+        }
+
+        @Override
+        public boolean maxDistanceIsOne() {
+            return true;
+        }
+
+        @Override
+        public double calculateDistance(final LXP x, final LXP y) {
+            return ((value(x) * 31 + value(y) * 17) % 1000) / 999d;
+        }
+    };
+
+    private static final List<LXPMeasure> MEASURES = List.of(ON_THRESHOLDS, BETWEEN_THRESHOLDS);
+
+    private final List<LXP> records = makeRecords(new Random(2398));
+
+    @Test
+    public void multipleLinkCountsSameAsPairwiseDecisions() {
+
+        final TestAnalysis analysis = new TestAnalysis(true, false);
+        analysis.runOnce(records);
+
+        assertEquals(expectedSamples(true), analysis.samples);
+    }
+
+    @Test
+    public void singleLinkCountsSameAsClosestViableRecord() {
+
+        final TestAnalysis analysis = new TestAnalysis(false, false);
+        analysis.runOnce(records);
+
+        assertEquals(expectedSamples(false), analysis.samples);
+    }
+
+    @Test
+    public void distanceCountsIncludeEveryEvaluatedPair() {
+
+        final TestAnalysis analysis = new TestAnalysis(true, true);
+        analysis.runOnce(records);
+
+        assertEquals(expectedSamples(true), analysis.samples);
+        assertEquals(expectedDistances(), analysis.distances);
+    }
+
+    /**
+     * @return for each block, measure and threshold: the numbers of pairs evaluated and ignored, and the TP, FP, FN and TN counts
+     */
+    private Map<String, List<Long>> expectedSamples(final boolean allow_multiple_links) {
+
+        final Map<String, List<Long>> samples = new HashMap<>();
+
+        for (int records_processed = 100; records_processed <= NUMBER_OF_RECORDS; records_processed += 100) {
+            for (LXPMeasure measure : MEASURES) {
+
+                long pairs_evaluated = 0;
+                long pairs_ignored = 0;
+                long true_links = 0;
+                final long[] tp = new long[NUMBER_OF_THRESHOLDS];
+                final long[] fp = new long[NUMBER_OF_THRESHOLDS];
+
+                for (int i = 0; i < records_processed; i++) {
+
+                    // For single links, the record linked is the last that was viable and closer than all those before it.
+                    double closest_distance = Double.POSITIVE_INFINITY;
+                    double link_distance = Double.NaN;
+                    boolean link_is_true_link = false;
+
+                    for (int j = 0; j < NUMBER_OF_RECORDS; j++) {
+
+                        if (i == j) continue;
+
+                        final LinkStatus status = isTrueMatch(records.get(i), records.get(j));
+                        final boolean viable = isViableLink(records.get(i), records.get(j));
+                        final double distance = measure.distance(records.get(i), records.get(j));
+
+                        if (status == LinkStatus.UNKNOWN) {
+                            pairs_ignored++;
+                        } else {
+                            pairs_evaluated++;
+                            if (status == LinkStatus.TRUE_MATCH) true_links++;
+
+                            if (allow_multiple_links && viable) {
+                                for (int t = 0; t < NUMBER_OF_THRESHOLDS; t++) {
+                                    if (distance <= threshold(t)) (status == LinkStatus.TRUE_MATCH ? tp : fp)[t]++;
+                                }
+                            }
+                            if (!allow_multiple_links && viable && distance < closest_distance) {
+                                link_distance = distance;
+                                link_is_true_link = status == LinkStatus.TRUE_MATCH;
+                            }
+                        }
+                        closest_distance = Math.min(closest_distance, distance);
+                    }
+
+                    if (!allow_multiple_links) {
+                        for (int t = 0; t < NUMBER_OF_THRESHOLDS; t++) {
+                            if (link_distance <= threshold(t)) (link_is_true_link ? tp : fp)[t]++;
+                        }
+                    }
+                }
+
+                for (int t = 0; t < NUMBER_OF_THRESHOLDS; t++) {
+                    samples.put(key(records_processed, measure.getMeasureName(), t),
+                            List.of(pairs_evaluated, pairs_ignored, tp[t], fp[t], true_links - tp[t], pairs_evaluated - true_links - fp[t]));
+                }
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * @return for each block, measure and whether true links: the number of evaluated pairs with distances in each interval of 0.01
+     */
+    private Map<String, List<Long>> expectedDistances() {
+
+        final Map<String, List<Long>> distances = new HashMap<>();
+
+        for (int records_processed = 100; records_processed <= NUMBER_OF_RECORDS; records_processed += 100) {
+            for (LXPMeasure measure : MEASURES) {
+
+                final long[] link_counts = new long[NUMBER_OF_THRESHOLDS];
+                final long[] non_link_counts = new long[NUMBER_OF_THRESHOLDS];
+
+                for (int i = 0; i < records_processed; i++) {
+                    for (int j = 0; j < NUMBER_OF_RECORDS; j++) {
+
+                        final LinkStatus status = isTrueMatch(records.get(i), records.get(j));
+
+                        if (i != j && status != LinkStatus.UNKNOWN) {
+
+                            final int interval = (int) (measure.distance(records.get(i), records.get(j)) * 100 + 0.00001);
+                            (status == LinkStatus.TRUE_MATCH ? link_counts : non_link_counts)[interval]++;
+                        }
+                    }
+                }
+
+                distances.put(key(records_processed, measure.getMeasureName(), true), toList(link_counts));
+                distances.put(key(records_processed, measure.getMeasureName(), false), toList(non_link_counts));
+            }
+        }
+        return distances;
+    }
+
+    private static LinkStatus isTrueMatch(final LXP record1, final LXP record2) {
+
+        final String identity1 = record1.getString(Birth.CHILD_IDENTITY);
+        final String identity2 = record2.getString(Birth.CHILD_IDENTITY);
+
+        if (identity1.isEmpty() || identity2.isEmpty()) return LinkStatus.UNKNOWN;
+        return identity1.equals(identity2) ? LinkStatus.TRUE_MATCH : LinkStatus.NOT_TRUE_MATCH;
+    }
+
+    private static boolean isViableLink(final LXP record1, final LXP record2) {
+
+        return !(record1.getString(Birth.SEX).equals("M") && record2.getString(Birth.SEX).equals("M"));
+    }
+
+    private static int value(final LXP record) {
+        return Integer.parseInt(record.getString(Birth.BIRTH_YEAR));
+    }
+
+    private static double threshold(final int index) {
+        return index / (double) (NUMBER_OF_THRESHOLDS - 1);
+    }
+
+    private static String key(final int records_processed, final String measure_name, final Object detail) {
+        return records_processed + "/" + measure_name + "/" + detail;
+    }
+
+    private static List<Long> toList(final long[] counts) {
+
+        final List<Long> list = new ArrayList<>();
+        for (long count : counts) list.add(count);
+        return list;
+    }
+
+    private static List<LXP> makeRecords(final Random random) {
+
+        final List<LXP> records = new ArrayList<>();
+
+        for (int i = 0; i < NUMBER_OF_RECORDS; i++) {
+
+            final Birth record = new Birth();
+            record.put(Birth.CHILD_IDENTITY, IDENTITIES[random.nextInt(IDENTITIES.length)]);
+            record.put(Birth.SEX, random.nextBoolean() ? "M" : "F");
+            record.put(Birth.BIRTH_YEAR, String.valueOf(random.nextInt(101)));
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * Collects the samples and distance counts recorded, rather than writing them to files.
+     */
+    private static class TestAnalysis extends ThresholdAnalysis {
+
+        final Map<String, List<Long>> samples = new HashMap<>();
+        final Map<String, List<Long>> distances = new HashMap<>();
+
+        private final boolean record_link_distances;
+
+        TestAnalysis(final boolean allow_multiple_links, final boolean record_link_distances) {
+
+            super(NUMBER_OF_RECORDS, allow_multiple_links);
+            this.record_link_distances = record_link_distances;
+        }
+
+        void runOnce(final List<LXP> records) {
+
+            final ForkJoinPool pool = new ForkJoinPool(4);
+            try {
+                pool.invoke(new Run(0, records, records));
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        @Override
+        synchronized void recordSample(final int run_number, final String measure_name, final int records_processed, final long pairs_evaluated, final long pairs_ignored, final double threshold, final Sample sample) {
+
+            final int threshold_index = (int) Math.round(threshold * (NUMBER_OF_THRESHOLDS - 1));
+            samples.put(key(records_processed, measure_name, threshold_index), List.of(pairs_evaluated, pairs_ignored, sample.tp, sample.fp, sample.fn, sample.tn));
+        }
+
+        @Override
+        void recordDistances(final int run_number, final String measure_name, final int records_processed, final long pairs_evaluated, final long pairs_ignored, final long[] non_link_distance_counts, final long[] link_distance_counts) {
+
+            distances.put(key(records_processed, measure_name, true), toList(link_distance_counts));
+            distances.put(key(records_processed, measure_name, false), toList(non_link_distance_counts));
+        }
+
+        @Override
+        public List<Integer> getComparisonFields() {
+            return List.of(Birth.BIRTH_YEAR);
+        }
+
+        @Override
+        public String getDatasetName() {
+            return "test";
+        }
+
+        @Override
+        public String getLinkageType() {
+            return "test";
+        }
+
+        @Override
+        public Iterable<LXP> getSourceRecords1(final RecordRepository record_repository) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Iterable<LXP> getSourceRecords2(final RecordRepository record_repository) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean singleSource() {
+            return true;
+        }
+
+        @Override
+        public LinkStatus isTrueMatch(final LXP record1, final LXP record2) {
+            return ThresholdAnalysisTest.isTrueMatch(record1, record2);
+        }
+
+        @Override
+        public boolean isViableLink(final LXP record1, final LXP record2) {
+            return ThresholdAnalysisTest.isViableLink(record1, record2);
+        }
+
+        @Override
+        public List<LXPMeasure> getCombinedMeasures() {
+            return MEASURES;
+        }
+
+        @Override
+        protected double getNormalisationCutoff() {
+            return 0;
+        }
+
+        @Override
+        protected boolean recordLinkDistances() {
+            return record_link_distances;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.groundTruth.groundTruthNeoLinks;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.cs.population_linkage.groundTruth.groundTruthNeoLinks.CreateGTLinks.GTRelationship;
+import uk.ac.standrews.cs.population_linkage.groundTruth.groundTruthNeoLinks.CreateGTLinks.Node;
+
+import java.util.*;
+import java.util.function.BiPredicate;
+
+import static junit.framework.TestCase.*;
+
+public class CreateGTLinksTest {
+
+    private static final int NUMBER_OF_RANDOM_DATA_SETS = 50;
+    private static final int RECORDS_PER_TYPE = 15;
+
+    // Values are drawn from a small pool so that many records share identities, and include null for absent properties.
+    private static final String[] VALUES = {null, "", "1", "2", "3"};
+
+    private static final String[] TYPES = {"Birth", "Death", "Marriage"};
+    private static final int[] NUMBERS_OF_FIELDS = {3, 3, 6};
+
+    private static final BiPredicate<Node, Node> DIFFERENT_RECORDS = (a, b) -> a != b;
+
+    /**
+     * The WHERE clauses of the Cypher queries that previously created the links, one per relationship type and actors.
+     * The comparisons follow Cypher's treatment of null: a comparison with null is never true, so {@code x <> ""} and
+     * {@code x = ""} are both false for a null x. None of the NOT clauses can see a null, since every field they compare
+     * is first checked to be {@code <> ""}.
+     */
+    private static final List<OldQuery> OLD_QUERIES = List.of(
+
+            // Birth - Birth
+            new OldQuery("GT_ID Child-Father", "Birth", "Birth", true, same("CHILD_IDENTITY", "FATHER_IDENTITY")),
+            new OldQuery("GT_ID Child-Mother", "Birth", "Birth", true, same("CHILD_IDENTITY", "MOTHER_IDENTITY")),
+            new OldQuery("GT_SIBLING Child-Child", "Birth", "Birth", false, DIFFERENT_RECORDS.and(sameParents("MOTHER_IDENTITY", "FATHER_IDENTITY", "MOTHER_IDENTITY", "FATHER_IDENTITY"))),
+            new OldQuery("GT_HALF_SIBLING Child-Child", "Birth", "Birth", false, DIFFERENT_RECORDS.and(
+                    halfParents("MOTHER_IDENTITY", "FATHER_IDENTITY", "MOTHER_IDENTITY", "FATHER_IDENTITY")
+                            .or(same("FATHER_IDENTITY", "FATHER_IDENTITY").and(blank("MOTHER_IDENTITY", "MOTHER_IDENTITY")))
+                            .or(same("MOTHER_IDENTITY", "MOTHER_IDENTITY").and(blank("FATHER_IDENTITY", "FATHER_IDENTITY"))))),
+
+            // Birth - Death
+            new OldQuery("GT_ID Child-Deceased", "Birth", "Death", false, same("CHILD_IDENTITY", "DECEASED_IDENTITY")),
+            new OldQuery("GT_SIBLING Child-Deceased", "Birth", "Death", false, sameParents("MOTHER_IDENTITY", "FATHER_IDENTITY", "MOTHER_IDENTITY", "FATHER_IDENTITY").and(notEqual("CHILD_IDENTITY", "DECEASED_IDENTITY"))),
+            new OldQuery("GT_HALF_SIBLING Child-Deceased", "Birth", "Death", false, halfParents("MOTHER_IDENTITY", "FATHER_IDENTITY", "MOTHER_IDENTITY", "FATHER_IDENTITY")),
+
+            // Birth - Marriage
+            new OldQuery("GT_ID Child-Groom", "Birth", "Marriage", false, same("CHILD_IDENTITY", "GROOM_IDENTITY")),
+            new OldQuery("GT_ID Child-Bride", "Birth", "Marriage", false, same("CHILD_IDENTITY", "BRIDE_IDENTITY")),
+            new OldQuery("GT_ID Father-Groom", "Birth", "Marriage", false, same("FATHER_IDENTITY", "GROOM_IDENTITY")),
+            new OldQuery("GT_ID Mother-Bride", "Birth", "Marriage", false, same("MOTHER_IDENTITY", "BRIDE_IDENTITY")),
+            new OldQuery("GT_ID Child-Couple", "Birth", "Marriage", false, sameParents("MOTHER_IDENTITY", "FATHER_IDENTITY", "BRIDE_IDENTITY", "GROOM_IDENTITY")),
+            // The old query merged from an unbound (b) rather than (d), so this is the link it was meant to create.
+            new OldQuery("GT_ID Deceased-Couple", "Death", "Marriage", false, sameParents("MOTHER_IDENTITY", "FATHER_IDENTITY", "BRIDE_IDENTITY", "GROOM_IDENTITY")),
+            new OldQuery("GT_SIBLING Child-Groom", "Birth", "Marriage", false, sameParents("MOTHER_IDENTITY", "FATHER_IDENTITY", "GROOM_MOTHER_IDENTITY", "GROOM_FATHER_IDENTITY").and(notEqual("CHILD_IDENTITY", "GROOM_IDENTITY"))),
+            new OldQuery("GT_SIBLING Child-Bride", "Birth", "Marriage", false, sameParents("MOTHER_IDENTITY", "FATHER_IDENTITY", "BRIDE_MOTHER_IDENTITY", "BRIDE_FATHER_IDENTITY").and(notEqual("CHILD_IDENTITY", "BRIDE_IDENTITY"))),
+
+            // Death - Marriage
+            new OldQuery("GT_ID Deceased-Groom", "Death", "Marriage", false, same("DECEASED_IDENTITY", "GROOM_IDENTITY")),
+            new OldQuery("GT_ID Deceased-Bride", "Death", "Marriage", false, same("DECEASED_IDENTITY", "BRIDE_IDENTITY")),
+            new OldQuery("GT_SIBLING Deceased-Groom", "Death", "Marriage", false, sameParents("MOTHER_IDENTITY", "FATHER_IDENTITY", "GROOM_MOTHER_IDENTITY", "GROOM_FATHER_IDENTITY").and(notEqual("DECEASED_IDENTITY", "GROOM_IDENTITY"))),
+            new OldQuery("GT_SIBLING Deceased-Bride", "Death", "Marriage", false, sameParents("MOTHER_IDENTITY", "FATHER_IDENTITY", "BRIDE_MOTHER_IDENTITY", "BRIDE_FATHER_IDENTITY").and(notEqual("DECEASED_IDENTITY", "BRIDE_IDENTITY"))),
+
+            // Marriage - Marriage
+            new OldQuery("GT_ID Groom-Groom", "Marriage", "Marriage", false, DIFFERENT_RECORDS.and(same("GROOM_IDENTITY", "GROOM_IDENTITY"))),
+            new OldQuery("GT_ID Bride-Bride", "Marriage", "Marriage", false, DIFFERENT_RECORDS.and(same("BRIDE_IDENTITY", "BRIDE_IDENTITY"))),
+            new OldQuery("GT_ID Groom-Couple", "Marriage", "Marriage", false, DIFFERENT_RECORDS.and(sameParents("GROOM_MOTHER_IDENTITY", "GROOM_FATHER_IDENTITY", "BRIDE_IDENTITY", "GROOM_IDENTITY"))),
+            new OldQuery("GT_ID Bride-Couple", "Marriage", "Marriage", false, DIFFERENT_RECORDS.and(sameParents("BRIDE_MOTHER_IDENTITY", "BRIDE_FATHER_IDENTITY", "BRIDE_IDENTITY", "GROOM_IDENTITY"))),
+            new OldQuery("GT_SIBLING Groom-Groom", "Marriage", "Marriage", false, sameParents("GROOM_MOTHER_IDENTITY", "GROOM_FATHER_IDENTITY", "GROOM_MOTHER_IDENTITY", "GROOM_FATHER_IDENTITY").and(notEqual("GROOM_IDENTITY", "GROOM_IDENTITY"))),
+            new OldQuery("GT_SIBLING Bride-Bride", "Marriage", "Marriage", false, sameParents("BRIDE_MOTHER_IDENTITY", "BRIDE_FATHER_IDENTITY", "BRIDE_MOTHER_IDENTITY", "BRIDE_FATHER_IDENTITY").and(notEqual("BRIDE_IDENTITY", "BRIDE_IDENTITY"))),
+            new OldQuery("GT_SIBLING Bride-Groom", "Marriage", "Marriage", false, sameParents("BRIDE_MOTHER_IDENTITY", "BRIDE_FATHER_IDENTITY", "GROOM_MOTHER_IDENTITY", "GROOM_FATHER_IDENTITY")),
+            new OldQuery("GT_HALF_SIBLING Groom-Groom", "Marriage", "Marriage", false, DIFFERENT_RECORDS.and(halfParents("GROOM_MOTHER_IDENTITY", "GROOM_FATHER_IDENTITY", "GROOM_MOTHER_IDENTITY", "GROOM_FATHER_IDENTITY"))),
+            new OldQuery("GT_HALF_SIBLING Bride-Bride", "Marriage", "Marriage", false, DIFFERENT_RECORDS.and(halfParents("BRIDE_MOTHER_IDENTITY", "BRIDE_FATHER_IDENTITY", "BRIDE_MOTHER_IDENTITY", "BRIDE_FATHER_IDENTITY"))),
+            new OldQuery("GT_HALF_SIBLING Bride-Groom", "Marriage", "Marriage", false, DIFFERENT_RECORDS.and(halfParents("BRIDE_MOTHER_IDENTITY", "BRIDE_FATHER_IDENTITY", "GROOM_MOTHER_IDENTITY", "GROOM_FATHER_IDENTITY"))),
+
+            // Death - Death
+            new OldQuery("GT_SIBLING Deceased-Deceased", "Death", "Death", false, DIFFERENT_RECORDS.and(sameParents("MOTHER_IDENTITY", "FATHER_IDENTITY", "MOTHER_IDENTITY", "FATHER_IDENTITY"))),
+            new OldQuery("GT_HALF_SIBLING Deceased-Deceased", "Death", "Death", false, DIFFERENT_RECORDS.and(halfParents("MOTHER_IDENTITY", "FATHER_IDENTITY", "MOTHER_IDENTITY", "FATHER_IDENTITY")))
+    );
+
+    @Test
+    public void linksSameAsOldQueries() {
+
+        final Set<String> queries_with_links = new HashSet<>();
+
+        for (int seed = 0; seed < NUMBER_OF_RANDOM_DATA_SETS; seed++) {
+
+            final Map<String, List<Node>> nodes = randomNodes(new Random(seed));
+
+            for (OldQuery query : OLD_QUERIES) {
+
+                final Set<String> expected = new HashSet<>();
+                for (Node a : nodes.get(query.type1)) {
+                    for (Node b : nodes.get(query.type2)) {
+                        if (query.where.test(a, b)) expected.add(linkKey(a.id, b.id, query.directed));
+                    }
+                }
+
+                final Set<String> actual = new HashSet<>();
+                for (GTRelationship relationship : relationships(query.name)) {
+                    assertEquals(query.directed, relationship.directed);
+                    CreateGTLinks.findLinks(relationship, nodes, (a, b) -> actual.add(linkKey(a.id, b.id, relationship.directed)));
+                }
+
+                assertEquals(query.name + " with seed " + seed, expected, actual);
+                if (!expected.isEmpty()) queries_with_links.add(query.name);
+            }
+        }
+
+        // Check that the random data exercises every query, and that there's no relationship without an old query.
+        final Set<String> names = new HashSet<>();
+        for (OldQuery query : OLD_QUERIES) names.add(query.name);
+
+        assertEquals(names, queries_with_links);
+        for (GTRelationship relationship : CreateGTLinks.RELATIONSHIPS) {
+            assertTrue(relationship.toString(), names.contains(relationship.toString()));
+        }
+    }
+
+    @Test
+    public void symmetricLinksFoundOnce() {
+
+        for (int seed = 0; seed < NUMBER_OF_RANDOM_DATA_SETS; seed++) {
+
+            final Map<String, List<Node>> nodes = randomNodes(new Random(seed));
+
+            for (GTRelationship relationship : CreateGTLinks.RELATIONSHIPS) {
+
+                if (relationship.isSymmetric()) {
+
+                    final Set<String> links = new HashSet<>();
+                    final long count = CreateGTLinks.findLinks(relationship, nodes, (a, b) -> {
+                        assertNotSame(relationship.toString(), a, b);
+                        links.add(linkKey(a.id, b.id, false));
+                    });
+
+                    assertEquals(relationship.toString(), links.size(), count);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void directedLinksFromFirstRecord() {
+
+        final Node child = Node.of("Birth", 1, "x", "", "");
+        final Node childs_child = Node.of("Birth", 2, "", "", "x");
+
+        final List<Long> links = new ArrayList<>();
+        final Map<String, List<Node>> nodes = Map.of("Birth", List.of(childs_child, child));
+
+        assertEquals(1, CreateGTLinks.findLinks(relationships("GT_ID Child-Father").get(0), nodes, (a, b) -> {
+            links.add(a.id);
+            links.add(b.id);
+        }));
+        assertEquals(List.of(1L, 2L), links);
+    }
+
+    @Test
+    public void nullIdentityNotDifferent() {
+
+        // In Cypher, null <> "x" is null rather than true, so a birth without a child identity isn't a sibling of the deceased.
+        assertEquals(0, countLinks("GT_SIBLING Child-Deceased", Node.of("Birth", 1, null, "m", "f"), Node.of("Death", 2, "x", "m", "f")));
+        assertEquals(1, countLinks("GT_SIBLING Child-Deceased", Node.of("Birth", 1, "", "m", "f"), Node.of("Death", 2, "x", "m", "f")));
+        assertEquals(0, countLinks("GT_SIBLING Child-Deceased", Node.of("Birth", 1, "x", "m", "f"), Node.of("Death", 2, "x", "m", "f")));
+    }
+
+    @Test
+    public void nullParentNotMissing() {
+
+        // In Cypher, null = "" is null rather than true, so only records with "" for the other parent are half siblings.
+        assertEquals(0, countLinks("GT_HALF_SIBLING Child-Child", Node.of("Birth", 1, "a", null, "f"), Node.of("Birth", 2, "b", null, "f")));
+        assertEquals(0, countLinks("GT_HALF_SIBLING Child-Child", Node.of("Birth", 1, "a", null, "f"), Node.of("Birth", 2, "b", "", "f")));
+        assertEquals(1, countLinks("GT_HALF_SIBLING Child-Child", Node.of("Birth", 1, "a", "", "f"), Node.of("Birth", 2, "b", "", "f")));
+    }
+
+    @Test
+    public void nullKeyNotMatched() {
+
+        assertEquals(0, countLinks("GT_ID Child-Deceased", Node.of("Birth", 1, null, "", ""), Node.of("Death", 2, null, "", "")));
+        assertEquals(0, countLinks("GT_ID Child-Deceased", Node.of("Birth", 1, "", "", ""), Node.of("Death", 2, "", "", "")));
+        assertEquals(1, countLinks("GT_ID Child-Deceased", Node.of("Birth", 1, "x", "", ""), Node.of("Death", 2, "x", "", "")));
+    }
+
+    private static long countLinks(final String name, final Node node1, final Node node2) {
+
+        final Map<String, List<Node>> nodes = new HashMap<>();
+        for (Node node : List.of(node1, node2)) {
+            nodes.computeIfAbsent(typeOf(node), k -> new ArrayList<>()).add(node);
+        }
+        for (String type : TYPES) nodes.putIfAbsent(type, List.of());
+
+        long count = 0;
+        for (GTRelationship relationship : relationships(name)) {
+            count += CreateGTLinks.findLinks(relationship, nodes, (a, b) -> {});
+        }
+        return count;
+    }
+
+    private static String typeOf(final Node node) {
+        return node.fields.contains("CHILD_IDENTITY") ? "Birth" : node.fields.contains("DECEASED_IDENTITY") ? "Death" : "Marriage";
+    }
+
+    private static List<GTRelationship> relationships(final String name) {
+
+        final List<GTRelationship> result = new ArrayList<>();
+        for (GTRelationship relationship : CreateGTLinks.RELATIONSHIPS) {
+            if (relationship.toString().equals(name)) result.add(relationship);
+        }
+        assertFalse(name, result.isEmpty());
+        return result;
+    }
+
+    private static Map<String, List<Node>> randomNodes(final Random random) {
+
+        final Map<String, List<Node>> nodes = new HashMap<>();
+        long id = 0;
+
+        for (int i = 0; i < TYPES.length; i++) {
+
+            final List<Node> nodes_of_type = new ArrayList<>();
+            for (int j = 0; j < RECORDS_PER_TYPE; j++) {
+
+                final String[] values = new String[NUMBERS_OF_FIELDS[i]];
+                for (int k = 0; k < values.length; k++) {
+                    values[k] = VALUES[random.nextInt(VALUES.length)];
+                }
+                nodes_of_type.add(Node.of(TYPES[i], id++, values));
+            }
+            nodes.put(TYPES[i], nodes_of_type);
+        }
+        return nodes;
+    }
+
+    /**
+     * Identifies a link by its records, ignoring their order if it is undirected, as MERGE does.
+     */
+    private static String linkKey(final long id1, final long id2, final boolean directed) {
+        return directed || id1 <= id2 ? id1 + "-" + id2 : id2 + "-" + id1;
+    }
+
+    private static boolean isPresent(final String value) {
+        return value != null && !value.isEmpty();
+    }
+
+    /**
+     * @return {@code a.field1 <> "" AND b.field2 <> "" AND a.field1 = b.field2}
+     */
+    private static BiPredicate<Node, Node> same(final String field1, final String field2) {
+        return (a, b) -> isPresent(a.get(field1)) && isPresent(b.get(field2)) && a.get(field1).equals(b.get(field2));
+    }
+
+    /**
+     * @return {@code a.field1 <> b.field2}
+     */
+    private static BiPredicate<Node, Node> notEqual(final String field1, final String field2) {
+        return (a, b) -> a.get(field1) != null && b.get(field2) != null && !a.get(field1).equals(b.get(field2));
+    }
+
+    /**
+     * @return {@code a.field1 = "" AND b.field2 = ""}
+     */
+    private static BiPredicate<Node, Node> blank(final String field1, final String field2) {
+        return (a, b) -> "".equals(a.get(field1)) && "".equals(b.get(field2));
+    }
+
+    private static BiPredicate<Node, Node> allPresent(final String mother1, final String father1, final String mother2, final String father2) {
+        return (a, b) -> isPresent(a.get(mother1)) && isPresent(a.get(father1)) && isPresent(b.get(mother2)) && isPresent(b.get(father2));
+    }
+
+    private static BiPredicate<Node, Node> sameParents(final String mother1, final String father1, final String mother2, final String father2) {
+        return same(mother1, mother2).and(same(father1, father2));
+    }
+
+    /**
+     * @return all four parent fields {@code <> ""}, and one parent the same but not both
+     */
+    private static BiPredicate<Node, Node> halfParents(final String mother1, final String father1, final String mother2, final String father2) {
+        return allPresent(mother1, father1, mother2, father2)
+                .and(same(mother1, mother2).or(same(father1, father2)))
+                .and(sameParents(mother1, father1, mother2, father2).negate());
+    }
+
+    private static class OldQuery {
+
+        final String name;
+        final String type1;
+        final String type2;
+        final boolean directed;
+        final BiPredicate<Node, Node> where;
+
+        OldQuery(final String name, final String type1, final String type2, final boolean directed, final BiPredicate<Node, Node> where) {
+
+            this.name = name;
+            this.type1 = type1;
+            this.type2 = type2;
+            this.directed = directed;
+            this.where = where;
+        }
+    }
+}
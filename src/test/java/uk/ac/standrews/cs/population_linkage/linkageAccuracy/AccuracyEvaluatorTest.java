@@ -0,0 +1,286 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.linkageAccuracy;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.fail;
+
+public class AccuracyEvaluatorTest {
+
+    private static final List<String> LABELS = List.of("Birth", "Death", "Marriage");
+    private static final String DELETED = "DELETED";
+
+    private AccuracyEvaluator evaluator;
+    private List<Edge> graph;
+    private Random random;
+
+    @BeforeEach
+    public void setup() {
+
+        evaluator = new AccuracyEvaluator(null);
+        graph = new ArrayList<>();
+        random = new Random(3217);
+    }
+
+    @Test
+    public void allTablesMatchBruteForceOnRandomGraph() {
+
+        for (int trial = 0; trial < 10; trial++) {
+
+            evaluator = new AccuracyEvaluator(null);
+            graph = new ArrayList<>();
+            makeRandomGraph(AccuracyEvaluator.TABLES, 6, 1000);
+
+            for (AccuracyEvaluator.Table table : AccuracyEvaluator.TABLES) {
+                assertEquals(table.name, Arrays.toString(bruteForce(table)), Arrays.toString(evaluator.count(table)));
+            }
+        }
+    }
+
+    @Test
+    public void birthParentsMarriageMatchesBruteForceOnRandomGraph() {
+
+        final AccuracyEvaluator.Table table = getTable(BirthParentsMarriageAccuracy.class);
+
+        for (int trial = 0; trial < 10; trial++) {
+
+            evaluator = new AccuracyEvaluator(null);
+            graph = new ArrayList<>();
+            makeRandomGraph(List.of(table), 6, 120);
+
+            assertEquals(Arrays.toString(bruteForce(table)), Arrays.toString(evaluator.count(table)));
+        }
+    }
+
+    @Test
+    public void birthParentsMarriageRequiresBothParents() {
+
+        AccuracyEvaluator.Table table = getTable(BirthParentsMarriageAccuracy.class);
+
+        // Both parents linked, in the ground truth: one true positive.
+        add("ID", "Child-Mother", 1, "Birth", 101, "Marriage");
+        add("ID", "Child-Father", 1, "Birth", 101, "Marriage");
+        add("GT_ID", "Child-Couple", 101, "Marriage", 1, "Birth");
+
+        // Only the mother linked, in the ground truth: neither a positive nor a false negative.
+        add("ID", "Child-Mother", 2, "Birth", 102, "Marriage");
+        add("GT_ID", "Child-Couple", 2, "Birth", 102, "Marriage");
+
+        // Two father links and one mother link, not in the ground truth: two false positives.
+        add("ID", "Child-Mother", 3, "Birth", 103, "Marriage");
+        add("ID", "Child-Father", 3, "Birth", 103, "Marriage");
+        add("ID", "Child-Father", 103, "Marriage", 3, "Birth");
+
+        // Both parents linked but deleted, in the ground truth: a false negative only.
+        add("ID", "Child-Mother", 4, "Birth", 104, "Marriage");
+        add("ID", "Child-Father", 4, "Birth", 104, "Marriage");
+        add("GT_ID", "Child-Couple", 4, "Birth", 104, "Marriage");
+        add(DELETED, null, 104, "Marriage", 4, "Birth");
+
+        // Not linked, in the ground truth: a false negative.
+        add("GT_ID", "Child-Couple", 5, "Birth", 105, "Marriage");
+
+        assertEquals(Arrays.toString(new long[]{1, 2, 2}), Arrays.toString(evaluator.count(table)));
+        assertEquals(Arrays.toString(bruteForce(table)), Arrays.toString(evaluator.count(table)));
+    }
+
+    @Test
+    public void pairsOfSameTypeAreUndirected() {
+
+        AccuracyEvaluator.Table table = getTable(BirthBirthSiblingAccuracy.class);
+        long large_id = 0xFFFFFFFFL;
+
+        // Links and ground truth in opposite directions, with ids using the top bit of the packed halves.
+        add("SIBLING", "Child-Child", large_id, "Birth", 7, "Birth");
+        add("GT_SIBLING", "Child-Child", 7, "Birth", large_id, "Birth");
+        add("SIBLING", "Child-Child", 8, "Birth", large_id - 1, "Birth");
+        add("GT_SIBLING", "Child-Child", 9, "Birth", large_id - 1, "Birth");
+
+        assertEquals(Arrays.toString(new long[]{1, 1, 1}), Arrays.toString(evaluator.count(table)));
+        assertEquals(Arrays.toString(bruteForce(table)), Arrays.toString(evaluator.count(table)));
+    }
+
+    @Test
+    public void nodeIdsTooLargeToPackAreRejected() {
+
+        try {
+            evaluator.addEdge("SIBLING", "Child-Child", 1L << 32, "Birth", 1, "Birth");
+            fail("expected node id to be rejected");
+        } catch (RuntimeException e) {
+            // expected
+        }
+    }
+
+    private void makeRandomGraph(final List<AccuracyEvaluator.Table> tables, final int nodes_per_label, final int number_of_edges) {
+
+        final List<List<Long>> nodes = new ArrayList<>();  // by label index
+        final Set<Long> ids = new HashSet<>();
+        for (int label = 0; label < LABELS.size(); label++) {
+            nodes.add(new ArrayList<>());
+            for (int i = 0; i < nodes_per_label; i++) {
+                long id;
+                do {
+                    // Ids spread over the whole unsigned 32 bit range, to exercise packing.
+                    id = random.nextBoolean() ? random.nextInt(200) : random.nextInt() & 0xFFFFFFFFL;
+                } while (!ids.add(id));
+                nodes.get(label).add(id);
+            }
+        }
+
+        for (int i = 0; i < number_of_edges; i++) {
+
+            // Edges are drawn for a table, between a few of its records, so that links, ground truth and deletions often coincide.
+            final AccuracyEvaluator.Table table = tables.get(random.nextInt(tables.size()));
+            final int label1 = LABELS.indexOf(table.label1);
+            final int label2 = LABELS.indexOf(table.label2);
+            final long id1 = nodes.get(label1).get(random.nextInt(nodes_per_label));
+            final long id2 = nodes.get(label2).get(random.nextInt(nodes_per_label));
+            if (id1 == id2) continue;
+
+            final String type;
+            final String actors;
+            final int kind = random.nextInt(8);
+
+            if (kind < 3) {
+                type = table.link_type;
+                actors = table.link_actors.get(random.nextInt(table.link_actors.size()));
+            } else if (kind < 6) {
+                type = table.gt_type;
+                actors = table.gt_actors;
+            } else if (kind < 7) {
+                type = DELETED;
+                actors = null;
+            } else {
+                type = table.link_type;
+                actors = "Other";
+            }
+
+            if (random.nextBoolean()) add(type, actors, id1, table.label1, id2, table.label2);
+            else add(type, actors, id2, table.label2, id1, table.label1);
+        }
+    }
+
+    private void add(final String type, final String actors, final long id1, final String label1, final long id2, final String label2) {
+
+        graph.add(new Edge(type, actors, id1, label1, id2, label2));
+        evaluator.addEdge(type, actors, id1, label1, id2, label2);
+    }
+
+    /**
+     * Counts as the original Cypher queries for each table do: each link is matched from label1 to label2, in either
+     * direction if the table is undirected, once for each combination of links with the other actors between the same
+     * records in either direction; existence tests for ground truth, other links and deletions are undirected.
+     *
+     * @return the true positive, false positive and false negative counts
+     */
+    private long[] bruteForce(final AccuracyEvaluator.Table table) {
+
+        long tpc = 0;
+        long fpc = 0;
+        long fnc = 0;
+
+        for (Edge link : graph) {
+            if (link.is(table.link_type, table.link_actors.get(0))) {
+                for (long[] pair : orientations(table, link)) {
+
+                    long matches = 1;
+                    for (int k = 1; k < table.link_actors.size(); k++) {
+                        matches *= countBetween(table.link_type, table.link_actors.get(k), pair[0], pair[1]);
+                    }
+
+                    if (matches > 0 && !(table.excludes_deleted && countBetween(DELETED, null, pair[0], pair[1]) > 0)) {
+                        if (countBetween(table.gt_type, table.gt_actors, pair[0], pair[1]) > 0) tpc += matches;
+                        else fpc += matches;
+                    }
+                }
+            }
+        }
+
+        for (Edge ground_truth : graph) {
+            if (ground_truth.is(table.gt_type, table.gt_actors)) {
+                for (long[] pair : orientations(table, ground_truth)) {
+
+                    boolean linked = false;
+                    for (String actors : table.link_actors) {
+                        linked = linked || countBetween(table.link_type, actors, pair[0], pair[1]) > 0;
+                    }
+                    if (!linked || (table.excludes_deleted && countBetween(DELETED, null, pair[0], pair[1]) > 0)) fnc++;
+                }
+            }
+        }
+
+        return new long[]{tpc, fpc, fnc};
+    }
+
+    private List<long[]> orientations(final AccuracyEvaluator.Table table, final Edge edge) {
+
+        final List<long[]> orientations = new ArrayList<>();
+        if (edge.label1.equals(table.label1) && edge.label2.equals(table.label2)) orientations.add(new long[]{edge.id1, edge.id2});
+        if (!table.directed && edge.label2.equals(table.label1) && edge.label1.equals(table.label2)) orientations.add(new long[]{edge.id2, edge.id1});
+        return orientations;
+    }
+
+    /**
+     * @return the number of relationships of the given type and actors, any actors if null, between the records in either direction
+     */
+    private long countBetween(final String type, final String actors, final long id1, final long id2) {
+
+        long count = 0;
+        for (Edge edge : graph) {
+            if (edge.type.equals(type) && (actors == null || actors.equals(edge.actors)) &&
+                    ((edge.id1 == id1 && edge.id2 == id2) || (edge.id1 == id2 && edge.id2 == id1))) count++;
+        }
+        return count;
+    }
+
+    private static AccuracyEvaluator.Table getTable(final Class<? extends AbstractAccuracy> accuracy) {
+
+        for (AccuracyEvaluator.Table table : AccuracyEvaluator.TABLES) {
+            if (table.name.equals(accuracy.getSimpleName())) return table;
+        }
+        throw new RuntimeException("no accuracy table for " + accuracy.getSimpleName());
+    }
+
+    private static class Edge {
+
+        final String type;
+        final String actors;
+        final long id1;
+        final String label1;
+        final long id2;
+        final String label2;
+
+        Edge(final String type, final String actors, final long id1, final String label1, final long id2, final String label2) {
+
+            this.type = type;
+            this.actors = actors;
+            this.id1 = id1;
+            this.label1 = label1;
+            this.id2 = id2;
+            this.label2 = label2;
+        }
+
+        boolean is(final String type, final String actors) {
+            return this.type.equals(type) && Objects.equals(this.actors, actors);
+        }
+    }
+}
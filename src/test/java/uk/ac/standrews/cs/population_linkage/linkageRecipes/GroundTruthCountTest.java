@@ -0,0 +1,85 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.linkageRecipes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.TestCase.*;
+
+public class GroundTruthCountTest {
+
+    @Test
+    public void countsSummedOverBatches() {
+
+        final List<List<String>> batches = new ArrayList<>();
+
+        // Each batch counts as the number of its ids plus 100, so a lost or repeated batch changes the total.
+        final long count = LinkageRecipe.countInBatches(ids(7), 3, batch -> {
+            batches.add(new ArrayList<>(batch));
+            return batch.size() + 100;
+        });
+
+        assertEquals(List.of(List.of("0", "1", "2"), List.of("3", "4", "5"), List.of("6")), batches);
+        assertEquals(307, count);
+    }
+
+    @Test
+    public void noEmptyFinalBatch() {
+
+        final List<List<String>> batches = new ArrayList<>();
+
+        assertEquals(6, LinkageRecipe.countInBatches(ids(6), 3, batch -> {
+            batches.add(new ArrayList<>(batch));
+            return batch.size();
+        }));
+        assertEquals(List.of(List.of("0", "1", "2"), List.of("3", "4", "5")), batches);
+    }
+
+    @Test
+    public void noBatchesForNoRecords() {
+
+        assertEquals(0, LinkageRecipe.countInBatches(ids(0), 3, batch -> {
+            fail("no batch expected");
+            return 0;
+        }));
+    }
+
+    @Test
+    public void batchesNotReused() {
+
+        final List<List<String>> batches = new ArrayList<>();
+
+        LinkageRecipe.countInBatches(ids(5), 2, batch -> {
+            batches.add(batch);
+            return 0;
+        });
+
+        assertEquals(List.of(List.of("0", "1"), List.of("2", "3"), List.of("4")), batches);
+    }
+
+    private static List<String> ids(final int number) {
+
+        final List<String> ids = new ArrayList<>();
+        for (int i = 0; i < number; i++) {
+            ids.add(String.valueOf(i));
+        }
+        return ids;
+    }
+}
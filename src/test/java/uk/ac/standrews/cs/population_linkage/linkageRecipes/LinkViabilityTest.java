@@ -18,14 +18,32 @@ package uk.ac.standrews.cs.population_linkage.linkageRecipes;
 
 import org.junit.jupiter.api.Test;
 import uk.ac.standrews.cs.neoStorr.impl.LXP;
+import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
+import uk.ac.standrews.cs.population_linkage.searchStructures.BitBlasterSearchStructure;
+import uk.ac.standrews.cs.population_linkage.searchStructures.SearchStructure;
+import uk.ac.standrews.cs.population_linkage.searchStructures.SearchStructureFactory;
+import uk.ac.standrews.cs.population_linkage.searchStructures.TemporalPartitionSearchStructure;
+import uk.ac.standrews.cs.population_linkage.supportClasses.LinkageConfig;
 import uk.ac.standrews.cs.population_records.Normalisation;
 import uk.ac.standrews.cs.population_records.record_types.Birth;
 import uk.ac.standrews.cs.population_records.record_types.Death;
 import uk.ac.standrews.cs.population_records.record_types.Marriage;
+import uk.ac.standrews.cs.utilities.measures.coreConcepts.DataDistance;
 
 import java.text.NumberFormat;
 import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Random;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -759,6 +777,156 @@ public class LinkViabilityTest {
         });
     }
 
+    @Test
+    public void parseIntegerAgreesWithParseInt() {
+
+        final String[] strings = {null, "", "0", "7", "007", "-7", "+7", "1890", "2147483647", "-2147483647", "-2147483648",
+                "2147483648", "-2147483649", "99999999999", "-", "+", "--", "+-1", "1-", " 7", "7 ", "1.5", "Unknown", "--/--/1890", "\u0663\u0663"};
+
+        for (final String s : strings) {
+            assertEquals(parseIntOrUnknown(s), TemporalColumns.parseInteger(s), s);
+        }
+
+        final Random random = new Random(6378213563L);
+        final String alphabet = "0123456789+- /x";
+
+        for (int i = 0; i < 10000; i++) {
+
+            final StringBuilder builder = new StringBuilder();
+            final int length = random.nextInt(13);
+            for (int j = 0; j < length; j++) {
+                builder.append(alphabet.charAt(random.nextInt(random.nextBoolean() ? 10 : alphabet.length())));
+            }
+
+            final String s = builder.toString();
+            assertEquals(parseIntOrUnknown(s), TemporalColumns.parseInteger(s), s);
+        }
+    }
+
+    @Test
+    public void temporalColumnsAgreeWithDateGetters() {
+
+        final List<LXP> records = new ArrayList<>();
+        final Random random = new Random(2345879345L);
+
+        for (int i = 0; i < 1000; i++) {
+            records.add(makeRandomBirth(random));
+            records.add(makeRandomMarriage(random));
+            records.add(makeRandomDeath(random));
+        }
+
+        // Dates derived on the spot.
+        for (final LXP record : records) {
+            assertColumnsAgreeWithDateGetters(record, column -> TemporalColumns.get(record, column));
+        }
+
+        // Dates held in columns.
+        final TemporalColumns columns = new TemporalColumns(records);
+        for (final LXP record : records) {
+
+            final int ordinal = columns.getOrdinal(record.getId());
+            assertColumnsAgreeWithDateGetters(record, column -> columns.getValue(ordinal, column));
+        }
+    }
+
+    @Test
+    public void viabilityAgreesWithDateGetters() {
+
+        final List<LXP> births = new ArrayList<>();
+        final List<LXP> marriages = new ArrayList<>();
+        final List<LXP> deaths = new ArrayList<>();
+        final Random random = new Random(987234598732L);
+
+        for (int i = 0; i < 100; i++) {
+            births.add(makeRandomBirth(random));
+            marriages.add(makeRandomMarriage(random));
+            deaths.add(makeRandomDeath(random));
+        }
+
+        for (final LXP birth1 : births) {
+            for (final LXP birth2 : births) {
+
+                assertEquals(birthParentIdentityLinkViableByDates(birth1, birth2, true), CommonLinkViabilityLogic.birthParentIdentityLinkIsViable(birth1, birth2, true));
+                assertEquals(birthParentIdentityLinkViableByDates(birth1, birth2, false), CommonLinkViabilityLogic.birthParentIdentityLinkIsViable(birth1, birth2, false));
+            }
+        }
+
+        for (final LXP marriage : marriages) {
+
+            for (final LXP birth : births) {
+                for (final boolean bride : new boolean[]{true, false}) {
+
+                    assertEquals(birthMarriageSiblingLinkViableByDates(birth, marriage, bride), CommonLinkViabilityLogic.birthMarriageSiblingLinkIsViable(birth, marriage, bride));
+                    assertEquals(birthMarriageIdentityLinkViableByDates(birth, marriage, bride), CommonLinkViabilityLogic.birthMarriageIdentityLinkIsViable(birth, marriage, bride));
+                }
+            }
+
+            for (final LXP death : deaths) {
+                for (final boolean bride : new boolean[]{true, false}) {
+
+                    assertEquals(deathMarriageSiblingLinkViableByDates(death, marriage, bride), CommonLinkViabilityLogic.deathMarriageSiblingLinkIsViable(death, marriage, bride));
+                    assertEquals(deathMarriageIdentityLinkViableByDates(death, marriage, bride), CommonLinkViabilityLogic.deathMarriageIdentityLinkIsViable(death, marriage, bride));
+                }
+            }
+
+            for (final LXP marriage2 : marriages) {
+                assertEquals(spouseMarriageParentsMarriageIdentityLinkViableByDates(marriage, marriage2), CommonLinkViabilityLogic.spouseMarriageParentsMarriageIdentityLinkIsViable(marriage, marriage2));
+            }
+        }
+    }
+
+    @Test
+    public void temporalPartitionsFindSameViableLinksAsFullSearch() {
+
+        final List<LXP> births = new ArrayList<>();
+        final List<LXP> marriages = new ArrayList<>();
+        final List<LXP> deaths = new ArrayList<>();
+        final Random random = new Random(4387563498L);
+
+        for (int i = 0; i < 200; i++) {
+            births.add(makeRandomBirth(random));
+            marriages.add(makeRandomMarriage(random));
+            deaths.add(makeRandomDeath(random));
+        }
+
+        final int original_min_block_size = LinkageConfig.MIN_BLOCK_SIZE_FOR_SEARCH_STRUCTURE;
+
+        try {
+            // Partitions scanned, and then searched through their own search structures.
+            for (final int min_block_size : new int[]{Integer.MAX_VALUE, 2}) {
+
+                LinkageConfig.MIN_BLOCK_SIZE_FOR_SEARCH_STRUCTURE = min_block_size;
+
+                assertPartitionsFindViableLinks(BirthBrideIdentityLinkageRecipe.viabilityWindow(), BirthBrideIdentityLinkageRecipe::isViable, births, marriages);
+                assertPartitionsFindViableLinks(BirthBrideSiblingLinkageRecipe.viabilityWindow(), BirthBrideSiblingLinkageRecipe::isViable, births, marriages);
+                assertPartitionsFindViableLinks(BirthDeathIdentityLinkageRecipe.viabilityWindow(), BirthDeathIdentityLinkageRecipe::isViable, births, deaths);
+                assertPartitionsFindViableLinks(BirthDeathSiblingLinkageRecipe.viabilityWindow(), BirthDeathSiblingLinkageRecipe::isViable, births, deaths);
+                assertPartitionsFindViableLinks(BirthFatherIdentityLinkageRecipe.viabilityWindow(), BirthFatherIdentityLinkageRecipe::isViable, births, births);
+                assertPartitionsFindViableLinks(BirthGroomIdentityLinkageRecipe.viabilityWindow(), BirthGroomIdentityLinkageRecipe::isViable, births, marriages);
+                assertPartitionsFindViableLinks(BirthGroomSiblingLinkageRecipe.viabilityWindow(), BirthGroomSiblingLinkageRecipe::isViable, births, marriages);
+                assertPartitionsFindViableLinks(BirthHalfSiblingLinkageRecipe.viabilityWindow(), BirthHalfSiblingLinkageRecipe::isViable, births, births);
+                assertPartitionsFindViableLinks(BirthMotherIdentityLinkageRecipe.viabilityWindow(), BirthMotherIdentityLinkageRecipe::isViable, births, births);
+                assertPartitionsFindViableLinks(BirthParentsMarriageIdentityLinkageRecipe.viabilityWindow(), BirthParentsMarriageIdentityLinkageRecipe::isViable, births, marriages);
+                assertPartitionsFindViableLinks(BirthSiblingLinkageRecipe.viabilityWindow(), BirthSiblingLinkageRecipe::isViable, births, births);
+                assertPartitionsFindViableLinks(BrideBrideIdentityLinkageRecipe.viabilityWindow(), BrideBrideIdentityLinkageRecipe::isViable, marriages, marriages);
+                assertPartitionsFindViableLinks(BrideBrideSiblingLinkageRecipe.viabilityWindow(), BrideBrideSiblingLinkageRecipe::isViable, marriages, marriages);
+                assertPartitionsFindViableLinks(BrideGroomSiblingLinkageRecipe.viabilityWindow(), BrideGroomSiblingLinkageRecipe::isViable, marriages, marriages);
+                assertPartitionsFindViableLinks(BrideMarriageParentsMarriageIdentityLinkageRecipe.viabilityWindow(), BrideMarriageParentsMarriageIdentityLinkageRecipe::isViable, marriages, marriages);
+                assertPartitionsFindViableLinks(DeathBrideIdentityLinkageRecipe.viabilityWindow(), DeathBrideIdentityLinkageRecipe::isViable, deaths, marriages);
+                assertPartitionsFindViableLinks(DeathBrideSiblingLinkageRecipe.viabilityWindow(), DeathBrideSiblingLinkageRecipe::isViable, deaths, marriages);
+                assertPartitionsFindViableLinks(DeathGroomIdentityLinkageRecipe.viabilityWindow(), DeathGroomIdentityLinkageRecipe::isViable, deaths, marriages);
+                assertPartitionsFindViableLinks(DeathGroomSiblingLinkageRecipe.viabilityWindow(), DeathGroomSiblingLinkageRecipe::isViable, deaths, marriages);
+                assertPartitionsFindViableLinks(DeathParentsMarriageIdentityLinkageRecipe.viabilityWindow(), DeathParentsMarriageIdentityLinkageRecipe::isViable, deaths, marriages);
+                assertPartitionsFindViableLinks(DeathSiblingLinkageRecipe.viabilityWindow(), DeathSiblingLinkageRecipe::isViable, deaths, deaths);
+                assertPartitionsFindViableLinks(GroomGroomIdentityLinkageRecipe.viabilityWindow(), GroomGroomIdentityLinkageRecipe::isViable, marriages, marriages);
+                assertPartitionsFindViableLinks(GroomGroomSiblingLinkageRecipe.viabilityWindow(), GroomGroomSiblingLinkageRecipe::isViable, marriages, marriages);
+                assertPartitionsFindViableLinks(GroomMarriageParentsMarriageIdentityLinkageRecipe.viabilityWindow(), GroomMarriageParentsMarriageIdentityLinkageRecipe::isViable, marriages, marriages);
+            }
+        } finally {
+            LinkageConfig.MIN_BLOCK_SIZE_FOR_SEARCH_STRUCTURE = original_min_block_size;
+        }
+    }
+
     private boolean birthSiblingLinkViable(final int birth_year1, final int birth_year2) {
 
         final LXP birth_record1 = makeBirth(birth_year1);
@@ -1351,4 +1519,289 @@ public class LinkViabilityTest {
 
         return record;
     }
+
+    private static int parseIntOrUnknown(final String s) {
+
+        try {
+            return Integer.parseInt(s);
+        }
+        catch (NumberFormatException e) {
+            return TemporalColumns.UNKNOWN;
+        }
+    }
+
+    private static void assertColumnsAgreeWithDateGetters(final LXP record, final IntUnaryOperator column_values) {
+
+        if (record instanceof Birth) {
+
+            assertEquals(pack(dateOrNull(() -> CommonLinkViabilityLogic.getBirthDateFromBirthRecord(record))), column_values.applyAsInt(TemporalColumns.BIRTH_DATE));
+        }
+        else if (record instanceof Marriage) {
+
+            assertEquals(pack(dateOrNull(() -> CommonLinkViabilityLogic.getMarriageDateFromMarriageRecord(record))), column_values.applyAsInt(TemporalColumns.MARRIAGE_DATE));
+            assertEquals(pack(dateOrNull(() -> CommonLinkViabilityLogic.getBirthDateFromMarriageRecord(record, true))), column_values.applyAsInt(TemporalColumns.BRIDE_BIRTH_DATE));
+            assertEquals(pack(dateOrNull(() -> CommonLinkViabilityLogic.getBirthDateFromMarriageRecord(record, false))), column_values.applyAsInt(TemporalColumns.GROOM_BIRTH_DATE));
+        }
+        else {
+
+            assertEquals(pack(dateOrNull(() -> CommonLinkViabilityLogic.getBirthDateFromDeathRecord(record))), column_values.applyAsInt(TemporalColumns.BIRTH_DATE));
+            assertEquals(pack(dateOrNull(() -> CommonLinkViabilityLogic.getDeathDateFromDeathRecord(record))), column_values.applyAsInt(TemporalColumns.DEATH_DATE));
+            assertEquals(parseIntOrUnknown(record.getString(Death.AGE_AT_DEATH)), column_values.applyAsInt(TemporalColumns.AGE_AT_DEATH));
+        }
+    }
+
+    // The checks below are those made by the LocalDate versions of the viability logic. Where a date getter throws,
+    // that logic treated the link as viable; invalid calendar dates are treated in the same way here.
+
+    private static boolean birthMarriageSiblingLinkViableByDates(final LXP birth_record, final LXP marriage_record, final boolean marriage_role_is_bride) {
+
+        final LocalDate date_of_birth1 = dateOrNull(() -> CommonLinkViabilityLogic.getBirthDateFromBirthRecord(birth_record));
+        final LocalDate date_of_birth2 = dateOrNull(() -> CommonLinkViabilityLogic.getBirthDateFromMarriageRecord(marriage_record, marriage_role_is_bride));
+
+        return date_of_birth1 == null || date_of_birth2 == null || CommonLinkViabilityLogic.siblingBirthDatesAreViable(date_of_birth1, date_of_birth2);
+    }
+
+    private static boolean deathMarriageSiblingLinkViableByDates(final LXP death_record, final LXP marriage_record, final boolean marriage_role_is_bride) {
+
+        final LocalDate date_of_birth1 = dateOrNull(() -> CommonLinkViabilityLogic.getBirthDateFromDeathRecord(death_record));
+        final LocalDate date_of_birth2 = dateOrNull(() -> CommonLinkViabilityLogic.getBirthDateFromMarriageRecord(marriage_record, marriage_role_is_bride));
+
+        return date_of_birth1 == null || date_of_birth2 == null || CommonLinkViabilityLogic.siblingBirthDatesAreViable(date_of_birth1, date_of_birth2);
+    }
+
+    private static boolean spouseMarriageParentsMarriageIdentityLinkViableByDates(final LXP parents_marriage, final LXP spouse_marriage) {
+
+        final LocalDate parents_date_of_marriage = dateOrNull(() -> CommonLinkViabilityLogic.getMarriageDateFromMarriageRecord(parents_marriage));
+        final LocalDate spouse_date_of_marriage = dateOrNull(() -> CommonLinkViabilityLogic.getMarriageDateFromMarriageRecord(spouse_marriage));
+
+        if (parents_date_of_marriage == null || spouse_date_of_marriage == null) return true;
+
+        final long years_between_marriages = parents_date_of_marriage.until(spouse_date_of_marriage, ChronoUnit.YEARS);
+
+        return years_between_marriages >= LinkageConfig.MIN_CHILD_PARENTS_MARRIAGE_DIFFERENCE &&
+                years_between_marriages <= LinkageConfig.MAX_CHILD_PARENTS_MARRIAGE_DIFFERENCE;
+    }
+
+    private static boolean birthMarriageIdentityLinkViableByDates(final LXP birth_record, final LXP marriage_record, final boolean marriage_role_is_bride) {
+
+        final LocalDate birth_date_from_birth_record = dateOrNull(() -> CommonLinkViabilityLogic.getBirthDateFromBirthRecord(birth_record));
+        final LocalDate birth_date_from_marriage_record = dateOrNull(() -> CommonLinkViabilityLogic.getBirthDateFromMarriageRecord(marriage_record, marriage_role_is_bride));
+        final LocalDate marriage_date_from_marriage_record = dateOrNull(() -> CommonLinkViabilityLogic.getMarriageDateFromMarriageRecord(marriage_record));
+
+        if (birth_date_from_birth_record == null || birth_date_from_marriage_record == null || marriage_date_from_marriage_record == null) return true;
+
+        final long age_at_marriage_calculated = birth_date_from_birth_record.until(marriage_date_from_marriage_record, ChronoUnit.YEARS);
+        final long birth_date_discrepancy = Math.abs(birth_date_from_birth_record.until(birth_date_from_marriage_record, ChronoUnit.YEARS));
+
+        return age_at_marriage_calculated >= LinkageConfig.MIN_AGE_AT_MARRIAGE &&
+                age_at_marriage_calculated <= LinkageConfig.MAX_AGE_AT_DEATH &&
+                birth_date_discrepancy <= LinkageConfig.MAX_ALLOWABLE_AGE_DISCREPANCY;
+    }
+
+    private static boolean deathMarriageIdentityLinkViableByDates(final LXP death_record, final LXP marriage_record, final boolean marriage_role_is_bride) {
+
+        final LocalDate death_date = dateOrNull(() -> CommonLinkViabilityLogic.getDeathDateFromDeathRecord(death_record));
+        final LocalDate marriage_date = dateOrNull(() -> CommonLinkViabilityLogic.getMarriageDateFromMarriageRecord(marriage_record));
+        final LocalDate birth_date_from_death_record = dateOrNull(() -> CommonLinkViabilityLogic.getBirthDateFromDeathRecord(death_record));
+        final LocalDate birth_date_from_marriage_record = dateOrNull(() -> CommonLinkViabilityLogic.getBirthDateFromMarriageRecord(marriage_record, marriage_role_is_bride));
+
+        if (death_date == null || marriage_date == null || birth_date_from_death_record == null || birth_date_from_marriage_record == null) return true;
+
+        final long birth_year_discrepancy = Math.abs(birth_date_from_death_record.until(birth_date_from_marriage_record, ChronoUnit.YEARS));
+
+        return !death_date.isBefore(marriage_date) && birth_year_discrepancy <= LinkageConfig.MAX_ALLOWABLE_AGE_DISCREPANCY;
+    }
+
+    private static boolean birthParentIdentityLinkViableByDates(final LXP birth_of_parent, final LXP birth_of_child, final boolean parent_role_is_mother) {
+
+        final LocalDate parent_birth_date = dateOrNull(() -> CommonLinkViabilityLogic.getBirthDateFromBirthRecord(birth_of_parent));
+        final LocalDate child_birth_date = dateOrNull(() -> CommonLinkViabilityLogic.getBirthDateFromBirthRecord(birth_of_child));
+
+        if (parent_birth_date == null || child_birth_date == null) return true;
+
+        final long parent_age_at_birth_of_child = parent_birth_date.until(child_birth_date, ChronoUnit.YEARS);
+
+        return parent_age_at_birth_of_child >= LinkageConfig.MIN_PARENT_AGE_AT_BIRTH &&
+                parent_age_at_birth_of_child <= (parent_role_is_mother ? LinkageConfig.MAX_MOTHER_AGE_AT_BIRTH : LinkageConfig.MAX_FATHER_AGE_AT_BIRTH);
+    }
+
+    private static LocalDate dateOrNull(final Supplier<LocalDate> getter) {
+
+        try {
+            return getter.get();
+        }
+        catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks that a search restricted to the temporal partitions within a recipe's viability window, followed by the
+     * recipe's viability check, finds the same links as a search over all the stored records followed by the check.
+     * All pairs of records are at distance zero, so that only the partitioning decides which are found.
+     */
+    private static void assertPartitionsFindViableLinks(final ViabilityWindow window, final BiPredicate<LXP, LXP> is_viable, final List<LXP> stored_records, final List<LXP> query_records) {
+
+        final TemporalPartitionSearchStructure partitions = new TemporalPartitionSearchStructure(new ScanningSearchStructureFactory(), ZERO_DISTANCE,
+                stored_records, null, window::getStoredYear, LinkageConfig.VIABILITY_PARTITION_WIDTH);
+
+        for (final LXP query_record : query_records) {
+
+            final Set<LXP> expected = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (final LXP stored_record : stored_records) {
+                if (is_viable.test(stored_record, query_record)) expected.add(stored_record);
+            }
+
+            final Set<LXP> found = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (final DataDistance<LXP> result : partitions.findWithinThreshold(query_record, 0.0, window.getEarliestStoredYear(query_record), window.getLatestStoredYear(query_record))) {
+                if (is_viable.test(result.value, query_record)) found.add(result.value);
+            }
+
+            assertEquals(expected, found);
+            assertEquals(stored_records.size(), partitions.findWithinThreshold(query_record, 0.0).size());
+        }
+    }
+
+    private static final LXPMeasure ZERO_DISTANCE = new LXPMeasure() {
+
+        @Override
+        public String getMeasureName() {
+            return "zero distance";
+        }
+
+        @Override
+        public boolean maxDistanceIsOne() {
+            return true;
+        }
+
+        @Override
+        public double calculateDistance(final LXP x, final LXP y) {
+            return 0.0;
+        }
+    };
+
+    /**
+     * Creates search structures that scan all their records, standing in for those that need a metric measure.
+     */
+    private static class ScanningSearchStructureFactory implements SearchStructureFactory<LXP> {
+
+        @Override
+        public String getSearchStructureType() {
+            return "scan";
+        }
+
+        @Override
+        public SearchStructure<LXP> newSearchStructure(final Iterable<LXP> stored_set, final List<LXP> reference_objects) {
+            return newSearchStructure(stored_set);
+        }
+
+        @Override
+        public SearchStructure<LXP> newSearchStructure(final Iterable<LXP> stored_set) {
+
+            final List<LXP> records = new ArrayList<>();
+            stored_set.forEach(records::add);
+
+            return new SearchStructure<>() {
+
+                @Override
+                public List<DataDistance<LXP>> findWithinThreshold(final LXP record, final double threshold) {
+
+                    final List<DataDistance<LXP>> results = new ArrayList<>();
+                    for (final LXP stored_record : records) {
+                        final double distance = ZERO_DISTANCE.distance(stored_record, record);
+                        if (distance <= threshold) results.add(new DataDistance<>(stored_record, distance));
+                    }
+                    return results;
+                }
+
+                @Override
+                public List<DataDistance<LXP>> findNearest(final LXP record, final int k) {
+                    return BitBlasterSearchStructure.closest(findWithinThreshold(record, Double.MAX_VALUE), k);
+                }
+
+                @Override
+                public void terminate() {
+                }
+            };
+        }
+    }
+
+    private static int pack(final LocalDate date) {
+
+        return date == null ? TemporalColumns.UNKNOWN : date.getYear() * 10000 + date.getMonthValue() * 100 + date.getDayOfMonth();
+    }
+
+    private Birth makeRandomBirth(final Random random) {
+
+        final Birth record = makeBirth(1, 1, 1900);
+
+        record.put(Birth.BIRTH_DAY, randomNumber(random, 1, 31));
+        record.put(Birth.BIRTH_MONTH, randomNumber(random, 1, 13));
+        record.put(Birth.BIRTH_YEAR, randomNumber(random, 1780, 1960));
+        return record;
+    }
+
+    private Marriage makeRandomMarriage(final Random random) {
+
+        final Marriage record = makeMarriage(1, 1, 1900);
+
+        record.put(Marriage.MARRIAGE_DAY, randomNumber(random, 1, 31));
+        record.put(Marriage.MARRIAGE_MONTH, randomNumber(random, 1, 13));
+        record.put(Marriage.MARRIAGE_YEAR, randomNumber(random, 1800, 1960));
+        record.put(Marriage.BRIDE_AGE_OR_DATE_OF_BIRTH, randomDateOfBirth(random, true));
+        record.put(Marriage.GROOM_AGE_OR_DATE_OF_BIRTH, randomDateOfBirth(random, true));
+        return record;
+    }
+
+    private Death makeRandomDeath(final Random random) {
+
+        final Death record = makeDeath(1, 1, 1900);
+
+        record.put(Death.DEATH_DAY, randomNumber(random, 1, 31));
+        record.put(Death.DEATH_MONTH, randomNumber(random, 1, 13));
+        record.put(Death.DEATH_YEAR, randomNumber(random, 1800, 1960));
+        record.put(Death.AGE_AT_DEATH, randomNumber(random, 0, 100));
+        record.put(Death.DATE_OF_BIRTH, randomDateOfBirth(random, false));
+        return record;
+    }
+
+    /**
+     * @return a number in the given range, or occasionally a value that isn't a number
+     */
+    private static String randomNumber(final Random random, final int min, final int max) {
+
+        return random.nextInt(8) == 0 ? randomUnusable(random) : String.valueOf(min + random.nextInt(max - min + 1));
+    }
+
+    /**
+     * @return a full or partial date of birth in the forms used on the records, or an age if allowed
+     */
+    private static String randomDateOfBirth(final Random random, final boolean allow_age) {
+
+        final int year = 1780 + random.nextInt(180);
+
+        switch (random.nextInt(allow_age ? 6 : 5)) {
+
+            case 0:
+                final int month = 1 + random.nextInt(12);
+                final int day = 1 + random.nextInt(Month.of(month).length(Year.isLeap(year)));
+                return String.format("%02d/%02d/%d", day, month, year);
+            case 1:
+                return "--/--/" + year;
+            case 2:
+                return "--/--/";
+            case 3:
+                return "05/10/----";
+            case 4:
+                return randomUnusable(random);
+            default:
+                return String.valueOf(random.nextInt(91));
+        }
+    }
+
+    private static String randomUnusable(final Random random) {
+
+        final String[] unusable = {"", "Unknown", "--"};
+        return unusable[random.nextInt(unusable.length)];
+    }
 }
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.linkageRunners;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.neo4j.driver.exceptions.TransientException;
+
+import java.util.*;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.fail;
+
+public class BatchedLinkPersisterTest {
+
+    private static final String QUERY1 = "query 1";
+    private static final String QUERY2 = "query 2";
+
+    private List<String> batches_written;
+    private List<Map<String, Object>> rows_written;
+    private BatchedLinkPersister persister;
+
+    @BeforeEach
+    public void setup() {
+
+        batches_written = new ArrayList<>();
+        rows_written = new ArrayList<>();
+        persister = makePersister(2);
+    }
+
+    @Test
+    public void duplicateLinksAreDropped() {
+
+        persister.add("links", false, 3, QUERY1, "a", "b", 0.1);
+        persister.add("links", false, 3, QUERY1, "a", "b", 0.2);
+        persister.close();
+
+        assertEquals(1, rows_written.size());
+        assertEquals(0.1, (double) rows_written.get(0).get("distance"), 0.0);
+    }
+
+    @Test
+    public void duplicatesOfLinksInWrittenBatchesAreLeftToQuery() {
+
+        persister.add("links", false, 3, QUERY1, "a", "b", 0.1);
+        persister.add("links", false, 3, QUERY1, "a", "c", 0.1);
+
+        // The first batch is full so has been submitted; its links are no longer held, and the MERGE in the batch
+        // query stops a duplicate being created. Duplicates within the next batch are still dropped.
+        persister.add("links", false, 3, QUERY1, "a", "b", 0.2);
+        persister.add("links", false, 3, QUERY1, "a", "b", 0.3);
+        persister.close();
+
+        assertEquals(List.of(QUERY1 + ":2", QUERY1 + ":1"), batches_written);
+        assertEquals(3, rows_written.size());
+        assertEquals(0.2, (double) rows_written.get(2).get("distance"), 0.0);
+    }
+
+    @Test
+    public void reverseLinksAreDroppedOnlyIfUndirected() {
+
+        persister.add("undirected", true, 3, QUERY1, "a", "b", 0.1);
+        persister.add("undirected", true, 3, QUERY1, "b", "a", 0.1);
+        persister.add("directed", false, 3, QUERY1, "a", "b", 0.1);
+        persister.add("directed", false, 3, QUERY1, "b", "a", 0.1);
+        persister.close();
+
+        assertEquals(3, rows_written.size());
+    }
+
+    @Test
+    public void linksWithDifferentQueriesOrProvenanceAreDistinct() {
+
+        persister.add("links1", true, 3, QUERY1, "a", "b", 0.1);
+        persister.add("links1", true, 3, QUERY2, "a", "b", 0.1);
+        persister.add("links2", true, 3, QUERY1, "a", "b", 0.1);
+        persister.close();
+
+        assertEquals(3, rows_written.size());
+    }
+
+    @Test
+    public void linksAreWrittenInBatchesPerQuery() {
+
+        for (int i = 0; i < 5; i++) {
+            persister.add("links", false, 3, QUERY1, "a" + i, "b", 0.1);
+        }
+        persister.add("links", false, 3, QUERY2, "a", "b", 0.1);
+        persister.close();
+
+        // Two full batches for the first query as they fill, then the partial batches when closed.
+        assertEquals(4, batches_written.size());
+        assertEquals(List.of(QUERY1 + ":2", QUERY1 + ":2"), batches_written.subList(0, 2));
+        assertEquals(new HashSet<>(List.of(QUERY1 + ":1", QUERY2 + ":1")), new HashSet<>(batches_written.subList(2, 4)));
+        assertEquals(6, rows_written.size());
+    }
+
+    @Test
+    public void rowsRecordLinkProperties() {
+
+        persister.add("links", false, 4, QUERY1, "a", "b", 0.25);
+        persister.close();
+
+        Map<String, Object> row = rows_written.get(0);
+        assertEquals("a", row.get("standard_id_from"));
+        assertEquals("b", row.get("standard_id_to"));
+        assertEquals("links", row.get("prov"));
+        assertEquals(4, row.get("fields"));
+        assertEquals(0.25, (double) row.get("distance"), 0.0);
+    }
+
+    @Test
+    public void relationshipsCreatedAreCountedByProvenance() {
+
+        long created_before = BatchedLinkPersister.getRelationshipsCreated("counted");
+
+        persister.add("counted", false, 3, QUERY1, "a", "b", 0.1);
+        persister.add("counted", false, 3, QUERY1, "a", "c", 0.1);
+        persister.add("counted", false, 3, QUERY1, "a", "d", 0.1);
+        persister.close();
+
+        assertEquals(created_before + 3, BatchedLinkPersister.getRelationshipsCreated("counted"));
+    }
+
+    @Test
+    public void batchRetriedAfterTransientFailure() {
+
+        final int[] attempts = {0};
+        final BatchedLinkPersister persister = new BatchedLinkPersister(2, 2) {
+
+            @Override
+            int write(String batch_query, List<Map<String, Object>> rows) {
+
+                if (++attempts[0] == 1) throw new TransientException("Neo.TransientError.Transaction.DeadlockDetected", "deadlock");
+                rows_written.addAll(rows);
+                return rows.size();
+            }
+        };
+
+        persister.add("links", false, 3, QUERY1, "a", "b", 0.1);
+        persister.close();
+
+        assertEquals(2, attempts[0]);
+        assertEquals(1, rows_written.size());
+    }
+
+    @Test
+    public void linksAddedAfterCloseAreRejected() {
+
+        persister.close();
+        try {
+            persister.add("links", false, 3, QUERY1, "a", "b", 0.1);
+            fail("expected link to be rejected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    private BatchedLinkPersister makePersister(int batch_size) {
+
+        return new BatchedLinkPersister(batch_size, 2) {
+
+            @Override
+            int write(String batch_query, List<Map<String, Object>> rows) {
+
+                batches_written.add(batch_query + ":" + rows.size());
+                rows_written.addAll(rows);
+                return rows.size();
+            }
+        };
+    }
+}
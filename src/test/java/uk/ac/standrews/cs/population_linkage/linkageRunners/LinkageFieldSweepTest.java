@@ -0,0 +1,145 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.linkageRunners;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+public class LinkageFieldSweepTest {
+
+    private static final int MIN_FIELDS = 3;
+    private static final int MAX_FIELDS = 6;
+
+    @Test
+    public void linkIsAssignedToFirstPassWhichMakesIt() {
+
+        Map<String, BitSet> stored_fields = Map.of("s", passes(6, 5, 4, 3));
+        Map<String, BitSet> query_fields = Map.of("q", passes(5, 3));
+        double[] thresholds = {0, 0, 0, 0.4, 0.3, 0.2, 0.1};
+
+        LinkageRunner.FieldsRequiredPersister persister = new LinkageRunner.FieldsRequiredPersister(null, stored_fields, query_fields, thresholds, MIN_FIELDS);
+
+        assertEquals(5, persister.assignFields("s", "q", 0.05));
+        assertEquals(3, persister.assignFields("s", "q", 0.3));
+        assertTrue(persister.assignFields("s", "q", 0.5) < MIN_FIELDS);
+
+        assertEquals(0, persister.links_made[6]);
+        assertEquals(1, persister.links_made[5]);
+        assertEquals(0, persister.links_made[4]);
+        assertEquals(2, persister.links_made[3]);
+
+        assertEquals(1, persister.links_persisted[5]);
+        assertEquals(1, persister.links_persisted[3]);
+    }
+
+    @Test
+    public void sweepMakesSameLinksAsSeparatePasses() {
+
+        Random random = new Random(23);
+
+        for (int trial = 0; trial < 20; trial++) {
+            checkSweepAgainstSeparatePasses(random);
+        }
+    }
+
+    private void checkSweepAgainstSeparatePasses(Random random) {
+
+        int number_of_records = 30;
+        Map<String, BitSet> stored_fields = randomPasses("s", number_of_records, random);
+        Map<String, BitSet> query_fields = randomPasses("q", number_of_records, random);
+
+        double[] thresholds = new double[MAX_FIELDS + 1];
+        double max_threshold = 0;
+        for (int fields = MIN_FIELDS; fields <= MAX_FIELDS; fields++) {
+            thresholds[fields] = random.nextDouble() * 0.8;
+            max_threshold = Math.max(max_threshold, thresholds[fields]);
+        }
+
+        Map<String, Double> distances = new HashMap<>();
+        for (String stored_id : stored_fields.keySet()) {
+            for (String query_id : query_fields.keySet()) {
+                distances.put(stored_id + "-" + query_id, random.nextDouble());
+            }
+        }
+
+        // Separate passes, each persisting the links within its threshold between the records it includes.
+        Map<Integer, Set<String>> links_by_pass = new HashMap<>();
+        for (int fields = MAX_FIELDS; fields >= MIN_FIELDS; fields--) {
+            Set<String> links = new HashSet<>();
+            for (Map.Entry<String, Double> entry : distances.entrySet()) {
+                String[] ids = entry.getKey().split("-");
+                if (stored_fields.get(ids[0]).get(fields) && query_fields.get(ids[1]).get(fields) && entry.getValue() <= thresholds[fields]) {
+                    links.add(entry.getKey());
+                }
+            }
+            links_by_pass.put(fields, links);
+        }
+
+        // One sweep, seeing the links within the largest threshold between any of the records.
+        LinkageRunner.FieldsRequiredPersister persister = new LinkageRunner.FieldsRequiredPersister(null, stored_fields, query_fields, thresholds, MIN_FIELDS);
+        Map<Integer, Set<String>> links_by_fields = new HashMap<>();
+        for (Map.Entry<String, Double> entry : distances.entrySet()) {
+            if (entry.getValue() <= max_threshold) {
+                String[] ids = entry.getKey().split("-");
+                int fields = persister.assignFields(ids[0], ids[1], entry.getValue());
+                if (fields >= MIN_FIELDS) {
+                    links_by_fields.computeIfAbsent(fields, k -> new HashSet<>()).add(entry.getKey());
+                }
+            }
+        }
+
+        // A link persisted by several passes is recorded with the number of fields of the first.
+        Set<String> made_by_earlier_pass = new HashSet<>();
+        for (int fields = MAX_FIELDS; fields >= MIN_FIELDS; fields--) {
+
+            Set<String> first_made = new HashSet<>(links_by_pass.get(fields));
+            first_made.removeAll(made_by_earlier_pass);
+
+            assertEquals(first_made, links_by_fields.getOrDefault(fields, Collections.emptySet()));
+            assertEquals(links_by_pass.get(fields).size(), persister.links_made[fields]);
+            assertEquals(first_made.size(), persister.links_persisted[fields]);
+
+            made_by_earlier_pass.addAll(links_by_pass.get(fields));
+        }
+    }
+
+    private static Map<String, BitSet> randomPasses(String prefix, int number_of_records, Random random) {
+
+        Map<String, BitSet> fields_required = new HashMap<>();
+        for (int i = 0; i < number_of_records; i++) {
+            BitSet passes = new BitSet();
+            for (int fields = MIN_FIELDS; fields <= MAX_FIELDS; fields++) {
+                if (random.nextBoolean()) passes.set(fields);
+            }
+            fields_required.put(prefix + i, passes);
+        }
+        return fields_required;
+    }
+
+    private static BitSet passes(int... fields_required) {
+
+        BitSet passes = new BitSet();
+        for (int fields : fields_required) {
+            passes.set(fields);
+        }
+        return passes;
+    }
+}
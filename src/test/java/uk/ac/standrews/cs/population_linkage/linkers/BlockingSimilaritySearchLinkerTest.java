@@ -0,0 +1,188 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.linkers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.cs.neoStorr.impl.LXP;
+import uk.ac.standrews.cs.population_linkage.characterisation.LinkStatus;
+import uk.ac.standrews.cs.population_linkage.compositeMeasures.LXPMeasure;
+import uk.ac.standrews.cs.population_records.record_types.Birth;
+import uk.ac.standrews.cs.utilities.measures.coreConcepts.DataDistance;
+
+import java.util.*;
+
+import static junit.framework.TestCase.*;
+
+public class BlockingSimilaritySearchLinkerTest {
+
+    // Records are in the same block if they share a surname or a forename.
+    private static final List<BlockingKey> BLOCKING_KEYS = List.of(
+            BlockingKeys.field("surname", Birth.SURNAME, Birth.SURNAME, null),
+            BlockingKeys.field("forename", Birth.FORENAME, Birth.FORENAME, null));
+
+    // The distance between two records is the number of years between their births.
+    private static final LXPMeasure YEARS_APART = new LXPMeasure() {
+
+        @Override
+        public String getMeasureName() {
+            return "years apart";
+        }
+
+        @Override
+        public boolean maxDistanceIsOne() {
+            return false;
+        }
+
+        @Override
+        public double calculateDistance(final LXP x, final LXP y) {
+            return Math.abs(Integer.parseInt(x.getString(Birth.BIRTH_YEAR)) - Integer.parseInt(y.getString(Birth.BIRTH_YEAR)));
+        }
+    };
+
+    private LXP john_smith, mary_smith, john_jones, peter_brown, unnamed;
+    private List<LXP> stored_records;
+    private BlockingSimilaritySearchLinker.Blocks blocks;
+
+    @BeforeEach
+    public void setUp() {
+
+        john_smith = makeBirth("john", "smith", 1900, "1");
+        mary_smith = makeBirth("mary", "smith", 1901, "1");
+        john_jones = makeBirth("john", "jones", 1905, "1");
+        peter_brown = makeBirth("peter", "brown", 1900, "1");
+        unnamed = makeBirth("", "", 1900, "1");
+
+        stored_records = List.of(john_smith, mary_smith, john_jones, peter_brown, unnamed);
+        blocks = new BlockingSimilaritySearchLinker.Blocks(BLOCKING_KEYS, YEARS_APART, stored_records, null, null);
+    }
+
+    @Test
+    public void recordsSharingAnyBlockFoundOnce() {
+
+        final LXP query = makeBirth("john", "smith", 1900, "");
+
+        // john_smith shares both blocks with the query but is found only once.
+        assertEquals(Set.of(john_smith, mary_smith, john_jones), values(blocks.findWithinThreshold(query, query, 10)));
+        assertEquals(Set.of(john_smith, mary_smith), values(blocks.findWithinThreshold(query, query, 1)));
+        assertEquals(3, blocks.findWithinThreshold(query, query, 10).size());
+    }
+
+    @Test
+    public void recordsNotSharingBlockNotFound() {
+
+        // peter_brown and unnamed are at distance 0 but share no block with the query.
+        final LXP query = makeBirth("mary", "jones", 1900, "");
+
+        assertEquals(Set.of(mary_smith, john_jones), values(blocks.findWithinThreshold(query, query, 10)));
+        assertTrue(blocks.findWithinThreshold(makeBirth("", "", 1900, ""), unnamed, 10).isEmpty());
+    }
+
+    @Test
+    public void nearestFoundOverAllSharedBlocks() {
+
+        final LXP query = makeBirth("mary", "jones", 1904, "");
+
+        assertEquals(Set.of(john_jones), values(blocks.findNearest(query, query, 1)));
+        assertEquals(Set.of(john_jones, mary_smith), values(blocks.findNearest(query, query, 2)));
+        assertEquals(Set.of(john_jones, mary_smith), values(blocks.findNearest(query, query, 5)));
+
+        final LXP query2 = makeBirth("john", "smith", 1900, "");
+        final List<DataDistance<LXP>> nearest = blocks.findNearest(query2, query2, 2);
+
+        assertEquals(2, nearest.size());
+        assertEquals(john_smith, nearest.get(0).value);
+        assertEquals(mary_smith, nearest.get(1).value);
+    }
+
+    @Test
+    public void trueLinksCountedOnlyWithinBlocks() {
+
+        // True matches are between records with the same father. Each query shares blocks with two of its true
+        // matches, but unnamed, a true match for query1, is in no block.
+        final LXP query1 = makeBirth("john", "smith", 1900, "f1");
+        final LXP query2 = makeBirth("peter", "jones", 1900, "f2");
+
+        final Map<LXP, String> fathers = new IdentityHashMap<>();
+        fathers.put(john_smith, "f1");
+        fathers.put(mary_smith, "f1");
+        fathers.put(john_jones, "f2");
+        fathers.put(peter_brown, "f2");
+        fathers.put(unnamed, "f1");
+        fathers.put(query1, "f1");
+        fathers.put(query2, "f2");
+
+        assertEquals(4, blocks.countTrueLinks(List.of(query1, query2), (stored, query) -> sameFather(fathers, stored, query), false, false));
+    }
+
+    @Test
+    public void trueLinksWithinSameSetCountedOnce() {
+
+        final Map<LXP, String> fathers = new IdentityHashMap<>();
+        fathers.put(john_smith, "f1");
+        fathers.put(mary_smith, "f1");
+        fathers.put(john_jones, "f1");
+        fathers.put(peter_brown, "f1");
+        fathers.put(unnamed, "f1");
+
+        // Pairs sharing a block: john_smith-mary_smith and john_smith-john_jones, each found from both ends.
+        assertEquals(4, blocks.countTrueLinks(stored_records, (stored, query) -> sameFather(fathers, stored, query), true, false));
+        assertEquals(2, blocks.countTrueLinks(stored_records, (stored, query) -> sameFather(fathers, stored, query), true, true));
+    }
+
+    @Test
+    public void searchWithoutQueryRecordUnsupported() {
+
+        try {
+            blocks.findWithinThreshold(john_smith, 10);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+
+        try {
+            blocks.findNearest(john_smith, 1);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    private static LinkStatus sameFather(final Map<LXP, String> fathers, final LXP stored, final LXP query) {
+        return fathers.get(stored).equals(fathers.get(query)) ? LinkStatus.TRUE_MATCH : LinkStatus.NOT_TRUE_MATCH;
+    }
+
+    private static Set<LXP> values(final List<DataDistance<LXP>> results) {
+
+        final Set<LXP> values = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (DataDistance<LXP> result : results) {
+            values.add(result.value);
+        }
+        return values;
+    }
+
+    private static LXP makeBirth(final String forename, final String surname, final int birth_year, final String father_identity) {
+
+        final Birth record = new Birth();
+
+        record.put(Birth.FORENAME, forename);
+        record.put(Birth.SURNAME, surname);
+        record.put(Birth.BIRTH_YEAR, String.valueOf(birth_year));
+        record.put(Birth.FATHER_IDENTITY, father_identity);
+        return record;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.resolverExperiments.msed;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+public class IncrementalMSEDTest {
+
+    private static final double DELTA = 0.0000001;
+    private static final double FAMILY_THRESHOLD = 0.01; // as used by SiblingOpenTriangleResolver
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz ";
+
+    private final Random random = new Random(8733);
+
+    @Test
+    public void distanceMatchesMSEDAfterAddAndRemove() {
+
+        for (int trial = 0; trial < 20; trial++) {
+
+            List<String> pool = family(8);
+            IncrementalMSED msed = new IncrementalMSED(pool);
+            Set<Integer> members = new TreeSet<>();
+
+            for (int step = 0; step < 50; step++) {
+
+                int member = random.nextInt(pool.size());
+                if (members.contains(member)) {
+                    msed.remove(member);
+                    members.remove(member);
+                } else {
+                    msed.add(member);
+                    members.add(member);
+                }
+
+                assertEquals(members.size(), msed.size());
+                if (members.size() > 1) {
+                    assertEquals(MSED.distance(strings(pool, members)), msed.distance(), DELTA);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void addAndRemoveAreIdempotent() {
+
+        List<String> pool = family(5);
+        IncrementalMSED msed = new IncrementalMSED(pool);
+
+        msed.addAll();
+        msed.add(3);
+        msed.remove(1);
+        msed.remove(1);
+
+        assertEquals(4, msed.size());
+        assertEquals(MSED.distance(strings(pool, Arrays.asList(0, 2, 3, 4))), msed.distance(), DELTA);
+    }
+
+    @Test
+    public void closestSubsetsMatchExhaustiveSearch() {
+
+        for (int trial = 0; trial < 20; trial++) {
+
+            List<String> pool = family(7);
+            for (int k = 2; k <= 4; k++) {
+                for (double bound : new double[]{FAMILY_THRESHOLD, 0.05}) {
+                    checkClosestSubsets(pool, k, bound);
+                }
+            }
+        }
+    }
+
+    private void checkClosestSubsets(List<String> pool, int k, double bound) {
+
+        Map<List<Integer>, Double> expected = new HashMap<>();
+        double closest = Double.POSITIVE_INFINITY;
+
+        for (List<Integer> subset : Binomials.pickAll(pool.size(), k)) {
+            double distance = MSED.distance(strings(pool, subset));
+            closest = Math.min(closest, distance);
+            if (distance <= bound) expected.put(subset, distance);
+        }
+
+        OrderedList<List<Integer>, Double> found = new IncrementalMSED(pool).closestSubsets(k, bound);
+        List<List<Integer>> subsets = found.getList();
+        List<Double> distances = found.getComparators();
+
+        // The closest subset is always returned, even if it lies beyond the bound.
+        assertEquals(closest, distances.get(0), DELTA);
+
+        for (int i = 1; i < distances.size(); i++) {
+            assertTrue(distances.get(i - 1) <= distances.get(i));
+        }
+
+        int within_bound = 0;
+        for (int i = 0; i < subsets.size(); i++) {
+            if (distances.get(i) <= bound) {
+                within_bound++;
+                assertTrue(expected.containsKey(subsets.get(i)));
+                assertEquals(expected.get(subsets.get(i)), distances.get(i), DELTA);
+            }
+        }
+        assertEquals(expected.size(), within_bound);
+    }
+
+    /**
+     * @return strings made by perturbing a common string, as with the linkage fields of a family of siblings, with occasional unrelated strings
+     */
+    private List<String> family(int size) {
+
+        String base = randomString(30);
+        List<String> strings = new ArrayList<>();
+
+        for (int i = 0; i < size; i++) {
+            if (random.nextInt(5) == 0) {
+                strings.add(randomString(30));
+            } else {
+                StringBuilder perturbed = new StringBuilder(base);
+                for (int changes = random.nextInt(3); changes > 0; changes--) {
+                    perturbed.setCharAt(random.nextInt(perturbed.length()), ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+                }
+                strings.add(perturbed.toString());
+            }
+        }
+        return strings;
+    }
+
+    private String randomString(int length) {
+
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return builder.toString();
+    }
+
+    private static List<String> strings(List<String> pool, Collection<Integer> members) {
+
+        List<String> strings = new ArrayList<>();
+        for (int member : members) {
+            strings.add(pool.get(member));
+        }
+        return strings;
+    }
+}
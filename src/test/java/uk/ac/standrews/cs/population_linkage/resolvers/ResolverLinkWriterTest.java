@@ -0,0 +1,56 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.resolvers;
+
+import org.junit.jupiter.api.Test;
+
+import static junit.framework.TestCase.assertEquals;
+
+public class ResolverLinkWriterTest {
+
+    @Test
+    public void parametersReadFromRows() {
+
+        final String query = "MATCH (a:Birth), (b:Death) WHERE a.STANDARDISED_ID = $standard_id_from AND b.STANDARDISED_ID = $standard_id_to MERGE (a)-[r:DELETED { provenance: $prov, actors: $actor } ]-(b)";
+
+        assertEquals("UNWIND $rows AS row MATCH (a:Birth), (b:Death) WHERE a.STANDARDISED_ID = row.standard_id_from AND b.STANDARDISED_ID = row.standard_id_to MERGE (a)-[r:DELETED { provenance: row.prov, actors: row.actor } ]-(b)",
+                ResolverLinkWriter.toBatchQuery(query));
+    }
+
+    @Test
+    public void literalsUnchanged() {
+
+        final String query = "MATCH (a:Birth), (b:Birth) WHERE a.STANDARDISED_ID = $standard_id_from AND b.STANDARDISED_ID = $standard_id_to MERGE (a)-[r:SIBLING { provenance: $prov, actors: \"Child-Child\" } ]-(b)";
+
+        assertEquals("UNWIND $rows AS row MATCH (a:Birth), (b:Birth) WHERE a.STANDARDISED_ID = row.standard_id_from AND b.STANDARDISED_ID = row.standard_id_to MERGE (a)-[r:SIBLING { provenance: row.prov, actors: \"Child-Child\" } ]-(b)",
+                ResolverLinkWriter.toBatchQuery(query));
+    }
+
+    @Test
+    public void repeatedParameterReadFromRowEachTime() {
+
+        assertEquals("UNWIND $rows AS row MATCH (a {id: row.id}) MATCH (b {id: row.id2}) WHERE a.x <> row.id RETURN a, b",
+                ResolverLinkWriter.toBatchQuery("MATCH (a {id: $id}) MATCH (b {id: $id2}) WHERE a.x <> $id RETURN a, b"));
+    }
+
+    @Test
+    public void queryWithoutParameters() {
+
+        assertEquals("UNWIND $rows AS row MATCH (a)-[r:SIBLING]-(b) DELETE r",
+                ResolverLinkWriter.toBatchQuery("MATCH (a)-[r:SIBLING]-(b) DELETE r"));
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.resolvers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static junit.framework.TestCase.*;
+
+public class SiblingGraphTest {
+
+    private static final long[] NODE_IDS = {10, 20, 30, 40};
+    private static final String[] STORR_IDS = {"a", "b", "c", "d"};
+    private static final boolean[] ALL = {true, true, true, true};
+
+    private static final int NUMBER_OF_RANDOM_GRAPHS = 200;
+    private static final int MAX_NODES = 30;
+
+    @Test
+    public void openTriangleFoundFromBothEnds() {
+
+        final SiblingGraph graph = SiblingGraph.of(NODE_IDS, STORR_IDS, ALL, ALL, pairs(10, 20, 20, 30), pairs());
+
+        final Map<String, List<List<String>>> expected = new LinkedHashMap<>();
+        expected.put("a", List.of(List.of("b", "c")));
+        expected.put("c", List.of(List.of("b", "a")));
+
+        assertEquals(expected, graph.findOpenTriangles());
+        assertEquals(1, graph.countOpenTriangles());
+    }
+
+    @Test
+    public void closedTriangleNotOpen() {
+
+        final SiblingGraph graph = SiblingGraph.of(NODE_IDS, STORR_IDS, ALL, ALL, pairs(10, 20, 20, 30, 10, 30), pairs());
+
+        assertTrue(graph.findOpenTriangles().isEmpty());
+        assertEquals(0, graph.countOpenTriangles());
+    }
+
+    @Test
+    public void deletedRelationshipsExcluded() {
+
+        assertTrue(SiblingGraph.of(NODE_IDS, STORR_IDS, ALL, ALL, pairs(10, 20, 20, 30), pairs(10, 20)).findOpenTriangles().isEmpty());
+        assertTrue(SiblingGraph.of(NODE_IDS, STORR_IDS, ALL, ALL, pairs(10, 20, 20, 30), pairs(20, 30)).findOpenTriangles().isEmpty());
+
+        // A deleted relationship between x and z doesn't close the triangle.
+        assertEquals(1, SiblingGraph.of(NODE_IDS, STORR_IDS, ALL, ALL, pairs(10, 20, 20, 30), pairs(10, 30)).countOpenTriangles());
+    }
+
+    @Test
+    public void typesRespected() {
+
+        final boolean[] is_type1 = {true, false, true, false};
+        final boolean[] is_type2 = {false, true, false, true};
+
+        // a-b-c has y of the second type, b-a-d and a-d-c don't.
+        final SiblingGraph graph = SiblingGraph.of(NODE_IDS, STORR_IDS, is_type1, is_type2, pairs(10, 20, 20, 30, 10, 40), pairs());
+
+        final Map<String, List<List<String>>> expected = new LinkedHashMap<>();
+        expected.put("a", List.of(List.of("b", "c")));
+        expected.put("c", List.of(List.of("b", "a")));
+
+        assertEquals(expected, graph.findOpenTriangles());
+        assertEquals(1, graph.countOpenTriangles());
+    }
+
+    @Test
+    public void relationshipsToUnknownNodesIgnored() {
+
+        final SiblingGraph graph = SiblingGraph.of(NODE_IDS, STORR_IDS, ALL, ALL, pairs(10, 20, 20, 35, 20, 50), pairs(5, 20));
+
+        assertTrue(graph.findOpenTriangles().isEmpty());
+        assertEquals(0, graph.countOpenTriangles());
+    }
+
+    @Test
+    public void emptyGraph() {
+
+        final SiblingGraph graph = SiblingGraph.of(new long[0], new String[0], new boolean[0], new boolean[0], pairs(), pairs());
+
+        assertTrue(graph.findOpenTriangles().isEmpty());
+        assertEquals(0, graph.countOpenTriangles());
+    }
+
+    @Test
+    public void randomGraphsAgreeWithBruteForce() {
+
+        final Random random = new Random(3459873450987L);
+
+        for (int i = 0; i < NUMBER_OF_RANDOM_GRAPHS; i++) {
+
+            final int number_of_nodes = random.nextInt(MAX_NODES + 1);
+            final double sibling_probability = random.nextDouble() * 0.3;
+            final double deleted_probability = random.nextDouble() * 0.1;
+
+            final long[] node_ids = new long[number_of_nodes];
+            final String[] storr_ids = new String[number_of_nodes];
+            final boolean[] is_type1 = new boolean[number_of_nodes];
+            final boolean[] is_type2 = new boolean[number_of_nodes];
+
+            for (int u = 0; u < number_of_nodes; u++) {
+
+                node_ids[u] = (u > 0 ? node_ids[u - 1] : 0) + 1 + random.nextInt(3);
+                storr_ids[u] = "s" + u;
+
+                // Some nodes can take either role, as in a graph of siblings of the same type.
+                final int roles = random.nextInt(3);
+                is_type1[u] = roles != 1;
+                is_type2[u] = roles != 0;
+            }
+
+            final boolean[][] siblings = randomRelationships(random, number_of_nodes, sibling_probability);
+            final boolean[][] deleted = randomRelationships(random, number_of_nodes, deleted_probability);
+
+            final SiblingGraph graph = SiblingGraph.of(node_ids, storr_ids, is_type1, is_type2, toPairs(node_ids, siblings), toPairs(node_ids, deleted));
+
+            final Map<String, List<List<String>>> found = graph.findOpenTriangles();
+            final Map<String, Set<List<String>>> expected = new LinkedHashMap<>();
+            long expected_count = 0;
+
+            for (int x = 0; x < number_of_nodes; x++) {
+
+                final Set<List<String>> triangles = new HashSet<>();
+                for (int y = 0; y < number_of_nodes; y++) {
+                    for (int z = 0; z < number_of_nodes; z++) {
+                        if (isOpenTriangle(x, y, z, is_type1, is_type2, siblings, deleted)) triangles.add(List.of(storr_ids[y], storr_ids[z]));
+                    }
+                }
+                if (!triangles.isEmpty()) expected.put(storr_ids[x], triangles);
+
+                for (int z = x + 1; z < number_of_nodes; z++) {
+                    for (int y = 0; y < number_of_nodes; y++) {
+                        if (isOpenTriangle(x, y, z, is_type1, is_type2, siblings, deleted)) {
+                            expected_count++;
+                            break;
+                        }
+                    }
+                }
+            }
+
+            assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(found.keySet()));
+            for (Map.Entry<String, List<List<String>>> entry : found.entrySet()) {
+
+                assertEquals(expected.get(entry.getKey()).size(), entry.getValue().size());
+                assertEquals(expected.get(entry.getKey()), new HashSet<>(entry.getValue()));
+            }
+            assertEquals(expected_count, graph.countOpenTriangles());
+        }
+    }
+
+    private static boolean isOpenTriangle(final int x, final int y, final int z, final boolean[] is_type1, final boolean[] is_type2, final boolean[][] siblings, final boolean[][] deleted) {
+
+        return x != z && is_type1[x] && is_type2[y] && is_type1[z] &&
+                siblings[x][y] && siblings[y][z] && !siblings[x][z] &&
+                !deleted[x][y] && !deleted[y][z];
+    }
+
+    private static boolean[][] randomRelationships(final Random random, final int number_of_nodes, final double probability) {
+
+        final boolean[][] related = new boolean[number_of_nodes][number_of_nodes];
+
+        for (int u = 0; u < number_of_nodes; u++) {
+            for (int v = u + 1; v < number_of_nodes; v++) {
+                if (random.nextDouble() < probability) {
+                    related[u][v] = true;
+                    related[v][u] = true;
+                }
+            }
+        }
+        return related;
+    }
+
+    private static long[][] toPairs(final long[] node_ids, final boolean[][] related) {
+
+        final List<long[]> pairs = new ArrayList<>();
+
+        for (int u = 0; u < node_ids.length; u++) {
+            for (int v = u + 1; v < node_ids.length; v++) {
+                if (related[u][v]) pairs.add(new long[]{node_ids[u], node_ids[v]});
+            }
+        }
+        return pairs.toArray(new long[0][]);
+    }
+
+    private static long[][] pairs(final long... ids) {
+
+        final long[][] pairs = new long[ids.length / 2][];
+
+        for (int i = 0; i < pairs.length; i++) {
+            pairs[i] = new long[]{ids[2 * i], ids[2 * i + 1]};
+        }
+        return pairs;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.resolvers;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.cs.neoStorr.impl.LXP;
+import uk.ac.standrews.cs.neoStorr.interfaces.IBucket;
+import uk.ac.standrews.cs.neoStorr.util.NeoDbCypherBridge;
+import uk.ac.standrews.cs.population_records.record_types.Birth;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+import static junit.framework.TestCase.*;
+
+/**
+ * Checks the MSED pass of the open triangle resolvers over clusters whose records are prefetched from buckets.
+ */
+public class SiblingOpenTriangleResolverTest {
+
+    private static final List<Integer> LINKAGE_FIELDS = List.of(Birth.FORENAME, Birth.SURNAME, Birth.MOTHER_FORENAME, Birth.FATHER_FORENAME);
+
+    private static final String DELETION_PROVENANCE = "msed";
+    private static final String DELETION_QUERY = "delete";
+
+    private int reads = 0;
+
+    @Test
+    public void oddOneOutAsZLinkDeleted() {
+
+        final TestCluster cluster = cluster("x", List.of(List.of("y", "z")),
+                birth("x", "ANNA", "ERIKSDOTTER", "MARIA", "ERIK"),
+                birth("y", "ANNA", "ERIKSDOTTER", "MARIA", "ERIK"),
+                birth("z", "PETTER", "LARSSON", "KRISTINA", "LARS"));
+
+        assertEquals(List.of(List.of("z", "y")), resolve(cluster));
+    }
+
+    @Test
+    public void oddOneOutAsXLinkDeleted() {
+
+        final TestCluster cluster = cluster("x", List.of(List.of("y", "z")),
+                birth("x", "PETTER", "LARSSON", "KRISTINA", "LARS"),
+                birth("y", "ANNA", "ERIKSDOTTER", "MARIA", "ERIK"),
+                birth("z", "ANNA", "ERIKSDOTTER", "MARIA", "ERIK"));
+
+        assertEquals(List.of(List.of("x", "y")), resolve(cluster));
+    }
+
+    @Test
+    public void oddOneOutOfLargerFamilyLinkDeleted() {
+
+        final TestCluster cluster = cluster("x", List.of(List.of("y", "z1"), List.of("y", "z2")),
+                birth("x", "ANNA", "ERIKSDOTTER", "MARIA", "ERIK"),
+                birth("y", "ANNA", "ERIKSDOTTER", "MARIA", "ERIK"),
+                birth("z1", "ANNA", "ERIKSDOTTER", "MARIA", "ERIK"),
+                birth("z2", "PETTER", "LARSSON", "KRISTINA", "LARS"));
+
+        assertEquals(List.of(List.of("z2", "y")), resolve(cluster));
+    }
+
+    @Test
+    public void similarTriangleKept() {
+
+        final TestCluster cluster = cluster("x", List.of(List.of("y", "z")),
+                birth("x", "ANNA", "ERIKSDOTTER", "MARIA", "ERIK"),
+                birth("y", "ANNA", "ERIKSDOTTER", "MARIA", "ERIK"),
+                birth("z", "ANNA", "ERIKSDOTTER", "MARIA", "ERIK"));
+
+        assertTrue(resolve(cluster).isEmpty());
+    }
+
+    @Test
+    public void recordsReadOnceForAllTriangles() {
+
+        final TestCluster cluster = cluster("x", List.of(List.of("y", "z1"), List.of("y", "z2")),
+                birth("x", "ANNA", "ERIKSDOTTER", "MARIA", "ERIK"),
+                birth("y", "ANNA", "ERIKSDOTTER", "MARIA", "ERIK"),
+                birth("z1", "ANNA", "ERIKSDOTTER", "MARIA", "ERIK"),
+                birth("z2", "PETTER", "LARSSON", "KRISTINA", "LARS"));
+
+        resolve(cluster);
+
+        // x, y, z1 and z2, with y only read for the first triangle.
+        assertEquals(4, reads);
+    }
+
+    @Test
+    public void recordsKeptUntilLastTaskReleases() {
+
+        final TestCluster cluster = cluster("x", List.of(List.of("y", "z")),
+                birth("x", "ANNA", "ERIKSDOTTER", "MARIA", "ERIK"),
+                birth("y", "ANNA", "ERIKSDOTTER", "MARIA", "ERIK"),
+                birth("z", "PETTER", "LARSSON", "KRISTINA", "LARS"));
+
+        cluster.prefetchRecords();
+        cluster.prefetchRecords();
+        assertEquals(3, reads);
+
+        cluster.releaseRecords();
+        assertEquals("z", cluster.getTriangleRecords(List.of("y", "z"))[2].getString(Birth.STANDARDISED_ID));
+
+        cluster.releaseRecords();
+        assertNull(cluster.getTriangleRecords(List.of("y", "z"))[2]);
+    }
+
+    private List<List<String>> resolve(final TestCluster cluster) {
+
+        final TestResolver resolver = new TestResolver();
+
+        cluster.prefetchRecords();
+        try {
+            resolver.resolveTrianglesMSED(cluster, LINKAGE_FIELDS, DELETION_PROVENANCE, Birth.STANDARDISED_ID, DELETION_QUERY);
+        } finally {
+            cluster.releaseRecords();
+        }
+        return resolver.deleted;
+    }
+
+    private TestCluster cluster(final String x, final List<List<String>> triangle_chain, final LXP... records) {
+
+        final Map<String, LXP> records_by_id = new HashMap<>();
+        for (LXP record : records) {
+            records_by_id.put(record.getString(Birth.STANDARDISED_ID), record);
+        }
+
+        final IBucket bucket = (IBucket) Proxy.newProxyInstance(IBucket.class.getClassLoader(), new Class<?>[]{IBucket.class}, (proxy, method, args) -> {
+            if (!method.getName().equals("getObjectById")) throw new UnsupportedOperationException(method.getName());
+            reads++;
+            return records_by_id.get(args[0]);
+        });
+
+        return new TestCluster(x, triangle_chain, bucket);
+    }
+
+    private static LXP birth(final String id, final String forename, final String surname, final String mother_forename, final String father_forename) {
+
+        final Birth record = new Birth();
+        record.put(Birth.STANDARDISED_ID, id);
+        record.put(Birth.FORENAME, forename);
+        record.put(Birth.SURNAME, surname);
+        record.put(Birth.MOTHER_FORENAME, mother_forename);
+        record.put(Birth.FATHER_FORENAME, father_forename);
+        return record;
+    }
+
+    private static class TestCluster extends OpenTriangleCluster {
+
+        private final IBucket bucket;
+
+        TestCluster(final String x, final List<List<String>> triangle_chain, final IBucket bucket) {
+            super(x, triangle_chain);
+            this.bucket = bucket;
+        }
+
+        @Override
+        public void getYearStatistics() {
+        }
+
+        @Override
+        public void prefetchRecords() {
+            prefetchRecords(bucket, bucket);
+        }
+    }
+
+    /**
+     * Records the links that would be marked as deleted rather than writing them.
+     */
+    private static class TestResolver extends SiblingOpenTriangleResolver {
+
+        final List<List<String>> deleted = new ArrayList<>();
+
+        TestResolver() {
+            super(new ResolverLinkWriter(null));
+        }
+
+        @Override
+        protected void deleteLink(final NeoDbCypherBridge bridge, final String std_id_x, final String std_id_y, final String prov, final String deleteQuery) {
+
+            assertEquals(DELETION_PROVENANCE, prov);
+            assertEquals(DELETION_QUERY, deleteQuery);
+            deleted.add(List.of(std_id_x, std_id_y));
+        }
+
+        @Override
+        protected boolean mostCommonBirthPlacePredicate(final OpenTriangleCluster cluster, final boolean hasChanged, final LXP[] tempKids, final int predNumber) {
+            return hasChanged;
+        }
+
+        @Override
+        protected boolean minBirthIntervalPredicate(final OpenTriangleCluster cluster, final LXP[] tempKids, final boolean hasChanged, final int predNumber) {
+            return hasChanged;
+        }
+
+        @Override
+        protected boolean maxRangePredicate(final OpenTriangleCluster cluster, final LXP[] tempKids, final boolean hasChanged, final int predNumber) {
+            return hasChanged;
+        }
+
+        @Override
+        protected void cleanStrings(final List<LXP> bs) {
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2022 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population-linkage.
+ *
+ * population-linkage is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population-linkage is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population-linkage. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.population_linkage.searchStructures;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.cs.utilities.measures.coreConcepts.Measure;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static junit.framework.TestCase.assertEquals;
+
+public class ReferenceDistanceIndexTest {
+
+    private static final double DELTA = 0.0000001;
+    private static final String KEY = "repository/recipe/measure/fields/part=all";
+
+    private Path directory;
+
+    private int distances_calculated;
+    private Measure<Record> measure;
+
+    private List<Record> data;
+    private List<Record> reference_objects;
+
+    @BeforeEach
+    public void setup() throws IOException {
+
+        directory = Files.createTempDirectory("index");
+        distances_calculated = 0;
+
+        measure = new Measure<>() {
+
+            @Override
+            public String getMeasureName() {
+                return "length difference";
+            }
+
+            @Override
+            public boolean maxDistanceIsOne() {
+                return false;
+            }
+
+            @Override
+            public double calculateDistance(final Record r1, final Record r2) {
+
+                distances_calculated++;
+                return Math.abs(r1.content.length() - r2.content.length());
+            }
+        };
+
+        data = Arrays.asList(new Record("1", "a"), new Record("2", "bb"), new Record("3", "ccc"), new Record("4", "dddd"));
+        reference_objects = Arrays.asList(new Record("5", "eeeee"), new Record("6", "ffffff"));
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void savedDistancesAreReadBack() {
+
+        final List<Double> distances = allDistances(newIndex(data, reference_objects), true);
+        assertEquals(data.size() * reference_objects.size(), distances_calculated);
+
+        distances_calculated = 0;
+        final ReferenceDistanceIndex<Record> index = newIndex(data, reference_objects);
+
+        assertEquals(distances, allDistances(index, false));
+        assertEquals(0, distances_calculated);
+        assertEquals(data.size() * reference_objects.size(), index.getHits());
+    }
+
+    @Test
+    public void distancesInEitherOrderAreRead() {
+
+        allDistances(newIndex(data, reference_objects), true);
+
+        distances_calculated = 0;
+        final ReferenceDistanceIndex<Record> index = newIndex(data, reference_objects);
+
+        assertEquals(3.0, index.distance(reference_objects.get(0), data.get(1)), DELTA);
+        assertEquals(0, distances_calculated);
+    }
+
+    @Test
+    public void distancesNotInvolvingReferenceObjectsAreCalculated() {
+
+        final ReferenceDistanceIndex<Record> index = newIndex(data, reference_objects);
+
+        assertEquals(2.0, index.distance(data.get(0), data.get(2)), DELTA);
+        assertEquals(1, distances_calculated);
+    }
+
+    @Test
+    public void indexIsRejectedIfReferenceObjectsDiffer() {
+
+        allDistances(newIndex(data, reference_objects), true);
+
+        distances_calculated = 0;
+        allDistances(newIndex(data, Arrays.asList(reference_objects.get(1), reference_objects.get(0))), false);
+
+        assertEquals(data.size() * reference_objects.size(), distances_calculated);
+    }
+
+    @Test
+    public void indexIsRejectedIfReferenceObjectContentChanges() {
+
+        allDistances(newIndex(data, reference_objects), true);
+
+        distances_calculated = 0;
+        final List<Record> changed_reference_objects = Arrays.asList(new Record("5", "e"), reference_objects.get(1));
+        final ReferenceDistanceIndex<Record> index = newIndex(data, changed_reference_objects);
+
+        for (Record record : data) {
+            assertEquals(Math.abs(record.content.length() - 1), index.distance(record, changed_reference_objects.get(0)), DELTA);
+            index.distance(record, changed_reference_objects.get(1));
+        }
+        assertEquals(data.size() * reference_objects.size(), distances_calculated);
+    }
+
+    @Test
+    public void rowIsRecalculatedIfRecordContentChanges() {
+
+        allDistances(newIndex(data, reference_objects), true);
+
+        final List<Record> changed_data = new ArrayList<>(data);
+        changed_data.set(0, new Record("1", "aaaaa"));
+
+        distances_calculated = 0;
+        final ReferenceDistanceIndex<Record> index = newIndex(changed_data, reference_objects);
+
+        assertEquals(0.0, index.distance(changed_data.get(0), reference_objects.get(0)), DELTA);
+        allDistances(index, changed_data, true);
+        assertEquals(reference_objects.size(), distances_calculated);
+
+        // The replaced row is read back with the new content.
+        distances_calculated = 0;
+        allDistances(newIndex(changed_data, reference_objects), changed_data, false);
+        assertEquals(0, distances_calculated);
+    }
+
+    @Test
+    public void newRecordsAreAddedToIndex() {
+
+        allDistances(newIndex(data.subList(0, 2), reference_objects), data.subList(0, 2), true);
+
+        distances_calculated = 0;
+        allDistances(newIndex(data, reference_objects), true);
+        assertEquals((data.size() - 2) * reference_objects.size(), distances_calculated);
+
+        distances_calculated = 0;
+        allDistances(newIndex(data, reference_objects), false);
+        assertEquals(0, distances_calculated);
+    }
+
+    @Test
+    public void nonAsciiIdsAndKeysAreReadBack() {
+
+        // Modified UTF-8 writes the null character in two bytes and supplementary characters as surrogate pairs.
+        final List<Record> non_ascii_data = Arrays.asList(new Record("Näs", "a"), new Record("Högg\u0000", "bb"), new Record("\uD83D\uDE00", "ccc"));
+        final List<Record> non_ascii_reference_objects = Arrays.asList(new Record("Åsa", "eeeee"), new Record("Ängel", "ffffff"));
+        final String key = KEY + "/Umeå";
+
+        final ReferenceDistanceIndex<Record> index = new ReferenceDistanceIndex<>(directory, key, measure, r -> r.id, r -> r.content, non_ascii_data, non_ascii_reference_objects);
+        for (Record record : non_ascii_data) {
+            for (Record reference_object : non_ascii_reference_objects) index.distance(record, reference_object);
+        }
+        index.save();
+
+        distances_calculated = 0;
+        final ReferenceDistanceIndex<Record> reloaded = new ReferenceDistanceIndex<>(directory, key, measure, r -> r.id, r -> r.content, non_ascii_data, non_ascii_reference_objects);
+        for (Record record : non_ascii_data) {
+            for (Record reference_object : non_ascii_reference_objects) {
+                assertEquals(Math.abs(record.content.length() - reference_object.content.length()), reloaded.distance(record, reference_object), DELTA);
+            }
+        }
+
+        assertEquals(0, distances_calculated);
+        assertEquals(non_ascii_data.size() * non_ascii_reference_objects.size(), reloaded.getHits());
+    }
+
+    @Test
+    public void indicesWithDifferentKeysAreSeparate() {
+
+        allDistances(newIndex(data, reference_objects), true);
+
+        distances_calculated = 0;
+        allDistances(new ReferenceDistanceIndex<>(directory, KEY + "2", measure, r -> r.id, r -> r.content, data, reference_objects), false);
+
+        assertEquals(data.size() * reference_objects.size(), distances_calculated);
+    }
+
+    private ReferenceDistanceIndex<Record> newIndex(final List<Record> data, final List<Record> reference_objects) {
+
+        return new ReferenceDistanceIndex<>(directory, KEY, measure, r -> r.id, r -> r.content, data, reference_objects);
+    }
+
+    private List<Double> allDistances(final ReferenceDistanceIndex<Record> index, final boolean save) {
+
+        return allDistances(index, data, save);
+    }
+
+    private List<Double> allDistances(final ReferenceDistanceIndex<Record> index, final List<Record> data, final boolean save) {
+
+        final List<Double> distances = new ArrayList<>();
+        for (Record record : data) {
+            for (Record reference_object : reference_objects) {
+                distances.add(index.distance(record, reference_object));
+            }
+        }
+        if (save) index.save();
+        return distances;
+    }
+
+    private static class Record {
+
+        final String id;
+        final String content;
+
+        Record(final String id, final String content) {
+            this.id = id;
+            this.content = content;
+        }
+    }
+}